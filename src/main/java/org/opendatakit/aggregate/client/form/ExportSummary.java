@@ -35,6 +35,7 @@ public final class ExportSummary implements Serializable {
   private Date timeLastAction;
   private Date timeCompleted;
   private String resultFile;
+  private String progress;
 
   public String getUri() {
     return uri;
@@ -92,6 +93,14 @@ public final class ExportSummary implements Serializable {
     this.resultFile = resultFile;
   }
 
+  public String getProgress() {
+    return progress;
+  }
+
+  public void setProgress(String progress) {
+    this.progress = progress;
+  }
+
   
   
 }
@@ -42,9 +42,9 @@ public interface FormService extends RemoteService {
   
   ArrayList<ExportSummary> getExports() throws AccessDeniedException, FormNotAvailableException, RequestFailureException, DatastoreFailureException;
   
-  Boolean createCsvFromFilter(FilterGroup group) throws AccessDeniedException, FormNotAvailableException, RequestFailureException, DatastoreFailureException;
+  Boolean createCsvFromFilter(FilterGroup group, Boolean newSubmissionsOnly) throws AccessDeniedException, FormNotAvailableException, RequestFailureException, DatastoreFailureException;
   
-  Boolean createJsonFileFromFilter(FilterGroup group) throws AccessDeniedException, FormNotAvailableException, RequestFailureException, DatastoreFailureException;
+  Boolean createJsonFileFromFilter(FilterGroup group, Boolean newSubmissionsOnly) throws AccessDeniedException, FormNotAvailableException, RequestFailureException, DatastoreFailureException;
   
   KmlOptionsSummary getPossibleKmlSettings(String formId) throws AccessDeniedException, FormNotAvailableException, RequestFailureException, DatastoreFailureException;
 
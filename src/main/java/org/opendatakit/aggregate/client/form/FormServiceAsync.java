@@ -32,12 +32,14 @@ public interface FormServiceAsync {
 
   void getGpsCoordnates(String formId, AsyncCallback<GeopointElementList> callback);
 
-  void createCsvFromFilter(FilterGroup group, AsyncCallback<Boolean> callback);
+  void createCsvFromFilter(FilterGroup group, Boolean newSubmissionsOnly,
+      AsyncCallback<Boolean> callback);
 
   void createKmlFromFilter(FilterGroup group, ArrayList<KmlSelection> kmlElementsToInclude,
       AsyncCallback<Boolean> callback);
 
-  void createJsonFileFromFilter(FilterGroup group, AsyncCallback<Boolean> callback);
+  void createJsonFileFromFilter(FilterGroup group, Boolean newSubmissionsOnly,
+      AsyncCallback<Boolean> callback);
 
   void deleteExport(String uri, AsyncCallback<Void> callback);
 
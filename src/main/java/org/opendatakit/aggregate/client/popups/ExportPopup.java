@@ -22,6 +22,7 @@ import org.opendatakit.aggregate.client.SecureGWT;
 import org.opendatakit.aggregate.client.filter.FilterGroup;
 import org.opendatakit.aggregate.client.filter.FilterSet;
 import org.opendatakit.aggregate.client.widgets.AggregateButton;
+import org.opendatakit.aggregate.client.widgets.AggregateCheckBox;
 import org.opendatakit.aggregate.client.widgets.ClosePopupButton;
 import org.opendatakit.aggregate.client.widgets.EnumListBox;
 import org.opendatakit.aggregate.client.widgets.FilterListBox;
@@ -48,6 +49,10 @@ public final class ExportPopup extends AbstractPopupBase {
   private static final String CREATE_BUTTON_TOOLTIP = "Create Export File";
   private static final String CREATE_BUTTON_HELP_BALLOON = "This creates either a CSV or KML file of your data.";
 
+  private static final String NEW_ONLY_TXT = "New submissions only";
+  private static final String NEW_ONLY_TOOLTIP = "Export only the submissions added since the last export";
+  private static final String NEW_ONLY_BALLOON = "For CSV and JSON files, export only the submissions completed since the last export of this form with the same type and filter.";
+
   private static final String PROBLEM_NULL_FILTER_GROUP = "Filter group is invalid";
 
   // this will be the standard header across the top
@@ -56,6 +61,8 @@ public final class ExportPopup extends AbstractPopupBase {
 
   private final FilterListBox filtersBox;
 
+  private final AggregateCheckBox newSubmissionsOnly;
+
   private final AggregateButton exportButton;
 
   private final String formId;
@@ -79,6 +86,9 @@ public final class ExportPopup extends AbstractPopupBase {
 
     fileType = new EnumListBox<ExportType>(ExportType.values(), FILE_TYPE_TOOLTIP,
         FILE_TYPE_BALLOON);
+
+    newSubmissionsOnly = new AggregateCheckBox(NEW_ONLY_TXT, false, NEW_ONLY_TOOLTIP,
+        NEW_ONLY_BALLOON);
     
     // set the standard header widgets
     optionsBar = new FlexTable();
@@ -89,8 +99,9 @@ public final class ExportPopup extends AbstractPopupBase {
     optionsBar.setWidget(0, 3, fileType);
     optionsBar.setWidget(0, 4, new HTML("<h2>Filter:</h2>"));
     optionsBar.setWidget(0, 5, filtersBox);
-    optionsBar.setWidget(0, 6, exportButton);
-    optionsBar.setWidget(0, 7, new ClosePopupButton(this));
+    optionsBar.setWidget(0, 6, newSubmissionsOnly);
+    optionsBar.setWidget(0, 7, exportButton);
+    optionsBar.setWidget(0, 8, new ClosePopupButton(this));
     setWidget(optionsBar);
   }
 
@@ -149,9 +160,11 @@ public final class ExportPopup extends AbstractPopupBase {
       }
 
       if (type == ExportType.CSV) {
-        SecureGWT.getFormService().createCsvFromFilter(filterGroup, new CreateExportCallback());
+        SecureGWT.getFormService().createCsvFromFilter(filterGroup,
+            newSubmissionsOnly.getValue(), new CreateExportCallback());
       } else if (type == ExportType.JSONFILE) {
-        SecureGWT.getFormService().createJsonFileFromFilter(filterGroup, new CreateExportCallback());
+        SecureGWT.getFormService().createJsonFileFromFilter(filterGroup,
+            newSubmissionsOnly.getValue(), new CreateExportCallback());
       } else if( type == ExportType.KML) {
         KmlOptionsPopup popup = new KmlOptionsPopup(formId, filterGroup);
         popup.setPopupPositionAndShow(popup.getPositionCallBack());
@@ -67,7 +67,11 @@ public class ExportTable extends FlexTable {
       }
       
       if (e.getStatus() != null) {
-        this.setText(i + STARTING_ROW, STATUS, e.getStatus().toString());
+        String status = e.getStatus().toString();
+        if (e.getProgress() != null) {
+          status += " - " + e.getProgress();
+        }
+        this.setText(i + STARTING_ROW, STATUS, status);
         if (e.getResultFile() != null && e.getStatus() == ExportStatus.AVAILABLE) {
           this.setWidget(i + STARTING_ROW, DOWNLOAD_FILE, new HTML(new SafeHtmlBuilder().appendEscaped(e.getResultFile()).toSafeHtml()));
         }
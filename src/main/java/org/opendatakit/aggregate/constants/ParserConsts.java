@@ -59,6 +59,12 @@ public final class ParserConsts {
    */
   public final static int FILE_SIZE_MAX = 5000000;
 
+  /**
+   * Multipart items larger than this are spooled to a temporary file rather
+   * than being held in memory
+   */
+  public final static int FILE_SPOOL_THRESHOLD = 256 * 1024;
+
   /**
    * Namespace of ODK extensions to the OpenRosa standards
    */
@@ -30,6 +30,13 @@ public class JsonServerConsts {
 
   public static final long BACKOFF_DELAY_MILLISECONDS = 90000L;
 
+  /**
+   * default maximum number of submissions sent in the data array of a single
+   * POST (see ServerPreferencesProperties). Keep this small if binaries are
+   * embedded in the JSON.
+   */
+  public static final int DEFAULT_SUBMISSIONS_PER_REQUEST = 25;
+
   public static final Map<ElementType, JsonServerType> typeMap = new HashMap<ElementType, JsonServerType>();
   static {
     typeMap.put(ElementType.STRING, JsonServerType.STRING);
@@ -20,5 +20,11 @@ public class OhmageJsonServerConsts {
 
   public static final long BACKOFF_DELAY_MILLISECONDS = 90000L;
 
+  /**
+   * default maximum number of surveys (and their photos) sent in a single
+   * upload (see ServerPreferencesProperties).
+   */
+  public static final int DEFAULT_SURVEYS_PER_UPLOAD = 10;
+
     public static final String OHMAGE_SURVEY_UPLOAD_PATH = "/app/survey/upload";
 }
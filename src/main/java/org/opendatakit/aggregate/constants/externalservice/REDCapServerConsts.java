@@ -30,6 +30,12 @@ public class REDCapServerConsts {
 
   public static final long BACKOFF_DELAY_MILLISECONDS = 90000L;
 
+  /**
+   * default maximum number of records sent in a single record import (see
+   * ServerPreferencesProperties).
+   */
+  public static final int DEFAULT_RECORDS_PER_IMPORT = 25;
+
   public static final Map<ElementType, REDCapServerType> typeMap = new HashMap<ElementType, REDCapServerType>();
   static {
     typeMap.put(ElementType.STRING, REDCapServerType.STRING);
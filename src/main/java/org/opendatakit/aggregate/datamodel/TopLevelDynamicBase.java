@@ -17,6 +17,7 @@ import java.util.Date;
 
 import org.opendatakit.common.datamodel.DynamicCommonFieldsBase;
 import org.opendatakit.common.persistence.CommonFieldsBase;
+import org.opendatakit.common.persistence.CompositeIndex;
 import org.opendatakit.common.persistence.DataField;
 import org.opendatakit.common.persistence.DataField.IndexType;
 import org.opendatakit.common.security.User;
@@ -84,6 +85,10 @@ public abstract class TopLevelDynamicBase extends DynamicCommonFieldsBase {
         fieldList.add(isComplete=new DataField(IS_COMPLETE));
         fieldList.add(submissionDate=new DataField(SUBMISSION_DATE));
         fieldList.add(markedAsCompleteDate=new DataField(MARKED_AS_COMPLETE_DATE));
+
+        // completed submissions are paged through in markedAsCompleteDate order
+        addCompositeIndex(new CompositeIndex(isComplete.getName(),
+            markedAsCompleteDate.getName(), primaryKey.getName()));
     }
 
     /**
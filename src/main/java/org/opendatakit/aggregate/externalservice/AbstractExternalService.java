@@ -129,10 +129,60 @@ public abstract class AbstractExternalService implements ExternalService {
   }
 
   @Override
-  public void sendSubmissions(List<Submission> submissions, boolean streaming, CallingContext cc) throws ODKExternalServiceException {
+  public void sendSubmissions(List<Submission> submissions, boolean streaming, BatchSentHandler handler, CallingContext cc) throws ODKExternalServiceException {
     throw new ODKExternalServiceException(NO_BATCH_FUNCTIONALITY_ERROR);
   }
 
+  /**
+   * Transmit several submissions to the external service in a single request.
+   * Should return normally only if the server accepted the whole batch.
+   * Publishers that override this should also override canBatchSubmissions()
+   * and sendSubmissions() (see sendSubmissionsInBatches()).
+   *
+   * @param batch
+   * @param cc
+   * @throws ODKExternalServiceException
+   */
+  protected void insertBatch(List<Submission> batch, CallingContext cc) throws ODKExternalServiceException {
+    throw new ODKExternalServiceException(NO_BATCH_FUNCTIONALITY_ERROR);
+  }
+
+  /**
+   * Send the submissions through insertBatch() in groups of at most
+   * maxBatchSize, persisting the FormServiceCursor and notifying the
+   * handler once each group has been accepted by the server.
+   *
+   * @param submissions
+   * @param maxBatchSize
+   * @param streaming
+   * @param handler
+   * @param cc
+   * @throws ODKExternalServiceException
+   */
+  protected void sendSubmissionsInBatches(List<Submission> submissions, int maxBatchSize,
+      boolean streaming, BatchSentHandler handler, CallingContext cc)
+      throws ODKExternalServiceException {
+    Datastore ds = cc.getDatastore();
+    User user = cc.getCurrentUser();
+    for (int start = 0; start < submissions.size(); start += maxBatchSize) {
+      List<Submission> batch = submissions.subList(start,
+          Math.min(start + maxBatchSize, submissions.size()));
+      insertBatch(batch, cc);
+
+      // persist updated last send date
+      ExternalServiceUtils.updateFscToSuccessfulSubmissionDate(fsc, batch.get(batch.size() - 1),
+          streaming);
+      try {
+        ds.putEntity(fsc, user);
+      } catch (ODKEntityPersistException e) {
+        throw new ODKExternalServiceException(e);
+      } catch (ODKOverQuotaException e) {
+        throw new ODKExternalServiceException(e);
+      }
+      handler.batchSent(batch.size());
+    }
+  }
+
   @Override
   public void sendSubmission(Submission submission, CallingContext cc) throws ODKExternalServiceException {
     insertData(submission, cc);
@@ -32,11 +32,49 @@ import org.opendatakit.common.web.CallingContext;
  */
 public interface ExternalService {
 
+  /**
+   * Notified by sendSubmissions() each time a batch of submissions has been
+   * accepted by the external service and the FormServiceCursor persisted.
+   * Lets the caller do periodic work (e.g., renew its task lock) between
+   * the requests of a long upload.
+   */
+  public interface BatchSentHandler {
+    void batchSent(int submissionCount) throws ODKExternalServiceException;
+  }
+
   public boolean canBatchSubmissions();
-  
+
+  /**
+   * Publish a single submission. Used when the publisher cannot batch
+   * submissions.
+   *
+   * The caller records the progress of publishing (the FormServiceCursor)
+   * only periodically, not after every submission. If publishing is
+   * interrupted before the next checkpoint (e.g., the server is restarted),
+   * the submissions sent since the last checkpoint are sent again when
+   * publishing resumes. Publishers should therefore tolerate receiving the
+   * same submission more than once (e.g., by keying records on the
+   * submission's instanceID).
+   *
+   * @param submission
+   * @param cc
+   * @throws ODKExternalServiceException
+   */
   public void sendSubmission(Submission submission, CallingContext cc) throws ODKExternalServiceException;
 
-  public void sendSubmissions(List<Submission> submissions, boolean streaming, CallingContext cc) throws ODKExternalServiceException;
+  /**
+   * Publish the submissions, possibly over several requests. Used when the
+   * publisher can batch submissions.
+   *
+   * @param submissions
+   * @param streaming
+   * @param handler
+   *          - notified after each batch has been sent and checkpointed.
+   * @param cc
+   * @throws ODKExternalServiceException
+   */
+  public void sendSubmissions(List<Submission> submissions, boolean streaming,
+      BatchSentHandler handler, CallingContext cc) throws ODKExternalServiceException;
 
   public void setUploadCompleted(CallingContext cc) throws ODKEntityPersistException, ODKOverQuotaException;
 
@@ -339,8 +339,8 @@ public class FusionTable extends GoogleOauth2ExternalService implements External
   }
 
   @Override
-  public void sendSubmissions(List<Submission> submissions, boolean streaming, CallingContext cc)
-      throws ODKExternalServiceException {
+  public void sendSubmissions(List<Submission> submissions, boolean streaming,
+      BatchSentHandler handler, CallingContext cc) throws ODKExternalServiceException {
 
     Datastore ds = cc.getDatastore();
     User user = cc.getCurrentUser();
@@ -370,6 +370,7 @@ public class FusionTable extends GoogleOauth2ExternalService implements External
         // persist updated last send date
         ExternalServiceUtils.updateFscToSuccessfulSubmissionDate(fsc, lastSubmission, streaming);
         ds.putEntity(fsc, user);
+        handler.batchSent(batcher.getBatchSize());
 
       }
 
@@ -744,6 +745,13 @@ public class FusionTable extends GoogleOauth2ExternalService implements External
       return null;
     }
 
+    /**
+     * @return the number of submissions in the current batch
+     */
+    int getBatchSize() {
+      return currentSet.size();
+    }
+
     /**
      * Get string for batch insert, removes the string so not available after
      * the first call
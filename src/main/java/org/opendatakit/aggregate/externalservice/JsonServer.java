@@ -38,6 +38,7 @@ import org.opendatakit.aggregate.form.IForm;
 import org.opendatakit.aggregate.format.element.BasicElementFormatter;
 import org.opendatakit.aggregate.format.header.BasicHeaderFormatter;
 import org.opendatakit.aggregate.format.structure.JsonFormatterWithFilters;
+import org.opendatakit.aggregate.server.ServerPreferencesProperties;
 import org.opendatakit.aggregate.submission.Submission;
 import org.opendatakit.common.persistence.CommonFieldsBase;
 import org.opendatakit.common.persistence.exception.ODKDatastoreException;
@@ -166,18 +167,42 @@ public class JsonServer extends AbstractExternalService implements ExternalServi
   @Override
   protected void insertData(Submission submission, CallingContext cc)
       throws ODKExternalServiceException {
+    insertBatch(Collections.singletonList(submission), cc);
+  }
+
+  @Override
+  public boolean canBatchSubmissions() {
+    return true;
+  }
+
+  @Override
+  public void sendSubmissions(List<Submission> submissions, boolean streaming,
+      BatchSentHandler handler, CallingContext cc) throws ODKExternalServiceException {
+    int batchSize;
+    try {
+      batchSize = ServerPreferencesProperties.getJsonServerSubmissionsPerRequest(cc);
+    } catch (ODKDatastoreException e) {
+      throw new ODKExternalServiceException(e);
+    }
+    sendSubmissionsInBatches(submissions, batchSize, streaming, handler, cc);
+  }
+
+  /**
+   * Sends the submissions as the elements of the data array of a single POST.
+   */
+  @Override
+  protected void insertBatch(List<Submission> batch, CallingContext cc)
+      throws ODKExternalServiceException {
     try {
       BinaryOption option = objectEntity.getBinaryOption();
 
       ByteArrayOutputStream baStream = new ByteArrayOutputStream();
       PrintWriter pWriter = new PrintWriter(new OutputStreamWriter(baStream, HtmlConsts.UTF8_ENCODE));
 
-      System.out.println("Sending one JSON Submission");
-
-      // format submission
+      // format submissions
       JsonFormatterWithFilters formatter = new JsonFormatterWithFilters(pWriter, form, null, option,
           true, cc.getServerURL());
-      formatter.processSubmissions(Collections.singletonList(submission), cc);
+      formatter.processSubmissions(batch, cc);
       pWriter.flush();
 
       JsonParser parser = new JsonParser();
@@ -19,7 +19,9 @@ package org.opendatakit.aggregate.externalservice;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -42,6 +44,7 @@ import org.opendatakit.aggregate.form.IForm;
 import org.opendatakit.aggregate.format.element.BasicElementFormatter;
 import org.opendatakit.aggregate.format.element.OhmageJsonElementFormatter;
 import org.opendatakit.aggregate.format.header.BasicHeaderFormatter;
+import org.opendatakit.aggregate.server.ServerPreferencesProperties;
 import org.opendatakit.aggregate.submission.Submission;
 import org.opendatakit.common.persistence.CommonFieldsBase;
 import org.opendatakit.common.persistence.exception.ODKDatastoreException;
@@ -225,23 +228,55 @@ public class OhmageJsonServer extends AbstractExternalService implements Externa
   @Override
   protected void insertData(Submission submission, CallingContext cc)
       throws ODKExternalServiceException {
+    insertBatch(Collections.singletonList(submission), cc);
+  }
+
+  @Override
+  public boolean canBatchSubmissions() {
+    return true;
+  }
+
+  @Override
+  public void sendSubmissions(List<Submission> submissions, boolean streaming,
+      BatchSentHandler handler, CallingContext cc) throws ODKExternalServiceException {
+    int batchSize;
     try {
-      OhmageJsonTypes.Survey survey = new OhmageJsonTypes.Survey();
-      // TODO: figure out these values
-      survey.setDate(null);
-      survey.setLocation(null);
-      survey.setLocation_status(null);
-      survey.setSurvey_id(null);
-      survey.setSurvey_lauch_context(null);
-      survey.setTime(System.currentTimeMillis());
-      survey.setTimezone(null);
-
-      OhmageJsonElementFormatter formatter = new OhmageJsonElementFormatter();
-      // called purely for side effects
-      submission.getFormattedValuesAsRow(null, formatter, false, cc);
-      survey.setResponses(formatter.getResponses());
-
-      uploadSurveys(Collections.singletonList(survey), formatter.getPhotos(), cc);
+      batchSize = ServerPreferencesProperties.getOhmageSurveysPerUpload(cc);
+    } catch (ODKDatastoreException e) {
+      throw new ODKExternalServiceException(e);
+    }
+    sendSubmissionsInBatches(submissions, batchSize, streaming, handler, cc);
+  }
+
+  /**
+   * Uploads the submissions, and all of their photos, as a single set of surveys.
+   */
+  @Override
+  protected void insertBatch(List<Submission> batch, CallingContext cc)
+      throws ODKExternalServiceException {
+    try {
+      List<OhmageJsonTypes.Survey> surveys = new ArrayList<OhmageJsonTypes.Survey>();
+      Map<UUID, ByteArrayBody> photos = new HashMap<UUID, ByteArrayBody>();
+      for (Submission submission : batch) {
+        OhmageJsonTypes.Survey survey = new OhmageJsonTypes.Survey();
+        // TODO: figure out these values
+        survey.setDate(null);
+        survey.setLocation(null);
+        survey.setLocation_status(null);
+        survey.setSurvey_id(null);
+        survey.setSurvey_lauch_context(null);
+        survey.setTime(System.currentTimeMillis());
+        survey.setTimezone(null);
+
+        OhmageJsonElementFormatter formatter = new OhmageJsonElementFormatter();
+        // called purely for side effects
+        submission.getFormattedValuesAsRow(null, formatter, false, cc);
+        survey.setResponses(formatter.getResponses());
+        surveys.add(survey);
+        photos.putAll(formatter.getPhotos());
+      }
+
+      uploadSurveys(surveys, photos, cc);
 
     } catch (ODKExternalServiceCredentialsException e) {
       fsc.setOperationalStatus(OperationalStatus.BAD_CREDENTIALS);
@@ -22,11 +22,14 @@ import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TimeZone;
 
 import javax.xml.parsers.DocumentBuilder;
@@ -53,6 +56,7 @@ import org.opendatakit.aggregate.exception.ODKExternalServiceException;
 import org.opendatakit.aggregate.form.IForm;
 import org.opendatakit.aggregate.format.element.BasicElementFormatter;
 import org.opendatakit.aggregate.format.header.BasicHeaderFormatter;
+import org.opendatakit.aggregate.server.ServerPreferencesProperties;
 import org.opendatakit.aggregate.submission.Submission;
 import org.opendatakit.aggregate.submission.SubmissionValue;
 import org.opendatakit.aggregate.submission.type.BlobSubmissionType;
@@ -239,234 +243,309 @@ public class REDCapServer extends AbstractExternalService implements ExternalSer
   @Override
   protected void insertData(Submission submission, CallingContext cc)
       throws ODKExternalServiceException {
+    insertBatch(Collections.singletonList(submission), cc);
+  }
+
+  @Override
+  public boolean canBatchSubmissions() {
+    return true;
+  }
+
+  @Override
+  public void sendSubmissions(List<Submission> submissions, boolean streaming,
+      BatchSentHandler handler, CallingContext cc) throws ODKExternalServiceException {
+    int batchSize;
+    try {
+      batchSize = ServerPreferencesProperties.getRedcapRecordsPerImport(cc);
+    } catch (ODKDatastoreException e) {
+      throw new ODKExternalServiceException(e);
+    }
+    sendSubmissionsInBatches(submissions, batchSize, streaming, handler, cc);
+  }
 
+  /**
+   * Imports the submissions with a single multi-record import, then
+   * uploads their media attachments. A study_id that repeats within the
+   * batch starts a new import so that the records are applied in order.
+   */
+  @Override
+  protected void insertBatch(List<Submission> batch, CallingContext cc)
+      throws ODKExternalServiceException {
     try {
-      // an empty map to hold our values
-      String study_id = null;
+      List<REDCapRecord> records = new ArrayList<REDCapRecord>();
+      Set<String> studyIds = new HashSet<String>();
+      for (Submission submission : batch) {
+        REDCapRecord record = formatRecord(submission, cc);
+        if (!studyIds.add(record.studyId)) {
+          importRecords(records, cc);
+          records.clear();
+          studyIds.clear();
+          studyIds.add(record.studyId);
+        }
+        records.add(record);
+      }
+      importRecords(records, cc);
+    } catch (Exception e) {
+      throw new ODKExternalServiceException(e);
+    }
+  }
 
-      // create a hash to hold the blobs for later processing
-      Map<String, BlobSubmissionType> blobs = new HashMap<String, BlobSubmissionType>();
+  /**
+   * A submission formatted as an item of a REDCap record import.
+   */
+  private static final class REDCapRecord {
+    final String studyId;
+    final String item;
+    // the media attachments to upload after the record is imported
+    final Map<String, BlobSubmissionType> blobs;
+
+    REDCapRecord(String studyId, String item, Map<String, BlobSubmissionType> blobs) {
+      this.studyId = studyId;
+      this.item = item;
+      this.blobs = blobs;
+    }
+  }
 
-      StringBuilder b = new StringBuilder();
+  private REDCapRecord formatRecord(Submission submission, CallingContext cc)
+      throws ODKDatastoreException {
+    // an empty map to hold our values
+    String study_id = null;
 
-      Map<FormElementModel, SubmissionValue> valuesMap = submission.getSubmissionValuesMap();
+    // create a hash to hold the blobs for later processing
+    Map<String, BlobSubmissionType> blobs = new HashMap<String, BlobSubmissionType>();
 
-      for (FormElementModel element : valuesMap.keySet()) {
-        SubmissionValue value = valuesMap.get(element);
-        if (value == null) {
-          continue;
-        }
-        if (element.isMetadata()) {
-          // handle metadata specially
-        } else {
-          switch (element.getElementType()) {
-            case METADATA:
-              // This keeps lint warnings down...
-              break;
-            case GEOSHAPE:
-            case GEOTRACE:
-            case STRING: {
-              StringSubmissionType str = (StringSubmissionType) value;
-              String strValue = str.getValue();
-              if (element.getElementName().equals("study_id")) {
-                // Piece of crap parser in REDCap requires study id to be first
-                // element
-                study_id = strValue;
-              } else if (strValue != null) {
-                b.append("<").append(element.getElementName()).append(">")
-                    .append(StringEscapeUtils.escapeXml10(strValue)).append("</")
-                    .append(element.getElementName()).append(">");
-              }
-            }
+    StringBuilder b = new StringBuilder();
+
+    Map<FormElementModel, SubmissionValue> valuesMap = submission.getSubmissionValuesMap();
+
+    for (FormElementModel element : valuesMap.keySet()) {
+      SubmissionValue value = valuesMap.get(element);
+      if (value == null) {
+        continue;
+      }
+      if (element.isMetadata()) {
+        // handle metadata specially
+      } else {
+        switch (element.getElementType()) {
+          case METADATA:
+            // This keeps lint warnings down...
             break;
+          case GEOSHAPE:
+          case GEOTRACE:
+          case STRING: {
+            StringSubmissionType str = (StringSubmissionType) value;
+            String strValue = str.getValue();
+            if (element.getElementName().equals("study_id")) {
+              // Piece of crap parser in REDCap requires study id to be first
+              // element
+              study_id = strValue;
+            } else if (strValue != null) {
+              b.append("<").append(element.getElementName()).append(">")
+                  .append(StringEscapeUtils.escapeXml10(strValue)).append("</")
+                  .append(element.getElementName()).append(">");
+            }
+          }
+          break;
 
-            case JRDATETIME: {
-              JRDateTimeType dt = (JRDateTimeType) value;
-              Date dtValue = dt.getValue();
+          case JRDATETIME: {
+            JRDateTimeType dt = (JRDateTimeType) value;
+            Date dtValue = dt.getValue();
 
-              if (dtValue != null) {
-                GregorianCalendar g = new GregorianCalendar(TimeZone.getTimeZone("GMT"));
-                g.setTime(dtValue);
+            if (dtValue != null) {
+              GregorianCalendar g = new GregorianCalendar(TimeZone.getTimeZone("GMT"));
+              g.setTime(dtValue);
 
-                String strValue = String.format(FormatConsts.REDCAP_DATE_TIME_FORMAT_STRING,
-                    g.get(Calendar.YEAR), g.get(Calendar.MONTH) + 1, g.get(Calendar.DAY_OF_MONTH),
-                    g.get(Calendar.HOUR_OF_DAY), g.get(Calendar.MINUTE), g.get(Calendar.SECOND));
+              String strValue = String.format(FormatConsts.REDCAP_DATE_TIME_FORMAT_STRING,
+                  g.get(Calendar.YEAR), g.get(Calendar.MONTH) + 1, g.get(Calendar.DAY_OF_MONTH),
+                  g.get(Calendar.HOUR_OF_DAY), g.get(Calendar.MINUTE), g.get(Calendar.SECOND));
 
-                b.append("<").append(element.getElementName()).append(">")
-                    .append(StringEscapeUtils.escapeXml10(strValue)).append("</")
-                    .append(element.getElementName()).append(">");
+              b.append("<").append(element.getElementName()).append(">")
+                  .append(StringEscapeUtils.escapeXml10(strValue)).append("</")
+                  .append(element.getElementName()).append(">");
 
-              }
             }
-            break;
+          }
+          break;
 
-            case JRDATE: {
-              JRDateType dt = (JRDateType) value;
-              Date dtValue = dt.getValue();
+          case JRDATE: {
+            JRDateType dt = (JRDateType) value;
+            Date dtValue = dt.getValue();
 
-              if (dtValue != null) {
-                GregorianCalendar g = new GregorianCalendar(TimeZone.getTimeZone("GMT"));
-                g.setTime(dtValue);
+            if (dtValue != null) {
+              GregorianCalendar g = new GregorianCalendar(TimeZone.getTimeZone("GMT"));
+              g.setTime(dtValue);
 
-                String strValue = String.format(FormatConsts.REDCAP_DATE_ONLY_FORMAT_STRING,
-                    g.get(Calendar.YEAR), g.get(Calendar.MONTH) + 1, g.get(Calendar.DAY_OF_MONTH));
+              String strValue = String.format(FormatConsts.REDCAP_DATE_ONLY_FORMAT_STRING,
+                  g.get(Calendar.YEAR), g.get(Calendar.MONTH) + 1, g.get(Calendar.DAY_OF_MONTH));
 
-                b.append("<").append(element.getElementName()).append(">")
-                    .append(StringEscapeUtils.escapeXml10(strValue)).append("</")
-                    .append(element.getElementName()).append(">");
-              }
+              b.append("<").append(element.getElementName()).append(">")
+                  .append(StringEscapeUtils.escapeXml10(strValue)).append("</")
+                  .append(element.getElementName()).append(">");
             }
-            break;
+          }
+          break;
 
-            case JRTIME: {
-              JRTimeType dt = (JRTimeType) value;
-              Date dtValue = dt.getValue();
+          case JRTIME: {
+            JRTimeType dt = (JRTimeType) value;
+            Date dtValue = dt.getValue();
 
-              if (dtValue != null) {
-                GregorianCalendar g = new GregorianCalendar(TimeZone.getTimeZone("GMT"));
-                g.setTime(dtValue);
+            if (dtValue != null) {
+              GregorianCalendar g = new GregorianCalendar(TimeZone.getTimeZone("GMT"));
+              g.setTime(dtValue);
 
-                String strValue = String.format(FormatConsts.REDCAP_TIME_FORMAT_STRING,
-                    g.get(Calendar.HOUR_OF_DAY), g.get(Calendar.MINUTE));
+              String strValue = String.format(FormatConsts.REDCAP_TIME_FORMAT_STRING,
+                  g.get(Calendar.HOUR_OF_DAY), g.get(Calendar.MINUTE));
 
-                b.append("<").append(element.getElementName()).append(">")
-                    .append(StringEscapeUtils.escapeXml10(strValue)).append("</")
-                    .append(element.getElementName()).append(">");
-              }
+              b.append("<").append(element.getElementName()).append(">")
+                  .append(StringEscapeUtils.escapeXml10(strValue)).append("</")
+                  .append(element.getElementName()).append(">");
             }
-            break;
+          }
+          break;
 
-            case INTEGER: {
-              LongSubmissionType longVal = (LongSubmissionType) value;
-              if (longVal.getValue() != null) {
-                String strValue = longVal.getValue().toString();
+          case INTEGER: {
+            LongSubmissionType longVal = (LongSubmissionType) value;
+            if (longVal.getValue() != null) {
+              String strValue = longVal.getValue().toString();
 
-                b.append("<").append(element.getElementName()).append(">")
-                    .append(StringEscapeUtils.escapeXml10(strValue)).append("</")
-                    .append(element.getElementName()).append(">");
-              }
+              b.append("<").append(element.getElementName()).append(">")
+                  .append(StringEscapeUtils.escapeXml10(strValue)).append("</")
+                  .append(element.getElementName()).append(">");
             }
-            break;
+          }
+          break;
 
-            case DECIMAL: {
-              DecimalSubmissionType dec = (DecimalSubmissionType) value;
-              if (dec.getValue() != null) {
-                String strValue = dec.getValue().toString();
+          case DECIMAL: {
+            DecimalSubmissionType dec = (DecimalSubmissionType) value;
+            if (dec.getValue() != null) {
+              String strValue = dec.getValue().toString();
 
-                b.append("<").append(element.getElementName()).append(">")
-                    .append(StringEscapeUtils.escapeXml10(strValue)).append("</")
-                    .append(element.getElementName()).append(">");
-              }
+              b.append("<").append(element.getElementName()).append(">")
+                  .append(StringEscapeUtils.escapeXml10(strValue)).append("</")
+                  .append(element.getElementName()).append(">");
             }
-            break;
-
-            case GEOPOINT: {
-              // TODO: should not have gps_ prefix on tag...
-              String strippedElementName = element.getElementName().replace("gps_", "");
-              GeoPointSubmissionType submissionValue = (GeoPointSubmissionType) value;
-              GeoPoint coors = submissionValue.getValue();
-              if (coors.getLatitude() != null) {
-                b.append("<").append("gps_lat_" + strippedElementName).append(">")
-                    .append(StringEscapeUtils.escapeXml10(coors.getLatitude().toString())).append("</")
-                    .append("gps_lat_" + strippedElementName).append(">");
-
-                b.append("<").append("gps_lon_" + strippedElementName).append(">")
-                    .append(StringEscapeUtils.escapeXml10(coors.getLongitude().toString()))
-                    .append("</").append("gps_lon_" + strippedElementName).append(">");
-
-                b.append("<").append("gps_alt_" + strippedElementName).append(">")
-                    .append(StringEscapeUtils.escapeXml10(coors.getAltitude().toString())).append("</")
-                    .append("gps_alt_" + strippedElementName).append(">");
-
-                b.append("<").append("gps_acc_" + strippedElementName).append(">")
-                    .append(StringEscapeUtils.escapeXml10(coors.getAccuracy().toString())).append("</")
-                    .append("gps_acc_" + strippedElementName).append(">");
-              }
+          }
+          break;
+
+          case GEOPOINT: {
+            // TODO: should not have gps_ prefix on tag...
+            String strippedElementName = element.getElementName().replace("gps_", "");
+            GeoPointSubmissionType submissionValue = (GeoPointSubmissionType) value;
+            GeoPoint coors = submissionValue.getValue();
+            if (coors.getLatitude() != null) {
+              b.append("<").append("gps_lat_" + strippedElementName).append(">")
+                  .append(StringEscapeUtils.escapeXml10(coors.getLatitude().toString())).append("</")
+                  .append("gps_lat_" + strippedElementName).append(">");
+
+              b.append("<").append("gps_lon_" + strippedElementName).append(">")
+                  .append(StringEscapeUtils.escapeXml10(coors.getLongitude().toString()))
+                  .append("</").append("gps_lon_" + strippedElementName).append(">");
+
+              b.append("<").append("gps_alt_" + strippedElementName).append(">")
+                  .append(StringEscapeUtils.escapeXml10(coors.getAltitude().toString())).append("</")
+                  .append("gps_alt_" + strippedElementName).append(">");
+
+              b.append("<").append("gps_acc_" + strippedElementName).append(">")
+                  .append(StringEscapeUtils.escapeXml10(coors.getAccuracy().toString())).append("</")
+                  .append("gps_acc_" + strippedElementName).append(">");
             }
-            break;
+          }
+          break;
 
-            case BINARY: {
-              String file_field = element.getElementName();
-              BlobSubmissionType blob_value = (BlobSubmissionType) value;
-              if (blob_value.getAttachmentCount(cc) == 1) {
-                blobs.put(file_field, blob_value);
-              }
-              // upload these after we have successfully imported the record
+          case BINARY: {
+            String file_field = element.getElementName();
+            BlobSubmissionType blob_value = (BlobSubmissionType) value;
+            if (blob_value.getAttachmentCount(cc) == 1) {
+              blobs.put(file_field, blob_value);
             }
-            break;
-
-            case BOOLEAN: {
-              String strippedElementName = element.getElementName().replace("slct-", "");
-              BooleanSubmissionType bType = (BooleanSubmissionType) value;
-              if (bType.getValue() != null) {
-                b.append("<").append(strippedElementName + "___" + bType.getValue().toString())
-                    .append(">").append(StringEscapeUtils.escapeXml10("1")).append("</")
-                    .append(strippedElementName + "___" + bType.getValue().toString()).append(">");
-              }
+            // upload these after we have successfully imported the record
+          }
+          break;
+
+          case BOOLEAN: {
+            String strippedElementName = element.getElementName().replace("slct-", "");
+            BooleanSubmissionType bType = (BooleanSubmissionType) value;
+            if (bType.getValue() != null) {
+              b.append("<").append(strippedElementName + "___" + bType.getValue().toString())
+                  .append(">").append(StringEscapeUtils.escapeXml10("1")).append("</")
+                  .append(strippedElementName + "___" + bType.getValue().toString()).append(">");
             }
-            break;
-
-            case SELECT1:
-            case SELECTN: {
-              // TODO: it's not necessary to add (or remove) 'slct-' from
-              // the field name anymore
-              String formatElementName = element.getElementName().replace("slct-", "");
-              ChoiceSubmissionType choice = (ChoiceSubmissionType) value;
-              for (String choiceVal : choice.getValue()) {
-                b.append("<").append(formatElementName + "___" + choiceVal).append(">")
-                    .append(StringEscapeUtils.escapeXml10("1")).append("</")
-                    .append(formatElementName + "___" + choiceVal).append(">");
-              }
+          }
+          break;
+
+          case SELECT1:
+          case SELECTN: {
+            // TODO: it's not necessary to add (or remove) 'slct-' from
+            // the field name anymore
+            String formatElementName = element.getElementName().replace("slct-", "");
+            ChoiceSubmissionType choice = (ChoiceSubmissionType) value;
+            for (String choiceVal : choice.getValue()) {
+              b.append("<").append(formatElementName + "___" + choiceVal).append(">")
+                  .append(StringEscapeUtils.escapeXml10("1")).append("</")
+                  .append(formatElementName + "___" + choiceVal).append(">");
             }
-            break;
+          }
+          break;
 
-            case REPEAT: {
-              logger.warn("Unable to publish repeat groups to REDCap");
-              // REDCap does not handle repeat groups.
-            }
-            break;
+          case REPEAT: {
+            logger.warn("Unable to publish repeat groups to REDCap");
+            // REDCap does not handle repeat groups.
+          }
+          break;
 
-            case GROUP:
-              logger.warn("The GROUP submission type is not implemented");
-              break;
+          case GROUP:
+            logger.warn("The GROUP submission type is not implemented");
+            break;
 
-          }
         }
       }
+    }
 
-      b.append("</item></records>");
+    b.append("</item>");
 
-      if (study_id == null) {
-        throw new IllegalStateException("Form does not contain a study_id field -- cannot publish!");
-      }
+    if (study_id == null) {
+      throw new IllegalStateException("Form does not contain a study_id field -- cannot publish!");
+    }
 
-      String submissionsListString = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?><records><item><study_id>"
-          + StringEscapeUtils.escapeXml10(study_id) + "</study_id>" + b.toString();
+    String item = "<item><study_id>" + StringEscapeUtils.escapeXml10(study_id) + "</study_id>"
+        + b.toString();
+    return new REDCapRecord(study_id, item, blobs);
+  }
 
-      List<NameValuePair> eparams = new ArrayList<NameValuePair>();
-      eparams.add(new BasicNameValuePair("token", getApiKey()));
-      eparams.add(new BasicNameValuePair("content", "record"));
-      eparams.add(new BasicNameValuePair("format", "xml"));
-      eparams.add(new BasicNameValuePair("overwriteBehavior", "overwrite"));
-      eparams.add(new BasicNameValuePair("data", submissionsListString));
-      eparams.add(new BasicNameValuePair("returnContent", "ids"));
-      eparams.add(new BasicNameValuePair("returnFormat", "xml"));
+  private void importRecords(List<REDCapRecord> records, CallingContext cc)
+      throws IOException, ODKDatastoreException {
+    if (records.isEmpty()) {
+      return;
+    }
+
+    StringBuilder submissionsList = new StringBuilder();
+    submissionsList.append("<?xml version=\"1.0\" encoding=\"UTF-8\" ?><records>");
+    for (REDCapRecord record : records) {
+      submissionsList.append(record.item);
+    }
+    submissionsList.append("</records>");
+
+    List<NameValuePair> eparams = new ArrayList<NameValuePair>();
+    eparams.add(new BasicNameValuePair("token", getApiKey()));
+    eparams.add(new BasicNameValuePair("content", "record"));
+    eparams.add(new BasicNameValuePair("format", "xml"));
+    eparams.add(new BasicNameValuePair("overwriteBehavior", "overwrite"));
+    eparams.add(new BasicNameValuePair("data", submissionsList.toString()));
+    eparams.add(new BasicNameValuePair("returnContent", "ids"));
+    eparams.add(new BasicNameValuePair("returnFormat", "xml"));
 
-      HttpEntity postentity = new UrlEncodedFormEntity(eparams, UTF_CHARSET);
+    HttpEntity postentity = new UrlEncodedFormEntity(eparams, UTF_CHARSET);
 
-      submitPost("Publishing", postentity, null, cc);
+    submitPost("Publishing", postentity, null, cc);
 
-      // send the files if they exist
-      for (Map.Entry<String, BlobSubmissionType> e : blobs.entrySet()) {
+    // send the files if they exist
+    for (REDCapRecord record : records) {
+      for (Map.Entry<String, BlobSubmissionType> e : record.blobs.entrySet()) {
         System.out.println("Processing media attachment....");
         BlobSubmissionType blob = e.getValue();
-        submitFile(study_id, e.getKey(), blob, cc);
+        submitFile(record.studyId, e.getKey(), blob, cc);
       }
-
-    } catch (Exception e) {
-      throw new ODKExternalServiceException(e);
     }
-
   }
 
   /**
@@ -16,6 +16,8 @@
 
 package org.opendatakit.aggregate.form;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintStream;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
@@ -703,9 +705,18 @@ class Form implements IForm {
     if (filePath.indexOf("/") != -1) {
       filePath = filePath.substring(filePath.indexOf("/") + 1);
     }
-    byte[] byteArray = item.getStream().toByteArray();
-    BlobSubmissionOutcome outcome =
-        manifest.setValueFromByteArray(byteArray, item.getContentType(), filePath, overwriteOK, cc);
+    BlobSubmissionOutcome outcome;
+    try {
+      InputStream content = item.openStream();
+      try {
+        outcome = manifest.setValueFromStream(content, item.getContentLength(),
+            item.getContentHash(), item.getContentType(), filePath, overwriteOK, cc);
+      } finally {
+        content.close();
+      }
+    } catch (IOException e) {
+      throw new ODKDatastoreException("Unable to read media file " + filePath, e);
+    }
     return (outcome == BlobSubmissionOutcome.NEW_FILE_VERSION);
   }
 
@@ -34,6 +34,7 @@ import org.opendatakit.common.security.User;
 import org.opendatakit.common.web.CallingContext;
 
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Factory class for managing Form objects.
@@ -46,28 +47,66 @@ public class FormFactory {
 
   private static final Logger logger = LoggerFactory.getLogger(FormFactory.class);
 
-  private static long cacheTimestamp = 0L;
-  private static final List<IForm> cache = new LinkedList<IForm>();
+  /**
+   * Immutable snapshot of the forms in the datastore, sorted by title and
+   * indexed by URI and by form id.  Readers always work against whatever
+   * snapshot is current; a refresh builds a new snapshot and swaps it in.
+   */
+  private static final class FormCache {
+    final long timestamp;
+    final List<IForm> forms;
+    final Map<String, IForm> byUri;
+    final Map<String, IForm> byFormId;
+
+    FormCache(List<IForm> forms, long timestamp) {
+      this.timestamp = timestamp;
+      this.forms = Collections.unmodifiableList(forms);
+      Map<String, IForm> uriMap = new HashMap<String, IForm>();
+      Map<String, IForm> formIdMap = new HashMap<String, IForm>();
+      for (IForm f : forms) {
+        uriMap.put(f.getUri(), f);
+        IForm existing = formIdMap.put(f.getFormId(), f);
+        if (existing != null) {
+          logger.error("Possible corruption: more than one FormInfo entry for the given form id: "
+              + f.getFormId());
+          formIdMap.put(f.getFormId(), existing);
+        }
+      }
+      this.byUri = uriMap;
+      this.byFormId = formIdMap;
+    }
+
+    boolean isStale() {
+      return timestamp + PersistConsts.MAX_SETTLE_MILLISECONDS <= System.currentTimeMillis();
+    }
+  }
+
+  private static volatile FormCache cache = null;
+  /**
+   * Held while the snapshot is being rebuilt.  Only the very first load
+   * waits on it; afterwards, readers that lose the race to refresh
+   * continue with the current snapshot.
+   */
+  private static final ReentrantLock refreshLock = new ReentrantLock();
 
   private FormFactory() {};
 
   /**
-   * Return the list of forms in the database.
-   * If topLevelAuri is null, return all forms. Otherwise, return the form with the matching URI.
+   * Return the current snapshot of forms in the database.
    * This is the main interface to the cache of form objects.  The cache is refreshed as a whole
-   * every PersistConsts.MAX_SETTLE_MILLISECONDS.
+   * every PersistConsts.MAX_SETTLE_MILLISECONDS by whichever request first finds it stale;
+   * concurrent requests do not wait for that refresh.
    *
-   * @param topLevelAuri
    * @param cc
    * @return
    * @throws ODKOverQuotaException
    * @throws ODKDatastoreException
    */
-  private static synchronized final List<IForm> internalGetForms(String topLevelAuri, CallingContext cc)
+  private static final FormCache internalGetForms(CallingContext cc)
       throws ODKOverQuotaException, ODKDatastoreException {
 
-    List<IForm> forms = new ArrayList<IForm>();
-    if ( cacheTimestamp + PersistConsts.MAX_SETTLE_MILLISECONDS > System.currentTimeMillis() ) {
+    FormCache current = cache;
+    if (current != null && !current.isStale()) {
       // TODO: This cache should reside in MemCache.  Right now, different running
       // servers might see different Form definitions for up to the settle time.
       //
@@ -76,82 +115,114 @@ public class FormFactory {
       // support, this is somewhat problematic since different server instances might
       // see different versions of the same Form.
       //
-      logger.info("FormCache: using cached list of Forms");
-    } else {
-      // we have a fairly stale list of forms -- interrogate the database
-      // for what is really there and update the cache.
-      Map<String,IForm> oldForms = new HashMap<String,IForm>();
-      for ( IForm f : cache ) {
-        oldForms.put(f.getUri(), f);
-      }
-      cache.clear();
-      logger.info("FormCache: fetching new list of Forms");
-
-      Datastore ds = cc.getDatastore();
-      User user = cc.getCurrentUser();
-
-      FormInfoTable relation = FormInfoTable.assertRelation(cc);
-      // ensure that Form table exists...
-      Query formQuery = ds.createQuery(relation, "Form.getForms", user);
-      List<? extends CommonFieldsBase> infoRows = formQuery.executeQuery();
-
-      for (CommonFieldsBase cb : infoRows) {
-        FormInfoTable infoRow = (FormInfoTable) cb;
-        IForm f = oldForms.get(infoRow.getUri());
-        // rely on the fact that a persist updates the last-update-date of the
-        // top-level FormInfoTable even if only subordinate values are updated.
-        Date infoDate = infoRow.getLastUpdateDate();
-        Date oldDate = (f == null) ? null : f.getLastUpdateDate();
-        if ( f != null &&  f.hasValidFormDefinition() &&
-            (infoRow.getCreationDate().equals(f.getCreationDate())) &&
-            ((infoDate == null && oldDate == null) ||
-             (infoDate != null && oldDate != null && infoDate.equals(oldDate))) ) {
-          cache.add(f);
-        } else {
-          logger.info("FormCache: refreshing form definition from database: " + infoRow.getStringField(FormInfoTable.FORM_ID));
-          // pull and update from the datastore
-          f = new Form(infoRow, cc);
-          cache.add(f);
-        }
-      }
-
-      for (IForm form : cache)
-        if (!form.isValid()) {
-          logger.error("Possible corruption: Form with URI " + form.getUri() + " is not valid");
-          cache.remove(form);
-        }
-
-      // sort by form title then by form id
-      Collections.sort(forms, new Comparator<IForm>() {
-
-        @Override
-        public int compare(IForm o1, IForm o2) {
-          int ref = o1.getViewableName().compareToIgnoreCase(o2.getViewableName());
-          if ( ref != 0 ) return ref;
-          return o1.getFormId().compareToIgnoreCase(o2.getFormId());
-        }});
+      return current;
+    }
 
-      // update cacheTimestamp -- note that if the datastore is very slow, this will
-      // space out the updates because the cacheTimestamp is established after all
-      // the datastore accesses.
-      cacheTimestamp = System.currentTimeMillis();
+    if (current == null) {
+      // nothing to serve yet -- wait for the initial load.
+      refreshLock.lock();
+    } else if (!refreshLock.tryLock()) {
+      // another request is refreshing the list; use the one we have.
+      logger.info("FormCache: using cached list of Forms during refresh");
+      return current;
+    }
+    try {
+      current = cache;
+      if (current == null || current.isStale()) {
+        current = refreshForms(current, cc);
+        cache = current;
 
-      // test to see if we need to trigger the watchdog
-      BackendActionsTable.triggerWatchdog(cc);
+        // test to see if we need to trigger the watchdog
+        BackendActionsTable.triggerWatchdog(cc);
+      }
+      return current;
+    } finally {
+      refreshLock.unlock();
     }
+  }
 
-    for (IForm v : cache) {
-      if ( topLevelAuri == null || v.getUri().equals(topLevelAuri) ) {
-        forms.add(v);
+  /**
+   * Interrogate the database for the forms that are really there, reusing
+   * the already-constructed Form objects whose FormInfoTable row is unchanged.
+   * Must be called with the refreshLock held.
+   *
+   * @param previous
+   * @param cc
+   * @return
+   * @throws ODKOverQuotaException
+   * @throws ODKDatastoreException
+   */
+  private static final FormCache refreshForms(FormCache previous, CallingContext cc)
+      throws ODKOverQuotaException, ODKDatastoreException {
+    Map<String, IForm> oldForms = (previous == null) ? Collections.<String, IForm> emptyMap()
+        : previous.byUri;
+    logger.info("FormCache: fetching new list of Forms");
+
+    Datastore ds = cc.getDatastore();
+    User user = cc.getCurrentUser();
+
+    FormInfoTable relation = FormInfoTable.assertRelation(cc);
+    // ensure that Form table exists...
+    Query formQuery = ds.createQuery(relation, "Form.getForms", user);
+    List<? extends CommonFieldsBase> infoRows = formQuery.executeQuery();
+
+    List<IForm> forms = new ArrayList<IForm>(infoRows.size());
+    for (CommonFieldsBase cb : infoRows) {
+      FormInfoTable infoRow = (FormInfoTable) cb;
+      IForm f = oldForms.get(infoRow.getUri());
+      // rely on the fact that a persist updates the last-update-date of the
+      // top-level FormInfoTable even if only subordinate values are updated.
+      Date infoDate = infoRow.getLastUpdateDate();
+      Date oldDate = (f == null) ? null : f.getLastUpdateDate();
+      if ( f == null || !f.hasValidFormDefinition() ||
+          !(infoRow.getCreationDate().equals(f.getCreationDate())) ||
+          !((infoDate == null && oldDate == null) ||
+            (infoDate != null && oldDate != null && infoDate.equals(oldDate))) ) {
+        logger.info("FormCache: refreshing form definition from database: " + infoRow.getStringField(FormInfoTable.FORM_ID));
+        // pull and update from the datastore
+        f = new Form(infoRow, cc);
+      }
+      if (!f.isValid()) {
+        logger.error("Possible corruption: Form with URI " + f.getUri() + " is not valid");
+        continue;
       }
+      forms.add(f);
     }
-    return forms;
+
+    // sort by form title then by form id
+    Collections.sort(forms, FORM_ORDER);
+
+    // the timestamp is established after all the datastore accesses so that
+    // a very slow datastore spaces out the updates.
+    return new FormCache(forms, System.currentTimeMillis());
   }
 
-  public static synchronized void clearForm(IForm match) {
+  private static final Comparator<IForm> FORM_ORDER = new Comparator<IForm>() {
+
+    @Override
+    public int compare(IForm o1, IForm o2) {
+      int ref = o1.getViewableName().compareToIgnoreCase(o2.getViewableName());
+      if ( ref != 0 ) return ref;
+      return o1.getFormId().compareToIgnoreCase(o2.getFormId());
+    }};
+
+  public static void clearForm(IForm match) {
     // NOTE: delays refresh of the forms list by the settle time.
-    cache.remove(match);
-    cacheTimestamp = System.currentTimeMillis();
+    refreshLock.lock();
+    try {
+      FormCache current = cache;
+      List<IForm> forms = new ArrayList<IForm>();
+      if (current != null) {
+        for (IForm f : current.forms) {
+          if (!f.getUri().equals(match.getUri())) {
+            forms.add(f);
+          }
+        }
+      }
+      cache = new FormCache(forms, System.currentTimeMillis());
+    } finally {
+      refreshLock.unlock();
+    }
   }
 
   /**
@@ -169,17 +240,16 @@ public class FormFactory {
    */
   private static IForm getForm(String topLevelAuri, CallingContext cc)
       throws ODKOverQuotaException, ODKEntityNotFoundException, ODKDatastoreException {
-    List<IForm> forms = internalGetForms(topLevelAuri, cc);
+    IForm f = internalGetForms(cc).byUri.get(topLevelAuri);
 
-    if ( forms.isEmpty() ) throw new ODKEntityNotFoundException("Could not retrieve form uri: " + topLevelAuri);
-    IForm f = forms.get(0);
+    if ( f == null ) throw new ODKEntityNotFoundException("Could not retrieve form uri: " + topLevelAuri);
     // TODO: check authorization?
     return f;
   }
 
   public static final List<IForm> getForms(boolean checkAuthorization, CallingContext cc)
       throws ODKOverQuotaException, ODKDatastoreException {
-    List<IForm> forms = internalGetForms(null, cc);
+    List<IForm> forms = new ArrayList<IForm>(internalGetForms(cc).forms);
     // TODO: check authorization
     return forms;
   }
@@ -192,7 +262,7 @@ public class FormFactory {
    * @throws ODKDatastoreException
    */
   public static final void initialize(CallingContext cc) throws ODKDatastoreException {
-    internalGetForms(null, cc);
+    internalGetForms(cc);
   }
 
   /**
@@ -233,11 +303,9 @@ public class FormFactory {
       return null;
     }
     try {
-      String formUri = CommonFieldsBase.newMD5HashUri(formId);
-      IForm form = getForm(formUri, cc);
-      if (!formId.equals(form.getFormId())) {
-        throw new IllegalStateException("more than one FormInfo entry for the given form id: "
-            + formId);
+      IForm form = internalGetForms(cc).byFormId.get(formId);
+      if (form == null) {
+        throw new ODKEntityNotFoundException("Could not retrieve form id: " + formId);
       }
       return form;
     } catch (ODKOverQuotaException e) { // datastore exception
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2018 University of Washington
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.opendatakit.aggregate.form;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-process, least-recently-used cache of the XML documents served to ODK
+ * Collect (form list, form XML, manifest), bounded by their total size.
+ *
+ * Each entry is stored with the version of the forms it was rendered from
+ * (see {@link #formVersion(IForm)}) and is only returned for that version.
+ * Persisting a form updates its last-update date, so any change to a form
+ * yields a new version and the stale rendering is replaced on next use.
+ *
+ * The cached arrays are shared and must not be modified.
+ */
+public final class FormXmlCache {
+
+  public static final class Rendering {
+    public final String eTag;
+    public final Date lastModified;
+    public final byte[] xml;
+
+    public Rendering(String eTag, Date lastModified, byte[] xml) {
+      this.eTag = eTag;
+      this.lastModified = lastModified;
+      this.xml = xml;
+    }
+  }
+
+  private static final class Entry {
+    final String version;
+    final Rendering rendering;
+
+    Entry(String version, Rendering rendering) {
+      this.version = version;
+      this.rendering = rendering;
+    }
+  }
+
+  static final long MAX_BYTES = 8L * 1024L * 1024L;
+
+  // guarded by FormXmlCache.class
+  private static final LinkedHashMap<String, Entry> cache = new LinkedHashMap<String, Entry>(16,
+      0.75f, true);
+  private static long totalBytes = 0L;
+
+  private FormXmlCache() {
+  }
+
+  /**
+   * @param form
+   * @return a string identifying the current version of the form.
+   */
+  public static String formVersion(IForm form) {
+    Date created = form.getCreationDate();
+    Date updated = form.getLastUpdateDate();
+    return form.getUri() + "/" + ((created == null) ? 0L : created.getTime()) + "/"
+        + ((updated == null) ? 0L : updated.getTime());
+  }
+
+  /**
+   * @param key
+   * @param version
+   * @return the rendering cached under the given key, or null if there is
+   *         none for this version.
+   */
+  public static synchronized Rendering get(String key, String version) {
+    Entry e = cache.get(key);
+    if (e == null || !e.version.equals(version)) {
+      return null;
+    }
+    return e.rendering;
+  }
+
+  public static synchronized void put(String key, String version, Rendering rendering) {
+    Entry old = cache.remove(key);
+    if (old != null) {
+      totalBytes -= old.rendering.xml.length;
+    }
+    if (rendering.xml.length > MAX_BYTES) {
+      return;
+    }
+    cache.put(key, new Entry(version, rendering));
+    totalBytes += rendering.xml.length;
+
+    Iterator<Map.Entry<String, Entry>> it = cache.entrySet().iterator();
+    while (totalBytes > MAX_BYTES && it.hasNext()) {
+      totalBytes -= it.next().getValue().rendering.xml.length;
+      it.remove();
+    }
+  }
+}
@@ -15,6 +15,7 @@
  */
 package org.opendatakit.aggregate.form;
 
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -25,6 +26,7 @@ import org.opendatakit.aggregate.constants.HtmlUtil;
 import org.opendatakit.aggregate.constants.ServletConsts;
 import org.opendatakit.aggregate.constants.common.ExportStatus;
 import org.opendatakit.aggregate.constants.common.ExportType;
+import org.opendatakit.aggregate.datamodel.TopLevelDynamicBase;
 import org.opendatakit.aggregate.exception.ODKFormNotFoundException;
 import org.opendatakit.aggregate.filter.SubmissionFilterGroup;
 import org.opendatakit.aggregate.servlet.BinaryDataServlet;
@@ -32,6 +34,7 @@ import org.opendatakit.aggregate.submission.SubmissionKey;
 import org.opendatakit.aggregate.submission.SubmissionKeyPart;
 import org.opendatakit.common.datamodel.BinaryContent;
 import org.opendatakit.common.datamodel.BinaryContentManipulator;
+import org.opendatakit.common.datamodel.BinaryContentManipulator.BlobOutputStream;
 import org.opendatakit.common.datamodel.BinaryContentRefBlob;
 import org.opendatakit.common.datamodel.RefBlob;
 import org.opendatakit.common.persistence.CommonFieldsBase;
@@ -40,6 +43,7 @@ import org.opendatakit.common.persistence.Datastore;
 import org.opendatakit.common.persistence.PersistConsts;
 import org.opendatakit.common.persistence.Query;
 import org.opendatakit.common.persistence.Query.FilterOperation;
+import org.opendatakit.common.persistence.QueryResumePoint;
 import org.opendatakit.common.persistence.exception.ODKDatastoreException;
 import org.opendatakit.common.persistence.exception.ODKEntityNotFoundException;
 import org.opendatakit.common.persistence.exception.ODKEntityPersistException;
@@ -61,6 +65,26 @@ public class PersistentResults {
 
   public static final String FORM_ID_PERSISTENT_RESULT = "aggregate.opendatakit.org:PersistentResults";
 
+  /**
+   * Request parameters of an incremental export. The export holds only the
+   * submissions marked as complete after the (date, uri) start cursor, which
+   * is taken from the end cursor of the prior incremental export of the same
+   * form, type and filter. Kept in the request parameters so that the
+   * persistent results table does not need new columns.
+   */
+  private static final String INCREMENTAL_FILTER_NAME = "incrementalFilterName";
+  private static final String INCREMENTAL_START_DATE = "incrementalStartDate";
+  private static final String INCREMENTAL_START_URI = "incrementalStartUri";
+  private static final String INCREMENTAL_END_DATE = "incrementalEndDate";
+  private static final String INCREMENTAL_END_URI = "incrementalEndUri";
+
+  /**
+   * Request parameters reporting the progress of the export while it is
+   * being generated.
+   */
+  private static final String PROGRESS_ROW_COUNT = "progressRowCount";
+  private static final String PROGRESS_ROWS_PER_SECOND = "progressRowsPerSecond";
+
   private final PersistentResultsTable row;
 
   private final BinaryContentManipulator bcm;
@@ -202,6 +226,103 @@ public class PersistentResults {
     }
   }
 
+  public boolean isIncremental() throws ODKDatastoreException {
+    return getRequestParameters().containsKey(INCREMENTAL_FILTER_NAME);
+  }
+
+  /**
+   * Make this an incremental export that continues from the most recent
+   * completed incremental export of the same form, type and filter. If there
+   * is none, this export will contain all the submissions.
+   *
+   * @param filterName
+   *          - name of the filter the export was requested with.
+   * @param cc
+   * @throws ODKDatastoreException
+   */
+  public void setIncremental(String filterName, CallingContext cc) throws ODKDatastoreException {
+    Map<String, String> parameters = getRequestParameters();
+    parameters.put(INCREMENTAL_FILTER_NAME, (filterName == null) ? "" : filterName);
+
+    PersistentResults prior = getLatestIncrementalExport(getFormId(), getResultType(),
+        parameters.get(INCREMENTAL_FILTER_NAME), cc);
+    if (prior != null) {
+      Map<String, String> priorParameters = prior.getRequestParameters();
+      parameters.put(INCREMENTAL_START_DATE, priorParameters.get(INCREMENTAL_END_DATE));
+      parameters.put(INCREMENTAL_START_URI, priorParameters.get(INCREMENTAL_END_URI));
+    }
+    setRequestParameters(parameters);
+  }
+
+  /**
+   * @return the cursor after which an incremental export begins, or null if
+   *         it should begin with the first submission.
+   * @throws ODKDatastoreException
+   */
+  public QueryResumePoint getIncrementalStartCursor() throws ODKDatastoreException {
+    Map<String, String> parameters = getRequestParameters();
+    String startDate = parameters.get(INCREMENTAL_START_DATE);
+    if (startDate == null) {
+      return null;
+    }
+    return new QueryResumePoint(TopLevelDynamicBase.FIELD_NAME_MARKED_AS_COMPLETE_DATE,
+        startDate, parameters.get(INCREMENTAL_START_URI), true);
+  }
+
+  /**
+   * Record the last submission in this incremental export; the next
+   * incremental export begins after it.
+   *
+   * @param cursor
+   *          - the last submission's marked-as-complete date and uri, or null
+   *          if the export has no submissions.
+   * @throws ODKDatastoreException
+   */
+  public void setIncrementalEndCursor(QueryResumePoint cursor) throws ODKDatastoreException {
+    Map<String, String> parameters = getRequestParameters();
+    if (cursor == null) {
+      // nothing new -- the next export begins where this one did.
+      cursor = getIncrementalStartCursor();
+    }
+    if (cursor == null) {
+      parameters.remove(INCREMENTAL_END_DATE);
+      parameters.remove(INCREMENTAL_END_URI);
+    } else {
+      parameters.put(INCREMENTAL_END_DATE, cursor.getValue());
+      parameters.put(INCREMENTAL_END_URI, cursor.getUriLastReturnedValue());
+    }
+    setRequestParameters(parameters);
+  }
+
+  /**
+   * Record the number of submissions written so far and the rate at which
+   * they are being written.
+   *
+   * @param rowCount
+   * @param rowsPerSecond
+   * @throws ODKDatastoreException
+   */
+  public void setProgress(long rowCount, long rowsPerSecond) throws ODKDatastoreException {
+    Map<String, String> parameters = getRequestParameters();
+    parameters.put(PROGRESS_ROW_COUNT, Long.toString(rowCount));
+    parameters.put(PROGRESS_ROWS_PER_SECOND, Long.toString(rowsPerSecond));
+    setRequestParameters(parameters);
+  }
+
+  /**
+   * @return a description of the progress of the export, or null if none has
+   *         been reported.
+   * @throws ODKDatastoreException
+   */
+  public String getProgress() throws ODKDatastoreException {
+    Map<String, String> parameters = getRequestParameters();
+    String rowCount = parameters.get(PROGRESS_ROW_COUNT);
+    if (rowCount == null) {
+      return null;
+    }
+    return rowCount + " submissions (" + parameters.get(PROGRESS_ROWS_PER_SECOND) + "/sec)";
+  }
+
   public ExportType getResultType() {
     return ExportType.valueOf(row.getStringField(PersistentResultsTable.RESULT_TYPE));
   }
@@ -261,12 +382,39 @@ public class PersistentResults {
     return bcm.getBlob(1, cc);
   }
 
-  public void setResultFile(byte[] byteArray, String contentType,
-      String unrootedFilePath, boolean overwriteOK, CallingContext cc) throws ODKDatastoreException {
+  public InputStream getResultFileInputStream(CallingContext cc) throws ODKDatastoreException {
+    if (bcm.getAttachmentCount(cc) == 0)
+      return null;
+    if (bcm.getAttachmentCount(cc) > 1) {
+      throw new IllegalStateException("Too many results attached!");
+    }
+    return bcm.getBlobInputStream(1, cc);
+  }
+
+  public String getResultFileContentHash(CallingContext cc) throws ODKDatastoreException {
+    if (bcm.getAttachmentCount(cc) == 0)
+      return null;
+    return bcm.getContentHash(1, cc);
+  }
+
+  /**
+   * Create a stream into which the result file is written as it is generated.
+   * Once closed, attach it with {@link #setResultFile}; otherwise discard it
+   * with {@link BlobOutputStream#abort()}.
+   *
+   * @param cc
+   * @return the stream
+   */
+  public BlobOutputStream newResultFileOutputStream(CallingContext cc) {
+    return bcm.newBlobOutputStream(cc);
+  }
+
+  public void setResultFile(BlobOutputStream content, String contentType,
+      String unrootedFilePath, CallingContext cc) throws ODKDatastoreException {
     if (bcm.getAttachmentCount(cc) > 0) {
       throw new IllegalStateException("Results are already attached!");
     }
-    bcm.setValueFromByteArray(byteArray, contentType, unrootedFilePath, overwriteOK, cc);
+    bcm.setValueFromBlobOutputStream(content, contentType, unrootedFilePath, cc);
   }
 
   public String getUri() {
@@ -426,6 +574,44 @@ public class PersistentResults {
     return r;
   }
 
+  /**
+   * Find the most recently completed incremental export of the form with the
+   * given type and filter name.
+   *
+   * @param formId
+   * @param type
+   * @param filterName
+   * @param cc
+   * @return the export, or null if there is none.
+   * @throws ODKDatastoreException
+   */
+  private static final PersistentResults getLatestIncrementalExport(String formId,
+      ExportType type, String filterName, CallingContext cc) throws ODKDatastoreException {
+    User user = cc.getCurrentUser();
+    Datastore ds = cc.getDatastore();
+    PersistentResultsTable relation = PersistentResultsTable.assertRelation(cc);
+    Query q = ds.createQuery(relation, "PersistentResults.getLatestIncrementalExport", user);
+    q.addFilter(PersistentResultsTable.FORM_ID, FilterOperation.EQUAL, formId);
+    List<? extends CommonFieldsBase> l = q.executeQuery();
+
+    PersistentResults latest = null;
+    for (CommonFieldsBase b : l) {
+      PersistentResults result = new PersistentResults((PersistentResultsTable) b, cc);
+      if (result.getStatus() != ExportStatus.AVAILABLE || result.getResultType() != type) {
+        continue;
+      }
+      Map<String, String> parameters = result.getRequestParameters();
+      if (!filterName.equals(parameters.get(INCREMENTAL_FILTER_NAME))
+          || parameters.get(INCREMENTAL_END_DATE) == null) {
+        continue;
+      }
+      if (latest == null || latest.getCompletionDate().before(result.getCompletionDate())) {
+        latest = result;
+      }
+    }
+    return latest;
+  }
+
   /**
    * Underlying top-level persistent object for the PerisistentResults form.
    * 
@@ -21,23 +21,23 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.opendatakit.aggregate.odktables.TableSchemaCache.TableSchema;
 import org.opendatakit.aggregate.odktables.exception.BadColumnNameException;
 import org.opendatakit.aggregate.odktables.exception.ETagMismatchException;
 import org.opendatakit.aggregate.odktables.exception.InconsistentStateException;
 import org.opendatakit.aggregate.odktables.exception.PermissionDeniedException;
 import org.opendatakit.aggregate.odktables.exception.TableDataETagMismatchException;
-import org.opendatakit.aggregate.odktables.relation.DbColumnDefinitions;
 import org.opendatakit.aggregate.odktables.relation.DbColumnDefinitions.DbColumnDefinitionsEntity;
 import org.opendatakit.aggregate.odktables.relation.DbLogTable;
 import org.opendatakit.aggregate.odktables.relation.DbTable;
-import org.opendatakit.aggregate.odktables.relation.DbTableDefinitions;
-import org.opendatakit.aggregate.odktables.relation.DbTableDefinitions.DbTableDefinitionsEntity;
 import org.opendatakit.aggregate.odktables.relation.DbTableEntry;
 import org.opendatakit.aggregate.odktables.relation.DbTableEntry.DbTableEntryEntity;
 import org.opendatakit.aggregate.odktables.relation.EntityConverter;
@@ -208,6 +208,115 @@ public class DataManager {
     }
   }
 
+  /**
+   * Reads of the table are done without holding the table lock. A writer
+   * records its pendingDataETag in the DbTableEntry before touching the log
+   * or the rows, and clears it when it commits the new dataETag. So if the
+   * entry had no pending change both before and after a read, and neither
+   * ETag moved in between, the read saw exactly the committed state of the
+   * table as of entry's dataETag.
+   *
+   * @param entry
+   *          the DbTableEntry as read before the read of the table.
+   * @return true if the read can be used; false if it must be repeated while
+   *         holding the lock.
+   * @throws ODKDatastoreException
+   */
+  private boolean isSnapshotUnchanged(DbTableEntryEntity entry) throws ODKDatastoreException {
+    if (entry.getPendingDataETag() != null) {
+      return false;
+    }
+    DbTableEntryEntity current = DbTableEntry.getTableIdEntry(tableId, cc);
+    return current.getPendingDataETag() == null
+        && sameETag(entry.getDataETag(), current.getDataETag())
+        && sameETag(entry.getSchemaETag(), current.getSchemaETag());
+  }
+
+  private static boolean sameETag(String a, String b) {
+    return (a == null) ? (b == null) : a.equals(b);
+  }
+
+  /**
+   * A read of the table, done by {@link DataManager#readTable(TableRead)}. It
+   * may be run twice, so it must not change the table.
+   */
+  interface TableRead<T> {
+    T read(DbTableEntryEntity entry, TableSchema schema) throws ODKDatastoreException,
+        InconsistentStateException, BadColumnNameException;
+  }
+
+  /**
+   * The value of a {@link TableRead} and the table state it was read against.
+   */
+  static final class TableReadResult<T> {
+    final DbTableEntryEntity entry;
+    final List<DbColumnDefinitionsEntity> columns;
+    final T value;
+    /**
+     * true if the read had to be repeated while holding the table lock.
+     */
+    final boolean locked;
+
+    TableReadResult(DbTableEntryEntity entry, List<DbColumnDefinitionsEntity> columns, T value,
+        boolean locked) {
+      this.entry = entry;
+      this.columns = columns;
+      this.value = value;
+      this.locked = locked;
+    }
+  }
+
+  /**
+   * Read the table without holding the table lock, and repeat the read holding
+   * the lock only if it overlapped a change to the table.
+   *
+   * @param read
+   *          the read to perform
+   * @return the value of the read that was kept
+   * @throws ODKDatastoreException
+   * @throws ODKTaskLockException
+   * @throws InconsistentStateException
+   * @throws BadColumnNameException
+   */
+  <T> TableReadResult<T> readTable(TableRead<T> read) throws ODKDatastoreException,
+      ODKTaskLockException, InconsistentStateException, BadColumnNameException {
+    OdkTablesLockTemplate propsLock = new OdkTablesLockTemplate(tableId,
+        ODKTablesTaskLockType.TABLES_NON_PERMISSIONS_CHANGES, OdkTablesLockTemplate.DelayStrategy.SHORT, cc);
+    boolean locked = false;
+    for (;;) {
+      try {
+        if (locked) {
+          propsLock.acquire();
+        }
+
+        DbTableEntryEntity entry = DbTableEntry.getTableIdEntry(tableId, cc);
+        String schemaETag = entry.getSchemaETag();
+
+        if (schemaETag == null) {
+          throw new InconsistentStateException("Schema for table " + tableId + " is not yet defined.");
+        }
+
+        TableSchema schema = TableSchemaCache.getSchema(tableId, schemaETag, cc);
+
+        if (locked) {
+          // no writer holds the lock, so any pending change was abandoned
+          revertPendingChanges(entry, schema.columns, schema.table, schema.logTable);
+        }
+
+        T value = read.read(entry, schema);
+
+        if (locked || isSnapshotUnchanged(entry)) {
+          return new TableReadResult<T>(entry, schema.columns, value, locked);
+        }
+      } finally {
+        if (locked) {
+          propsLock.release();
+        }
+      }
+      locked = true;
+    }
+  }
+
   /**
    * Retrieve all current rows of the table.
    *
@@ -218,51 +327,32 @@ public class DataManager {
    * @throws InconsistentStateException
    * @throws BadColumnNameException
    */
-  public WebsafeRows getRows(QueryResumePoint startCursor, int fetchLimit)
+  public WebsafeRows getRows(final QueryResumePoint startCursor, final int fetchLimit)
       throws ODKDatastoreException, PermissionDeniedException, ODKTaskLockException,
       InconsistentStateException, BadColumnNameException {
 
     userPermissions.checkPermission(appId, tableId, TablePermission.READ_ROW);
 
-    String currentDataETag = null;
-    
-    List<DbColumnDefinitionsEntity> columns = null;
-    WebsafeQueryResult result = null;
-    OdkTablesLockTemplate propsLock = new OdkTablesLockTemplate(tableId,
-        ODKTablesTaskLockType.TABLES_NON_PERMISSIONS_CHANGES, OdkTablesLockTemplate.DelayStrategy.SHORT, cc);
-    try {
-      propsLock.acquire();
-
-      DbTableEntryEntity entry = DbTableEntry.getTableIdEntry(tableId, cc);
-      String schemaETag = entry.getSchemaETag();
-
-      if (schemaETag == null) {
-        throw new InconsistentStateException("Schema for table " + tableId + " is not yet defined.");
+    TableReadResult<WebsafeQueryResult> read = readTable(new TableRead<WebsafeQueryResult>() {
+      @Override
+      public WebsafeQueryResult read(DbTableEntryEntity entry, TableSchema schema)
+          throws ODKDatastoreException {
+        DbTable table = schema.table;
+
+        Query query = buildRowsQuery(table);
+        query.addSort(table.getDataField(CommonFieldsBase.CREATION_DATE_COLUMN_NAME),
+            (startCursor == null || startCursor.isForwardCursor()) ? Direction.ASCENDING
+                : Direction.DESCENDING);
+        // we need the filter to activate the sort...
+        query.addFilter(table.getDataField(CommonFieldsBase.CREATION_DATE_COLUMN_NAME),
+            org.opendatakit.common.persistence.Query.FilterOperation.GREATER_THAN, BasicConsts.EPOCH);
+        return query.execute(startCursor, fetchLimit);
       }
+    });
 
-      currentDataETag = entry.getDataETag();
-      
-      DbTableDefinitionsEntity tableDefn = DbTableDefinitions
-          .getDefinition(tableId, schemaETag, cc);
-      columns = DbColumnDefinitions.query(tableId, schemaETag, cc);
-
-      DbTable table = DbTable.getRelation(tableDefn, columns, cc);
-      DbLogTable logTable = DbLogTable.getRelation(tableDefn, columns, cc);
-
-      revertPendingChanges(entry, columns, table, logTable);
-
-      Query query = buildRowsQuery(table);
-      query.addSort(table.getDataField(CommonFieldsBase.CREATION_DATE_COLUMN_NAME),
-          (startCursor == null || startCursor.isForwardCursor()) ? Direction.ASCENDING
-              : Direction.DESCENDING);
-      // we need the filter to activate the sort...
-      query.addFilter(table.getDataField(CommonFieldsBase.CREATION_DATE_COLUMN_NAME),
-          org.opendatakit.common.persistence.Query.FilterOperation.GREATER_THAN, BasicConsts.EPOCH);
-      result = query.execute(startCursor, fetchLimit);
-
-    } finally {
-      propsLock.release();
-    }
+    String currentDataETag = read.entry.getDataETag();
+    List<DbColumnDefinitionsEntity> columns = read.columns;
+    WebsafeQueryResult result = read.value;
 
     if (result.entities == null || columns == null) {
       throw new InconsistentStateException("Unable to retrieve rows for table " + tableId + ".");
@@ -303,62 +393,44 @@ public class DataManager {
    * @throws PermissionDeniedException
    * @throws BadColumnNameException
    */
-  public WebsafeRows getRowsSince(String dataETag, QueryResumePoint startCursor, int fetchLimit)
-      throws ODKDatastoreException, ODKTaskLockException, InconsistentStateException,
-      PermissionDeniedException, BadColumnNameException {
+  public WebsafeRows getRowsSince(final String dataETag, final QueryResumePoint startCursor,
+      final int fetchLimit) throws ODKDatastoreException, ODKTaskLockException,
+      InconsistentStateException, PermissionDeniedException, BadColumnNameException {
 
     userPermissions.checkPermission(appId, tableId, TablePermission.READ_ROW);
 
-    String currentDataETag = null;
-    
-    List<DbColumnDefinitionsEntity> columns = null;
-    WebsafeQueryResult result = null;
-    OdkTablesLockTemplate propsLock = new OdkTablesLockTemplate(tableId,
-        ODKTablesTaskLockType.TABLES_NON_PERMISSIONS_CHANGES, OdkTablesLockTemplate.DelayStrategy.SHORT, cc);
-    try {
-      propsLock.acquire();
-
-      DbTableEntryEntity entry = DbTableEntry.getTableIdEntry(tableId, cc);
-      String schemaETag = entry.getSchemaETag();
-
-      if (schemaETag == null) {
-        throw new InconsistentStateException("Schema for table " + tableId + " is not yet defined.");
-      }
-
-      currentDataETag = entry.getDataETag();
-      
-      DbTableDefinitionsEntity tableDefn = DbTableDefinitions
-          .getDefinition(tableId, schemaETag, cc);
-      columns = DbColumnDefinitions.query(tableId, schemaETag, cc);
+    TableReadResult<WebsafeQueryResult> read = readTable(new TableRead<WebsafeQueryResult>() {
+      @Override
+      public WebsafeQueryResult read(DbTableEntryEntity entry, TableSchema schema)
+          throws ODKDatastoreException {
+        DbLogTable logTable = schema.logTable;
 
-      DbTable table = DbTable.getRelation(tableDefn, columns, cc);
-      DbLogTable logTable = DbLogTable.getRelation(tableDefn, columns, cc);
-
-      revertPendingChanges(entry, columns, table, logTable);
+        String sequenceValue = null;
+        if (dataETag != null) {
+          try {
+            sequenceValue = getSequenceValueForDataETag(logTable, dataETag);
+          } catch (ODKEntityNotFoundException e) {
+            // TODO: log this as a warning -- may be returning a very large set
+            sequenceValue = null;
+          }
+        }
 
-      String sequenceValue = null;
-      if (dataETag != null) {
-        try {
-          sequenceValue = getSequenceValueForDataETag(logTable, dataETag);
-        } catch (ODKEntityNotFoundException e) {
-          // TODO: log this as a warning -- may be returning a very large set
-          sequenceValue = null;
+        Query query;
+        if (sequenceValue == null) {
+          query = buildRowsFromBeginningQuery(logTable, entry, (startCursor == null ? true
+              : startCursor.isForwardCursor()));
+        } else {
+          query = buildRowsSinceQuery(logTable, sequenceValue, (startCursor == null ? true
+              : startCursor.isForwardCursor()));
         }
-      }
 
-      Query query;
-      if (sequenceValue == null) {
-        query = buildRowsFromBeginningQuery(logTable, entry, (startCursor == null ? true
-            : startCursor.isForwardCursor()));
-      } else {
-        query = buildRowsSinceQuery(logTable, sequenceValue, (startCursor == null ? true
-            : startCursor.isForwardCursor()));
+        return query.execute(startCursor, fetchLimit);
       }
+    });
 
-      result = query.execute(startCursor, fetchLimit);
-    } finally {
-      propsLock.release();
-    }
+    String currentDataETag = read.entry.getDataETag();
+    List<DbColumnDefinitionsEntity> columns = read.columns;
+    WebsafeQueryResult result = read.value;
 
     if (result.entities == null || columns == null) {
       throw new InconsistentStateException("Unable to retrieve rows for table " + tableId + ".");
@@ -397,7 +469,7 @@ public class DataManager {
    * @throws BadColumnNameException
    * @throws ParseException 
    */
-  public WebsafeRows getRowsInTimeRange(String dateToUse, String startTime, String endTime, QueryResumePoint startCursor, int fetchLimit)
+  public WebsafeRows getRowsInTimeRange(String dateToUse, final String startTime, final String endTime, final QueryResumePoint startCursor, final int fetchLimit)
       throws ODKDatastoreException, ODKTaskLockException, InconsistentStateException,
       PermissionDeniedException, BadColumnNameException, ParseException {
      
@@ -408,79 +480,66 @@ public class DataManager {
    }
 
     userPermissions.checkPermission(appId, tableId, TablePermission.READ_ROW);
-    
-    String currentDataETag = null;
-    
-    List<DbColumnDefinitionsEntity> columns = null;
-    WebsafeQueryResult result = null;
-    OdkTablesLockTemplate propsLock = new OdkTablesLockTemplate(tableId,
-        ODKTablesTaskLockType.TABLES_NON_PERMISSIONS_CHANGES, OdkTablesLockTemplate.DelayStrategy.SHORT, cc);
-    try {
-      propsLock.acquire();
 
-      DbTableEntryEntity entry = DbTableEntry.getTableIdEntry(tableId, cc);
-      String schemaETag = entry.getSchemaETag();
-
-      if (schemaETag == null) {
-        throw new InconsistentStateException("Schema for table " + tableId + " is not yet defined.");
-      }
-
-      currentDataETag = entry.getDataETag();
-
-      DbTableDefinitionsEntity tableDefn = DbTableDefinitions
-          .getDefinition(tableId, schemaETag, cc);
-      columns = DbColumnDefinitions.query(tableId, schemaETag, cc);
+    if (startTime == null) {
+      throw new IllegalArgumentException("startTime must be specified.");
+    }
 
-      DbTable table = DbTable.getRelation(tableDefn, columns, cc);
-      DbLogTable logTable = DbLogTable.getRelation(tableDefn, columns, cc);
+    SimpleDateFormat sf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSSSSSSS");
+    final Date startDateToCompare = sf.parse(startTime);
+    // endTime is an optional parameter
+    // and does not have to have a valid value
+    final Date endDateToCompare = (endTime == null) ? null : sf.parse(endTime);
+    final String dateCol = query_col;
 
-      revertPendingChanges(entry, columns, table, logTable);
+    TableReadResult<WebsafeQueryResult> read = readTable(new TableRead<WebsafeQueryResult>() {
+      @Override
+      public WebsafeQueryResult read(DbTableEntryEntity entry, TableSchema schema)
+          throws ODKDatastoreException {
+        DbLogTable logTable = schema.logTable;
 
-     SimpleDateFormat sf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSSSSSSS");
-     Date startDateToCompare = null;
-      String startSequenceValue = null;
-      if (startTime != null) {
+        String startSequenceValue = null;
         try {
-        startDateToCompare = sf.parse(startTime);
-          startSequenceValue = getSequenceValueForStartTime(logTable, query_col, startTime, startDateToCompare, Direction.ASCENDING);
+          startSequenceValue = getSequenceValueForStartTime(logTable, dateCol, startTime, startDateToCompare, Direction.ASCENDING);
               //(startCursor == null || startCursor.isForwardCursor()) ? Direction.ASCENDING : Direction.DESCENDING);
         } catch (ODKEntityNotFoundException e) {
-          // No values to display should return empty list
-          ArrayList<Row> rows = new ArrayList<Row>();
-          return new WebsafeRows(rows, currentDataETag, null, null, null, false, false);
+          // No values to display
+          return null;
         }
-      } else {
-        throw new IllegalArgumentException("startTime must be specified.");
-      }
-      
-      // endTime is an optional parameter
-      // and does not have to have a valid value
-     Date endDateToCompare = null;
-      String endSequenceValue = null;
-      if (endTime != null) {
-        try {
-         endDateToCompare = sf.parse(endTime);
-         // For the end time stamp we want the last one
-         endSequenceValue = getSequenceValueForEndTime(logTable, query_col, endTime, endDateToCompare, Direction.DESCENDING);
-             // (startCursor == null || startCursor.isForwardCursor()) ? Direction.DESCENDING : Direction.ASCENDING);
-        } catch (ODKEntityNotFoundException e) {
-          // If a sequence values is not found,
-          // the query should still work
+
+        String endSequenceValue = null;
+        if (endTime != null) {
+          try {
+           // For the end time stamp we want the last one
+           endSequenceValue = getSequenceValueForEndTime(logTable, dateCol, endTime, endDateToCompare, Direction.DESCENDING);
+               // (startCursor == null || startCursor.isForwardCursor()) ? Direction.DESCENDING : Direction.ASCENDING);
+          } catch (ODKEntityNotFoundException e) {
+            // If a sequence values is not found,
+            // the query should still work
+          }
+        } 
+
+        // CAL: From getRowsSince
+        Query query;
+        if (startSequenceValue == null) {
+          throw new IllegalArgumentException("No sequence value exists for the specified startTime.");
+        } else {
+          query = buildRowsIncludingQuery(logTable, startSequenceValue, endSequenceValue, (startCursor == null ? true
+              : startCursor.isForwardCursor()));
         }
-      } 
 
-      // CAL: From getRowsSince
-      Query query;
-      if (startSequenceValue == null) {
-        throw new IllegalArgumentException("No sequence value exists for the specified startTime.");
-      } else {
-        query = buildRowsIncludingQuery(logTable, startSequenceValue, endSequenceValue, (startCursor == null ? true
-            : startCursor.isForwardCursor()));
+        return query.execute(startCursor, fetchLimit);
       }
+    });
+
+    String currentDataETag = read.entry.getDataETag();
+    List<DbColumnDefinitionsEntity> columns = read.columns;
+    WebsafeQueryResult result = read.value;
 
-      result = query.execute(startCursor, fetchLimit);
-    } finally {
-      propsLock.release();
+    if (result == null) {
+      // No values to display should return empty list
+      ArrayList<Row> rows = new ArrayList<Row>();
+      return new WebsafeRows(rows, currentDataETag, null, null, null, false, false);
     }
 
     if (result.entities == null || columns == null) {
@@ -720,7 +779,7 @@ public class DataManager {
    * @throws ODKTaskLockException
    * @throws BadColumnNameException
    */
-  public Row getRow(String rowId) throws ODKEntityNotFoundException, ODKDatastoreException,
+  public Row getRow(final String rowId) throws ODKEntityNotFoundException, ODKDatastoreException,
       PermissionDeniedException, InconsistentStateException, ODKTaskLockException,
       BadColumnNameException {
     try {
@@ -728,35 +787,16 @@ public class DataManager {
 
       userPermissions.checkPermission(appId, tableId, TablePermission.READ_ROW);
 
-      List<DbColumnDefinitionsEntity> columns = null;
-      Entity entity = null;
-      OdkTablesLockTemplate propsLock = new OdkTablesLockTemplate(tableId,
-          ODKTablesTaskLockType.TABLES_NON_PERMISSIONS_CHANGES, OdkTablesLockTemplate.DelayStrategy.SHORT, cc);
-      try {
-        propsLock.acquire();
-
-        DbTableEntryEntity entry = DbTableEntry.getTableIdEntry(tableId, cc);
-        String schemaETag = entry.getSchemaETag();
-
-        if (schemaETag == null) {
-          throw new InconsistentStateException("Schema for table " + tableId
-              + " is not yet defined.");
+      TableReadResult<Entity> read = readTable(new TableRead<Entity>() {
+        @Override
+        public Entity read(DbTableEntryEntity entry, TableSchema schema)
+            throws ODKDatastoreException {
+          return schema.table.getEntity(rowId, cc);
         }
+      });
 
-        DbTableDefinitionsEntity tableDefn = DbTableDefinitions.getDefinition(tableId, schemaETag,
-            cc);
-        columns = DbColumnDefinitions.query(tableId, schemaETag, cc);
-
-        DbTable table = DbTable.getRelation(tableDefn, columns, cc);
-        DbLogTable logTable = DbLogTable.getRelation(tableDefn, columns, cc);
-
-        revertPendingChanges(entry, columns, table, logTable);
-
-        entity = table.getEntity(rowId, cc);
-
-      } finally {
-        propsLock.release();
-      }
+      List<DbColumnDefinitionsEntity> columns = read.columns;
+      Entity entity = read.value;
 
       if (columns == null) {
         throw new InconsistentStateException("Unable to retrieve rows for table " + tableId + ".");
@@ -935,12 +975,11 @@ public class DataManager {
           throw new TableDataETagMismatchException("The dataETag for table " + tableId + " does not match that supplied in the RowList");          
         }
 
-        DbTableDefinitionsEntity tableDefn = DbTableDefinitions.getDefinition(tableId, schemaETag,
-            cc);
-        columns = DbColumnDefinitions.query(tableId, schemaETag, cc);
+        TableSchema schema = TableSchemaCache.getSchema(tableId, schemaETag, cc);
+        columns = schema.columns;
 
-        DbTable table = DbTable.getRelation(tableDefn, columns, cc);
-        DbLogTable logTable = DbLogTable.getRelation(tableDefn, columns, cc);
+        DbTable table = schema.table;
+        DbLogTable logTable = schema.logTable;
 
         revertPendingChanges(entry, columns, table, logTable);
 
@@ -960,16 +999,37 @@ public class DataManager {
 
         ArrayList<BulkRowObjWrapper> rowWrapperList = new ArrayList<BulkRowObjWrapper>();
 
+        // look up all the rows that already exist in a few queries rather
+        // than one query per row.
+        List<BulkRowObjWrapper> incomingRowWrappers = new ArrayList<BulkRowObjWrapper>();
+        List<String> incomingRowIds = new ArrayList<String>();
         for (Row row : rows.getRows()) {
-
           BulkRowObjWrapper rowWrapper = new BulkRowObjWrapper(row);
+          incomingRowWrappers.add(rowWrapper);
+          incomingRowIds.add(rowWrapper.getRowId());
+        }
+        Map<String, Entity> existingEntities = DbTable.getEntities(table, incomingRowIds, cc);
+        Set<String> seenRowIds = new HashSet<String>();
+
+        for (BulkRowObjWrapper rowWrapper : incomingRowWrappers) {
+
+          Row row = rowWrapper.getRow();
 
           // and add row wrapper for bulk processing
           rowWrapperList.add(rowWrapper);
 
-          Entity entity = null;
-          try {
-            entity = table.getEntity(rowWrapper.getRowId(), cc);
+          Entity entity = existingEntities.remove(rowWrapper.getRowId());
+          if (!seenRowIds.add(rowWrapper.getRowId())) {
+            // the same row appears more than once in this batch.
+            // Each occurrence gets its own entity, fetched individually.
+            try {
+              entity = table.getEntity(rowWrapper.getRowId(), cc);
+            } catch (ODKEntityNotFoundException e) {
+              entity = null;
+            }
+          }
+
+          if (entity != null) {
 
             if (rowWrapper.hasNewRowId()) {
               // yikes! -- generated UUID conflicts with an existing one.
@@ -978,7 +1038,7 @@ public class DataManager {
               continue;
             }
 
-          } catch (ODKEntityNotFoundException e) {
+          } else {
 
             if (row.isDeleted()) {
               rowWrapper.setOutcome(OutcomeType.DENIED);
@@ -1174,12 +1234,11 @@ public class DataManager {
               + " is not yet defined.");
         }
 
-        DbTableDefinitionsEntity tableDefn = DbTableDefinitions.getDefinition(tableId, schemaETag,
-            cc);
-        columns = DbColumnDefinitions.query(tableId, schemaETag, cc);
+        TableSchema schema = TableSchemaCache.getSchema(tableId, schemaETag, cc);
+        columns = schema.columns;
 
-        DbTable table = DbTable.getRelation(tableDefn, columns, cc);
-        DbLogTable logTable = DbLogTable.getRelation(tableDefn, columns, cc);
+        DbTable table = schema.table;
+        DbLogTable logTable = schema.logTable;
 
         revertPendingChanges(entry, columns, table, logTable);
         
@@ -1395,13 +1454,11 @@ public class DataManager {
               + " is not yet defined.");
         }
 
-        DbTableDefinitionsEntity tableDefn = DbTableDefinitions.getDefinition(tableId, schemaETag,
-            cc);
-        List<DbColumnDefinitionsEntity> columns = DbColumnDefinitions
-            .query(tableId, schemaETag, cc);
+        TableSchema schema = TableSchemaCache.getSchema(tableId, schemaETag, cc);
+        List<DbColumnDefinitionsEntity> columns = schema.columns;
 
-        DbTable table = DbTable.getRelation(tableDefn, columns, cc);
-        DbLogTable logTable = DbLogTable.getRelation(tableDefn, columns, cc);
+        DbTable table = schema.table;
+        DbLogTable logTable = schema.logTable;
 
         revertPendingChanges(entry, columns, table, logTable);
 
@@ -1550,66 +1607,47 @@ public class DataManager {
    * @throws InconsistentStateException
    * @throws BadColumnNameException
    */
-  public ChangeSetList getChangeSetsSince(String dataETag, String sequenceValue) throws PermissionDeniedException, ODKDatastoreException, ODKTaskLockException, InconsistentStateException, BadColumnNameException {
+  public ChangeSetList getChangeSetsSince(final String dataETag, final String sequenceValue) throws PermissionDeniedException, ODKDatastoreException, ODKTaskLockException, InconsistentStateException, BadColumnNameException {
 
     userPermissions.checkPermission(appId, tableId, TablePermission.READ_ROW);
 
-    String currentDataETag = null;
-    String retrievalSequenceValue = null;
-    
-    List<DbColumnDefinitionsEntity> columns = null;
-    List<?> result = null;
-    OdkTablesLockTemplate propsLock = new OdkTablesLockTemplate(tableId,
-        ODKTablesTaskLockType.TABLES_NON_PERMISSIONS_CHANGES, OdkTablesLockTemplate.DelayStrategy.SHORT, cc);
-    try {
-      propsLock.acquire();
-      Sequencer sequencer = new Sequencer(cc);
-      retrievalSequenceValue = sequencer.getNextSequenceValue();
+    Sequencer sequencer = new Sequencer(cc);
+    String retrievalSequenceValue = sequencer.getNextSequenceValue();
 
-      DbTableEntryEntity entry = DbTableEntry.getTableIdEntry(tableId, cc);
-      String schemaETag = entry.getSchemaETag();
+    TableReadResult<List<?>> read = readTable(new TableRead<List<?>>() {
+      @Override
+      public List<?> read(DbTableEntryEntity entry, TableSchema schema)
+          throws ODKDatastoreException {
+        DbLogTable logTable = schema.logTable;
 
-      if (schemaETag == null) {
-        throw new InconsistentStateException("Schema for table " + tableId + " is not yet defined.");
-      }
+        String unifiedSequenceValue = null;
+        if (dataETag != null) {
+          try {
+            unifiedSequenceValue = getSequenceValueForDataETag(logTable, dataETag);
+          } catch (ODKEntityNotFoundException e) {
+            // TODO: log this as a warning -- may be returning a very large set
+            unifiedSequenceValue = null;
+          }
+        }
 
-      currentDataETag = entry.getDataETag();
+        if ( sequenceValue != null && 
+            (unifiedSequenceValue == null || (unifiedSequenceValue.compareTo(sequenceValue) < 0)) ) {
+          unifiedSequenceValue = sequenceValue;
+        }
       
-      DbTableDefinitionsEntity tableDefn = DbTableDefinitions
-          .getDefinition(tableId, schemaETag, cc);
-      columns = DbColumnDefinitions.query(tableId, schemaETag, cc);
-
-      DbTable table = DbTable.getRelation(tableDefn, columns, cc);
-      DbLogTable logTable = DbLogTable.getRelation(tableDefn, columns, cc);
-
-      revertPendingChanges(entry, columns, table, logTable);
-
-      String unifiedSequenceValue = null;
-      if (dataETag != null) {
-        try {
-          unifiedSequenceValue = getSequenceValueForDataETag(logTable, dataETag);
-        } catch (ODKEntityNotFoundException e) {
-          // TODO: log this as a warning -- may be returning a very large set
-          unifiedSequenceValue = null;
+        Query query;
+        if (unifiedSequenceValue == null) {
+          query = buildRowsFromBeginningQuery(logTable, entry, true);
+        } else {
+          query = buildRowsSinceQuery(logTable, unifiedSequenceValue, true);
         }
-      }
-
-      if ( sequenceValue != null && 
-          (unifiedSequenceValue == null || (unifiedSequenceValue.compareTo(sequenceValue) < 0)) ) {
-        unifiedSequenceValue = sequenceValue;
-      }
       
-      Query query;
-      if (unifiedSequenceValue == null) {
-        query = buildRowsFromBeginningQuery(logTable, entry, true);
-      } else {
-        query = buildRowsSinceQuery(logTable, unifiedSequenceValue, true);
+        return query.getDistinct(DbLogTable.DATA_ETAG_AT_MODIFICATION);
       }
-      
-      result = query.getDistinct(DbLogTable.DATA_ETAG_AT_MODIFICATION);
-    } finally {
-      propsLock.release();
-    }
+    });
+
+    String currentDataETag = read.entry.getDataETag();
+    List<?> result = read.value;
 
     if (result == null || result.isEmpty() ) {
       return new ChangeSetList(null, currentDataETag, retrievalSequenceValue);
@@ -1641,73 +1679,55 @@ public class DataManager {
    * @throws ODKTaskLockException
    * @throws BadColumnNameException
    */
-  public WebsafeRows getChangeSetRows(String dataETag, boolean isActive,
-      QueryResumePoint startCursor, int fetchLimit) throws PermissionDeniedException, ODKDatastoreException, InconsistentStateException, ODKTaskLockException, BadColumnNameException {
+  public WebsafeRows getChangeSetRows(final String dataETag, final boolean isActive,
+      final QueryResumePoint startCursor, final int fetchLimit) throws PermissionDeniedException, ODKDatastoreException, InconsistentStateException, ODKTaskLockException, BadColumnNameException {
 
     userPermissions.checkPermission(appId, tableId, TablePermission.READ_ROW);
 
-    String currentDataETag = null;
-    
-    List<DbColumnDefinitionsEntity> columns = null;
-    WebsafeQueryResult result = null;
-    OdkTablesLockTemplate propsLock = new OdkTablesLockTemplate(tableId,
-        ODKTablesTaskLockType.TABLES_NON_PERMISSIONS_CHANGES, OdkTablesLockTemplate.DelayStrategy.SHORT, cc);
-    try {
-      propsLock.acquire();
+    TableReadResult<WebsafeQueryResult> read = readTable(new TableRead<WebsafeQueryResult>() {
+      @Override
+      public WebsafeQueryResult read(DbTableEntryEntity entry, TableSchema schema)
+          throws ODKDatastoreException {
+        DbTable table = schema.table;
+        DbLogTable logTable = schema.logTable;
 
-      DbTableEntryEntity entry = DbTableEntry.getTableIdEntry(tableId, cc);
-      String schemaETag = entry.getSchemaETag();
-
-      if (schemaETag == null) {
-        throw new InconsistentStateException("Schema for table " + tableId + " is not yet defined.");
-      }
-
-      currentDataETag = entry.getDataETag();
+        boolean isForwardCursor = (startCursor == null ? true
+            : startCursor.isForwardCursor());
       
-      DbTableDefinitionsEntity tableDefn = DbTableDefinitions
-          .getDefinition(tableId, schemaETag, cc);
-      columns = DbColumnDefinitions.query(tableId, schemaETag, cc);
-
-      DbTable table = DbTable.getRelation(tableDefn, columns, cc);
-      DbLogTable logTable = DbLogTable.getRelation(tableDefn, columns, cc);
-
-      revertPendingChanges(entry, columns, table, logTable);
-
-      boolean isForwardCursor = (startCursor == null ? true
-          : startCursor.isForwardCursor());
-      
-      if ( isActive ) {
-        // query is against DbTable
-        Query query = table.query("DataManager.getChangeSetRows", cc);
-        query.equal(DbTable.DATA_ETAG_AT_MODIFICATION, dataETag);
-        if (isForwardCursor) {
-          query.greaterThan(DbTable.ROW_ETAG,"");
-          query.sortAscending(DbTable.ROW_ETAG);
-        } else {
-          query.greaterThan(DbTable.ROW_ETAG,"");
-          query.sortDescending(DbTable.ROW_ETAG);
-        }
+        if ( isActive ) {
+          // query is against DbTable
+          Query query = table.query("DataManager.getChangeSetRows", cc);
+          query.equal(DbTable.DATA_ETAG_AT_MODIFICATION, dataETag);
+          if (isForwardCursor) {
+            query.greaterThan(DbTable.ROW_ETAG,"");
+            query.sortAscending(DbTable.ROW_ETAG);
+          } else {
+            query.greaterThan(DbTable.ROW_ETAG,"");
+            query.sortDescending(DbTable.ROW_ETAG);
+          }
 
-        result = query.execute(startCursor, fetchLimit);
+          return query.execute(startCursor, fetchLimit);
         
-      } else {
-        // query is against DbLogTable
-        Query query = logTable.query("DataManager.getChangeSetRows", cc);
-        query.equal(DbLogTable.DATA_ETAG_AT_MODIFICATION, dataETag);
-        if (isForwardCursor) {
-          query.greaterThan(DbLogTable.ROW_ID,"");
-          query.sortAscending(DbLogTable.ROW_ID);
         } else {
-          query.greaterThan(DbLogTable.ROW_ID,"");
-          query.sortDescending(DbLogTable.ROW_ID);
-        }
+          // query is against DbLogTable
+          Query query = logTable.query("DataManager.getChangeSetRows", cc);
+          query.equal(DbLogTable.DATA_ETAG_AT_MODIFICATION, dataETag);
+          if (isForwardCursor) {
+            query.greaterThan(DbLogTable.ROW_ID,"");
+            query.sortAscending(DbLogTable.ROW_ID);
+          } else {
+            query.greaterThan(DbLogTable.ROW_ID,"");
+            query.sortDescending(DbLogTable.ROW_ID);
+          }
         
-        result = query.execute(startCursor, fetchLimit);
+          return query.execute(startCursor, fetchLimit);
+        }
       }
+    });
 
-    } finally {
-      propsLock.release();
-    }
+    String currentDataETag = read.entry.getDataETag();
+    List<DbColumnDefinitionsEntity> columns = read.columns;
+    WebsafeQueryResult result = read.value;
 
     if (result.entities == null || columns == null) {
       throw new InconsistentStateException("Unable to retrieve rows for table " + tableId + ".");
@@ -55,6 +55,8 @@ public class InstanceFileManager {
 
   public interface FetchBlobHandler {
     byte[] getBlob() throws ODKDatastoreException;
+
+    InputStream getBlobInputStream() throws ODKDatastoreException;
   }
 
   public interface FileContentHandler {
@@ -73,19 +75,21 @@ public class InstanceFileManager {
   }
 
   /**
-   * Retrieve the content info for a given file. Access to the blob entity set
-   * needs to be guarded by a task lock.
+   * Retrieve the content info for a given file and pass it to the callback
+   * along with a handler to fetch its content. The callback is invoked within
+   * the task lock guarding access to the blob entity set.
    * 
    * @param tableId
    * @param rowId
    * @param partialPath
+   * @param cb
    * @param userPermissions
-   * @return the file content if found; otherwise returns null
+   * @return true if the file was found; otherwise false
    * @throws ODKDatastoreException
    * @throws ODKTaskLockException
    * @throws PermissionDeniedException
    */
-  public FileContentInfo getFile(String tableId, String rowId, String partialPath,
+  public boolean getFile(String tableId, String rowId, String partialPath, FileContentHandler cb,
       TablesUserPermissions userPermissions)
       throws ODKDatastoreException, ODKTaskLockException, PermissionDeniedException {
 
@@ -110,30 +114,31 @@ public class InstanceFileManager {
         propsLock.acquire();
 
         DbTableInstanceFiles blobStore = new DbTableInstanceFiles(tableId, cc);
-        BlobEntitySet instance = blobStore.getBlobEntitySet(rowId, cc);
+        final BlobEntitySet instance = blobStore.getBlobEntitySet(rowId, cc);
 
         int count = instance.getAttachmentCount(cc);
         for (int i = 1; i <= count; ++i) {
           String path = instance.getUnrootedFilename(i, cc);
           if (path != null && path.equals(partialPath)) {
-            byte[] fileBlob = instance.getBlob(i, cc);
-            String contentType = instance.getContentType(i, cc);
-            String contentHash = instance.getContentHash(i, cc);
-            Long contentLength = instance.getContentLength(i, cc);
-
-            // And now prepare everything to be returned to the caller.
-            if (fileBlob != null && contentType != null && contentLength != null
-                && contentLength != 0L) {
-
-              FileContentInfo fo = new FileContentInfo(path, contentType, contentLength,
-                  contentHash, fileBlob);
-              return fo;
-            } else {
-              return null;
-            }
+            final int iSafe = i;
+            FileContentInfo info = new FileContentInfo(path, instance.getContentType(i, cc),
+                instance.getContentLength(i, cc), instance.getContentHash(i, cc), null);
+
+            cb.processFileContent(info, new FetchBlobHandler() {
+              @Override
+              public byte[] getBlob() throws ODKDatastoreException {
+                return instance.getBlob(iSafe, cc);
+              }
+
+              @Override
+              public InputStream getBlobInputStream() throws ODKDatastoreException {
+                return instance.getBlobInputStream(iSafe, cc);
+              }
+            });
+            return true;
           }
         }
-        return null;
+        return false;
 
       } finally {
         propsLock.release();
@@ -315,6 +320,11 @@ public class InstanceFileManager {
             public byte[] getBlob() throws ODKDatastoreException {
               return instance.getBlob(iSafe, cc);
             }
+
+            @Override
+            public InputStream getBlobInputStream() throws ODKDatastoreException {
+              return instance.getBlobInputStream(iSafe, cc);
+            }
           });
         }
       } finally {
@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.commons.lang3.Validate;
+import org.opendatakit.aggregate.odktables.TableSchemaCache.TableSchema;
 import org.opendatakit.aggregate.odktables.exception.PermissionDeniedException;
 import org.opendatakit.aggregate.odktables.exception.TableAlreadyExistsException;
 import org.opendatakit.aggregate.odktables.relation.DbColumnDefinitions;
@@ -242,8 +243,9 @@ public class TableManager {
       if ( schemaETag == null ) {
         return null;
       }
-      definitionEntity = DbTableDefinitions.getDefinition(tableId, schemaETag, cc);
-      columnEntities = DbColumnDefinitions.query(tableId, schemaETag, cc);
+      TableSchema schema = TableSchemaCache.getSchema(tableId, schemaETag, cc);
+      definitionEntity = schema.definition;
+      columnEntities = schema.columns;
 
     } finally {
       propsLock.release();
@@ -463,6 +465,7 @@ public class TableManager {
       tableEntry.setSchemaETag(tableEntry.getPendingSchemaETag());
       tableEntry.setPendingSchemaETag(null);
       tableEntry.put(cc);
+      TableSchemaCache.invalidate(tableId);
 
       return converter.toTableEntry(tableEntry);
     } finally {
@@ -483,6 +486,8 @@ public class TableManager {
    */
   public static void deleteVersionedTable(DbTableEntryEntity tableEntry, boolean deleteCurrent, CallingContext cc) throws ODKDatastoreException, ODKEntityPersistException, ODKOverQuotaException {
 
+    TableSchemaCache.invalidate(tableEntry.getId());
+
     // delete stale schema
     if ( tableEntry.getStaleSchemaETag() != null ) {
       // get the column schema
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2018 University of Washington
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.opendatakit.aggregate.odktables;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.opendatakit.aggregate.odktables.relation.DbColumnDefinitions;
+import org.opendatakit.aggregate.odktables.relation.DbColumnDefinitions.DbColumnDefinitionsEntity;
+import org.opendatakit.aggregate.odktables.relation.DbLogTable;
+import org.opendatakit.aggregate.odktables.relation.DbTable;
+import org.opendatakit.aggregate.odktables.relation.DbTableDefinitions;
+import org.opendatakit.aggregate.odktables.relation.DbTableDefinitions.DbTableDefinitionsEntity;
+import org.opendatakit.common.persistence.exception.ODKDatastoreException;
+import org.opendatakit.common.web.CallingContext;
+
+/**
+ * In-process cache of the schema of each ODK Tables table: its table
+ * definition, its column definitions and the DbTable and DbLogTable relations
+ * built from them.
+ *
+ * These never change for a given schemaETag (a schema change produces a new
+ * schemaETag), so a cached schema is used whenever the requested schemaETag
+ * matches, even if the table was changed through another server instance.
+ * The TableManager invalidates a table's entry when it creates or deletes the
+ * table.
+ *
+ * The cached objects are shared between requests and must not be modified.
+ */
+public final class TableSchemaCache {
+
+  public static final class TableSchema {
+    public final String schemaETag;
+    public final DbTableDefinitionsEntity definition;
+    public final List<DbColumnDefinitionsEntity> columns;
+    public final DbTable table;
+    public final DbLogTable logTable;
+
+    private TableSchema(String schemaETag, DbTableDefinitionsEntity definition,
+        List<DbColumnDefinitionsEntity> columns, DbTable table, DbLogTable logTable) {
+      this.schemaETag = schemaETag;
+      this.definition = definition;
+      this.columns = columns;
+      this.table = table;
+      this.logTable = logTable;
+    }
+  }
+
+  // tableId to the most recently used schema of that table
+  // guarded by TableSchemaCache.class
+  private static final Map<String, TableSchema> schemas = new HashMap<String, TableSchema>();
+
+  private TableSchemaCache() {
+  }
+
+  /**
+   * @param tableId
+   * @param schemaETag
+   * @param cc
+   * @return the schema of the given table for the given schemaETag.
+   * @throws ODKDatastoreException
+   */
+  public static TableSchema getSchema(String tableId, String schemaETag, CallingContext cc)
+      throws ODKDatastoreException {
+    synchronized (TableSchemaCache.class) {
+      TableSchema schema = schemas.get(tableId);
+      if (schema != null && schema.schemaETag.equals(schemaETag)) {
+        return schema;
+      }
+    }
+
+    // not cached -- read it (without holding the monitor)
+    DbTableDefinitionsEntity definition = DbTableDefinitions.getDefinition(tableId, schemaETag,
+        cc);
+    List<DbColumnDefinitionsEntity> columns = DbColumnDefinitions.query(tableId, schemaETag, cc);
+    DbTable table = DbTable.getRelation(definition, columns, cc);
+    DbLogTable logTable = DbLogTable.getRelation(definition, columns, cc);
+    TableSchema schema = new TableSchema(schemaETag, definition,
+        Collections.unmodifiableList(columns), table, logTable);
+
+    synchronized (TableSchemaCache.class) {
+      schemas.put(tableId, schema);
+    }
+    return schema;
+  }
+
+  /**
+   * Forget any cached schema of the given table.
+   *
+   * @param tableId
+   */
+  public static synchronized void invalidate(String tableId) {
+    schemas.remove(tableId);
+  }
+}
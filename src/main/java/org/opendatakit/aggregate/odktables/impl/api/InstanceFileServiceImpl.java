@@ -16,6 +16,8 @@
 package org.opendatakit.aggregate.odktables.impl.api;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
@@ -32,6 +34,7 @@ import javax.ws.rs.core.PathSegment;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 
@@ -61,6 +64,7 @@ import org.opendatakit.common.persistence.PersistenceUtils;
 import org.opendatakit.common.persistence.exception.ODKDatastoreException;
 import org.opendatakit.common.persistence.exception.ODKEntityNotFoundException;
 import org.opendatakit.common.persistence.exception.ODKTaskLockException;
+import org.opendatakit.common.utils.WebUtils;
 import org.opendatakit.common.web.CallingContext;
 import org.opendatakit.common.web.constants.BasicConsts;
 import org.opendatakit.common.web.constants.HtmlConsts;
@@ -250,11 +254,33 @@ public class InstanceFileServiceImpl implements InstanceFileService {
     InstanceFileManager fm = new InstanceFileManager(appId, cc);
 
     try {
-      FileContentInfo fi = fm.getFile(tableId, rowId, partialPath, userPermissions);
+      final FileContentInfo[] found = new FileContentInfo[1];
+      final InputStream[] blobStream = new InputStream[1];
+      fm.getFile(tableId, rowId, partialPath, new FileContentHandler() {
+
+        @Override
+        public void processFileContent(FileContentInfo content, FetchBlobHandler fetcher) {
+          // NOTE: this is processed within a critical section
+          found[0] = content;
+          if (content.contentType != null && content.contentLength != null
+              && content.contentLength != 0L) {
+            // capture the list of blob parts while we hold the lock.
+            // The parts themselves are read as the response is written.
+            try {
+              blobStream[0] = fetcher.getBlobInputStream();
+            } catch (ODKDatastoreException e) {
+              e.printStackTrace();
+              // reported as an error below
+              blobStream[0] = null;
+            }
+          }
+        }
+      }, userPermissions);
+
+      FileContentInfo fi = found[0];
       if (fi != null) {
         // And now prepare everything to be returned to the caller.
-        if (fi.fileBlob != null && fi.contentType != null && fi.contentLength != null
-            && fi.contentLength != 0L) {
+        if (fi.contentType != null && fi.contentLength != null && fi.contentLength != 0L) {
 
           // test if we should return a NOT_MODIFIED response...
           if (eTag != null && eTag.equals(fi.contentHash)) {
@@ -265,12 +291,60 @@ public class InstanceFileServiceImpl implements InstanceFileService {
                 .header("Access-Control-Allow-Credentials", "true").build();
           }
 
-          ResponseBuilder rBuild = Response.ok(fi.fileBlob, fi.contentType)
+          if (blobStream[0] == null) {
+            return Response.status(Status.INTERNAL_SERVER_ERROR)
+                .entity("Unable to retrieve attachment for: " + locationUrl)
+                .header(ApiConstants.OPEN_DATA_KIT_VERSION_HEADER,
+                    ApiConstants.OPEN_DATA_KIT_VERSION)
+                .header("Access-Control-Allow-Origin", "*")
+                .header("Access-Control-Allow-Credentials", "true").build();
+          }
+
+          // honor a single byte-range request
+          List<String> ranges = httpHeaders.getRequestHeader(HtmlConsts.RANGE);
+          long[] range = WebUtils.parseByteRange(
+              (ranges == null || ranges.isEmpty()) ? null : ranges.get(0), fi.contentLength);
+          if (range == WebUtils.UNSATISFIABLE_BYTE_RANGE) {
+            blobStream[0].close();
+            return Response.status(416)
+                .header(HtmlConsts.CONTENT_RANGE, "bytes */" + fi.contentLength)
+                .header(HttpHeaders.ETAG, fi.contentHash)
+                .header(ApiConstants.OPEN_DATA_KIT_VERSION_HEADER,
+                    ApiConstants.OPEN_DATA_KIT_VERSION)
+                .header("Access-Control-Allow-Origin", "*")
+                .header("Access-Control-Allow-Credentials", "true").build();
+          }
+          final InputStream content = blobStream[0];
+          final long first = (range == null) ? 0L : range[0];
+          final long count = (range == null) ? fi.contentLength : (range[1] - range[0] + 1);
+
+          StreamingOutput body = new StreamingOutput() {
+            @Override
+            public void write(OutputStream os) throws IOException {
+              try {
+                if (first != content.skip(first)) {
+                  throw new IOException("Unexpected end of stream");
+                }
+                WebUtils.copyStream(content, os, count);
+              } finally {
+                content.close();
+              }
+            }
+          };
+
+          ResponseBuilder rBuild = Response
+              .status((range == null) ? Status.OK.getStatusCode() : 206)
+              .entity(body).type(fi.contentType)
               .header(HttpHeaders.ETAG, fi.contentHash)
-              .header(HttpHeaders.CONTENT_LENGTH, fi.contentLength)
+              .header(HttpHeaders.CONTENT_LENGTH, count)
+              .header(HtmlConsts.ACCEPT_RANGES, "bytes")
               .header(ApiConstants.OPEN_DATA_KIT_VERSION_HEADER, ApiConstants.OPEN_DATA_KIT_VERSION)
               .header("Access-Control-Allow-Origin", "*")
               .header("Access-Control-Allow-Credentials", "true");
+          if (range != null) {
+            rBuild.header(HtmlConsts.CONTENT_RANGE, "bytes " + range[0] + "-" + range[1] + "/"
+                + fi.contentLength);
+          }
           if (asAttachment != null && !"".equals(asAttachment)) {
             // Set the filename we're downloading to the disk.
             rBuild.header(HtmlConsts.CONTENT_DISPOSITION,
@@ -25,6 +25,7 @@ import org.opendatakit.aggregate.odktables.relation.DbTableDefinitions.DbTableDe
 import org.opendatakit.aggregate.odktables.rest.TableConstants;
 import org.opendatakit.common.ermodel.Relation;
 import org.opendatakit.common.persistence.CommonFieldsBase;
+import org.opendatakit.common.persistence.CompositeIndex;
 import org.opendatakit.common.persistence.DataField;
 import org.opendatakit.common.persistence.DataField.DataType;
 import org.opendatakit.common.persistence.DataField.IndexType;
@@ -35,7 +36,7 @@ public class DbLogTable extends Relation {
 
   private DbLogTable(String namespace, String tableName, List<DataField> fields, CallingContext cc)
       throws ODKDatastoreException {
-    super(namespace, tableName, fields, cc);
+    super(namespace, tableName, fields, compositeIndexes, cc);
   }
 
   public static final String LAST_UPDATE_DATE_COLUMN_NAME = CommonFieldsBase.LAST_UPDATE_DATE_COLUMN_NAME;
@@ -126,6 +127,14 @@ public class DbLogTable extends Relation {
     dataFields.add(SAVEPOINT_CREATOR);
   }
 
+  private static final List<CompositeIndex> compositeIndexes;
+  static {
+    compositeIndexes = new ArrayList<CompositeIndex>();
+    // log entries of a change set, in row id order (DataManager.getChangeSetRows)
+    compositeIndexes.add(new CompositeIndex(DATA_ETAG_AT_MODIFICATION.getName(),
+        ROW_ID.getName()));
+  }
+
   private static final EntityConverter converter = new EntityConverter();
 
   public static final String getDbLogTableName(String dataTableName) {
@@ -139,7 +148,7 @@ public class DbLogTable extends Relation {
     return getRelation(getDbLogTableName(entity.getDbTableName()), fields, cc);
   }
 
-  private static synchronized DbLogTable getRelation(String tableName, List<DataField> fields,
+  private static DbLogTable getRelation(String tableName, List<DataField> fields,
       CallingContext cc) throws ODKDatastoreException {
     DbLogTable relation = new DbLogTable(RUtil.NAMESPACE, tableName, fields, cc);
     return relation;
@@ -17,8 +17,12 @@
 package org.opendatakit.aggregate.odktables.relation;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang3.Validate;
 import org.opendatakit.aggregate.odktables.relation.DbColumnDefinitions.DbColumnDefinitionsEntity;
@@ -27,6 +31,8 @@ import org.opendatakit.aggregate.odktables.rest.TableConstants;
 import org.opendatakit.common.ermodel.Entity;
 import org.opendatakit.common.ermodel.Query;
 import org.opendatakit.common.ermodel.Relation;
+import org.opendatakit.common.persistence.CommonFieldsBase;
+import org.opendatakit.common.persistence.CompositeIndex;
 import org.opendatakit.common.persistence.DataField;
 import org.opendatakit.common.persistence.DataField.DataType;
 import org.opendatakit.common.persistence.DataField.IndexType;
@@ -47,7 +53,7 @@ public class DbTable extends Relation {
 
   private DbTable(String namespace, String tableName, List<DataField> fields, CallingContext cc)
       throws ODKDatastoreException {
-    super(namespace, tableName, fields, cc);
+    super(namespace, tableName, fields, compositeIndexes, cc);
   }
 
   /**
@@ -125,6 +131,17 @@ public class DbTable extends Relation {
     dataFields.add(SAVEPOINT_CREATOR);
   }
 
+  private static final List<CompositeIndex> compositeIndexes;
+  static {
+    compositeIndexes = new ArrayList<CompositeIndex>();
+    // current rows, in creation order (DataManager.getRows)
+    compositeIndexes.add(new CompositeIndex(DELETED.getName(),
+        CommonFieldsBase.CREATION_DATE_COLUMN_NAME, PersistConsts.URI_COLUMN_NAME));
+    // rows of a change set, in row ETag order (DataManager.getChangeSetRows)
+    compositeIndexes.add(new CompositeIndex(DATA_ETAG_AT_MODIFICATION.getName(),
+        ROW_ETAG.getName()));
+  }
+
   private static final EntityConverter converter = new EntityConverter();
 
   public static DbTable getRelation(DbTableDefinitionsEntity entity, List<DbColumnDefinitionsEntity> entities, CallingContext cc)
@@ -134,7 +151,7 @@ public class DbTable extends Relation {
     return getRelation(entity.getDbTableName(), fields, cc);
   }
 
-  private static synchronized DbTable getRelation(String dbTableName, List<DataField> fields,
+  private static DbTable getRelation(String dbTableName, List<DataField> fields,
       CallingContext cc) throws ODKDatastoreException {
     DbTable relation = new DbTable(RUtil.NAMESPACE, dbTableName, fields, cc);
     return relation;
@@ -174,4 +191,40 @@ public class DbTable extends Relation {
     return entities;
   }
 
+  /**
+   * Retrieve the {@link DbTable} row entities that exist for the given row
+   * ids. The rows are fetched as many at a time as the datastore allows in
+   * one IN (...) filter (see Datastore.getMaxValueSetFilterSize()) rather
+   * than one at a time.
+   *
+   * @param table
+   *          the {@link DbTable} relation.
+   * @param rowIds
+   *          the ids of the rows to get. Duplicates are ignored.
+   * @param cc
+   * @return the row entities, keyed by row id. Row ids for which there is no
+   *         row are absent from the map.
+   * @throws ODKDatastoreException
+   */
+  public static Map<String, Entity> getEntities(DbTable table, Collection<String> rowIds,
+      CallingContext cc) throws ODKDatastoreException {
+    Validate.notNull(table);
+    Validate.noNullElements(rowIds);
+    Validate.notNull(cc);
+
+    int maxRowIdsPerQuery = cc.getDatastore().getMaxValueSetFilterSize();
+    List<String> distinctRowIds = new ArrayList<String>(new LinkedHashSet<String>(rowIds));
+    Map<String, Entity> entities = new HashMap<String, Entity>();
+    for (int i = 0; i < distinctRowIds.size(); i += maxRowIdsPerQuery) {
+      List<String> chunk = distinctRowIds.subList(i,
+          Math.min(distinctRowIds.size(), i + maxRowIdsPerQuery));
+      Query query = table.query("DbTable.getEntities", cc);
+      query.include(PersistConsts.URI_COLUMN_NAME, chunk);
+      for (Entity entity : query.execute()) {
+        entities.put(entity.getId(), entity);
+      }
+    }
+    return entities;
+  }
+
 }
\ No newline at end of file
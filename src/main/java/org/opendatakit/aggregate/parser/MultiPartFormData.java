@@ -17,8 +17,6 @@
 
 package org.opendatakit.aggregate.parser;
 
-import java.io.BufferedInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -29,8 +27,7 @@ import java.util.Set;
 
 import javax.servlet.http.HttpServletRequest;
 
-import org.apache.commons.fileupload.FileItemIterator;
-import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileItem;
 import org.apache.commons.fileupload.FileUploadException;
 import org.apache.commons.fileupload.disk.DiskFileItemFactory;
 import org.apache.commons.fileupload.servlet.ServletFileUpload;
@@ -55,11 +52,17 @@ public class MultiPartFormData {
 
     private final Map<String, MultiPartFormItem> fileNameWithoutExtensionNameMap;
 
+    private final List<MultiPartFormItem> allItems;
+
     /**
      * Construct a mult-part form data container by parsing a multi part form
      * request into a set of multipartformitems. The information are stored in
      * items and are indexed by either the field name or the file name (or both)
      * provided in the http submission
+     * <p>
+     * Items larger than {@link ParserConsts#FILE_SPOOL_THRESHOLD} are spooled
+     * to temporary files; call {@link #deleteTemporaryFiles()} once the
+     * request has been processed.
      * 
      * @param req
      *            an HTTP request from a multipart form
@@ -74,9 +77,10 @@ public class MultiPartFormData {
         fieldNameMap = new HashMap<String, MultiPartFormItem>();
         fileNameMap = new HashMap<String, MultiPartFormItem>();
         fileNameWithoutExtensionNameMap = new HashMap<String, MultiPartFormItem>();
+        allItems = new ArrayList<MultiPartFormItem>();
 
         ServletFileUpload upload = new ServletFileUpload(
-                new DiskFileItemFactory());
+                new DiskFileItemFactory(ParserConsts.FILE_SPOOL_THRESHOLD, null));
         int size = req.getContentLength();
         if (size > 0) {
             upload.setFileSizeMax(size);
@@ -86,26 +90,15 @@ public class MultiPartFormData {
 
         List<MultiPartFormItem> fileNameList = new ArrayList<MultiPartFormItem>();
         
-        FileItemIterator items = upload.getItemIterator(req);
-        while (items.hasNext()) {
-            FileItemStream item = items.next();
-            ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
-            BufferedInputStream formStream = new BufferedInputStream(item
-                    .openStream());
-
-            // TODO: determine ways to possibly improve efficiency
-            int nextByte = formStream.read();
-            while (nextByte != -1) {
-                byteStream.write(nextByte);
-                nextByte = formStream.read();
-            }
-            formStream.close();
-
+        List<FileItem> items = upload.parseRequest(req);
+        for (FileItem item : items) {
             if ( item.isFormField() ) {
-                simpleFieldNameMap.put(item.getFieldName(), byteStream.toString());
+                simpleFieldNameMap.put(item.getFieldName(), new String(item.get()));
+                item.delete();
             } else {
                 MultiPartFormItem data = new MultiPartFormItem(item.getFieldName(),
-                        item.getName(), item.getContentType(), byteStream);
+                        item.getName(), item.getContentType(), item);
+                allItems.add(data);
     
                 String fieldName = item.getFieldName();
                 if (fieldName != null) {
@@ -200,4 +193,14 @@ public class MultiPartFormData {
     public Set<Map.Entry<String,MultiPartFormItem>> getFieldNameEntrySet() {
         return Collections.unmodifiableSet(fieldNameMap.entrySet());
     }
+
+    /**
+     * Remove the temporary files holding any spooled items. The items must
+     * not be accessed after this is called.
+     */
+    public void deleteTemporaryFiles() {
+        for (MultiPartFormItem item : allItems) {
+            item.delete();
+        }
+    }
 }
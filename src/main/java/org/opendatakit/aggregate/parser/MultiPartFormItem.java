@@ -17,7 +17,12 @@
 
 package org.opendatakit.aggregate.parser;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+
+import org.apache.commons.fileupload.FileItem;
+import org.opendatakit.common.persistence.CommonFieldsBase;
 
 /**
  * Object representation of multi part form data
@@ -44,9 +49,15 @@ public final class MultiPartFormItem {
   private final String contentType;
 
   /**
-   * form data's stream
+   * form data's content; held in memory or spooled to a temporary file
+   * depending upon its size
+   */
+  private final FileItem content;
+  
+  /**
+   * md5 hash of the content, computed on first use
    */
-  private final ByteArrayOutputStream stream;
+  private String contentHash = null;
   
   /**
    * Constructor of a multi part of data 
@@ -57,14 +68,14 @@ public final class MultiPartFormItem {
    *    form data file name
    * @param contentType
    *    form data content type
-   * @param byteStream
-   *    form data's stream
+   * @param content
+   *    form data's content
    */
-  public MultiPartFormItem(String fieldName, String fileName, String contentType, ByteArrayOutputStream byteStream) {
+  public MultiPartFormItem(String fieldName, String fileName, String contentType, FileItem content) {
     this.name = fieldName;
     this.filename = fileName;
     this.contentType = contentType;
-    this.stream = byteStream;
+    this.content = content;
   }
   
   /**
@@ -109,12 +120,74 @@ public final class MultiPartFormItem {
   }
 
   /**
-   * Get form data's stream
+   * Get the length of the form data
+   * 
+   * @return
+   *    number of bytes
+   */
+  public long getContentLength() {
+    return content.getSize();
+  }
+
+  /**
+   * Get the md5 hash of the form data. This is computed by reading through
+   * the content, so that spooled content is never held in memory.
+   * 
+   * @return
+   *    md5 hash
+   * @throws IOException
+   */
+  public synchronized String getContentHash() throws IOException {
+    if (contentHash == null) {
+      InputStream is = content.getInputStream();
+      try {
+        contentHash = CommonFieldsBase.newMD5HashUri(is);
+      } finally {
+        is.close();
+      }
+    }
+    return contentHash;
+  }
+
+  /**
+   * Open a stream over the form data. The caller must close it.
    * 
    * @return
    *    stream
+   * @throws IOException
+   */
+  public InputStream openStream() throws IOException {
+    return content.getInputStream();
+  }
+
+  /**
+   * Get form data's content as a byte array. This reads spooled content
+   * into memory, so it should only be used for content known to be small.
+   * 
+   * @return
+   *    content
+   */
+  public byte[] getBytes() {
+    return content.get();
+  }
+
+  /**
+   * Get form data's content as a string
+   * 
+   * @param encoding
+   *    character encoding of the content
+   * @return
+   *    content
+   * @throws UnsupportedEncodingException
+   */
+  public String getString(String encoding) throws UnsupportedEncodingException {
+    return content.getString(encoding);
+  }
+
+  /**
+   * Remove any temporary file backing this form data.
    */
-  public ByteArrayOutputStream getStream() {
-    return stream;
+  void delete() {
+    content.delete();
   }
 }
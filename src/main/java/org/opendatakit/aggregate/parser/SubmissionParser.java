@@ -17,7 +17,6 @@
 
 package org.opendatakit.aggregate.parser;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -26,16 +25,19 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.apache.commons.codec.binary.Base64;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.opendatakit.aggregate.constants.BeanDefs;
 import org.opendatakit.aggregate.constants.ParserConsts;
 import org.opendatakit.aggregate.constants.ServletConsts;
 import org.opendatakit.aggregate.datamodel.FormElementModel;
+import org.opendatakit.aggregate.datamodel.FormElementModel.ElementType;
 import org.opendatakit.aggregate.datamodel.TopLevelInstanceData;
 import org.opendatakit.aggregate.exception.ODKConversionException;
 import org.opendatakit.aggregate.exception.ODKFormNotFoundException;
@@ -50,6 +52,7 @@ import org.opendatakit.aggregate.submission.SubmissionField;
 import org.opendatakit.aggregate.submission.SubmissionSet;
 import org.opendatakit.aggregate.submission.type.BlobSubmissionType;
 import org.opendatakit.aggregate.submission.type.RepeatSubmissionType;
+import org.opendatakit.aggregate.task.UploadSubmissions;
 import org.opendatakit.common.datamodel.DeleteHelper;
 import org.opendatakit.common.datamodel.ODKEnumeratedElementException;
 import org.opendatakit.common.persistence.CommonFieldsBase;
@@ -63,15 +66,15 @@ import org.opendatakit.common.utils.WebUtils;
 import org.opendatakit.common.web.CallingContext;
 import org.opendatakit.common.web.constants.BasicConsts;
 import org.opendatakit.common.web.constants.HtmlConsts;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
 
 /**
  * Parsers submission xml and saves to datastore
+ * <p>
+ * The xml is read with a streaming (StAX) parser against the form's
+ * {@link FormElementModel} tree. Only the values of elements that correspond
+ * to form fields are retained, and multipart attachments are stored from
+ * their (possibly spooled) streams, so the memory used by a request does not
+ * grow with the size of the submission's attachments.
  * 
  * @author wbrunette@gmail.com
  * @author mitchellsundt@gmail.com
@@ -89,7 +92,17 @@ public class SubmissionParser {
   /**
    * Root of XML submission
    */
-  private Element root;
+  private SubmissionElement root;
+
+  /**
+   * Whether the OpenRosa metadata tag has been encountered during the parse.
+   */
+  private boolean openRosaMetaFound = false;
+
+  /**
+   * The OpenRosa instanceID defined for this record, if any.
+   */
+  private String openRosaInstanceId = null;
 
   /**
    * Submission object created from xml submission
@@ -190,7 +203,7 @@ public class SubmissionParser {
       throw new IOException("DID NOT GET A SUBMISSION");
     }
 
-    InputStream inputStreamXML = new ByteArrayInputStream(submission.getStream().toByteArray());
+    InputStream inputStreamXML = submission.openStream();
     try {
       constructorHelper(inputStreamXML, isIncomplete, cc);
     } finally {
@@ -205,77 +218,131 @@ public class SubmissionParser {
   private static final String OPEN_ROSA_INSTANCE_ID = "instanceID";
 
   /**
-   * Find the OpenRosa instanceID defined for this record, if any.
+   * The retained content of an xml element that corresponds to a node of the
+   * form's FormElementModel tree: either the text value of a field or the
+   * child elements of a group or repeat group.
+   */
+  private static final class SubmissionElement {
+    final FormElementModel model;
+    final String value;
+    final List<SubmissionElement> children = new ArrayList<SubmissionElement>();
+
+    SubmissionElement(FormElementModel model, String value) {
+      this.model = model;
+      this.value = value;
+    }
+  }
+
+  /**
+   * @param attributes
+   * @param name
+   * @return the value of the named attribute, or the empty string if absent.
+   */
+  private static String getAttribute(Map<String, String> attributes, String name) {
+    String value = attributes.get(name);
+    return (value == null) ? BasicConsts.EMPTY_STRING : value;
+  }
+
+  private static boolean isOpenRosaNamespace(String namespace) {
+    return (namespace == null || namespace.length() == 0
+        || namespace.equalsIgnoreCase(OPEN_ROSA_NAMESPACE)
+        || namespace.equalsIgnoreCase(OPEN_ROSA_NAMESPACE_SLASH)
+        || namespace.equalsIgnoreCase(OPEN_ROSA_NAMESPACE_PRELIM));
+  }
+
+  /**
+   * Read the child elements of the element at which the reader is positioned,
+   * through its end tag. Children that correspond to form elements under the
+   * given group are added to it; everything else is skipped. The OpenRosa
+   * instanceID is captured from the first metadata tag (with or without
+   * namespace) encountered in the document.
    * 
-   * @return
+   * @param reader
+   *          positioned at the start tag of the element
+   * @param group
+   *          the group being populated, or null if the element is skipped
+   * @param isMetaTag
+   *          true if the element is the OpenRosa metadata tag
+   * @throws XMLStreamException
    */
-  private String getOpenRosaInstanceId() {
-    Node n = findMetaTag(root);
-    if (n != null) {
-      NodeList nl = n.getChildNodes();
-      for (int i = 0; i < nl.getLength(); ++i) {
-        Node cn = nl.item(i);
-        String cnUri = cn.getNamespaceURI();
-        String cnName = cn.getLocalName();
-        if (cn.getNodeType() == Node.ELEMENT_NODE
-            && cnName.equals(OPEN_ROSA_INSTANCE_ID)
-            && (cnUri == null || 
-                cnUri.equalsIgnoreCase(OPEN_ROSA_NAMESPACE) ||
-                cnUri.equalsIgnoreCase(OPEN_ROSA_NAMESPACE_SLASH) ||
-                cnUri.equalsIgnoreCase(OPEN_ROSA_NAMESPACE_PRELIM))) {
-          NodeList cnl = cn.getChildNodes();
-          boolean textFound = false;
-          int idxText = -1;
-          for (int j = 0; j < cnl.getLength(); ++j) {
-            Node cnln = cnl.item(j);
-            if (cnln.getNodeType() == Node.TEXT_NODE) {
-              if (textFound) {
-                throw new IllegalStateException("Expected a single text node");
-              }
-              textFound = true;
-              idxText = j;
-            }
-          }
-          if (textFound) {
-            return cnl.item(idxText).getNodeValue();
-          }
+  private void readChildElements(XMLStreamReader reader, SubmissionElement group,
+      boolean isMetaTag) throws XMLStreamException {
+    for (;;) {
+      int event = reader.next();
+      if (event == XMLStreamConstants.END_ELEMENT) {
+        return;
+      } else if (event != XMLStreamConstants.START_ELEMENT) {
+        continue;
+      }
+      String name = reader.getLocalName();
+      String namespace = reader.getNamespaceURI();
+      boolean isInstanceId = isMetaTag && openRosaInstanceId == null
+          && name.equals(OPEN_ROSA_INSTANCE_ID) && isOpenRosaNamespace(namespace);
+      boolean childIsMetaTag = !openRosaMetaFound && name.equals(OPEN_ROSA_METADATA_TAG)
+          && isOpenRosaNamespace(namespace);
+      if (childIsMetaTag) {
+        openRosaMetaFound = true;
+      }
+
+      FormElementModel m = (group == null) ? null : group.model.findElementByName(name);
+      ElementType type = (m == null) ? null : m.getElementType();
+      if (type == ElementType.GROUP || type == ElementType.REPEAT) {
+        SubmissionElement child = new SubmissionElement(m, null);
+        group.children.add(child);
+        readChildElements(reader, child, childIsMetaTag);
+      } else if (m == null || type == ElementType.METADATA) {
+        if (isInstanceId) {
+          openRosaInstanceId = readText(reader);
+        } else {
+          readChildElements(reader, null, childIsMetaTag);
+        }
+      } else {
+        String text = readText(reader);
+        if (isInstanceId) {
+          openRosaInstanceId = text;
         }
+        group.children.add(new SubmissionElement(m, (text == null) ? null : text.trim()));
       }
     }
-    return null;
   }
 
   /**
-   * Traverse submission looking for OpenRosa metadata tag (with or without
-   * namespace).
+   * Read the first non-blank text directly within the element at which the
+   * reader is positioned, skipping through its end tag.
    * 
-   * @param parent
-   * @return
+   * @param reader
+   *          positioned at the start tag of the element
+   * @return the untrimmed text, or null if there is none
+   * @throws XMLStreamException
    */
-  private Node findMetaTag(Node parent) {
-    if (parent.getNodeType() != Node.ELEMENT_NODE)
-      return null;
-    @SuppressWarnings("unused")
-    String parentName = parent.getLocalName();
-    NodeList nl = parent.getChildNodes();
-    for (int i = 0; i < nl.getLength(); ++i) {
-      Node n = nl.item(i);
-      String namespace = n.getNamespaceURI();
-      String name = n.getLocalName();
-      if (n.getNodeType() == Node.ELEMENT_NODE
-          && name.equals(OPEN_ROSA_METADATA_TAG)
-          && (namespace == null || 
-              namespace.equalsIgnoreCase(OPEN_ROSA_NAMESPACE) ||
-              namespace.equalsIgnoreCase(OPEN_ROSA_NAMESPACE_SLASH) ||
-              namespace.equalsIgnoreCase(OPEN_ROSA_NAMESPACE_PRELIM))) {
-        return n;
-      } else {
-        n = findMetaTag(n);
-        if (n != null)
-          return n;
+  private static String readText(XMLStreamReader reader) throws XMLStreamException {
+    String value = null;
+    int depth = 0;
+    for (;;) {
+      switch (reader.next()) {
+      case XMLStreamConstants.START_ELEMENT:
+        ++depth;
+        break;
+      case XMLStreamConstants.END_ELEMENT:
+        if (depth == 0) {
+          return value;
+        }
+        --depth;
+        break;
+      case XMLStreamConstants.CHARACTERS:
+      case XMLStreamConstants.CDATA:
+      case XMLStreamConstants.SPACE:
+        if (depth == 0 && value == null) {
+          String text = reader.getText();
+          if (text.trim().length() > 0) {
+            value = text;
+          }
+        }
+        break;
+      default:
+        break;
       }
     }
-    return null;
   }
 
   /**
@@ -299,22 +366,42 @@ public class SubmissionParser {
   private void constructorHelper(InputStream inputStreamXML, boolean isIncomplete, CallingContext cc)
       throws IOException, ODKFormNotFoundException, ODKParseException, ODKIncompleteSubmissionData,
       ODKConversionException, ODKDatastoreException, ODKFormSubmissionsDisabledException, ODKTaskLockException {
+    Map<String, String> rootAttributes = new HashMap<String, String>();
+    XMLStreamReader reader = null;
     try {
-      DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-      factory.setNamespaceAware(true);
-      factory.setIgnoringComments(true);
-      factory.setCoalescing(true);
-      DocumentBuilder builder = factory.newDocumentBuilder();
-      Document doc = builder.parse(inputStreamXML);
-      root = doc.getDocumentElement();
-      // if debugging: printNode(root);
+      XMLInputFactory factory = XMLInputFactory.newInstance();
+      factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+      factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+      factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+      factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+      reader = factory.createXMLStreamReader(inputStreamXML);
+
+      // advance to the root element and gather its (unprefixed) attributes
+      while (reader.next() != XMLStreamConstants.START_ELEMENT) {
+        if (reader.getEventType() == XMLStreamConstants.END_DOCUMENT) {
+          throw new ODKParseException("Xml document has no root element");
+        }
+      }
+      String rootTag = reader.getLocalName();
+      for (int i = 0; i < reader.getAttributeCount(); ++i) {
+        String prefix = reader.getAttributePrefix(i);
+        if (prefix == null || prefix.length() == 0) {
+          rootAttributes.put(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+        }
+      }
+      for (int i = 0; i < reader.getNamespaceCount(); ++i) {
+        String prefix = reader.getNamespacePrefix(i);
+        if (prefix == null || prefix.length() == 0) {
+          rootAttributes.put(ParserConsts.NAMESPACE_ATTRIBUTE, reader.getNamespaceURI(i));
+        }
+      }
 
       // check for odk id
-      formId = root.getAttribute(ParserConsts.FORM_ID_ATTRIBUTE_NAME);
+      formId = getAttribute(rootAttributes, ParserConsts.FORM_ID_ATTRIBUTE_NAME);
 
       // if odk id is not present use namespace
       if (formId.equalsIgnoreCase(BasicConsts.EMPTY_STRING)) {
-        String schema = root.getAttribute(ParserConsts.NAMESPACE_ATTRIBUTE);
+        String schema = getAttribute(rootAttributes, ParserConsts.NAMESPACE_ATTRIBUTE);
 
         // TODO: move this into FormDefinition?
         if (schema == null) {
@@ -324,25 +411,41 @@ public class SubmissionParser {
         formId = schema;
       }
 
-    } catch (ParserConfigurationException e) {
-      throw new IOException(e);
-    } catch (SAXException e) {
-      e.printStackTrace();
-      throw new IOException(e);
-    }
+      // need to escape all slashes... for xpath processing...
+      formId = formId.replaceAll(ParserConsts.FORWARD_SLASH, ParserConsts.FORWARD_SLASH_SUBSTITUTION);
 
-    // need to escape all slashes... for xpath processing...
-    formId = formId.replaceAll(ParserConsts.FORWARD_SLASH, ParserConsts.FORWARD_SLASH_SUBSTITUTION);
+      String fullyQualifiedId = FormFactory.extractWellFormedFormId(formId);
 
-    String fullyQualifiedId = FormFactory.extractWellFormedFormId(formId);
+      form = FormFactory.retrieveFormByFormId(fullyQualifiedId, cc);
+      if (!form.getSubmissionEnabled()) {
+        throw new ODKFormSubmissionsDisabledException();
+      }
 
-    form = FormFactory.retrieveFormByFormId(fullyQualifiedId, cc);
-    if (!form.getSubmissionEnabled()) {
-      throw new ODKFormSubmissionsDisabledException();
+      // verify that the xml matches the form we are processing...
+      FormElementModel formRoot = form.getTopLevelGroupElement();
+      if (!rootTag.equals(formRoot.getElementName())) {
+        throw new ODKParseException("Xml document element tag: " + rootTag
+            + " does not match the xform data model tag name: " + formRoot.getElementName());
+      }
+
+      // and retain the values of the form's fields
+      root = new SubmissionElement(formRoot, null);
+      readChildElements(reader, root, false);
+    } catch (XMLStreamException e) {
+      e.printStackTrace();
+      throw new IOException(e);
+    } finally {
+      if (reader != null) {
+        try {
+          reader.close();
+        } catch (XMLStreamException e) {
+          // ignore
+        }
+      }
     }
 
-    String modelVersionString = root.getAttribute(ParserConsts.MODEL_VERSION_ATTRIBUTE_NAME);
-    String uiVersionString = root.getAttribute(ParserConsts.UI_VERSION_ATTRIBUTE_NAME);
+    String modelVersionString = getAttribute(rootAttributes, ParserConsts.MODEL_VERSION_ATTRIBUTE_NAME);
+    String uiVersionString = getAttribute(rootAttributes, ParserConsts.UI_VERSION_ATTRIBUTE_NAME);
     Long modelVersion = null;
     Long uiVersion = null;
     if (modelVersionString != null && modelVersionString.length() > 0) {
@@ -352,23 +455,24 @@ public class SubmissionParser {
       uiVersion = Long.valueOf(uiVersionString);
     }
 
-    String instanceId = getOpenRosaInstanceId();
+    String instanceId = openRosaInstanceId;
     if (instanceId == null) {
-      instanceId = root.getAttribute(ParserConsts.INSTANCE_ID_ATTRIBUTE_NAME);
+      instanceId = getAttribute(rootAttributes, ParserConsts.INSTANCE_ID_ATTRIBUTE_NAME);
       if (instanceId == null || instanceId.length() == 0) {
         instanceId = CommonFieldsBase.newUri();
       }
     }
 
     Date submissionDate = new Date();
-    String submissionDateString = root.getAttribute(ParserConsts.SUBMISSION_DATE_ATTRIBUTE_NAME);
+    String submissionDateString = getAttribute(rootAttributes,
+        ParserConsts.SUBMISSION_DATE_ATTRIBUTE_NAME);
     if (submissionDateString != null && submissionDateString.length() != 0) {
       submissionDate = WebUtils.parseDate(submissionDateString);
     }
 
     Date markedAsCompleteDate = new Date();
-    String markedAsCompleteDateString = root
-        .getAttribute(ParserConsts.MARKED_AS_COMPLETE_DATE_ATTRIBUTE_NAME);
+    String markedAsCompleteDateString = getAttribute(rootAttributes,
+        ParserConsts.MARKED_AS_COMPLETE_DATE_ATTRIBUTE_NAME);
     if (markedAsCompleteDateString != null && markedAsCompleteDateString.length() != 0) {
       markedAsCompleteDate = WebUtils.parseDate(markedAsCompleteDateString);
     }
@@ -413,9 +517,8 @@ public class SubmissionParser {
       topLevelTableKey = submission.getKey();
   
       Map<String, Integer> repeatGroupIndices = new HashMap<String, Integer>();
-      FormElementModel formRoot = form.getTopLevelGroupElement();
       // if the submission is pre-existing in the datastore, ONLY update binaries
-      boolean uploadAllBinaries = processSubmissionElement(formRoot, root, submission,
+      boolean uploadAllBinaries = processSubmissionElement(root, submission,
                                                             repeatGroupIndices, preExisting, cc);
       submission.setIsComplete(uploadAllBinaries);
       if (uploadAllBinaries) {
@@ -438,6 +541,19 @@ public class SubmissionParser {
     } finally {
       modificationLock.release();
     }
+
+    // Only notify the publishers if this submission was not already
+    // marked as complete before this interaction and if it is now complete.
+    if (!preExistingComplete && submission.isComplete()) {
+      // publication failures should not fail the submission...
+      try {
+        UploadSubmissions uploadTask = (UploadSubmissions) cc.getBean(BeanDefs.UPLOAD_TASK_BEAN);
+        uploadTask.submissionCompleted(form, cc);
+      } catch (Exception e) {
+        Logger logger = LoggerFactory.getLogger(SubmissionParser.class);
+        logger.info("Publishing enqueue failure (this is recoverable) - " + e.getMessage());
+      }
+    }
   }
 
   /**
@@ -446,10 +562,9 @@ public class SubmissionParser {
    * extracting the corresponding value from the XML submission. Recursively
    * applies itself to children of the form element.
    * 
-   * @param node
-   *          form data model of the group or repeat group being parsed.
    * @param currentSubmissionElement
-   *          xml document element that marks the start of this submission set.
+   *          the parsed group or repeat group that marks the start of this
+   *          submission set.
    * @param submissionSet
    *          the submission set to add the submission values to.
    * @param repeatGroupIndicies
@@ -463,42 +578,17 @@ public class SubmissionParser {
    * @throws ODKConversionException
    * @throws ODKDatastoreException
    */
-  private boolean processSubmissionElement(FormElementModel node, Element currentSubmissionElement,
+  private boolean processSubmissionElement(SubmissionElement currentSubmissionElement,
       SubmissionSet submissionSet, Map<String, Integer> repeatGroupIndicies, boolean preExisting,
       CallingContext cc) throws ODKParseException, ODKIncompleteSubmissionData,
       ODKConversionException, ODKDatastoreException {
 
-    if (node == null || currentSubmissionElement == null) {
-      return true;
-    }
-
-    // the element name of the fdm is the tag name...
-    String submissionTag = node.getElementName();
-    if (submissionTag == null) {
-      return true;
-    }
-
-    // verify that the xml matches the node we are processing...
-    if (!currentSubmissionElement.getLocalName().equals(submissionTag)) {
-      throw new ODKParseException("Xml document element tag: "
-          + currentSubmissionElement.getLocalName()
-          + " does not match the xform data model tag name: " + submissionTag);
-    }
-
-    // get the structure under the fdm tag name...
-    List<Element> elements = getElements(currentSubmissionElement);
-    if (elements.size() == 0) {
-      return true; // the group is not relevant...
-    }
-    // and for each of these, they should be fields under the given fdm
-    // and values within the submissionSet
+    // the children were matched to the fields under the group's fdm
+    // when the xml was read; unmatched elements were already dropped.
+    // If there are none, the group is not relevant...
     boolean complete = true;
-    for (Element e : elements) {
-      FormElementModel m = node.findElementByName(e.getLocalName());
-      if (m == null) {
-        continue;
-        // throw new ODKParseException();
-      }
+    for (SubmissionElement e : currentSubmissionElement.children) {
+      FormElementModel m = e.model;
       switch (m.getElementType()) {
       case METADATA:
         // This keeps lint warnings down
@@ -507,7 +597,7 @@ public class SubmissionParser {
         // need to recurse on these elements keeping the same
         // submissionSet...
         complete = complete
-            & processSubmissionElement(m, e, submissionSet, repeatGroupIndicies, preExisting, cc);
+            & processSubmissionElement(e, submissionSet, repeatGroupIndicies, preExisting, cc);
         break;
       case REPEAT:
         // get the field that will hold the repeats...
@@ -544,7 +634,7 @@ public class SubmissionParser {
         }
         // populate the instance's submission set with values from e...
         complete = complete
-            & processSubmissionElement(m, e, repeatableSubmissionSet, repeatGroupIndicies,
+            & processSubmissionElement(e, repeatableSubmissionSet, repeatGroupIndicies,
                 preExisting, cc);
         break;
       case STRING:
@@ -559,20 +649,20 @@ public class SubmissionParser {
       case SELECT1: // identifies SelectChoice table
       case SELECTN: // identifies SelectChoice table
         if (!preExisting) {
-          String value = getSubmissionValue(e);
+          String value = e.value;
           SubmissionField<?> subField = (SubmissionField<?>) submissionSet.getElementValue(m);
           subField.setValueFromString(value);
         }
         break;
       case GEOPOINT:
         if (!preExisting) {
-          String value = getSubmissionValue(e);
+          String value = e.value;
           ((SubmissionField<?>) submissionSet.getElementValue(m)).setValueFromString(value);
         }
         break;
       case BINARY: // identifies BinaryContent table
         {
-          String value = getSubmissionValue(e);
+          String value = e.value;
           SubmissionField<?> submissionElement = ((SubmissionField<?>) submissionSet
               .getElementValue(m));
           complete = complete & processBinarySubmission(m, submissionElement, value, cc);
@@ -617,9 +707,19 @@ public class SubmissionParser {
         if (fileName == null || fileName.length() == 0) {
           fileName = null;
         }
-        byte[] byteArray = binaryData.getStream().toByteArray();
-        submissionElement.setValueFromByteArray(byteArray, binaryData.getContentType(),
-            fileName, false, cc);
+        // store the attachment from its stream; it may be spooled on disk
+        BlobSubmissionType blob = (BlobSubmissionType) submissionElement;
+        try {
+          InputStream content = binaryData.openStream();
+          try {
+            blob.setValueFromStream(content, binaryData.getContentLength(),
+                binaryData.getContentHash(), binaryData.getContentType(), fileName, false, cc);
+          } finally {
+            content.close();
+          }
+        } catch (IOException e) {
+          throw new ODKDatastoreException("Unable to read attachment " + value, e);
+        }
       } else {
         // Assume the value is the filename...
         submissionElement.setValueFromByteArray(null, null, value, false, cc);
@@ -632,82 +732,4 @@ public class SubmissionParser {
     }
     return true;
   }
-
-  private List<Element> getElements(Element rootNode) {
-    List<Element> elements = new ArrayList<Element>();
-
-    NodeList nodeList = rootNode.getChildNodes();
-
-    for (int i = 0; i < nodeList.getLength(); ++i) {
-      Node node = nodeList.item(i);
-      if (node.getNodeType() == Node.ELEMENT_NODE) {
-        elements.add((Element) node);
-      }
-    }
-    return elements;
-  }
-
-  /**
-   * Extracts value from the XML submission element by getting value from the
-   * text node
-   * 
-   * @param element
-   *          element that has text child node that will contain the value
-   * 
-   * @return value contained in the XML submission
-   */
-  private String getSubmissionValue(Element element) {
-    // could not find element, return null
-    if (element == null) {
-      return null;
-    }
-
-    NodeList childNodeList = element.getChildNodes();
-    // get element value
-    for (int i = 0; i < childNodeList.getLength(); i++) {
-      Node node = childNodeList.item(i);
-      if (node.getNodeType() == Node.TEXT_NODE) {
-        String value = node.getNodeValue().trim();
-        if (value.length() > 0) {
-          return value;
-        } // else go to next node
-      }
-    } // else has no value so continue
-
-    return null;
-  }
-
-  /**
-   * Recursive function that prints the nodes from an XML tree
-   * 
-   * @param node
-   *          xml node to be recursively printed
-   */
-  @SuppressWarnings("unused")
-  private void printNode(Element node) {
-    System.out.println(ParserConsts.NODE_FORMATTED + node.getTagName());
-    if (node.hasAttributes()) {
-      NamedNodeMap attributes = node.getAttributes();
-      for (int i = 0; i < attributes.getLength(); i++) {
-        Node attr = attributes.item(i);
-        System.out.println(ParserConsts.ATTRIBUTE_FORMATTED + attr.getNodeName()
-            + BasicConsts.EQUALS + attr.getNodeValue());
-      }
-    }
-    if (node.hasChildNodes()) {
-      NodeList children = node.getChildNodes();
-      for (int i = 0; i < children.getLength(); i++) {
-        Node child = children.item(i);
-        if (child.getNodeType() == Node.ELEMENT_NODE) {
-          printNode((Element) child);
-        } else if (child.getNodeType() == Node.TEXT_NODE) {
-          String value = child.getNodeValue().trim();
-          if (value.length() > 0) {
-            System.out.println(ParserConsts.VALUE_FORMATTED + value);
-          }
-        }
-      }
-    }
-
-  }
 }
@@ -41,6 +41,7 @@ import org.opendatakit.aggregate.server.ServerPreferencesProperties;
 import org.opendatakit.aggregate.server.UITrans;
 import org.opendatakit.aggregate.submission.Submission;
 import org.opendatakit.aggregate.submission.SubmissionKey;
+import org.opendatakit.aggregate.submission.SubmissionPrefetch;
 import org.opendatakit.common.datamodel.ODKEnumeratedElementException;
 import org.opendatakit.common.persistence.CommonFieldsBase;
 import org.opendatakit.common.persistence.Query;
@@ -217,12 +218,13 @@ public class QueryByUIFilterGroup extends QueryBase {
     // retrieve submissions
     QueryResult results = getQueryResult(cursor, fetchLimit);
     List<? extends CommonFieldsBase> submissionEntities = results.getResultList();
+    SubmissionPrefetch prefetch = new SubmissionPrefetch(getForm(), submissionEntities, cc);
 
     // create a row for each submission
     for (int count = 0; count < submissionEntities.size(); count++) {
       CommonFieldsBase subEntity = submissionEntities.get(count);
       try {
-        Submission sub = new Submission((TopLevelDynamicBase) subEntity, getForm(), cc);
+        Submission sub = new Submission((TopLevelDynamicBase) subEntity, getForm(), prefetch, cc);
         retrievedSubmissions.add(sub);
       } catch (ODKDatastoreException e ) {
         Logger logger = LoggerFactory.getLogger(QueryByUIFilterGroup.class);
@@ -356,11 +358,12 @@ public class QueryByUIFilterGroup extends QueryBase {
     }
 
     List<SubmissionUI> submissionList = new ArrayList<SubmissionUI>();
+    SubmissionPrefetch prefetch = new SubmissionPrefetch(getForm(), results.getResultList(), cc);
 
     // create a row for each submission
     for (CommonFieldsBase subEntity : results.getResultList()) {
       try {
-        Submission sub = new Submission((TopLevelDynamicBase) subEntity, getForm(), cc);
+        Submission sub = new Submission((TopLevelDynamicBase) subEntity, getForm(), prefetch, cc);
         Row row = sub.getFormattedValuesAsRow(elementTypes, filteredElements, elemFormatter, false,
             cc);
   
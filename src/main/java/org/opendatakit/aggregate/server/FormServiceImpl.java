@@ -40,6 +40,7 @@ import org.opendatakit.aggregate.client.form.KmlSelection;
 import org.opendatakit.aggregate.constants.BeanDefs;
 import org.opendatakit.aggregate.constants.ErrorConsts;
 import org.opendatakit.aggregate.constants.HtmlUtil;
+import org.opendatakit.aggregate.constants.common.ExportStatus;
 import org.opendatakit.aggregate.constants.common.ExportType;
 import org.opendatakit.aggregate.constants.common.FormActionStatusTimestamp;
 import org.opendatakit.aggregate.constants.format.FormTableConsts;
@@ -153,6 +154,9 @@ public class FormServiceImpl extends RemoteServiceServlet implements
         summary.setStatus(export.getStatus());
         summary.setTimeLastAction(export.getLastRetryDate());
         summary.setTimeCompleted(export.getCompletionDate());
+        if (export.getStatus() == ExportStatus.GENERATION_IN_PROGRESS) {
+          summary.setProgress(export.getProgress());
+        }
 
         // get info about the downloadable file.
         // null if no file yet....
@@ -234,7 +238,7 @@ public class FormServiceImpl extends RemoteServiceServlet implements
   }
 
   @Override
-  public Boolean createCsvFromFilter(FilterGroup group) throws AccessDeniedException, FormNotAvailableException, RequestFailureException, DatastoreFailureException {
+  public Boolean createCsvFromFilter(FilterGroup group, Boolean newSubmissionsOnly) throws AccessDeniedException, FormNotAvailableException, RequestFailureException, DatastoreFailureException {
     HttpServletRequest req = this.getThreadLocalRequest();
     CallingContext cc = ContextFactory.getCallingContext(this, req);
 
@@ -248,6 +252,7 @@ public class FormServiceImpl extends RemoteServiceServlet implements
 
       // clear uri so a copy can be saved
       group.resetUriToDefault();
+      String filterName = group.getName();
 
       // save the filter group
       SubmissionFilterGroup filterGrp = SubmissionFilterGroup.transform(group, cc);
@@ -261,6 +266,9 @@ public class FormServiceImpl extends RemoteServiceServlet implements
         throw new RequestFailureException(ErrorConsts.FORM_DEFINITION_INVALID); // ill-formed definition
       }
       PersistentResults r = new PersistentResults(ExportType.CSV, form, filterGrp, null, cc);
+      if (Boolean.TRUE.equals(newSubmissionsOnly)) {
+        r.setIncremental(filterName, cc);
+      }
       r.persist(cc);
 
       // create csv task
@@ -283,7 +291,7 @@ public class FormServiceImpl extends RemoteServiceServlet implements
   }
 
   @Override
-  public Boolean createJsonFileFromFilter(FilterGroup group) throws AccessDeniedException,
+  public Boolean createJsonFileFromFilter(FilterGroup group, Boolean newSubmissionsOnly) throws AccessDeniedException,
       FormNotAvailableException, RequestFailureException, DatastoreFailureException {
     HttpServletRequest req = this.getThreadLocalRequest();
     CallingContext cc = ContextFactory.getCallingContext(this, req);
@@ -298,6 +306,7 @@ public class FormServiceImpl extends RemoteServiceServlet implements
 
       // clear uri so a copy can be saved
       group.resetUriToDefault();
+      String filterName = group.getName();
 
       // save the filter group
       SubmissionFilterGroup filterGrp = SubmissionFilterGroup.transform(group, cc);
@@ -310,6 +319,9 @@ public class FormServiceImpl extends RemoteServiceServlet implements
         throw new RequestFailureException(ErrorConsts.FORM_DEFINITION_INVALID); // ill-formed definition
       }
       PersistentResults r = new PersistentResults(ExportType.JSONFILE, form, filterGrp, null, cc);
+      if (Boolean.TRUE.equals(newSubmissionsOnly)) {
+        r.setIncremental(filterName, cc);
+      }
       r.persist(cc);
 
       // create csv task
@@ -20,6 +20,9 @@ import java.util.Date;
 import java.util.List;
 
 import org.opendatakit.aggregate.client.preferences.PreferenceSummary;
+import org.opendatakit.aggregate.constants.externalservice.JsonServerConsts;
+import org.opendatakit.aggregate.constants.externalservice.OhmageJsonServerConsts;
+import org.opendatakit.aggregate.constants.externalservice.REDCapServerConsts;
 import org.opendatakit.common.persistence.CommonFieldsBase;
 import org.opendatakit.common.persistence.DataField;
 import org.opendatakit.common.persistence.Datastore;
@@ -71,6 +74,12 @@ public class ServerPreferencesProperties extends CommonFieldsBase {
   private static final String FASTER_BACKGROUND_ACTIONS_DISABLED = "FASTER_BACKGROUND_ACTIONS_DISABLED";
   private static final String SKIP_MALFORMED_SUBMISSIONS = "SKIP_MALFORMED_SUBMISSIONS";
 
+  // number of submissions per request sent by the batching publishers.
+  // Not exposed in the UI; unset or invalid values use the *Consts defaults.
+  public static final String JSON_SERVER_SUBMISSIONS_PER_REQUEST = "JSON_SERVER_SUBMISSIONS_PER_REQUEST";
+  public static final String OHMAGE_SURVEYS_PER_UPLOAD = "OHMAGE_SURVEYS_PER_UPLOAD";
+  public static final String REDCAP_RECORDS_PER_IMPORT = "REDCAP_RECORDS_PER_IMPORT";
+
   private static final String ODK_TABLES_SEQUENCER_BASE = "ODK_TABLES_SEQUENCER_BASE";
   // there can be only one APP_ID per ODK Aggregate. Store the app name here.
   // The main impact on this is validity checking on sync when the appId is
@@ -276,6 +285,40 @@ public class ServerPreferencesProperties extends CommonFieldsBase {
     setServerPreferencesProperty(cc, SKIP_MALFORMED_SUBMISSIONS, skipMalformedSubmissions.toString());
   }
 
+  public static int getJsonServerSubmissionsPerRequest(CallingContext cc)
+      throws ODKEntityNotFoundException, ODKOverQuotaException {
+    return getPositiveInteger(cc, JSON_SERVER_SUBMISSIONS_PER_REQUEST,
+        JsonServerConsts.DEFAULT_SUBMISSIONS_PER_REQUEST);
+  }
+
+  public static int getOhmageSurveysPerUpload(CallingContext cc)
+      throws ODKEntityNotFoundException, ODKOverQuotaException {
+    return getPositiveInteger(cc, OHMAGE_SURVEYS_PER_UPLOAD,
+        OhmageJsonServerConsts.DEFAULT_SURVEYS_PER_UPLOAD);
+  }
+
+  public static int getRedcapRecordsPerImport(CallingContext cc)
+      throws ODKEntityNotFoundException, ODKOverQuotaException {
+    return getPositiveInteger(cc, REDCAP_RECORDS_PER_IMPORT,
+        REDCapServerConsts.DEFAULT_RECORDS_PER_IMPORT);
+  }
+
+  private static int getPositiveInteger(CallingContext cc, String keyName, int defaultValue)
+      throws ODKEntityNotFoundException, ODKOverQuotaException {
+    String value = getServerPreferencesProperty(cc, keyName);
+    if (value != null) {
+      try {
+        int intValue = Integer.parseInt(value.trim());
+        if (intValue > 0) {
+          return intValue;
+        }
+      } catch (NumberFormatException e) {
+        // fall through to the default
+      }
+    }
+    return defaultValue;
+  }
+
   public void persist(CallingContext cc) throws ODKEntityPersistException, ODKOverQuotaException {
     Datastore ds = cc.getDatastore();
     User user = cc.getCurrentUser();
@@ -18,6 +18,7 @@
 package org.opendatakit.aggregate.servlet;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Date;
 import java.util.List;
@@ -41,6 +42,7 @@ import org.opendatakit.aggregate.submission.SubmissionKey;
 import org.opendatakit.aggregate.submission.SubmissionKeyPart;
 import org.opendatakit.aggregate.submission.type.BlobSubmissionType;
 import org.opendatakit.aggregate.util.ImageUtil;
+import org.opendatakit.aggregate.util.ThumbnailCache;
 import org.opendatakit.common.persistence.exception.ODKDatastoreException;
 import org.opendatakit.common.persistence.exception.ODKOverQuotaException;
 import org.opendatakit.common.utils.WebUtils;
@@ -60,6 +62,21 @@ public class BinaryDataServlet extends ServletUtilBase {
 
   private static final Logger logger = LoggerFactory.getLogger(BinaryDataServlet.class);
 
+  private static final int PREVIEW_WIDTH = 64;
+  private static final int PREVIEW_HEIGHT = 48;
+
+  /**
+   * A preview differs from the attachment itself, so it needs its own entity
+   * tag.
+   */
+  private static final String PREVIEW_ETAG_SUFFIX = "-preview";
+
+  /**
+   * Previews shown in the submissions grid, keyed by the content hash of the
+   * attachment.
+   */
+  private static final ThumbnailCache previewCache = new ThumbnailCache(16L * 1024L * 1024L);
+
   /**
    * Serial number for serialization
    */
@@ -100,8 +117,11 @@ public class BinaryDataServlet extends ServletUtilBase {
 
     Date lastUpdateDate = null;
     byte[] imageBlob = null;
+    byte[] preview = null;
+    InputStream blobStream = null;
     String unrootedFileName = null;
     String contentType = null;
+    String contentHash = null;
     Long contentLength = null;
 
     List<SubmissionKeyPart> parts = key.splitSubmissionKey();
@@ -118,8 +138,22 @@ public class BinaryDataServlet extends ServletUtilBase {
         unrootedFileName = info.unrootedFilename;
         contentType = info.contentType;
         contentLength = info.contentLength;
-        imageBlob = p.getResultFileContents(cc);
+        contentHash = p.getResultFileContentHash(cc);
         lastUpdateDate = p.getCompletionDate();
+        if (previewSize) {
+          if (isNotModified(req, resp, previewETag(contentHash), lastUpdateDate)) {
+            return;
+          }
+          preview = getCachedPreview(contentType, contentHash);
+          if (preview == null) {
+            imageBlob = p.getResultFileContents(cc);
+          }
+        } else {
+          if (isNotModified(req, resp, contentHash, lastUpdateDate)) {
+            return;
+          }
+          blobStream = p.getResultFileInputStream(cc);
+        }
       } catch (ODKOverQuotaException e) {
         e.printStackTrace();
         quotaExceededError(resp);
@@ -187,11 +221,25 @@ public class BinaryDataServlet extends ServletUtilBase {
             // OK. This is the attachment we want...
             ordinal = ord.intValue();
           }
-          imageBlob = b.getBlob(ordinal, cc);
           lastUpdateDate = b.getLastUpdateDate(ordinal, cc);
           unrootedFileName = b.getUnrootedFilename(ordinal, cc);
           contentType = b.getContentType(ordinal, cc);
           contentLength = b.getContentLength(ordinal, cc);
+          contentHash = b.getContentHash(ordinal, cc);
+          if (previewSize) {
+            if (isNotModified(req, resp, previewETag(contentHash), lastUpdateDate)) {
+              return;
+            }
+            preview = getCachedPreview(contentType, contentHash);
+            if (preview == null) {
+              imageBlob = b.getBlob(ordinal, cc);
+            }
+          } else if (contentLength != null && contentLength > 0L) {
+            if (isNotModified(req, resp, contentHash, lastUpdateDate)) {
+              return;
+            }
+            blobStream = b.getBlobInputStream(ordinal, cc);
+          }
         } catch (ODKOverQuotaException e) {
           e.printStackTrace();
           quotaExceededError(resp);
@@ -205,35 +253,71 @@ public class BinaryDataServlet extends ServletUtilBase {
       }
     }
 
-    if (imageBlob != null && imageBlob.length > 0) {
+    if (blobStream != null && contentLength != null && contentLength > 0L) {
       if (contentType == null) {
         contentType = HtmlConsts.RESP_TYPE_IMAGE_JPEG;
       }
 
-      if (previewSize) {
-        // cache for 1 hour...
-        resp.setHeader("Expires:", 
-              WebUtils.rfc1123Date(new Date(System.currentTimeMillis() + 3600000L)));
-        resp.setHeader("Last-Modified:",
-              WebUtils.rfc1123Date(lastUpdateDate));
-        resp.setContentType(HtmlConsts.RESP_TYPE_IMAGE_JPEG);
-        if (contentType.equals(HtmlConsts.RESP_TYPE_IMAGE_JPEG)) {
-          // resize
-          ImageUtil imageUtil = (ImageUtil) cc.getBean(BeanDefs.IMAGE_UTIL);
-          imageBlob = imageUtil.resizeImage(imageBlob, 64, 48);
-        } else {
-          // display not-able-to-resize image...
-          imageBlob = playJPG;
+      // the content hash identifies this version of the attachment
+      setValidatorHeaders(resp, contentHash, lastUpdateDate);
+      resp.setHeader(HtmlConsts.ACCEPT_RANGES, "bytes");
+      resp.setContentType(contentType);
+
+      if (downloadAsAttachmentString != null && !"".equals(downloadAsAttachmentString)) {
+        // set filename if we are downloading to disk...
+        // need this for manifest fetch logic...
+        if (unrootedFileName != null) {
+          resp.addHeader(HtmlConsts.CONTENT_DISPOSITION, "attachment; filename=\""
+              + unrootedFileName + "\"");
         }
-        resp.setContentLength(imageBlob.length);
-      } else {
-        resp.setHeader("Last-Modified:",
-            WebUtils.rfc1123Date(lastUpdateDate));
-        resp.setContentType(contentType);
-        if (contentLength != null) {
-          resp.setContentLength(contentLength.intValue());
+      }
+
+      long first = 0L;
+      long count = contentLength;
+      long[] range = WebUtils.parseByteRange(req.getHeader(HtmlConsts.RANGE), contentLength);
+      if (range == WebUtils.UNSATISFIABLE_BYTE_RANGE) {
+        blobStream.close();
+        resp.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        resp.setHeader(HtmlConsts.CONTENT_RANGE, "bytes */" + contentLength);
+        resp.setHeader(HtmlConsts.CONTENT_LENGTH, "0");
+        return;
+      }
+      if (range != null) {
+        first = range[0];
+        count = range[1] - range[0] + 1;
+        resp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        resp.setHeader(HtmlConsts.CONTENT_RANGE, "bytes " + range[0] + "-" + range[1] + "/"
+            + contentLength);
+      }
+      resp.setHeader(HtmlConsts.CONTENT_LENGTH, Long.toString(count));
+
+      OutputStream os = resp.getOutputStream();
+      try {
+        if (first != blobStream.skip(first)) {
+          throw new IOException("Unexpected end of stream");
         }
+        WebUtils.copyStream(blobStream, os, count);
+      } finally {
+        blobStream.close();
       }
+      os.close();
+    } else if (preview != null || (imageBlob != null && imageBlob.length > 0)) {
+      // preview of the attachment...
+      if (preview == null) {
+        // resize (only JPEG images get this far)
+        ImageUtil imageUtil = (ImageUtil) cc.getBean(BeanDefs.IMAGE_UTIL);
+        preview = imageUtil.resizeImage(imageBlob, PREVIEW_WIDTH, PREVIEW_HEIGHT);
+        if (contentHash != null) {
+          previewCache.put(contentHash, PREVIEW_WIDTH, PREVIEW_HEIGHT, preview);
+        }
+      }
+
+      // cache for 1 hour...
+      resp.setHeader(HtmlConsts.EXPIRES,
+            WebUtils.rfc1123Date(new Date(System.currentTimeMillis() + 3600000L)));
+      setValidatorHeaders(resp, previewETag(contentHash), lastUpdateDate);
+      resp.setContentType(HtmlConsts.RESP_TYPE_IMAGE_JPEG);
+      resp.setContentLength(preview.length);
 
       if (downloadAsAttachmentString != null && !"".equals(downloadAsAttachmentString)) {
         // set filename if we are downloading to disk...
@@ -245,7 +329,7 @@ public class BinaryDataServlet extends ServletUtilBase {
       }
 
       OutputStream os = resp.getOutputStream();
-      os.write(imageBlob);
+      os.write(preview);
       os.close();
     } else {
       resp.setContentType(HtmlConsts.RESP_TYPE_PLAIN);
@@ -253,6 +337,29 @@ public class BinaryDataServlet extends ServletUtilBase {
     }
   }
 
+  /**
+   * @return the ETag of the preview of the attachment with this content
+   *         hash, or null if the attachment has no hash.
+   */
+  static String previewETag(String contentHash) {
+    return (contentHash == null) ? null : contentHash + PREVIEW_ETAG_SUFFIX;
+  }
+
+  /**
+   * @return the preview of the attachment if it can be produced without
+   *         reading the attachment itself, otherwise null.
+   */
+  private byte[] getCachedPreview(String contentType, String contentHash) {
+    if (contentType != null && !contentType.equals(HtmlConsts.RESP_TYPE_IMAGE_JPEG)) {
+      // display not-able-to-resize image...
+      return playJPG;
+    }
+    if (contentHash == null) {
+      return null;
+    }
+    return previewCache.get(contentHash, PREVIEW_WIDTH, PREVIEW_HEIGHT);
+  }
+
   private final String getKeyPath(List<SubmissionKeyPart> parts) {
     StringBuilder b = new StringBuilder();
     for (SubmissionKeyPart p : parts) {
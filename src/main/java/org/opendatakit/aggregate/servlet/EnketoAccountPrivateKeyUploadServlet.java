@@ -164,19 +164,26 @@ public class EnketoAccountPrivateKeyUploadServlet extends ServletUtilBase {
       // process form
       MultiPartFormData uploadedFormItems = new MultiPartFormData(req);
 
-      String enketoApiURL = uploadedFormItems.getSimpleFormField(ENKETO_API_URL);
-      if (enketoApiURL != null) {
-        enketoApiURL = enketoApiURL.trim();
-        if (enketoApiURL.trim().length() == 0) {
-          enketoApiURL = null;
+      String enketoApiURL;
+      String enketoApiToken;
+      try {
+        enketoApiURL = uploadedFormItems.getSimpleFormField(ENKETO_API_URL);
+        if (enketoApiURL != null) {
+          enketoApiURL = enketoApiURL.trim();
+          if (enketoApiURL.trim().length() == 0) {
+            enketoApiURL = null;
+          }
         }
-      }
-      String enketoApiToken = uploadedFormItems.getSimpleFormField(ENKETO_API_TOKEN);
-      if (enketoApiToken != null) {
-        enketoApiToken = enketoApiToken.trim();
-        if (enketoApiToken.trim().length() == 0) {
-          enketoApiToken = null;
+        enketoApiToken = uploadedFormItems.getSimpleFormField(ENKETO_API_TOKEN);
+        if (enketoApiToken != null) {
+          enketoApiToken = enketoApiToken.trim();
+          if (enketoApiToken.trim().length() == 0) {
+            enketoApiToken = null;
+          }
         }
+      } finally {
+        // the fields have been read; release any spooled content
+        uploadedFormItems.deleteTemporaryFiles();
       }
 
       try {
@@ -31,6 +31,7 @@ import org.opendatakit.aggregate.constants.HtmlUtil;
 import org.opendatakit.aggregate.constants.ServletConsts;
 import org.opendatakit.aggregate.exception.ODKFormNotFoundException;
 import org.opendatakit.aggregate.form.FormFactory;
+import org.opendatakit.aggregate.form.FormXmlCache;
 import org.opendatakit.aggregate.form.IForm;
 import org.opendatakit.common.persistence.exception.ODKDatastoreException;
 import org.opendatakit.common.persistence.exception.ODKOverQuotaException;
@@ -106,13 +107,27 @@ public class FormXmlServlet extends ServletUtilBase {
     String xmlString = null;
 
     try {
-      if (form != null) {
-        xmlString = form.getFormXml(cc);
-      } else {
+      if (form == null) {
         odkIdNotFoundError(resp);
         return;
       }
 
+      // the form XML is cached per form version; its ETag is the stored MD5
+      // hash of the XML, so unchanged polls do not touch the datastore.
+      String cacheKey = ADDR + "/" + form.getUri();
+      String version = FormXmlCache.formVersion(form);
+      FormXmlCache.Rendering rendering = FormXmlCache.get(cacheKey, version);
+      if (rendering == null) {
+        xmlString = form.getFormXml(cc);
+        if (xmlString != null) {
+          rendering = new FormXmlCache.Rendering(form.getMd5HashFormXml(cc),
+              form.getLastUpdateDate(), xmlString.getBytes(HtmlConsts.UTF8_ENCODE));
+          FormXmlCache.put(cacheKey, version, rendering);
+        }
+      } else {
+        xmlString = new String(rendering.xml, HtmlConsts.UTF8_ENCODE);
+      }
+
       // Debug: String debugDisplay = WebUtils.escapeUTF8String(xmlString);
 
       if (humanReadable) {
@@ -134,9 +149,9 @@ public class FormXmlServlet extends ServletUtilBase {
         out.println("</PRE>");
         finishBasicHtmlResponse(resp); // footer info
       } else {
-        resp.setCharacterEncoding(HtmlConsts.UTF8_ENCODE);
-        resp.setContentType(HtmlConsts.RESP_TYPE_XML);
-        PrintWriter out = resp.getWriter();
+        if (rendering != null && isNotModified(req, resp, rendering.eTag, rendering.lastModified)) {
+          return;
+        }
         if (form.getFormFilename(cc) != null) {
           resp.setHeader(HtmlConsts.CONTENT_DISPOSITION,
               HtmlConsts.ATTACHMENT_FILENAME_TXT + form.getFormFilename(cc) + BasicConsts.QUOTE
@@ -146,7 +161,13 @@ public class FormXmlServlet extends ServletUtilBase {
               HtmlConsts.ATTACHMENT_FILENAME_TXT + form.getViewableFormNameSuitableAsFileName() + ".xml" + BasicConsts.QUOTE
                   + BasicConsts.SEMI_COLON);
         }
-        out.print(xmlString);
+        if (rendering != null) {
+          writeXmlResponse(resp, rendering);
+        } else {
+          resp.setCharacterEncoding(HtmlConsts.UTF8_ENCODE);
+          resp.setContentType(HtmlConsts.RESP_TYPE_XML);
+          resp.getWriter().print(xmlString);
+        }
       }
     } catch (ODKOverQuotaException e) {
       e.printStackTrace();
@@ -229,15 +229,19 @@ public class ResetUsersAndPermissionsServlet extends ServletUtilBase {
       // process form
       MultiPartFormData resetUsersAndPermissions = new MultiPartFormData(req);
 
-      MultiPartFormItem usersAndPermissionsCsv = resetUsersAndPermissions
-          .getFormDataByFieldName(ACCESS_DEF_PRAM);
-      
       String inputCsv = null;
+      try {
+        MultiPartFormItem usersAndPermissionsCsv = resetUsersAndPermissions
+            .getFormDataByFieldName(ACCESS_DEF_PRAM);
 
-      if (usersAndPermissionsCsv != null) {
-        // TODO: changed added output stream writer. probably something better
-        // exists
-        inputCsv = usersAndPermissionsCsv.getStream().toString(HtmlConsts.UTF8_ENCODE);
+        if (usersAndPermissionsCsv != null) {
+          // TODO: changed added output stream writer. probably something better
+          // exists
+          inputCsv = usersAndPermissionsCsv.getString(HtmlConsts.UTF8_ENCODE);
+        }
+      } finally {
+        // the csv has been read; release any spooled content
+        resetUsersAndPermissions.deleteTemporaryFiles();
       }
 
       StringReader csvContentReader = null;
@@ -199,34 +199,41 @@ public class ServiceAccountPrivateKeyUploadServlet extends ServletUtilBase {
       // process form
       MultiPartFormData uploadedFormItems = new MultiPartFormData(req);
 
-      String simpleApiKey = uploadedFormItems.getSimpleFormField(SIMPLE_API_KEY_PARAM);
-      if ( simpleApiKey != null ) {
-          simpleApiKey = simpleApiKey.trim();
-          if ( simpleApiKey.trim().length() == 0 ) {
-              simpleApiKey = null;
-          }
-      }
-      String clientId = uploadedFormItems.getSimpleFormField(CLIENT_ID_PARAM);
-      if ( clientId != null ) {
-          clientId = clientId.trim();
-          if ( clientId.trim().length() == 0 ) {
-            clientId = null;
-          }
-      }
-      String serviceAccountEmail = uploadedFormItems.getSimpleFormField(SERVICE_ACCOUNT_EMAIL_PARAM);
-      if ( serviceAccountEmail != null ) {
-          serviceAccountEmail = serviceAccountEmail.trim();
-          if ( serviceAccountEmail.trim().length() == 0 ) {
-            serviceAccountEmail = null;
-          }
-      }
-      MultiPartFormItem privateKeyFileData = uploadedFormItems
-          .getFormDataByFieldName(PRIVATE_KEY_FILE_PARAM);
-
+      String simpleApiKey;
+      String clientId;
+      String serviceAccountEmail;
       byte[] p12FileContent = null;
+      try {
+        simpleApiKey = uploadedFormItems.getSimpleFormField(SIMPLE_API_KEY_PARAM);
+        if ( simpleApiKey != null ) {
+            simpleApiKey = simpleApiKey.trim();
+            if ( simpleApiKey.trim().length() == 0 ) {
+                simpleApiKey = null;
+            }
+        }
+        clientId = uploadedFormItems.getSimpleFormField(CLIENT_ID_PARAM);
+        if ( clientId != null ) {
+            clientId = clientId.trim();
+            if ( clientId.trim().length() == 0 ) {
+              clientId = null;
+            }
+        }
+        serviceAccountEmail = uploadedFormItems.getSimpleFormField(SERVICE_ACCOUNT_EMAIL_PARAM);
+        if ( serviceAccountEmail != null ) {
+            serviceAccountEmail = serviceAccountEmail.trim();
+            if ( serviceAccountEmail.trim().length() == 0 ) {
+              serviceAccountEmail = null;
+            }
+        }
+        MultiPartFormItem privateKeyFileData = uploadedFormItems
+            .getFormDataByFieldName(PRIVATE_KEY_FILE_PARAM);
 
-      if (privateKeyFileData != null) {
-        p12FileContent = privateKeyFileData.getStream().toByteArray();
+        if (privateKeyFileData != null) {
+          p12FileContent = privateKeyFileData.getBytes();
+        }
+      } finally {
+        // the fields have been read; release any spooled content
+        uploadedFormItems.deleteTemporaryFiles();
       }
 
       if ( clientId == null || serviceAccountEmail == null || p12FileContent == null ||
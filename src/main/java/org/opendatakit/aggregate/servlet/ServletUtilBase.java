@@ -30,6 +30,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.opendatakit.aggregate.constants.ErrorConsts;
 import org.opendatakit.aggregate.constants.HtmlUtil;
 import org.opendatakit.aggregate.constants.ServletConsts;
+import org.opendatakit.aggregate.form.FormXmlCache;
 import org.opendatakit.aggregate.odktables.rest.ApiConstants;
 import org.opendatakit.common.web.CallingContext;
 import org.opendatakit.common.web.constants.HtmlConsts;
@@ -159,6 +160,92 @@ public class ServletUtilBase extends CommonServletBase {
     resp.setHeader(ApiConstants.DATE_HEADER,  formatter.format(new Date()));
   }
 
+  /**
+   * Handle a conditional GET. If the requester's copy is current, sets the
+   * status to 304 (Not Modified) and the ETag and Last-Modified headers.
+   * If-None-Match takes precedence over If-Modified-Since.
+   *
+   * @param req
+   * @param resp
+   * @param eTag
+   *          may be null.
+   * @param lastModified
+   *          may be null.
+   * @return true if the response is complete (Not Modified).
+   */
+  protected final boolean isNotModified(HttpServletRequest req, HttpServletResponse resp,
+      String eTag, Date lastModified) {
+    boolean notModified = false;
+    String ifNoneMatch = req.getHeader(HtmlConsts.IF_NONE_MATCH);
+    if (ifNoneMatch != null) {
+      for (String tag : ifNoneMatch.split(",")) {
+        tag = tag.trim();
+        if (tag.startsWith("W/")) {
+          tag = tag.substring(2);
+        }
+        if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+          tag = tag.substring(1, tag.length() - 1);
+        }
+        if (tag.equals("*") || tag.equals(eTag)) {
+          notModified = true;
+          break;
+        }
+      }
+    } else if (lastModified != null) {
+      long ifModifiedSince = -1L;
+      try {
+        ifModifiedSince = req.getDateHeader(HtmlConsts.IF_MODIFIED_SINCE);
+      } catch (IllegalArgumentException e) {
+        // unparseable date -- ignore the header
+      }
+      // HTTP dates have a resolution of one second
+      notModified = (ifModifiedSince != -1L)
+          && (lastModified.getTime() / 1000L <= ifModifiedSince / 1000L);
+    }
+    if (notModified) {
+      setValidatorHeaders(resp, eTag, lastModified);
+      resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    }
+    return notModified;
+  }
+
+  /**
+   * Set the ETag and Last-Modified headers of a response. The ETag is sent as
+   * a quoted entity-tag (RFC 7232).
+   *
+   * @param resp
+   * @param eTag
+   *          may be null.
+   * @param lastModified
+   *          may be null.
+   */
+  protected final void setValidatorHeaders(HttpServletResponse resp, String eTag,
+      Date lastModified) {
+    if (eTag != null) {
+      resp.setHeader(HtmlConsts.ETAG, "\"" + eTag + "\"");
+    }
+    if (lastModified != null) {
+      resp.setDateHeader(HtmlConsts.LAST_MODIFIED, lastModified.getTime());
+    }
+  }
+
+  /**
+   * Write an already-rendered UTF-8 XML document, with its ETag and
+   * Last-Modified headers, as the response.
+   *
+   * @param resp
+   * @param rendering
+   * @throws IOException
+   */
+  protected final void writeXmlResponse(HttpServletResponse resp, FormXmlCache.Rendering rendering)
+      throws IOException {
+    setValidatorHeaders(resp, rendering.eTag, rendering.lastModified);
+    resp.setCharacterEncoding(HtmlConsts.UTF8_ENCODE);
+    resp.setContentType(HtmlConsts.RESP_TYPE_XML);
+    resp.setContentLength(rendering.xml.length);
+    resp.getOutputStream().write(rendering.xml);
+  }
+
   @Override
   protected void beginBasicHtmlResponse(String pageName, HttpServletResponse resp,
           CallingContext cc) throws IOException {
@@ -21,7 +21,6 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.Collections;
 import java.util.Iterator;
-import java.util.List;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -32,30 +31,23 @@ import org.apache.commons.lang3.StringEscapeUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.opendatakit.aggregate.ContextFactory;
-import org.opendatakit.aggregate.constants.BeanDefs;
 import org.opendatakit.aggregate.constants.ErrorConsts;
 import org.opendatakit.aggregate.constants.HtmlUtil;
 import org.opendatakit.aggregate.constants.ParserConsts;
 import org.opendatakit.aggregate.constants.ServletConsts;
 import org.opendatakit.aggregate.constants.common.FormElementNamespace;
-import org.opendatakit.aggregate.constants.common.OperationalStatus;
 import org.opendatakit.aggregate.constants.common.UIConsts;
 import org.opendatakit.aggregate.exception.ODKConversionException;
-import org.opendatakit.aggregate.exception.ODKExternalServiceException;
 import org.opendatakit.aggregate.exception.ODKFormNotFoundException;
 import org.opendatakit.aggregate.exception.ODKFormSubmissionsDisabledException;
 import org.opendatakit.aggregate.exception.ODKIncompleteSubmissionData;
 import org.opendatakit.aggregate.exception.ODKParseException;
-import org.opendatakit.aggregate.externalservice.ExternalService;
-import org.opendatakit.aggregate.externalservice.FormServiceCursor;
 import org.opendatakit.aggregate.form.IForm;
 import org.opendatakit.aggregate.format.Row;
 import org.opendatakit.aggregate.format.element.XmlAttributeFormatter;
 import org.opendatakit.aggregate.parser.MultiPartFormData;
 import org.opendatakit.aggregate.parser.SubmissionParser;
 import org.opendatakit.aggregate.submission.Submission;
-import org.opendatakit.aggregate.task.UploadSubmissions;
-import org.opendatakit.aggregate.util.BackendActionsTable;
 import org.opendatakit.common.persistence.exception.ODKDatastoreException;
 import org.opendatakit.common.persistence.exception.ODKEntityPersistException;
 import org.opendatakit.common.persistence.exception.ODKTaskLockException;
@@ -222,10 +214,15 @@ public class SubmissionServlet extends ServletUtilBase {
       SubmissionParser submissionParser = null;
       if (ServletFileUpload.isMultipartContent(req)) {
         MultiPartFormData uploadedSubmissionItems = new MultiPartFormData(req);
-        String isIncompleteFlag = uploadedSubmissionItems
-            .getSimpleFormField(ServletConsts.TRANSFER_IS_INCOMPLETE);
-        isIncomplete = (isIncompleteFlag != null && isIncompleteFlag.compareToIgnoreCase("YES") == 0);
-        submissionParser = new SubmissionParser(uploadedSubmissionItems, isIncomplete, cc);
+        try {
+          String isIncompleteFlag = uploadedSubmissionItems
+              .getSimpleFormField(ServletConsts.TRANSFER_IS_INCOMPLETE);
+          isIncomplete = (isIncompleteFlag != null && isIncompleteFlag.compareToIgnoreCase("YES") == 0);
+          submissionParser = new SubmissionParser(uploadedSubmissionItems, isIncomplete, cc);
+        } finally {
+          // the attachments have been stored; release any spooled content
+          uploadedSubmissionItems.deleteTemporaryFiles();
+        }
       } else {
         // TODO: check that it is the proper types we can deal with
         // XML received, we hope...
@@ -234,35 +231,8 @@ public class SubmissionServlet extends ServletUtilBase {
 
       IForm form = submissionParser.getForm();
 
-      // Only trigger uploads if this submission was not already
-      // marked as complete before this interaction and if it is
-      // now complete. AND...
-      // Issue a publish request only if we haven't issued one recently.
-      // use BackendActionsTable to mediate that decision.
-      // This test ONLY OCCURS during submissions, not during Watchdog
-      // firings, so we don't have to worry about bugs here affecting Watchdog.
-      if (!submissionParser.wasPreexistingComplete() &&
-          submissionParser.getSubmission().isComplete() &&
-          BackendActionsTable.triggerPublisher(form.getUri(), cc) ) {
-        // send information to remote servers that need to be notified
-        List<ExternalService> tmp = FormServiceCursor.getExternalServicesForForm(form, cc);
-        UploadSubmissions uploadTask = (UploadSubmissions) cc.getBean(BeanDefs.UPLOAD_TASK_BEAN);
-
-        // publication failures should not fail the submission...
-        try {
-          CallingContext ccDaemon = ContextFactory.getCallingContext(this, req);
-          ccDaemon.setAsDaemon(true);
-          for (ExternalService rs : tmp) {
-            // only create upload tasks for active publishers
-            if ( rs.getFormServiceCursor().getOperationalStatus() == OperationalStatus.ACTIVE ) {
-              uploadTask.createFormUploadTask(rs.getFormServiceCursor(), false, ccDaemon);
-            }
-          }
-        } catch (ODKExternalServiceException e) {
-          logger.info("Publishing enqueue failure (this is recoverable) - " + e.getMessage());
-          e.printStackTrace();
-        }
-      }
+      // publishers of the form are notified by the SubmissionParser
+      // once the completed submission has been persisted.
 
       // form full url including scheme...
       String serverUrl = cc.getServerURL();
@@ -18,7 +18,10 @@
 package org.opendatakit.aggregate.servlet;
 
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 import javax.servlet.http.HttpServletRequest;
@@ -26,8 +29,10 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.opendatakit.aggregate.ContextFactory;
 import org.opendatakit.aggregate.form.FormFactory;
+import org.opendatakit.aggregate.form.FormXmlCache;
 import org.opendatakit.aggregate.form.IForm;
 import org.opendatakit.aggregate.format.form.XFormsXmlTable;
+import org.opendatakit.common.persistence.CommonFieldsBase;
 import org.opendatakit.common.persistence.exception.ODKDatastoreException;
 import org.opendatakit.common.persistence.exception.ODKOverQuotaException;
 import org.opendatakit.common.web.CallingContext;
@@ -81,10 +86,40 @@ public class XFormsListServlet extends ServletUtilBase {
         }
         formsList = newList;
       }
-      XFormsXmlTable formFormatter = new XFormsXmlTable(formsList, verbose, cc.getServerURL());
 
-      resp.setContentType(HtmlConsts.RESP_TYPE_XML);
-      formFormatter.generateXmlListOfForms(resp.getWriter(), cc);
+      // the list only changes when one of the forms does (which updates its
+      // last-update date), so it is identified by the versions of the forms.
+      String serverUrl = cc.getServerURL();
+      String cacheKey = ADDR + "/" + verbose + "/" + ((formId == null) ? "" : formId) + "/"
+          + serverUrl;
+      StringBuilder b = new StringBuilder();
+      b.append(cacheKey);
+      Date lastModified = null;
+      for (IForm f : formsList) {
+        b.append("\n").append(FormXmlCache.formVersion(f));
+        Date updated = f.getLastUpdateDate();
+        if (updated != null && (lastModified == null || lastModified.before(updated))) {
+          lastModified = updated;
+        }
+      }
+      String eTag = CommonFieldsBase.newMD5HashUri(b.toString());
+
+      if (isNotModified(req, resp, eTag, lastModified)) {
+        return;
+      }
+
+      FormXmlCache.Rendering rendering = FormXmlCache.get(cacheKey, eTag);
+      if (rendering == null) {
+        XFormsXmlTable formFormatter = new XFormsXmlTable(formsList, verbose, serverUrl);
+        StringWriter xml = new StringWriter();
+        PrintWriter out = new PrintWriter(xml);
+        formFormatter.generateXmlListOfForms(out, cc);
+        out.flush();
+        rendering = new FormXmlCache.Rendering(eTag, lastModified, xml.toString().getBytes(
+            HtmlConsts.UTF8_ENCODE));
+        FormXmlCache.put(cacheKey, eTag, rendering);
+      }
+      writeXmlResponse(resp, rendering);
     } catch (ODKOverQuotaException e) {
       e.printStackTrace();
       quotaExceededError(resp);
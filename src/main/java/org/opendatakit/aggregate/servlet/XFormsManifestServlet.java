@@ -19,6 +19,7 @@ package org.opendatakit.aggregate.servlet;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -27,8 +28,10 @@ import org.opendatakit.aggregate.ContextFactory;
 import org.opendatakit.aggregate.constants.ServletConsts;
 import org.opendatakit.aggregate.exception.ODKFormNotFoundException;
 import org.opendatakit.aggregate.form.FormFactory;
+import org.opendatakit.aggregate.form.FormXmlCache;
 import org.opendatakit.aggregate.form.IForm;
 import org.opendatakit.aggregate.format.form.XFormsManifestXmlTable;
+import org.opendatakit.common.persistence.CommonFieldsBase;
 import org.opendatakit.common.persistence.exception.ODKDatastoreException;
 import org.opendatakit.common.persistence.exception.ODKOverQuotaException;
 import org.opendatakit.common.web.CallingContext;
@@ -89,20 +92,39 @@ public class XFormsManifestServlet extends ServletUtilBase {
       return;
     }
 
-    XFormsManifestXmlTable formFormatter = new XFormsManifestXmlTable(form, cc.getServerURL());
-    resp.setContentType(HtmlConsts.RESP_TYPE_XML);
-    PrintWriter out = resp.getWriter();
-    try {
-      formFormatter.generateXmlManifestList(out, cc);
-    } catch (ODKOverQuotaException e) {
-      e.printStackTrace();
-      quotaExceededError(resp);
-      return;
-    } catch (ODKDatastoreException e) {
-      e.printStackTrace();
-      datastoreError(resp);
+    // the manifest only changes when the form does (which updates its
+    // last-update date), so it is identified by the form version.
+    String serverUrl = cc.getServerURL();
+    String cacheKey = ADDR + "/" + form.getUri() + "/" + serverUrl;
+    String eTag = CommonFieldsBase.newMD5HashUri(cacheKey + "/"
+        + FormXmlCache.formVersion(form));
+
+    if (isNotModified(req, resp, eTag, form.getLastUpdateDate())) {
       return;
     }
+
+    FormXmlCache.Rendering rendering = FormXmlCache.get(cacheKey, eTag);
+    if (rendering == null) {
+      XFormsManifestXmlTable formFormatter = new XFormsManifestXmlTable(form, serverUrl);
+      StringWriter xml = new StringWriter();
+      PrintWriter out = new PrintWriter(xml);
+      try {
+        formFormatter.generateXmlManifestList(out, cc);
+      } catch (ODKOverQuotaException e) {
+        e.printStackTrace();
+        quotaExceededError(resp);
+        return;
+      } catch (ODKDatastoreException e) {
+        e.printStackTrace();
+        datastoreError(resp);
+        return;
+      }
+      out.flush();
+      rendering = new FormXmlCache.Rendering(eTag, form.getLastUpdateDate(), xml.toString()
+          .getBytes(HtmlConsts.UTF8_ENCODE));
+      FormXmlCache.put(cacheKey, eTag, rendering);
+    }
+    writeXmlResponse(resp, rendering);
   }
 
 }
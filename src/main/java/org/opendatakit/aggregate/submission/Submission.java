@@ -68,6 +68,16 @@ public class Submission extends SubmissionSet {
     super(null, submission, form.getTopLevelGroupElement(), form, cc);
   }
 
+  /**
+   * Construct a submission from an entity from the data store, using the
+   * subordinate records already fetched for a page of submissions.
+   * 
+   */
+  public Submission(TopLevelDynamicBase submission, IForm form, SubmissionPrefetch prefetch,
+      CallingContext cc) throws ODKDatastoreException {
+    super(null, submission, form.getTopLevelGroupElement(), form, prefetch, cc);
+  }
+
   public Submission(String uri, IForm form, CallingContext cc) throws
       ODKDatastoreException {
     super(null, (TopLevelDynamicBase) cc.getDatastore().getEntity(
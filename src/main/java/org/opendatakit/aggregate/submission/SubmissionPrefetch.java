@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2018 University of Washington
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.aggregate.submission;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.opendatakit.aggregate.datamodel.FormDataModel;
+import org.opendatakit.aggregate.datamodel.TopLevelDynamicBase;
+import org.opendatakit.aggregate.form.IForm;
+import org.opendatakit.common.datamodel.DynamicBase;
+import org.opendatakit.common.persistence.CommonFieldsBase;
+import org.opendatakit.common.persistence.Datastore;
+import org.opendatakit.common.persistence.Query;
+import org.opendatakit.common.persistence.exception.ODKDatastoreException;
+import org.opendatakit.common.security.User;
+import org.opendatakit.common.web.CallingContext;
+
+/**
+ * Bulk loader for the subordinate records (phantom, repeat, choice and binary
+ * content rows) of a page of submissions.
+ * <p>
+ * Reconstructing a single submission issues one query per subordinate
+ * relation and per enclosing record. When a page of submissions is being
+ * reconstructed, this instead fetches every subordinate relation once (per
+ * chunk of {@link Datastore#getMaxValueSetFilterSize()} submissions), filtering on
+ * _TOP_LEVEL_AURI, and indexes the rows by their _PARENT_AURI so that the
+ * {@link SubmissionSet} reconstruction can be served from memory.
+ * <p>
+ * The blob parts of binary attachments are not prefetched; they remain
+ * lazily loaded when the attachment content is requested.
+ */
+public class SubmissionPrefetch {
+
+  private static final Comparator<DynamicBase> ORDINAL_NUMBER_ORDER = new Comparator<DynamicBase>() {
+    @Override
+    public int compare(DynamicBase o1, DynamicBase o2) {
+      Long l1 = o1.getOrdinalNumber();
+      Long l2 = o2.getOrdinalNumber();
+      if (l1 == null) {
+        return (l2 == null) ? 0 : 1;
+      } else if (l2 == null) {
+        return -1;
+      }
+      return l1.compareTo(l2);
+    }
+  };
+
+  /**
+   * schema.table => ( _PARENT_AURI => rows ordered by ordinal number )
+   */
+  private final Map<String, Map<String, List<DynamicBase>>> rowsByRelation = new HashMap<String, Map<String, List<DynamicBase>>>();
+
+  /**
+   * Fetch all the subordinate records of the given top level records.
+   *
+   * @param form
+   * @param topLevelEntities - the submissions that will be reconstructed.
+   * @param cc
+   * @throws ODKDatastoreException
+   */
+  public SubmissionPrefetch(IForm form, List<? extends CommonFieldsBase> topLevelEntities,
+                            CallingContext cc) throws ODKDatastoreException {
+    Map<String, DynamicBase> relations = new LinkedHashMap<String, DynamicBase>();
+    FormDataModel topLevel = form.getTopLevelGroupElement().getFormDataModel();
+    gatherSubordinateRelations(topLevel, relations);
+
+    List<String> uris = new ArrayList<String>();
+    for (CommonFieldsBase entity : topLevelEntities) {
+      uris.add(((TopLevelDynamicBase) entity).getUri());
+    }
+
+    Datastore ds = cc.getDatastore();
+    User user = cc.getCurrentUser();
+    int maxUrisPerQuery = ds.getMaxValueSetFilterSize();
+    for (Map.Entry<String, DynamicBase> entry : relations.entrySet()) {
+      DynamicBase relation = entry.getValue();
+      Map<String, List<DynamicBase>> byParent = new HashMap<String, List<DynamicBase>>();
+      for (int i = 0; i < uris.size(); i += maxUrisPerQuery) {
+        List<String> chunk = uris.subList(i, Math.min(uris.size(), i + maxUrisPerQuery));
+        Query q = ds.createQuery(relation, "SubmissionPrefetch.fetch", user);
+        q.addValueSetFilter(relation.topLevelAuri, chunk);
+        for (CommonFieldsBase cb : q.executeQuery()) {
+          DynamicBase row = (DynamicBase) cb;
+          List<DynamicBase> siblings = byParent.get(row.getParentAuri());
+          if (siblings == null) {
+            siblings = new ArrayList<DynamicBase>();
+            byParent.put(row.getParentAuri(), siblings);
+          }
+          siblings.add(row);
+        }
+      }
+      for (List<DynamicBase> siblings : byParent.values()) {
+        Collections.sort(siblings, ORDINAL_NUMBER_ORDER);
+      }
+      rowsByRelation.put(entry.getKey(), byParent);
+    }
+  }
+
+  private static String relationKey(CommonFieldsBase relation) {
+    return relation.getSchemaName() + "." + relation.getTableName();
+  }
+
+  private static void gatherSubordinateRelations(FormDataModel groupDataModel,
+                                                 Map<String, DynamicBase> relations) {
+    CommonFieldsBase groupRelation = groupDataModel.getBackingObjectPrototype();
+    for (FormDataModel m : groupDataModel.getChildren()) {
+      switch (m.getElementType()) {
+        case PHANTOM:
+        case GROUP:
+        case GEOPOINT:
+          if (m.getPersistAsColumn() != null) {
+            break;
+          }
+          if (!groupRelation.sameTable(m.getBackingObjectPrototype())) {
+            relations.put(relationKey(m.getBackingObjectPrototype()),
+                (DynamicBase) m.getBackingObjectPrototype());
+          }
+          gatherSubordinateRelations(m, relations);
+          break;
+        case REPEAT:
+          relations.put(relationKey(m.getBackingObjectPrototype()),
+              (DynamicBase) m.getBackingObjectPrototype());
+          gatherSubordinateRelations(m, relations);
+          break;
+        case SELECT1:
+        case SELECTN:
+        case BINARY:
+          relations.put(relationKey(m.getBackingObjectPrototype()),
+              (DynamicBase) m.getBackingObjectPrototype());
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  /**
+   * @param relation  - the subordinate relation.
+   * @param uriParent - the _PARENT_AURI of the desired rows.
+   * @return the rows of the relation under the given parent, ordered by
+   *         ordinal number, or null if the relation was not prefetched (in
+   *         which case the caller should query the datastore).
+   */
+  public List<DynamicBase> getChildRows(CommonFieldsBase relation, String uriParent) {
+    Map<String, List<DynamicBase>> byParent = rowsByRelation.get(relationKey(relation));
+    if (byParent == null) {
+      return null;
+    }
+    List<DynamicBase> rows = byParent.get(uriParent);
+    if (rows == null) {
+      return Collections.emptyList();
+    }
+    return rows;
+  }
+}
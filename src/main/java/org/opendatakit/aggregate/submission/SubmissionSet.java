@@ -107,6 +107,11 @@ public class SubmissionSet implements Comparable<SubmissionSet>, SubmissionEleme
    */
   private final Map<FormElementModel, SubmissionValue> elementsToValues = new HashMap<FormElementModel, SubmissionValue>();
 
+  /**
+   * Prefetched subordinate records, or null if they should be queried.
+   */
+  private final SubmissionPrefetch prefetch;
+
   /**
    * Construct an empty repeating group.
    *
@@ -123,6 +128,7 @@ public class SubmissionSet implements Comparable<SubmissionSet>, SubmissionEleme
     this.form = form;
     this.group = group;
     this.enclosingSet = enclosingSet;
+    this.prefetch = null;
     Datastore datastore = cc.getDatastore();
     User user = cc.getCurrentUser();
     DynamicBase tlg = (DynamicBase) datastore.createEntityUsingRelation(group.getFormDataModel()
@@ -149,6 +155,7 @@ public class SubmissionSet implements Comparable<SubmissionSet>, SubmissionEleme
     this.form = form;
     this.group = form.getTopLevelGroupElement();
     this.enclosingSet = null;
+    this.prefetch = null;
     Datastore datastore = cc.getDatastore();
     User user = cc.getCurrentUser();
     // this is a top level table...
@@ -228,9 +235,28 @@ public class SubmissionSet implements Comparable<SubmissionSet>, SubmissionEleme
    */
   public SubmissionSet(SubmissionSet enclosingSet, DynamicCommonFieldsBase row,
                        FormElementModel group, IForm form, CallingContext cc) throws ODKDatastoreException {
+    this(enclosingSet, row, group, form, null, cc);
+  }
+
+  /**
+   * Construct a submission set from the datastore, drawing the subordinate
+   * records from the supplied prefetch rather than querying for them.
+   *
+   * @param enclosingSet   - the enclosing submission set.
+   * @param row            - the base record for this submission set.
+   * @param group          - the form group mapped to the base record.
+   * @param formDefinition - the definition of the form.
+   * @param prefetch       - the prefetched subordinate records (may be null).
+   * @param cc             - the CallingContext of this request.
+   * @throws ODKDatastoreException
+   */
+  public SubmissionSet(SubmissionSet enclosingSet, DynamicCommonFieldsBase row,
+                       FormElementModel group, IForm form, SubmissionPrefetch prefetch, CallingContext cc)
+      throws ODKDatastoreException {
     this.form = form;
     this.group = group;
     this.enclosingSet = enclosingSet;
+    this.prefetch = prefetch;
     this.key = row.getEntityKey();
     Datastore datastore = cc.getDatastore();
     User user = cc.getCurrentUser();
@@ -277,10 +303,16 @@ public class SubmissionSet implements Comparable<SubmissionSet>, SubmissionEleme
         } else {
           if (mBackingObject == null) {
             DynamicBase mBaseRelation = (DynamicBase) mRelation;
-            Query query = datastore.createQuery(mBaseRelation,
-                "SubmissionSet.recursivelyGetEntities", user);
-            query.addFilter(mBaseRelation.parentAuri, FilterOperation.EQUAL, uriParent);
-            List<? extends CommonFieldsBase> rows = query.executeQuery();
+            List<? extends CommonFieldsBase> rows = null;
+            if (prefetch != null) {
+              rows = prefetch.getChildRows(mBaseRelation, uriParent);
+            }
+            if (rows == null) {
+              Query query = datastore.createQuery(mBaseRelation,
+                  "SubmissionSet.recursivelyGetEntities", user);
+              query.addFilter(mBaseRelation.parentAuri, FilterOperation.EQUAL, uriParent);
+              rows = query.executeQuery();
+            }
             if (rows.size() > 1) {
               throw new IllegalStateException(
                   "Expected exactly one match in phantom reconstruction! " + " SELECT * FROM "
@@ -448,26 +480,28 @@ public class SubmissionSet implements Comparable<SubmissionSet>, SubmissionEleme
             break;
           case BINARY: // identifies BinaryContent table
             submissionField = new BlobSubmissionType(m, groupRowGroup.getUri(), topLevelTableKey,
-                constructSubmissionKey(m));
+                constructSubmissionKey(m), prefetch);
             // pass in row we occur under (to access parentAuri)
             submissionField.getValueFromEntity(cc);
             elementsToValues.put(m, submissionField);
             break;
           case SELECT1: // identifies SelectChoice table
-            submissionField = new ChoiceSubmissionType(m, groupRowGroup.getUri(), topLevelTableKey); // pass
+            submissionField = new ChoiceSubmissionType(m, groupRowGroup.getUri(), topLevelTableKey,
+                prefetch); // pass
             // in row we occur under to access parentAuri
             submissionField.getValueFromEntity(cc);
             elementsToValues.put(m, submissionField);
             break;
           case SELECTN: // identifies SelectChoice table
-            submissionField = new ChoiceSubmissionType(m, groupRowGroup.getUri(), topLevelTableKey); // pass
+            submissionField = new ChoiceSubmissionType(m, groupRowGroup.getUri(), topLevelTableKey,
+                prefetch); // pass
             // in row we occur under to access parentAuri
             submissionField.getValueFromEntity(cc);
             elementsToValues.put(m, submissionField);
             break;
           case REPEAT:
             RepeatSubmissionType repeatNode = new RepeatSubmissionType(this, m,
-                groupRowGroup.getUri(), form);
+                groupRowGroup.getUri(), form, prefetch);
             repeatNode.getValueFromEntity(cc);
             elementsToValues.put(m, repeatNode);
             break;
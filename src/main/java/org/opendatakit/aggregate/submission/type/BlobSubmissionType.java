@@ -17,6 +17,7 @@
 
 package org.opendatakit.aggregate.submission.type;
 
+import java.io.InputStream;
 import java.util.Date;
 import java.util.List;
 
@@ -29,10 +30,12 @@ import org.opendatakit.aggregate.format.Row;
 import org.opendatakit.aggregate.format.element.ElementFormatter;
 import org.opendatakit.aggregate.submission.SubmissionKey;
 import org.opendatakit.aggregate.submission.SubmissionKeyPart;
+import org.opendatakit.aggregate.submission.SubmissionPrefetch;
 import org.opendatakit.aggregate.submission.SubmissionValue;
 import org.opendatakit.common.datamodel.BinaryContent;
 import org.opendatakit.common.datamodel.BinaryContentManipulator;
 import org.opendatakit.common.datamodel.BinaryContentRefBlob;
+import org.opendatakit.common.datamodel.DynamicBase;
 import org.opendatakit.common.datamodel.RefBlob;
 import org.opendatakit.common.persistence.EntityKey;
 import org.opendatakit.common.persistence.exception.ODKDatastoreException;
@@ -82,6 +85,11 @@ public class BlobSubmissionType extends SubmissionFieldBase<SubmissionKey> {
     return bcm.getBlob(ordinal, cc);
   }
 
+  public InputStream getBlobInputStream(int ordinal, CallingContext cc)
+      throws ODKDatastoreException {
+    return bcm.getBlobInputStream(ordinal, cc);
+  }
+
   /**
    * Constructor
    * 
@@ -90,6 +98,19 @@ public class BlobSubmissionType extends SubmissionFieldBase<SubmissionKey> {
    */
   public BlobSubmissionType(FormElementModel element, String parentKey, EntityKey topLevelTableKey,
       SubmissionKey submissionKey) {
+    this(element, parentKey, topLevelTableKey, submissionKey, null);
+  }
+
+  /**
+   * Constructor
+   * 
+   * @param propertyName
+   *          Name of submission element
+   * @param prefetch
+   *          the prefetched attachment records (may be null)
+   */
+  public BlobSubmissionType(FormElementModel element, String parentKey, EntityKey topLevelTableKey,
+      SubmissionKey submissionKey, SubmissionPrefetch prefetch) {
     super(element);
     this.parentKey = parentKey;
     this.submissionKey = submissionKey;
@@ -102,6 +123,12 @@ public class BlobSubmissionType extends SubmissionFieldBase<SubmissionKey> {
     RefBlob blb = (RefBlob) blobModel.getBackingObjectPrototype();
 
     this.bcm = new BinaryContentManipulator(parentKey, topLevelTableKey.getKey(), ctnt, ref, blb);
+    if (prefetch != null) {
+      List<DynamicBase> contentHits = prefetch.getChildRows(ctnt, parentKey);
+      if (contentHits != null) {
+        bcm.setPrefetchedAttachments(contentHits);
+      }
+    }
   }
 
   /**
@@ -134,6 +161,36 @@ public class BlobSubmissionType extends SubmissionFieldBase<SubmissionKey> {
     return bcm.setValueFromByteArray(byteArray, contentType, unrootedFilePath, overwriteOK, cc);
   }
 
+  /**
+   * Set the value of the submission field, reading the content from a stream
+   * rather than a byte array. See
+   * {@link BinaryContentManipulator#setValueFromStream}.
+   * 
+   * @param content
+   *          stream over the value; not closed by this method
+   * @param contentLength
+   *          number of bytes in the value
+   * @param md5Hash
+   *          md5 hash of the value
+   * @param contentType
+   *          type of binary data
+   * @param unrootedFilePath
+   *          the filename for this value
+   * @param overwriteOK
+   *          true if overwriting an existing value is OK.
+   * @param cc
+   *          calling context
+   * @return the outcome of the storage attempt.
+   * @throws ODKDatastoreException
+   */
+  public BinaryContentManipulator.BlobSubmissionOutcome setValueFromStream(InputStream content,
+      long contentLength, String md5Hash, String contentType, String unrootedFilePath,
+      boolean overwriteOK, CallingContext cc) throws ODKDatastoreException {
+
+    return bcm.setValueFromStream(content, contentLength, md5Hash, contentType,
+        unrootedFilePath, overwriteOK, cc);
+  }
+
   /**
    * Cannot convert blob from a string
    * 
@@ -24,6 +24,7 @@ import org.opendatakit.aggregate.exception.ODKConversionException;
 import org.opendatakit.aggregate.format.Row;
 import org.opendatakit.aggregate.format.element.ElementFormatter;
 import org.opendatakit.aggregate.submission.SubmissionKeyPart;
+import org.opendatakit.aggregate.submission.SubmissionPrefetch;
 import org.opendatakit.aggregate.submission.SubmissionValue;
 import org.opendatakit.common.datamodel.DeleteHelper;
 import org.opendatakit.common.datamodel.ODKEnumeratedElementException;
@@ -54,11 +55,18 @@ public class ChoiceSubmissionType extends SubmissionFieldBase<List<String>> {
 
   private final String parentKey;
   private final EntityKey topLevelTableKey;
+  private final SubmissionPrefetch prefetch;
 
   public ChoiceSubmissionType(FormElementModel element, String parentKey, EntityKey topLevelTableKey) {
+    this(element, parentKey, topLevelTableKey, null);
+  }
+
+  public ChoiceSubmissionType(FormElementModel element, String parentKey,
+      EntityKey topLevelTableKey, SubmissionPrefetch prefetch) {
     super(element);
     this.parentKey = parentKey;
     this.topLevelTableKey = topLevelTableKey;
+    this.prefetch = prefetch;
   }
 
   @Override
@@ -76,13 +84,18 @@ public class ChoiceSubmissionType extends SubmissionFieldBase<List<String>> {
   public void getValueFromEntity(CallingContext cc) throws ODKDatastoreException {
 
     SelectChoice sel = (SelectChoice) element.getFormDataModel().getBackingObjectPrototype();
-    Query q = cc.getDatastore().createQuery(element.getFormDataModel().getBackingObjectPrototype(),
-        "ChoiceSubmissionType.getValueFromEntity", cc.getCurrentUser());
-    q.addFilter(sel.parentAuri, FilterOperation.EQUAL, parentKey);
-    q.addSort(sel.parentAuri, Direction.ASCENDING); // for GAE work-around
-    q.addSort(sel.ordinalNumber, Direction.ASCENDING);
-
-    List<? extends CommonFieldsBase> choiceHits = q.executeQuery();
+    List<? extends CommonFieldsBase> choiceHits = null;
+    if (prefetch != null) {
+      choiceHits = prefetch.getChildRows(sel, parentKey);
+    }
+    if (choiceHits == null) {
+      Query q = cc.getDatastore().createQuery(element.getFormDataModel().getBackingObjectPrototype(),
+          "ChoiceSubmissionType.getValueFromEntity", cc.getCurrentUser());
+      q.addFilter(sel.parentAuri, FilterOperation.EQUAL, parentKey);
+      q.addSort(sel.parentAuri, Direction.ASCENDING); // for GAE work-around
+      q.addSort(sel.ordinalNumber, Direction.ASCENDING);
+      choiceHits = q.executeQuery();
+    }
     choices.clear();
     values.clear();
     long expectedOrdinal = 1L;
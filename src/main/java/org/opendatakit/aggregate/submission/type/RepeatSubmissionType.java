@@ -63,6 +63,11 @@ public class RepeatSubmissionType implements SubmissionRepeat {
   private final FormElementModel repeatGroup;
 
   private final String uriAssociatedRow;
+
+  /**
+   * Prefetched subordinate records, or null if they should be queried.
+   */
+  private final SubmissionPrefetch prefetch;
   /**
    * List of submission sets that are a part of this submission set Ordered by
    * OrdinalNumber...
@@ -72,10 +77,16 @@ public class RepeatSubmissionType implements SubmissionRepeat {
 
   public RepeatSubmissionType(SubmissionSet enclosingSet, FormElementModel repeatGroup,
                               String uriAssociatedRow, IForm form) {
+    this(enclosingSet, repeatGroup, uriAssociatedRow, form, null);
+  }
+
+  public RepeatSubmissionType(SubmissionSet enclosingSet, FormElementModel repeatGroup,
+                              String uriAssociatedRow, IForm form, SubmissionPrefetch prefetch) {
     this.enclosingSet = enclosingSet;
     this.form = form;
     this.repeatGroup = repeatGroup;
     this.uriAssociatedRow = uriAssociatedRow;
+    this.prefetch = prefetch;
   }
 
   @Override
@@ -133,7 +144,8 @@ public class RepeatSubmissionType implements SubmissionRepeat {
 
     for (List<DynamicBase> groupOfRepeatRows : groupPerOrdinalNumber(submission, repeatRows)) {
       DynamicBase row = chooseOneFrom(groupOfRepeatRows);
-      SubmissionSet submissionSet = new SubmissionSet(enclosingSet, row, repeatGroup, form, cc);
+      SubmissionSet submissionSet = new SubmissionSet(enclosingSet, row, repeatGroup, form,
+          prefetch, cc);
       submissionSets.add(submissionSet);
       submissionSetIndex.put(row.getOrdinalNumber(), submissionSet);
     }
@@ -159,6 +171,12 @@ public class RepeatSubmissionType implements SubmissionRepeat {
 
   @SuppressWarnings("unchecked")
   private List<CommonFieldsBase> getRepeatRows(CallingContext cc, DynamicBase submission) throws ODKDatastoreException {
+    if (prefetch != null) {
+      List<DynamicBase> rows = prefetch.getChildRows(submission, uriAssociatedRow);
+      if (rows != null) {
+        return new ArrayList<CommonFieldsBase>(rows);
+      }
+    }
     Query q = cc.getDatastore().createQuery(submission, "RepeatSubmissionType.getRepeatRows", cc.getCurrentUser());
     q.addFilter(submission.parentAuri, FilterOperation.EQUAL, uriAssociatedRow);
     q.addSort(submission.parentAuri, Direction.ASCENDING); // for GAE work-around
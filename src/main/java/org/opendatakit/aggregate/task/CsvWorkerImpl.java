@@ -15,11 +15,12 @@
  */
 package org.opendatakit.aggregate.task;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,16 +28,21 @@ import org.opendatakit.aggregate.client.filter.FilterGroup;
 import org.opendatakit.aggregate.constants.ServletConsts;
 import org.opendatakit.aggregate.constants.common.ExportStatus;
 import org.opendatakit.aggregate.constants.common.UIConsts;
+import org.opendatakit.aggregate.datamodel.TopLevelDynamicBase;
 import org.opendatakit.aggregate.filter.SubmissionFilterGroup;
 import org.opendatakit.aggregate.form.IForm;
 import org.opendatakit.aggregate.form.PersistentResults;
 import org.opendatakit.aggregate.format.SubmissionFormatter;
 import org.opendatakit.aggregate.format.table.CsvFormatterWithFilters;
-import org.opendatakit.aggregate.query.submission.QueryBase;
 import org.opendatakit.aggregate.query.submission.QueryByUIFilterGroup;
 import org.opendatakit.aggregate.query.submission.QueryByUIFilterGroup.CompletionFlag;
 import org.opendatakit.aggregate.submission.Submission;
 import org.opendatakit.aggregate.submission.SubmissionKey;
+import org.opendatakit.common.datamodel.BinaryContentManipulator.BlobOutputStream;
+import org.opendatakit.common.persistence.PersistConsts;
+import org.opendatakit.common.persistence.Query.FilterOperation;
+import org.opendatakit.common.persistence.QueryResumePoint;
+import org.opendatakit.common.utils.WebUtils;
 import org.opendatakit.common.web.CallingContext;
 import org.opendatakit.common.web.constants.HtmlConsts;
 
@@ -53,13 +59,25 @@ public class CsvWorkerImpl {
   private final IForm form;
   private final SubmissionKey persistentResultsKey;
   private final Long attemptCount;
+  private final Executor prefetchExecutor;
   private final CallingContext cc;
 
   public CsvWorkerImpl(IForm form, SubmissionKey persistentResultsKey, Long attemptCount,
       CallingContext cc) {
+    this(form, persistentResultsKey, attemptCount, null, cc);
+  }
+
+  /**
+   * @param prefetchExecutor
+   *          - runs the fetching of the next page of submissions while the
+   *          current page is formatted; if null, pages are fetched in turn.
+   */
+  public CsvWorkerImpl(IForm form, SubmissionKey persistentResultsKey, Long attemptCount,
+      Executor prefetchExecutor, CallingContext cc) {
     this.form = form;
     this.persistentResultsKey = persistentResultsKey;
     this.attemptCount = attemptCount;
+    this.prefetchExecutor = prefetchExecutor;
     this.cc = cc;
     if (attemptCount == null) {
       throw new IllegalArgumentException("attempt count cannot be null");
@@ -70,18 +88,22 @@ public class CsvWorkerImpl {
     logger.info("Beginning CSV generation: " + persistentResultsKey.toString() +
                 " form " + form.getFormId());
 
+    // the file is written into the datastore as it is generated
+    BlobOutputStream stream = null;
+    boolean attached = false;
+    SubmissionPrefetcher prefetcher = null;
     try {
-      ByteArrayOutputStream stream = new ByteArrayOutputStream();
+      PersistentResults r = new PersistentResults(persistentResultsKey, cc);
+      stream = r.newResultFileOutputStream(cc);
       PrintWriter pw = new PrintWriter(new OutputStreamWriter(stream, HtmlConsts.UTF8_ENCODE));
 
-      PersistentResults r = new PersistentResults(persistentResultsKey, cc);
       String filterGroupUri = r.getFilterGroupUri();
 
       // placeholder for clean-up...
       SubmissionFilterGroup subFilterGroup = null;
 
       // create CSV
-      QueryBase query;
+      QueryByUIFilterGroup query;
       SubmissionFormatter formatter;
       FilterGroup filterGroup;
 
@@ -94,34 +116,65 @@ public class CsvWorkerImpl {
       }
       filterGroup.setQueryFetchLimit(ServletConsts.EXPORT_CURSOR_CHUNK_SIZE);
 
+      // an incremental export resumes after the last submission of the prior one
+      boolean incremental = r.isIncremental();
+      if (incremental) {
+        QueryResumePoint startCursor = r.getIncrementalStartCursor();
+        if (startCursor != null) {
+          filterGroup.setCursor(startCursor.transform());
+        }
+      }
+
       query = new QueryByUIFilterGroup(form, filterGroup, CompletionFlag.ONLY_COMPLETE_SUBMISSIONS, cc);
+      if (incremental) {
+        // stop at the settle time so that the next incremental export cannot
+        // skip over a submission that is not yet visible to this query.
+        query.addFilterByPrimaryDate(FilterOperation.LESS_THAN_OR_EQUAL,
+            new Date(System.currentTimeMillis() - PersistConsts.MAX_SETTLE_MILLISECONDS));
+      }
       formatter = new CsvFormatterWithFilters(form, cc.getServerURL(), pw, filterGroup);
 
       logger.info("after setup of CSV file generation for " + form.getFormId());
       formatter.beforeProcessSubmissions(cc);
+      prefetcher = new SubmissionPrefetcher(query, prefetchExecutor, cc);
+      ExportProgress progress = new ExportProgress(persistentResultsKey, attemptCount, cc);
       List<Submission> submissions;
+      QueryResumePoint endCursor = null;
       int count = 0;
       for (;;) {
         count++;
-        logger.info("iteration " + Integer.toString(count) + " before issuing query for " + form.getFormId());
-        submissions = query.getResultSubmissions(cc);
+        logger.info("iteration " + Integer.toString(count) + " before fetching page for " + form.getFormId());
+        submissions = prefetcher.nextPage();
         if ( submissions.isEmpty()) break;
         logger.info("iteration " + Integer.toString(count) + " before emitting csv for " + form.getFormId());
         formatter.processSubmissionSegment(submissions, cc);
+        progress.addRows(submissions.size());
+        Submission last = submissions.get(submissions.size() - 1);
+        endCursor = new QueryResumePoint(TopLevelDynamicBase.FIELD_NAME_MARKED_AS_COMPLETE_DATE,
+            WebUtils.iso8601Date(last.getMarkedAsCompleteDate()), last.getKey().getKey(), true);
       }
-      logger.info("wrapping up csv generation for " + form.getFormId());
+      logger.info("wrapping up csv generation for " + form.getFormId()
+          + " after " + progress.getRowCount() + " submissions (" + progress.getRowsPerSecond()
+          + "/sec)");
       formatter.afterProcessSubmissions(cc);
 
       // output file
       pw.close();
-      byte[] outputFile = stream.toByteArray();
+      if (pw.checkError()) {
+        throw new IOException("Unable to write the CSV file");
+      }
 
       // refetch because this might have taken a while...
       r = new PersistentResults(persistentResultsKey, cc);
       if (attemptCount.equals(r.getAttemptCount())) {
         logger.info("saving csv into PersistentResults table for " + form.getFormId());
-        r.setResultFile(outputFile, HtmlConsts.RESP_TYPE_CSV,
-            form.getViewableFormNameSuitableAsFileName() + ServletConsts.CSV_FILENAME_APPEND, false, cc);
+        r.setResultFile(stream, HtmlConsts.RESP_TYPE_CSV,
+            form.getViewableFormNameSuitableAsFileName() + ServletConsts.CSV_FILENAME_APPEND, cc);
+        attached = true;
+        r.setProgress(progress.getRowCount(), progress.getRowsPerSecond());
+        if (incremental) {
+          r.setIncrementalEndCursor(endCursor);
+        }
         r.setStatus(ExportStatus.AVAILABLE);
         r.setCompletionDate(new Date());
         if(subFilterGroup != null) {
@@ -133,6 +186,21 @@ public class CsvWorkerImpl {
       }
     } catch (Exception e) {
       failureRecovery(e);
+    } finally {
+      if (prefetcher != null) {
+        prefetcher.close();
+      }
+      if (stream != null && !attached) {
+        discardResultFile(stream);
+      }
+    }
+  }
+
+  private void discardResultFile(BlobOutputStream stream) {
+    try {
+      stream.abort();
+    } catch (Exception e) {
+      logger.error("Unable to discard partial CSV file: " + e.toString() + " for " + form.getFormId());
     }
   }
 
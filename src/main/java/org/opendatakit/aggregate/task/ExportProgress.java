@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2018 University of Washington
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.opendatakit.aggregate.task;
+
+import org.opendatakit.aggregate.form.PersistentResults;
+import org.opendatakit.aggregate.submission.SubmissionKey;
+import org.opendatakit.common.web.CallingContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Counts the submissions written to an export file and periodically records
+ * the count and rate in its PersistentResults, so that the UI can show how
+ * far along the export is.
+ */
+class ExportProgress {
+
+  private static final Logger logger = LoggerFactory.getLogger(ExportProgress.class);
+
+  private static final long UPDATE_INTERVAL_MILLISECONDS = 5000L;
+
+  private final SubmissionKey persistentResultsKey;
+  private final Long attemptCount;
+  private final CallingContext cc;
+  private final long startTime = System.currentTimeMillis();
+  private long lastUpdateTime = startTime;
+  private long rowCount = 0L;
+
+  ExportProgress(SubmissionKey persistentResultsKey, Long attemptCount, CallingContext cc) {
+    this.persistentResultsKey = persistentResultsKey;
+    this.attemptCount = attemptCount;
+    this.cc = cc;
+  }
+
+  long getRowCount() {
+    return rowCount;
+  }
+
+  long getRowsPerSecond() {
+    long elapsed = System.currentTimeMillis() - startTime;
+    return (elapsed == 0L) ? rowCount : (rowCount * 1000L) / elapsed;
+  }
+
+  /**
+   * Add the given number of submissions to the count, recording the progress
+   * if it has not been recorded recently.
+   *
+   * @param rows
+   */
+  void addRows(int rows) {
+    rowCount += rows;
+    long now = System.currentTimeMillis();
+    if (now - lastUpdateTime < UPDATE_INTERVAL_MILLISECONDS) {
+      return;
+    }
+    lastUpdateTime = now;
+
+    // progress is informational -- never fail the export because of it.
+    try {
+      PersistentResults r = new PersistentResults(persistentResultsKey, cc);
+      if (attemptCount.equals(r.getAttemptCount())) {
+        r.setProgress(rowCount, getRowsPerSecond());
+        r.persist(cc);
+      }
+    } catch (Exception e) {
+      logger.warn("Unable to record export progress: " + e.toString());
+    }
+  }
+}
@@ -15,11 +15,12 @@
  */
 package org.opendatakit.aggregate.task;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,16 +29,21 @@ import org.opendatakit.aggregate.constants.ServletConsts;
 import org.opendatakit.aggregate.constants.common.BinaryOption;
 import org.opendatakit.aggregate.constants.common.ExportStatus;
 import org.opendatakit.aggregate.constants.common.UIConsts;
+import org.opendatakit.aggregate.datamodel.TopLevelDynamicBase;
 import org.opendatakit.aggregate.filter.SubmissionFilterGroup;
 import org.opendatakit.aggregate.form.IForm;
 import org.opendatakit.aggregate.form.PersistentResults;
 import org.opendatakit.aggregate.format.SubmissionFormatter;
 import org.opendatakit.aggregate.format.structure.JsonFormatterWithFilters;
-import org.opendatakit.aggregate.query.submission.QueryBase;
 import org.opendatakit.aggregate.query.submission.QueryByUIFilterGroup;
 import org.opendatakit.aggregate.query.submission.QueryByUIFilterGroup.CompletionFlag;
 import org.opendatakit.aggregate.submission.Submission;
 import org.opendatakit.aggregate.submission.SubmissionKey;
+import org.opendatakit.common.datamodel.BinaryContentManipulator.BlobOutputStream;
+import org.opendatakit.common.persistence.PersistConsts;
+import org.opendatakit.common.persistence.Query.FilterOperation;
+import org.opendatakit.common.persistence.QueryResumePoint;
+import org.opendatakit.common.utils.WebUtils;
 import org.opendatakit.common.web.CallingContext;
 import org.opendatakit.common.web.constants.HtmlConsts;
 
@@ -54,13 +60,25 @@ public class JsonFileWorkerImpl {
   private final IForm form;
   private final SubmissionKey persistentResultsKey;
   private final Long attemptCount;
+  private final Executor prefetchExecutor;
   private final CallingContext cc;
 
   public JsonFileWorkerImpl(IForm form, SubmissionKey persistentResultsKey, Long attemptCount,
       CallingContext cc) {
+    this(form, persistentResultsKey, attemptCount, null, cc);
+  }
+
+  /**
+   * @param prefetchExecutor
+   *          - runs the fetching of the next page of submissions while the
+   *          current page is formatted; if null, pages are fetched in turn.
+   */
+  public JsonFileWorkerImpl(IForm form, SubmissionKey persistentResultsKey, Long attemptCount,
+      Executor prefetchExecutor, CallingContext cc) {
     this.form = form;
     this.persistentResultsKey = persistentResultsKey;
     this.attemptCount = attemptCount;
+    this.prefetchExecutor = prefetchExecutor;
     this.cc = cc;
     if (attemptCount == null) {
       throw new IllegalArgumentException("attempt count cannot be null");
@@ -71,18 +89,22 @@ public class JsonFileWorkerImpl {
     logger.info("Beginning JSON File generation: " + persistentResultsKey.toString() +
                 " form " + form.getFormId());
 
+    // the file is written into the datastore as it is generated
+    BlobOutputStream stream = null;
+    boolean attached = false;
+    SubmissionPrefetcher prefetcher = null;
     try {
-      ByteArrayOutputStream stream = new ByteArrayOutputStream();
+      PersistentResults r = new PersistentResults(persistentResultsKey, cc);
+      stream = r.newResultFileOutputStream(cc);
       PrintWriter pw = new PrintWriter(new OutputStreamWriter(stream, HtmlConsts.UTF8_ENCODE));
 
-      PersistentResults r = new PersistentResults(persistentResultsKey, cc);
       String filterGroupUri = r.getFilterGroupUri();
 
       // placeholder for clean-up...
       SubmissionFilterGroup subFilterGroup = null;
 
       // create CSV
-      QueryBase query;
+      QueryByUIFilterGroup query;
       SubmissionFormatter formatter;
       FilterGroup filterGroup;
 
@@ -95,34 +117,65 @@ public class JsonFileWorkerImpl {
       }
       filterGroup.setQueryFetchLimit(ServletConsts.EXPORT_CURSOR_CHUNK_SIZE);
 
+      // an incremental export resumes after the last submission of the prior one
+      boolean incremental = r.isIncremental();
+      if (incremental) {
+        QueryResumePoint startCursor = r.getIncrementalStartCursor();
+        if (startCursor != null) {
+          filterGroup.setCursor(startCursor.transform());
+        }
+      }
+
       query = new QueryByUIFilterGroup(form, filterGroup, CompletionFlag.ONLY_COMPLETE_SUBMISSIONS, cc);
+      if (incremental) {
+        // stop at the settle time so that the next incremental export cannot
+        // skip over a submission that is not yet visible to this query.
+        query.addFilterByPrimaryDate(FilterOperation.LESS_THAN_OR_EQUAL,
+            new Date(System.currentTimeMillis() - PersistConsts.MAX_SETTLE_MILLISECONDS));
+      }
       formatter = new JsonFormatterWithFilters(pw, form, filterGroup, BinaryOption.PROVIDE_LINKS, true, cc.getServerURL());
 
       logger.info("after setup of JSON file generation for " + form.getFormId());
       formatter.beforeProcessSubmissions(cc);
+      prefetcher = new SubmissionPrefetcher(query, prefetchExecutor, cc);
+      ExportProgress progress = new ExportProgress(persistentResultsKey, attemptCount, cc);
       List<Submission> submissions;
+      QueryResumePoint endCursor = null;
       int count = 0;
       for (;;) {
         count++;
-        logger.info("iteration " + Integer.toString(count) + " before issuing query for " + form.getFormId());
-        submissions = query.getResultSubmissions(cc);
+        logger.info("iteration " + Integer.toString(count) + " before fetching page for " + form.getFormId());
+        submissions = prefetcher.nextPage();
         if ( submissions.isEmpty()) break;
         logger.info("iteration " + Integer.toString(count) + " before emitting JSON for " + form.getFormId());
         formatter.processSubmissionSegment(submissions, cc);
+        progress.addRows(submissions.size());
+        Submission last = submissions.get(submissions.size() - 1);
+        endCursor = new QueryResumePoint(TopLevelDynamicBase.FIELD_NAME_MARKED_AS_COMPLETE_DATE,
+            WebUtils.iso8601Date(last.getMarkedAsCompleteDate()), last.getKey().getKey(), true);
       }
-      logger.info("wrapping up JSON generation for " + form.getFormId());
+      logger.info("wrapping up JSON generation for " + form.getFormId()
+          + " after " + progress.getRowCount() + " submissions (" + progress.getRowsPerSecond()
+          + "/sec)");
       formatter.afterProcessSubmissions(cc);
 
       // output file
       pw.close();
-      byte[] outputFile = stream.toByteArray();
+      if (pw.checkError()) {
+        throw new IOException("Unable to write the JSON file");
+      }
 
       // refetch because this might have taken a while...
       r = new PersistentResults(persistentResultsKey, cc);
       if (attemptCount.equals(r.getAttemptCount())) {
         logger.info("saving JSON into PersistentResults table for " + form.getFormId());
-        r.setResultFile(outputFile, HtmlConsts.RESP_TYPE_JSON,
-            form.getViewableFormNameSuitableAsFileName() + ServletConsts.JSON_FILENAME_APPEND, false, cc);
+        r.setResultFile(stream, HtmlConsts.RESP_TYPE_JSON,
+            form.getViewableFormNameSuitableAsFileName() + ServletConsts.JSON_FILENAME_APPEND, cc);
+        attached = true;
+        r.setProgress(progress.getRowCount(), progress.getRowsPerSecond());
+        if (incremental) {
+          r.setIncrementalEndCursor(endCursor);
+        }
         r.setStatus(ExportStatus.AVAILABLE);
         r.setCompletionDate(new Date());
         if(subFilterGroup != null) {
@@ -134,6 +187,21 @@ public class JsonFileWorkerImpl {
       }
     } catch (Exception e) {
       failureRecovery(e);
+    } finally {
+      if (prefetcher != null) {
+        prefetcher.close();
+      }
+      if (stream != null && !attached) {
+        discardResultFile(stream);
+      }
+    }
+  }
+
+  private void discardResultFile(BlobOutputStream stream) {
+    try {
+      stream.abort();
+    } catch (Exception e) {
+      logger.error("Unable to discard partial JSON file: " + e.toString() + " for " + form.getFormId());
     }
   }
 
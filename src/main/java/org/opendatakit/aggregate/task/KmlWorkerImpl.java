@@ -15,11 +15,12 @@
  */
 package org.opendatakit.aggregate.task;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,6 +39,7 @@ import org.opendatakit.aggregate.query.submission.QueryByUIFilterGroup;
 import org.opendatakit.aggregate.query.submission.QueryByUIFilterGroup.CompletionFlag;
 import org.opendatakit.aggregate.submission.Submission;
 import org.opendatakit.aggregate.submission.SubmissionKey;
+import org.opendatakit.common.datamodel.BinaryContentManipulator.BlobOutputStream;
 import org.opendatakit.common.web.CallingContext;
 import org.opendatakit.common.web.constants.HtmlConsts;
 
@@ -54,14 +56,26 @@ public class KmlWorkerImpl {
   private final IForm form;
   private final SubmissionKey persistentResultsKey;
   private final Long attemptCount;
+  private final Executor prefetchExecutor;
   private final List<KmlSelection> kmlElementsToInclude;
   private final CallingContext cc;
 
   public KmlWorkerImpl(IForm form, SubmissionKey persistentResultsKey, long attemptCount,
       List<KmlSelection> kmlElementsToInclude, CallingContext cc) {
+    this(form, persistentResultsKey, attemptCount, kmlElementsToInclude, null, cc);
+  }
+
+  /**
+   * @param prefetchExecutor
+   *          - runs the fetching of the next page of submissions while the
+   *          current page is formatted; if null, pages are fetched in turn.
+   */
+  public KmlWorkerImpl(IForm form, SubmissionKey persistentResultsKey, long attemptCount,
+      List<KmlSelection> kmlElementsToInclude, Executor prefetchExecutor, CallingContext cc) {
     this.form = form;
     this.persistentResultsKey = persistentResultsKey;
     this.attemptCount = attemptCount;
+    this.prefetchExecutor = prefetchExecutor;
     this.kmlElementsToInclude = kmlElementsToInclude;
     this.cc = cc;
   }
@@ -70,11 +84,15 @@ public class KmlWorkerImpl {
     logger.info("Beginning KML generation: " + persistentResultsKey.toString() + " form "
         + form.getFormId());
 
+    // the file is written into the datastore as it is generated
+    BlobOutputStream stream = null;
+    boolean attached = false;
+    SubmissionPrefetcher prefetcher = null;
     try {
-      ByteArrayOutputStream stream = new ByteArrayOutputStream();
+      PersistentResults r = new PersistentResults(persistentResultsKey, cc);
+      stream = r.newResultFileOutputStream(cc);
       PrintWriter pw = new PrintWriter(new OutputStreamWriter(stream, HtmlConsts.UTF8_ENCODE));
 
-      PersistentResults r = new PersistentResults(persistentResultsKey, cc);
       String filterGroupUri = r.getFilterGroupUri();
 
       // placeholder for clean-up...
@@ -101,33 +119,42 @@ public class KmlWorkerImpl {
 
       logger.info("after setup of KML file generation for " + form.getFormId());
       formatter.beforeProcessSubmissions(cc);
+      prefetcher = new SubmissionPrefetcher(query, prefetchExecutor, cc);
+      ExportProgress progress = new ExportProgress(persistentResultsKey, attemptCount, cc);
       List<Submission> submissions;
       int count = 0;
       for (;;) {
         count++;
-        logger.info("iteration " + Integer.toString(count) + " before issuing query for "
+        logger.info("iteration " + Integer.toString(count) + " before fetching page for "
             + form.getFormId());
-        submissions = query.getResultSubmissions(cc);
+        submissions = prefetcher.nextPage();
         if (submissions.isEmpty())
           break;
         logger.info("iteration " + Integer.toString(count) + " before emitting kml for "
             + form.getFormId());
         formatter.processSubmissionSegment(submissions, cc);
+        progress.addRows(submissions.size());
       }
-      logger.info("wrapping up kml generation for " + form.getFormId());
+      logger.info("wrapping up kml generation for " + form.getFormId()
+          + " after " + progress.getRowCount() + " submissions (" + progress.getRowsPerSecond()
+          + "/sec)");
       formatter.afterProcessSubmissions(cc);
 
       // output file
       pw.close();
-      byte[] outputFile = stream.toByteArray();
+      if (pw.checkError()) {
+        throw new IOException("Unable to write the KML file");
+      }
 
       // refetch because this might have taken a while...
       r = new PersistentResults(persistentResultsKey, cc);
       if (attemptCount.equals(r.getAttemptCount())) {
         logger.info("saving kml into PersistentResults table for " + form.getFormId());
-        r.setResultFile(outputFile, HtmlConsts.RESP_TYPE_KML,
+        r.setResultFile(stream, HtmlConsts.RESP_TYPE_KML,
             form.getViewableFormNameSuitableAsFileName() + ServletConsts.KML_FILENAME_APPEND,
-            false, cc);
+            cc);
+        attached = true;
+        r.setProgress(progress.getRowCount(), progress.getRowsPerSecond());
         r.setStatus(ExportStatus.AVAILABLE);
         r.setCompletionDate(new Date());
         if (subFilterGroup != null) {
@@ -140,6 +167,21 @@ public class KmlWorkerImpl {
       }
     } catch (Exception e) {
       failureRecovery(e);
+    } finally {
+      if (prefetcher != null) {
+        prefetcher.close();
+      }
+      if (stream != null && !attached) {
+        discardResultFile(stream);
+      }
+    }
+  }
+
+  private void discardResultFile(BlobOutputStream stream) {
+    try {
+      stream.abort();
+    } catch (Exception e) {
+      logger.error("Unable to discard partial KML file: " + e.toString() + " for " + form.getFormId());
     }
   }
 
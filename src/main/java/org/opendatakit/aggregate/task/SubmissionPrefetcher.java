@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2018 University of Washington
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.opendatakit.aggregate.task;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.opendatakit.aggregate.exception.ODKIncompleteSubmissionData;
+import org.opendatakit.aggregate.query.submission.QueryBase;
+import org.opendatakit.aggregate.submission.Submission;
+import org.opendatakit.common.persistence.exception.ODKDatastoreException;
+import org.opendatakit.common.web.CallingContext;
+
+/**
+ * Fetches the pages of an export query on a separate thread so that the
+ * next page is being read from the datastore while the current one is
+ * formatted. The query itself already advances its resume cursor from page
+ * to page; this just runs it ahead of the formatter, at most PAGES_AHEAD
+ * pages.
+ *
+ * Without an executor (e.g., on GAE, where a task cannot start its own
+ * threads), each page is fetched when it is asked for.
+ */
+class SubmissionPrefetcher {
+
+  private static final int PAGES_AHEAD = 2;
+  private static final long OFFER_WAIT_MILLISECONDS = 1000L;
+
+  private static final class Page {
+    final List<Submission> submissions;
+    final Exception failure;
+
+    Page(List<Submission> submissions, Exception failure) {
+      this.submissions = submissions;
+      this.failure = failure;
+    }
+  }
+
+  private final QueryBase query;
+  private final CallingContext cc;
+  private final BlockingQueue<Page> pages;
+  private volatile boolean closed = false;
+  private boolean exhausted = false;
+
+  SubmissionPrefetcher(QueryBase query, Executor executor, CallingContext cc) {
+    this.query = query;
+    this.cc = cc;
+    if (executor == null) {
+      this.pages = null;
+    } else {
+      this.pages = new ArrayBlockingQueue<Page>(PAGES_AHEAD);
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          fetchAll();
+        }
+      });
+    }
+  }
+
+  private void fetchAll() {
+    try {
+      for (;;) {
+        if (closed) {
+          return;
+        }
+        List<Submission> submissions = query.getResultSubmissions(cc);
+        if (!enqueue(new Page(submissions, null)) || submissions.isEmpty()) {
+          return;
+        }
+      }
+    } catch (Exception e) {
+      enqueue(new Page(null, e));
+    }
+  }
+
+  /**
+   * @return false if the consumer closed this prefetcher before the page
+   *         could be queued.
+   */
+  private boolean enqueue(Page page) {
+    try {
+      while (!closed) {
+        if (pages.offer(page, OFFER_WAIT_MILLISECONDS, TimeUnit.MILLISECONDS)) {
+          return true;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return false;
+  }
+
+  /**
+   * @return the next page of submissions; an empty list once all of them
+   *         have been returned.
+   * @throws ODKIncompleteSubmissionData
+   * @throws ODKDatastoreException
+   */
+  List<Submission> nextPage() throws ODKIncompleteSubmissionData, ODKDatastoreException {
+    if (exhausted) {
+      throw new IllegalStateException("all pages have already been returned");
+    }
+    if (pages == null) {
+      List<Submission> submissions = query.getResultSubmissions(cc);
+      exhausted = submissions.isEmpty();
+      return submissions;
+    }
+
+    Page page;
+    try {
+      page = pages.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ODKDatastoreException("interrupted while waiting for the next page of submissions", e);
+    }
+    if (page.failure != null) {
+      exhausted = true;
+      if (page.failure instanceof ODKIncompleteSubmissionData) {
+        throw (ODKIncompleteSubmissionData) page.failure;
+      } else if (page.failure instanceof ODKDatastoreException) {
+        throw (ODKDatastoreException) page.failure;
+      } else if (page.failure instanceof RuntimeException) {
+        throw (RuntimeException) page.failure;
+      }
+      throw new ODKDatastoreException(page.failure);
+    }
+    exhausted = page.submissions.isEmpty();
+    return page.submissions;
+  }
+
+  /**
+   * Stop fetching. Must be called if the consumer gives up before reaching
+   * the last page, so that the fetcher thread is released.
+   */
+  void close() {
+    closed = true;
+    if (pages != null) {
+      pages.clear();
+    }
+  }
+}
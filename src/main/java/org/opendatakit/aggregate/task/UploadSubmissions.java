@@ -17,6 +17,7 @@ package org.opendatakit.aggregate.task;
 
 import org.opendatakit.aggregate.exception.ODKExternalServiceException;
 import org.opendatakit.aggregate.externalservice.FormServiceCursor;
+import org.opendatakit.aggregate.form.IForm;
 import org.opendatakit.common.web.CallingContext;
 
 /**
@@ -47,4 +48,18 @@ public interface UploadSubmissions {
    */
   public void createFormUploadTask(FormServiceCursor fsc, boolean onBackground, CallingContext cc)
       throws ODKExternalServiceException;
+
+  /**
+   * Notify the publishers of this form that a submission has just been
+   * marked as complete.  Closely-spaced notifications for the same form
+   * are coalesced, and upload tasks for the active publishers are started
+   * once the submission has settled in the datastore.  The Watchdog only
+   * serves as a safety net for notifications that are lost.
+   *
+   * @param form
+   * @param cc
+   * @throws ODKExternalServiceException
+   */
+  public void submissionCompleted(IForm form, CallingContext cc)
+      throws ODKExternalServiceException;
 }
@@ -72,6 +72,15 @@ public class UploadSubmissionsWorkerImpl {
   private static final int DELAY_BETWEEN_RELEASE_RETRIES = 1000;
   private static final int MAX_NUMBER_OF_RELEASE_RETRIES = 10;
 
+  // When publishing one submission at a time, the FormServiceCursor is
+  // persisted (checkpointed) after this many submissions or this much time,
+  // whichever comes first, and always at the end of the batch or on error.
+  // Submissions sent after the last checkpoint are re-sent if the task dies
+  // without reaching another one (see ExternalService.sendSubmission).
+  // The watchdog only ever sees the checkpointed cursor.
+  private static final int CHECKPOINT_INTERVAL_SUBMISSIONS = 10;
+  private static final long CHECKPOINT_INTERVAL_MILLISECONDS = 30000L;
+
   private final String lockId;
   private final CallingContext cc;
   private final boolean useLargerBatchSize;
@@ -284,20 +293,32 @@ public class UploadSubmissionsWorkerImpl {
     try {
       // check if publisher is capable of batching transmission
       if (externalService.canBatchSubmissions()) {
-        externalService.sendSubmissions(submissionsToSend, streaming, cc);
+        externalService.sendSubmissions(submissionsToSend, streaming, lockRenewingHandler(), cc);
 
       } else { // publisher not capable of batching
         int counter = 0;
+        int uncheckpointed = 0;
+        long lastCheckpointTimestamp = System.currentTimeMillis();
         for (Submission submission : submissionsToSend) {
           externalService.sendSubmission(submission, cc);
           ++counter;
 
-          // persist updated last send date
+          // update last send date; the error handlers below persist it
+          // if a later submission fails.
           ExternalServiceUtils.updateFscToSuccessfulSubmissionDate(formServiceCursor, submission, streaming);
-          ds.putEntity(formServiceCursor, user);
+          ++uncheckpointed;
+          if (uncheckpointed >= CHECKPOINT_INTERVAL_SUBMISSIONS
+              || (System.currentTimeMillis() - lastCheckpointTimestamp) >= CHECKPOINT_INTERVAL_MILLISECONDS) {
+            ds.putEntity(formServiceCursor, user);
+            uncheckpointed = 0;
+            lastCheckpointTimestamp = System.currentTimeMillis();
+          }
 
           counter = renewTaskLock(counter);
         }
+        if (uncheckpointed > 0) {
+          ds.putEntity(formServiceCursor, user);
+        }
       }
     } catch (ODKExternalServiceCredentialsException e) {
       logger.error("External service credentials error", e);
@@ -309,8 +330,9 @@ public class UploadSubmissionsWorkerImpl {
         // the BAD_CREDENTIALS state. Logger warning and do it now.
         logger.warn("ODKExternalServiceCredentialsException but not yet in BAD_CREDENTIALS state!");
         formServiceCursor.setOperationalStatus(OperationalStatus.BAD_CREDENTIALS);
-        updateOperationalStatus(ds, user);
       }
+      // also checkpoints the submissions sent before the failure
+      updateOperationalStatus(ds, user);
       throw e;
     } catch (ODKExternalServiceException e) {
       logger.error("Error", e);
@@ -335,30 +357,53 @@ public class UploadSubmissionsWorkerImpl {
     }
   }
 
-  private int renewTaskLock(int counter) throws ODKTaskLockException, ODKExternalServiceException {
-    Datastore ds = cc.getDatastore();
-    User user = cc.getCurrentUser();
+  /**
+   * Each batch is a separate request to the external service, so renew the
+   * lock after every one of them rather than on the time budget used by
+   * renewTaskLock().
+   *
+   * @return handler for ExternalService.sendSubmissions()
+   */
+  ExternalService.BatchSentHandler lockRenewingHandler() {
+    return new ExternalService.BatchSentHandler() {
+      @Override
+      public void batchSent(int submissionCount) throws ODKExternalServiceException {
+        try {
+          renewTaskLockNow(submissionCount);
+        } catch (ODKTaskLockException e) {
+          throw new ODKExternalServiceException(e);
+        }
+      }
+    };
+  }
 
+  private int renewTaskLock(int counter) throws ODKTaskLockException, ODKExternalServiceException {
     // renew the lock whenever we've consumed more than 33% of the time
     // budget for the lock. This adjusts for very slow external service
     // response times, though if the response time is more than the lock
     // expiration timeout, we can still get into trouble.
     if ((System.currentTimeMillis() - lastUpdateTimestamp + 1) > (TaskLockType.UPLOAD_SUBMISSION.getLockExpirationTimeout() / 3)) {
-      // renew lock
-      TaskLock taskLock = ds.createTaskLock(user);
-      // TODO: figure out what to do if this returns false
-      if (!taskLock.renewLock(lockId, getUploadSubmissionsTaskLockName(), TaskLockType.UPLOAD_SUBMISSION)) {
-        logger.error("UploadSubmission task lock -- FAILED renewal -- records transmitted: " + counter);
-        throw new ODKExternalServiceException("UploadSubmission TaskLock renewal failed");
-      } else {
-        logger.info("UploadSubmission task lock renewed -- records transmitted: " + counter);
-        counter = 0;
-        lastUpdateTimestamp = System.currentTimeMillis();
-      }
+      renewTaskLockNow(counter);
+      counter = 0;
     }
     return counter;
   }
 
+  private void renewTaskLockNow(int counter) throws ODKTaskLockException, ODKExternalServiceException {
+    Datastore ds = cc.getDatastore();
+    User user = cc.getCurrentUser();
+
+    TaskLock taskLock = ds.createTaskLock(user);
+    // TODO: figure out what to do if this returns false
+    if (!taskLock.renewLock(lockId, getUploadSubmissionsTaskLockName(), TaskLockType.UPLOAD_SUBMISSION)) {
+      logger.error("UploadSubmission task lock -- FAILED renewal -- records transmitted: " + counter);
+      throw new ODKExternalServiceException("UploadSubmission TaskLock renewal failed");
+    } else {
+      logger.info("UploadSubmission task lock renewed -- records transmitted: " + counter);
+      lastUpdateTimestamp = System.currentTimeMillis();
+    }
+  }
+
   private List<Submission> querySubmissionsDateRange(Date startDate, Date endDate, String uriLast) throws ODKIncompleteSubmissionData, ODKDatastoreException {
     // query for next set of submissions
     QueryByDateRange query = new QueryByDateRange(form, getQueryLimit(), startDate, endDate, uriLast, cc);
@@ -15,6 +15,7 @@
  */
 package org.opendatakit.aggregate.task;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -22,11 +23,9 @@ import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.opendatakit.aggregate.client.filter.FilterGroup;
 import org.opendatakit.aggregate.constants.BeanDefs;
 import org.opendatakit.aggregate.constants.common.ExternalServiceType;
 import org.opendatakit.aggregate.constants.common.OperationalStatus;
-import org.opendatakit.aggregate.constants.common.UIConsts;
 import org.opendatakit.aggregate.constants.externalservice.FusionTableConsts;
 import org.opendatakit.aggregate.constants.externalservice.JsonServerConsts;
 import org.opendatakit.aggregate.constants.externalservice.OhmageJsonServerConsts;
@@ -41,14 +40,13 @@ import org.opendatakit.aggregate.form.FormFactory;
 import org.opendatakit.aggregate.form.IForm;
 import org.opendatakit.aggregate.form.MiscTasks;
 import org.opendatakit.aggregate.form.PersistentResults;
-import org.opendatakit.aggregate.query.submission.QueryByUIFilterGroup;
-import org.opendatakit.aggregate.query.submission.QueryByUIFilterGroup.CompletionFlag;
-import org.opendatakit.aggregate.submission.Submission;
 import org.opendatakit.aggregate.util.BackendActionsTable;
+import org.opendatakit.common.persistence.CommonFieldsBase;
 import org.opendatakit.common.persistence.PersistConsts;
-import org.opendatakit.common.persistence.QueryResumePoint;
+import org.opendatakit.common.persistence.Query;
+import org.opendatakit.common.persistence.Query.Direction;
+import org.opendatakit.common.persistence.Query.FilterOperation;
 import org.opendatakit.common.persistence.exception.ODKDatastoreException;
-import org.opendatakit.common.utils.WebUtils;
 import org.opendatakit.common.web.CallingContext;
 
 /**
@@ -97,23 +95,25 @@ public class WatchdogWorkerImpl {
     // compute the upper limit for data we want to process
     // limitDate is the datastore's settle time into the past.
     Date limitDate = new Date(System.currentTimeMillis() - PersistConsts.MAX_SETTLE_MILLISECONDS);
-    QueryResumePoint qrp = new QueryResumePoint(
-        TopLevelDynamicBase.FIELD_NAME_MARKED_AS_COMPLETE_DATE, WebUtils.iso8601Date(limitDate),
-        null, false);
-
-    FilterGroup filterGroup = new FilterGroup(UIConsts.FILTER_NONE, form.getFormId(), null);
-    filterGroup.setCursor(qrp.transform());
-    filterGroup.setQueryFetchLimit(1);
 
     // query for the most recent submission that was marked-as-complete for this
-    // form
-    QueryByUIFilterGroup query = new QueryByUIFilterGroup(form, filterGroup,
-        CompletionFlag.ONLY_COMPLETE_SUBMISSIONS, cc);
+    // form. Only the uri and marked-as-complete date are needed, so fetch just
+    // those columns rather than reconstructing the full submission.
+    TopLevelDynamicBase tbl = (TopLevelDynamicBase) form.getTopLevelGroupElement()
+        .getFormDataModel().getBackingObjectPrototype();
+
+    Query query = cc.getDatastore().createQuery(tbl,
+        "WatchdogWorkerImpl.getLastSubmissionMetadata", cc.getCurrentUser());
+    query.addFilter(tbl.markedAsCompleteDate, FilterOperation.LESS_THAN_OR_EQUAL, limitDate);
+    query.addFilter(tbl.isComplete, FilterOperation.EQUAL, true);
+    query.addSort(tbl.markedAsCompleteDate, Direction.DESCENDING);
+    query.addSort(tbl.primaryKey, Direction.DESCENDING);
 
-    List<Submission> submissions = query.getResultSubmissions(cc);
-    if (submissions != null && submissions.size() >= 1) {
-      Submission lastSubmission = submissions.get(0);
-      metadata = new SubmissionMetadata(lastSubmission.getKey().getKey(),
+    List<? extends CommonFieldsBase> rows = query.executeProjectionQuery(
+        Collections.singletonList(tbl.markedAsCompleteDate), 1);
+    if (rows != null && rows.size() >= 1) {
+      TopLevelDynamicBase lastSubmission = (TopLevelDynamicBase) rows.get(0);
+      metadata = new SubmissionMetadata(lastSubmission.getUri(),
           lastSubmission.getMarkedAsCompleteDate());
       formSubmissionsMap.put(form.getUri(), metadata);
       return metadata;
@@ -15,13 +15,19 @@
  */
 package org.opendatakit.aggregate.task.gae;
 
+import java.util.List;
+
+import org.opendatakit.aggregate.constants.common.OperationalStatus;
 import org.opendatakit.aggregate.constants.externalservice.ExternalServiceConsts;
 import org.opendatakit.aggregate.exception.ODKExternalServiceException;
+import org.opendatakit.aggregate.externalservice.ExternalService;
 import org.opendatakit.aggregate.externalservice.FormServiceCursor;
+import org.opendatakit.aggregate.form.IForm;
 import org.opendatakit.aggregate.server.ServerPreferencesProperties;
 import org.opendatakit.aggregate.task.UploadSubmissions;
 import org.opendatakit.aggregate.task.gae.servlet.UploadSubmissionsTaskServlet;
 import org.opendatakit.aggregate.util.BackendActionsTable;
+import org.opendatakit.common.persistence.exception.ODKDatastoreException;
 import org.opendatakit.common.web.CallingContext;
 
 /**
@@ -65,4 +71,32 @@ public class UploadSubmissionsImpl implements UploadSubmissions {
 
   }
 
+  @Override
+  public void submissionCompleted(IForm form, CallingContext cc)
+      throws ODKExternalServiceException {
+    // Issue a publish request only if we haven't issued one recently.
+    // use BackendActionsTable to mediate that decision (minimizes GAE quota).
+    // Submissions arriving while requests are suppressed are picked up by the
+    // already-queued task, which runs after the settle time, or by the Watchdog.
+    if (!BackendActionsTable.triggerPublisher(form.getUri(), cc)) {
+      return;
+    }
+
+    boolean wasDaemon = cc.getAsDeamon();
+    cc.setAsDaemon(true);
+    try {
+      List<ExternalService> services = FormServiceCursor.getExternalServicesForForm(form, cc);
+      for (ExternalService rs : services) {
+        // only create upload tasks for active publishers
+        if (rs.getFormServiceCursor().getOperationalStatus() == OperationalStatus.ACTIVE) {
+          createFormUploadTask(rs.getFormServiceCursor(), false, cc);
+        }
+      }
+    } catch (ODKDatastoreException e) {
+      throw new ODKExternalServiceException(e);
+    } finally {
+      cc.setAsDaemon(wasDaemon);
+    }
+  }
+
 }
@@ -16,7 +16,14 @@
 package org.opendatakit.aggregate.task.tomcat;
 
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.springframework.scheduling.TaskScheduler;
 
@@ -30,12 +37,40 @@ public class AggregrateThreadExecutor {
 
   private static AggregrateThreadExecutor classInstance = null;
 
-  public synchronized static void initialize( TaskScheduler taskScheduler ) {
+  /**
+   * The classes of background tasks.  Each class runs on its own bounded
+   * pool of worker threads so that, e.g., a long-running export cannot
+   * delay the publishing of submissions.
+   */
+  public enum TaskPool {
+    /** uploads to external services and worksheet creation */
+    PUBLISH,
+    /** CSV, KML and JSON file generation */
+    EXPORT,
+    /** form deletes and submission purges */
+    MAINTENANCE
+  };
+
+  public synchronized static void initialize( TaskScheduler taskScheduler, Map<TaskPool, Integer> poolSizes ) {
       if ( classInstance != null ) throw new IllegalStateException("called after having set the task scheduler");
 
-      classInstance = new AggregrateThreadExecutor(taskScheduler);
+      classInstance = new AggregrateThreadExecutor(taskScheduler, poolSizes);
   }
 
+  /**
+   * Stops the worker threads of all the pools.  Called when the application
+   * context is closed.
+   */
+  public synchronized static void shutdown() {
+    if ( classInstance == null ) return;
+
+    for ( FairTaskPool pool : classInstance.pools.values() ) {
+      pool.shutdown();
+    }
+    classInstance.prefetchExec.shutdownNow();
+    classInstance = null;
+  }
+
   public synchronized static AggregrateThreadExecutor getAggregateThreadExecutor() {
     if ( classInstance == null ) throw new IllegalStateException("called before having initialized the task scheduler");
 
@@ -43,15 +78,76 @@ public class AggregrateThreadExecutor {
   }
 
   private TaskScheduler exec;
+  private final Map<TaskPool, FairTaskPool> pools = new EnumMap<TaskPool, FairTaskPool>(TaskPool.class);
+  private final ExecutorService prefetchExec;
 
-  private AggregrateThreadExecutor(TaskScheduler taskScheduler) {
+  private AggregrateThreadExecutor(TaskScheduler taskScheduler, Map<TaskPool, Integer> poolSizes) {
     exec = taskScheduler;
+    for ( TaskPool pool : TaskPool.values() ) {
+      Integer size = poolSizes.get(pool);
+      if ( size == null ) throw new IllegalStateException("no pool size specified for " + pool.name());
+      pools.put(pool, new FairTaskPool(pool.name().toLowerCase(), size));
+    }
+    // at most one prefetch thread per running export; idle threads exit.
+    prefetchExec = Executors.newCachedThreadPool(new ThreadFactory() {
+      private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "aggregate-export-prefetch-" + threadNumber.getAndIncrement());
+        t.setDaemon(true);
+        return t;
+      }
+    });
   }
 
-  public void execute(Runnable task) {
-      exec.schedule(task, new Date(System.currentTimeMillis() + 100));
+  /**
+   * Queues the task on the given pool.  Tasks with the same formId run in
+   * the order they were queued, taking turns with those of other forms.
+   *
+   * @param pool
+   *          - the class of the task.
+   * @param formId
+   *          - the form the task acts upon.
+   * @param task
+   *          - the task to execute.
+   */
+  public void execute(TaskPool pool, String formId, Runnable task) {
+      pools.get(pool).execute(formId, task);
+  }
+
+  /**
+   * @return the executor on which an export fetches its next page of
+   *         submissions while the current page is being formatted.
+   */
+  public Executor getPrefetchExecutor() {
+      return prefetchExec;
+  }
+
+  /**
+   * @return the queue depth, active thread count and wait times of each pool.
+   */
+  public String getStatistics() {
+    StringBuilder b = new StringBuilder();
+    for ( FairTaskPool pool : pools.values() ) {
+      if ( b.length() != 0 ) b.append("; ");
+      b.append(pool.toString());
+    }
+    return b.toString();
   }
 
+  /**
+   * Executes the task once, after the given delay.
+   *
+   * @param task
+   *          - the task to execute.
+   * @param delayInMilliseconds
+   *          - the delay before the task is run.
+   */
+  public void schedule(Runnable task, long delayInMilliseconds) {
+      exec.schedule(task, new Date(System.currentTimeMillis() + delayInMilliseconds));
+  }
+
   /**
    * Creates and executes a periodic action whose executions will commence every
    * period milliseconds.  I.e., at t, t+period, t+2*period, and so on. If any
@@ -38,7 +38,8 @@ public class CsvGeneratorImpl implements CsvGenerator {
         final CsvWorkerImpl impl;
         
         public CsvRunner( IForm form, SubmissionKey persistentResultsKey, long attemptCount, CallingContext cc) {
-            impl = new CsvWorkerImpl(form, persistentResultsKey, attemptCount, cc );
+            impl = new CsvWorkerImpl(form, persistentResultsKey, attemptCount,
+                AggregrateThreadExecutor.getAggregateThreadExecutor().getPrefetchExecutor(), cc );
         }
 
         @Override
@@ -55,6 +56,6 @@ public class CsvGeneratorImpl implements CsvGenerator {
     // use watchdog's calling context in runner...
     CsvRunner runner = new CsvRunner(form, persistentResultsKey, attemptCount, wd.getCallingContext() );
     AggregrateThreadExecutor exec = AggregrateThreadExecutor.getAggregateThreadExecutor();
-    exec.execute(runner);
+    exec.execute(AggregrateThreadExecutor.TaskPool.EXPORT, form.getFormId(), runner);
   }
 }
@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2018 University of Washington
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.opendatakit.aggregate.task.tomcat;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded pool of worker threads that runs the queued tasks of each
+ * form in turn.  Tasks for the same form run one at a time, in the order
+ * they were queued, but a form with many queued tasks (e.g., a long series
+ * of upload batches) cannot hold up the tasks of the other forms.
+ *
+ * Also tracks the queue depth and the time tasks spent waiting for a
+ * worker thread.
+ */
+class FairTaskPool {
+
+  private static final Logger logger = LoggerFactory.getLogger(FairTaskPool.class);
+
+  private static final class QueuedTask {
+    final Runnable task;
+    final long enqueueTime;
+
+    QueuedTask(Runnable task) {
+      this.task = task;
+      this.enqueueTime = System.currentTimeMillis();
+    }
+  }
+
+  private final String name;
+  private final ThreadPoolExecutor exec;
+
+  /**
+   * Per-form queues, in round-robin order. A form is moved to the end of
+   * the rotation each time one of its tasks is started.
+   */
+  private final LinkedHashMap<String, ArrayDeque<QueuedTask>> queues = new LinkedHashMap<String, ArrayDeque<QueuedTask>>();
+  /**
+   * Forms with a task currently running; their other tasks are skipped.
+   */
+  private final Set<String> runningKeys = new HashSet<String>();
+  /**
+   * Number of runNextTask turns that found only forms with a running task.
+   * Each is handed on when a task finishes.
+   */
+  private int deferredTurns = 0;
+  private int queueDepth = 0;
+  private long startedCount = 0L;
+  private long totalWaitMillis = 0L;
+  private long maxWaitMillis = 0L;
+
+  /**
+   * Each execute() hands the thread pool one of these; it runs whichever
+   * task is next in the rotation, not necessarily the one just queued.
+   */
+  private final Runnable runNextTask = new Runnable() {
+    @Override
+    public void run() {
+      runNext();
+    }
+  };
+
+  FairTaskPool(final String name, int poolSize) {
+    if (poolSize < 1) {
+      throw new IllegalArgumentException("pool size must be at least 1 for " + name);
+    }
+    this.name = name;
+    this.exec = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+          private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "aggregate-" + name + "-" + threadNumber.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+          }
+        });
+    this.exec.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Queue a task to run on this pool.
+   *
+   * @param fairnessKey
+   *          - tasks sharing this key (generally the formId) are run one at a
+   *          time, in turn with those of other keys.
+   * @param task
+   *          - the task to execute.
+   */
+  void execute(String fairnessKey, Runnable task) {
+    String key = (fairnessKey == null) ? "" : fairnessKey;
+    synchronized (this) {
+      ArrayDeque<QueuedTask> queue = queues.get(key);
+      if (queue == null) {
+        queue = new ArrayDeque<QueuedTask>();
+        queues.put(key, queue);
+      }
+      queue.add(new QueuedTask(task));
+      ++queueDepth;
+    }
+    exec.execute(runNextTask);
+  }
+
+  private void runNext() {
+    String key = null;
+    QueuedTask next = null;
+    synchronized (this) {
+      if (queues.isEmpty()) {
+        return;
+      }
+      Iterator<Map.Entry<String, ArrayDeque<QueuedTask>>> it = queues.entrySet().iterator();
+      while (it.hasNext()) {
+        Map.Entry<String, ArrayDeque<QueuedTask>> entry = it.next();
+        if (runningKeys.contains(entry.getKey())) {
+          continue;
+        }
+        it.remove();
+        key = entry.getKey();
+        ArrayDeque<QueuedTask> queue = entry.getValue();
+        next = queue.poll();
+        if (!queue.isEmpty()) {
+          // move this form to the end of the rotation
+          queues.put(key, queue);
+        }
+        break;
+      }
+      if (next == null) {
+        // every form with queued tasks already has one running.
+        ++deferredTurns;
+        return;
+      }
+      runningKeys.add(key);
+      --queueDepth;
+
+      long waitMillis = System.currentTimeMillis() - next.enqueueTime;
+      ++startedCount;
+      totalWaitMillis += waitMillis;
+      if (waitMillis > maxWaitMillis) {
+        maxWaitMillis = waitMillis;
+      }
+    }
+
+    try {
+      next.task.run();
+    } catch (Throwable t) {
+      logger.error("Unexpected failure of " + name + " task", t);
+    } finally {
+      boolean handOn;
+      synchronized (this) {
+        runningKeys.remove(key);
+        handOn = (deferredTurns > 0);
+        if (handOn) {
+          --deferredTurns;
+        }
+      }
+      if (handOn) {
+        try {
+          exec.execute(runNextTask);
+        } catch (RejectedExecutionException e) {
+          // shutting down
+        }
+      }
+    }
+  }
+
+  /**
+   * Stop the worker threads. Queued tasks are discarded and running ones
+   * are interrupted.
+   */
+  void shutdown() {
+    exec.shutdownNow();
+    synchronized (this) {
+      queues.clear();
+      queueDepth = 0;
+      deferredTurns = 0;
+    }
+  }
+
+  String getName() {
+    return name;
+  }
+
+  int getPoolSize() {
+    return exec.getMaximumPoolSize();
+  }
+
+  synchronized int getQueueDepth() {
+    return queueDepth;
+  }
+
+  int getActiveCount() {
+    return exec.getActiveCount();
+  }
+
+  /**
+   * @return the number of tasks that have been started
+   */
+  synchronized long getStartedCount() {
+    return startedCount;
+  }
+
+  synchronized long getAverageWaitMillis() {
+    return (startedCount == 0L) ? 0L : (totalWaitMillis / startedCount);
+  }
+
+  synchronized long getMaxWaitMillis() {
+    return maxWaitMillis;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return name + " pool: size " + getPoolSize() + " active " + getActiveCount() + " queued "
+        + queueDepth + " started " + startedCount + " avgWait " + getAverageWaitMillis()
+        + "ms maxWait " + maxWaitMillis + "ms";
+  }
+}
@@ -61,6 +61,6 @@ public class FormDeleteImpl implements FormDelete {
     // use watchdog's calling context in runner...
     FormDeleteRunner dr = new FormDeleteRunner(form, miscTasksKey, attemptCount, wd.getCallingContext());
     AggregrateThreadExecutor exec = AggregrateThreadExecutor.getAggregateThreadExecutor();
-    exec.execute(dr);
+    exec.execute(AggregrateThreadExecutor.TaskPool.MAINTENANCE, form.getFormId(), dr);
   }
 }
@@ -39,7 +39,8 @@ public class JsonFileGeneratorImpl implements JsonFileGenerator {
     final JsonFileWorkerImpl impl;
     
     public JsonRunner( IForm form, SubmissionKey persistentResultsKey, long attemptCount, CallingContext cc) {
-       impl = new JsonFileWorkerImpl(form, persistentResultsKey, attemptCount, cc );
+       impl = new JsonFileWorkerImpl(form, persistentResultsKey, attemptCount,
+           AggregrateThreadExecutor.getAggregateThreadExecutor().getPrefetchExecutor(), cc );
     }
 
     @Override
@@ -55,7 +56,7 @@ public class JsonFileGeneratorImpl implements JsonFileGenerator {
     // use watchdog's calling context in runner...
     JsonRunner runner = new JsonRunner(form, persistentResultsKey, attemptCount, wd.getCallingContext() );
      AggregrateThreadExecutor exec = AggregrateThreadExecutor.getAggregateThreadExecutor();
-     exec.execute(runner);
+     exec.execute(AggregrateThreadExecutor.TaskPool.EXPORT, form.getFormId(), runner);
 
   }
 
@@ -47,7 +47,8 @@ public class KmlGeneratorImpl implements KmlGenerator {
     public KmlRunner(IForm form, SubmissionKey persistentResultsKey, long attemptCount,
         List<KmlSelection> kmlElementsToInclude, CallingContext cc) {
 
-      impl = new KmlWorkerImpl(form, persistentResultsKey, attemptCount, kmlElementsToInclude, cc);
+      impl = new KmlWorkerImpl(form, persistentResultsKey, attemptCount, kmlElementsToInclude,
+          AggregrateThreadExecutor.getAggregateThreadExecutor().getPrefetchExecutor(), cc);
     }
 
     @Override
@@ -81,6 +82,6 @@ public class KmlGeneratorImpl implements KmlGenerator {
     KmlRunner runner = new KmlRunner(form, persistentResults.getSubmissionKey(), attemptCount,
         kmlElementsToInclude, wd.getCallingContext());
     AggregrateThreadExecutor exec = AggregrateThreadExecutor.getAggregateThreadExecutor();
-    exec.execute(runner);
+    exec.execute(AggregrateThreadExecutor.TaskPool.EXPORT, form.getFormId(), runner);
   }
 }
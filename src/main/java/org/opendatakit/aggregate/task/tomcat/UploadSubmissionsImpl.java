@@ -15,11 +15,21 @@
  */
 package org.opendatakit.aggregate.task.tomcat;
 
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.opendatakit.aggregate.constants.BeanDefs;
+import org.opendatakit.aggregate.constants.common.OperationalStatus;
 import org.opendatakit.aggregate.exception.ODKExternalServiceException;
+import org.opendatakit.aggregate.externalservice.ExternalService;
 import org.opendatakit.aggregate.externalservice.FormServiceCursor;
+import org.opendatakit.aggregate.form.FormFactory;
+import org.opendatakit.aggregate.form.IForm;
 import org.opendatakit.aggregate.task.UploadSubmissions;
 import org.opendatakit.aggregate.task.UploadSubmissionsWorkerImpl;
+import org.opendatakit.aggregate.util.BackendActionsTable;
 import org.opendatakit.common.web.CallingContext;
 
 /**
@@ -33,6 +43,48 @@ import org.opendatakit.common.web.CallingContext;
  */
 public class UploadSubmissionsImpl implements UploadSubmissions {
 
+    private static final Logger logger = LoggerFactory.getLogger(UploadSubmissionsImpl.class);
+
+    /**
+     * Forms (uri to formId) with newly-completed submissions whose publishers
+     * have not yet been dispatched.  Notifications that arrive while a form is
+     * in this map are folded into the pending dispatch.
+     */
+    private final ConcurrentHashMap<String, String> pendingForms = new ConcurrentHashMap<String, String>();
+
+    class PublisherDispatchRunner implements Runnable {
+        final String formUri;
+        final WatchdogImpl wd;
+
+        public PublisherDispatchRunner(String formUri, WatchdogImpl wd) {
+            this.formUri = formUri;
+            this.wd = wd;
+        }
+
+        @Override
+        public void run() {
+            // any notification arriving after this point schedules a new dispatch
+            String formId = pendingForms.remove(formUri);
+            if (formId == null) {
+                return;
+            }
+            try {
+                CallingContext cc = wd.getCallingContext();
+                IForm form = FormFactory.retrieveFormByFormId(formId, cc);
+                List<ExternalService> services = FormServiceCursor.getExternalServicesForForm(form, cc);
+                for (ExternalService rs : services) {
+                    // only create upload tasks for active publishers
+                    if (rs.getFormServiceCursor().getOperationalStatus() == OperationalStatus.ACTIVE) {
+                        createFormUploadTask(rs.getFormServiceCursor(), false, cc);
+                    }
+                }
+            } catch (Exception e) {
+                // the Watchdog will eventually publish these submissions
+                logger.warn("Publisher dispatch failed for form " + formId + " - " + e.getMessage());
+            }
+        }
+    }
+
     static class UploadSubmissionsRunner implements Runnable {
         final UploadSubmissionsWorkerImpl impl;
 
@@ -59,6 +111,20 @@ public class UploadSubmissionsImpl implements UploadSubmissions {
     UploadSubmissionsRunner ur = new UploadSubmissionsRunner(fsc, wd.getFasterWatchdogCycleEnabled(), wd.getCallingContext());
     System.out.println("UPLOAD TASK IN TOMCAT");
     AggregrateThreadExecutor exec = AggregrateThreadExecutor.getAggregateThreadExecutor();
-    exec.execute(ur);
+    exec.execute(AggregrateThreadExecutor.TaskPool.PUBLISH, fsc.getFormId(), ur);
+  }
+
+  @Override
+  public void submissionCompleted(IForm form, CallingContext cc)
+      throws ODKExternalServiceException {
+    if (pendingForms.putIfAbsent(form.getUri(), form.getFormId()) != null) {
+      // a dispatch is already queued for this form
+      return;
+    }
+    WatchdogImpl wd = (WatchdogImpl) cc.getBean(BeanDefs.WATCHDOG);
+    // wait for the submission to settle so that the upload task can see it.
+    AggregrateThreadExecutor exec = AggregrateThreadExecutor.getAggregateThreadExecutor();
+    exec.schedule(new PublisherDispatchRunner(form.getUri(), wd),
+        BackendActionsTable.PUBLISHING_DELAY_MILLISECONDS);
   }
 }
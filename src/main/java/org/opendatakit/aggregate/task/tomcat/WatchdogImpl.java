@@ -17,6 +17,8 @@ package org.opendatakit.aggregate.task.tomcat;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.concurrent.ScheduledFuture;
 
 import javax.servlet.ServletContext;
@@ -43,9 +45,11 @@ import org.opendatakit.common.security.Realm;
 import org.opendatakit.common.security.User;
 import org.opendatakit.common.security.UserService;
 import org.opendatakit.common.utils.HttpClientFactory;
+import org.opendatakit.common.utils.tomcat.TomcatHttpClientFactoryImpl;
 import org.opendatakit.common.web.CallingContext;
 import org.opendatakit.common.web.constants.BasicConsts;
 import org.opendatakit.common.web.constants.HtmlConsts;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.context.SmartLifecycle;
 import org.springframework.scheduling.TaskScheduler;
@@ -59,7 +63,7 @@ import org.springframework.web.context.ServletContextAware;
  *
  */
 public class WatchdogImpl implements Watchdog, SmartLifecycle, InitializingBean,
-    ServletContextAware {
+    DisposableBean, ServletContextAware {
 
   private Logger logger = LoggerFactory.getLogger(WatchdogImpl.class);
 
@@ -87,6 +91,9 @@ public class WatchdogImpl implements Watchdog, SmartLifecycle, InitializingBean,
   ServletContext ctxt = null;
   HttpClientFactory httpClientFactory = null;
   ImageUtil imageUtil = null;
+  int publishPoolSize = 3;
+  int exportPoolSize = 2;
+  int maintenancePoolSize = 1;
 
   /**
    * Implementation of CallingContext for use by watchdog-launched tasks.
@@ -241,6 +248,8 @@ public class WatchdogImpl implements Watchdog, SmartLifecycle, InitializingBean,
   }
 
   static class WatchdogRunner implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(WatchdogRunner.class);
+
     final WatchdogWorkerImpl impl;
 
     final CallingContext cc;
@@ -255,6 +264,13 @@ public class WatchdogImpl implements Watchdog, SmartLifecycle, InitializingBean,
       try {
         System.out.println("RUNNING WATCHDOG TASK IN TOMCAT") ;
         impl.checkTasks(cc);
+        logger.info("BACKGROUND TASKS IN TOMCAT: "
+            + AggregrateThreadExecutor.getAggregateThreadExecutor().getStatistics());
+        HttpClientFactory factory = (HttpClientFactory) cc.getBean(BeanDefs.HTTP_CLIENT_FACTORY);
+        if (factory instanceof TomcatHttpClientFactoryImpl) {
+          logger.info("HTTP CLIENT IN TOMCAT: "
+              + ((TomcatHttpClientFactoryImpl) factory).getStatistics());
+        }
       } catch (Exception e) {
         e.printStackTrace();
         // TODO: Problem - decide what to do if an exception occurs
@@ -436,6 +452,39 @@ public class WatchdogImpl implements Watchdog, SmartLifecycle, InitializingBean,
     this.httpClientFactory = httpClientFactory;
   }
 
+  public int getPublishPoolSize() {
+    return publishPoolSize;
+  }
+
+  /**
+   * @param publishPoolSize the number of threads running publisher uploads.
+   */
+  public void setPublishPoolSize(int publishPoolSize) {
+    this.publishPoolSize = publishPoolSize;
+  }
+
+  public int getExportPoolSize() {
+    return exportPoolSize;
+  }
+
+  /**
+   * @param exportPoolSize the number of threads generating CSV, KML and JSON files.
+   */
+  public void setExportPoolSize(int exportPoolSize) {
+    this.exportPoolSize = exportPoolSize;
+  }
+
+  public int getMaintenancePoolSize() {
+    return maintenancePoolSize;
+  }
+
+  /**
+   * @param maintenancePoolSize the number of threads deleting forms and purging submissions.
+   */
+  public void setMaintenancePoolSize(int maintenancePoolSize) {
+    this.maintenancePoolSize = maintenancePoolSize;
+  }
+
   public ImageUtil getImageUtil() {
     return imageUtil;
   }
@@ -471,7 +520,19 @@ public class WatchdogImpl implements Watchdog, SmartLifecycle, InitializingBean,
       throw new IllegalStateException("no httpClientFactory specified");
     if (imageUtil == null)
       throw new IllegalStateException("no imageUtil specified");
-    AggregrateThreadExecutor.initialize(taskScheduler);
+    if (publishPoolSize < 1 || exportPoolSize < 1 || maintenancePoolSize < 1)
+      throw new IllegalStateException("background task pool sizes must be at least 1");
+    Map<AggregrateThreadExecutor.TaskPool, Integer> poolSizes =
+        new EnumMap<AggregrateThreadExecutor.TaskPool, Integer>(AggregrateThreadExecutor.TaskPool.class);
+    poolSizes.put(AggregrateThreadExecutor.TaskPool.PUBLISH, publishPoolSize);
+    poolSizes.put(AggregrateThreadExecutor.TaskPool.EXPORT, exportPoolSize);
+    poolSizes.put(AggregrateThreadExecutor.TaskPool.MAINTENANCE, maintenancePoolSize);
+    AggregrateThreadExecutor.initialize(taskScheduler, poolSizes);
+  }
+
+  @Override
+  public void destroy() throws Exception {
+    AggregrateThreadExecutor.shutdown();
   }
 
   @Override
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2018 University of Washington
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.opendatakit.aggregate.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least-recently-used cache of resized images, bounded by the total size of
+ * the cached images. Images are keyed by the content hash of the original
+ * attachment, so an attachment is decoded and resized only once no matter
+ * how many submissions or requests refer to it. The cached arrays are shared
+ * and must not be modified.
+ */
+public final class ThumbnailCache {
+
+  private final long maxBytes;
+
+  // guarded by this
+  private final LinkedHashMap<String, byte[]> cache = new LinkedHashMap<String, byte[]>(16,
+      0.75f, true);
+  private long totalBytes = 0L;
+
+  public ThumbnailCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  private static String key(String contentHash, int width, int height) {
+    return contentHash + "/" + width + "x" + height;
+  }
+
+  /**
+   * @param contentHash
+   *          - content hash of the original image.
+   * @param width
+   * @param height
+   * @return the cached thumbnail, or null if there is none.
+   */
+  public synchronized byte[] get(String contentHash, int width, int height) {
+    return cache.get(key(contentHash, width, height));
+  }
+
+  public synchronized void put(String contentHash, int width, int height, byte[] thumbnail) {
+    if (thumbnail.length > maxBytes) {
+      return;
+    }
+    byte[] old = cache.put(key(contentHash, width, height), thumbnail);
+    if (old != null) {
+      totalBytes -= old.length;
+    }
+    totalBytes += thumbnail.length;
+
+    Iterator<Map.Entry<String, byte[]>> it = cache.entrySet().iterator();
+    while (totalBytes > maxBytes && it.hasNext()) {
+      totalBytes -= it.next().getValue().length;
+      it.remove();
+    }
+  }
+}
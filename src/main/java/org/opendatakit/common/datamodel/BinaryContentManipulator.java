@@ -13,7 +13,13 @@
  */
 package org.opendatakit.common.datamodel;
 
-import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
@@ -28,6 +34,7 @@ import org.opendatakit.common.persistence.Query;
 import org.opendatakit.common.persistence.Query.Direction;
 import org.opendatakit.common.persistence.Query.FilterOperation;
 import org.opendatakit.common.persistence.exception.ODKDatastoreException;
+import org.opendatakit.common.persistence.exception.ODKEntityNotFoundException;
 import org.opendatakit.common.persistence.exception.ODKEntityPersistException;
 import org.opendatakit.common.persistence.exception.ODKOverQuotaException;
 import org.opendatakit.common.security.User;
@@ -58,6 +65,19 @@ public class BinaryContentManipulator {
     FILE_UNCHANGED, NEW_FILE_VERSION, COMPLETELY_NEW_FILE
   }
 
+  /**
+   * Number of blob parts written by one putEntities call, or fetched by one
+   * query, when storing or retrieving an attachment.
+   */
+  private static final int BLOB_PARTS_PER_BATCH = 10;
+
+  /**
+   * Largest blob part created when storing an attachment from a stream.
+   * Together with BLOB_PARTS_PER_BATCH, this bounds the memory used to store
+   * an attachment of any size.
+   */
+  private static final long STREAMED_PART_LENGTH = 256L * 1024L;
+
   private final String parentKey;
   private final String topLevelKey;
 
@@ -69,6 +89,8 @@ public class BinaryContentManipulator {
   // implement lazy access to the attachment fields
   private boolean refreshBeforeUse = true;
   private final Map<Long,BinaryContent> attachments = new HashMap<Long,BinaryContent>();
+  // BinaryContent records supplied by a bulk fetch; consumed by the next refresh
+  private List<? extends CommonFieldsBase> prefetchedAttachments = null;
 
   /**
    * Manipulator class for handling an in-memory blob
@@ -78,13 +100,21 @@ public class BinaryContentManipulator {
    */
   public static class BlobManipulator {
 
+    private final RefBlob ref;
     private List<BinaryContentRefBlob> dbBcbEntityList = new ArrayList<BinaryContentRefBlob>();
-    private List<RefBlob> dbRefBlobList = new ArrayList<RefBlob>();
+    // null until the parts are fetched from the datastore
+    private List<RefBlob> dbRefBlobList = null;
 
     /**
-     * Construct an blob entity and persist it into the data store
+     * Construct an blob entity and persist it into the data store. The
+     * content is read from the stream one part at a time.
      *
-     * @param blob
+     * @param content
+     * @param contentLength
+     *          - number of bytes to read from content
+     * @param maxPartLength
+     *          - upper bound on the size of each part, in addition to the
+     *          size limit of the RefBlob value column
      * @param uriVersionedContent
      * @param versionedBinaryContentRefBlobModel
      * @param formDefinition
@@ -93,38 +123,62 @@ public class BinaryContentManipulator {
      *          - the CallingContext of this request
      * @throws ODKDatastoreException
      */
-    public BlobManipulator(byte[] blob, String uriVersionedContent, BinaryContentRefBlob bcbRef,
-        RefBlob ref, String topLevelKey, CallingContext cc) throws ODKDatastoreException {
+    public BlobManipulator(InputStream content, long contentLength, long maxPartLength,
+        String uriVersionedContent, BinaryContentRefBlob bcbRef, RefBlob ref, String topLevelKey,
+        CallingContext cc) throws ODKDatastoreException {
 
+      this.ref = ref;
       // loop to create the VBCRB and RB entries for each part of the
-      // larger blob
-      long blobLimit = ref.value.getMaxCharLen();
+      // larger blob. These are written in batches of BLOB_PARTS_PER_BATCH
+      // parts, with the RB entries of a batch written before its VBCRB entries.
+      // Only the RB entries of the current batch are held in memory.
+      long blobLimit = Math.min(ref.value.getMaxCharLen(), maxPartLength);
       long part = 1L;
       Datastore ds = cc.getDatastore();
       User user = cc.getCurrentUser();
-      for (long index = 0; index < blob.length; index = index + blobLimit) {
-        long endCopy = index + blobLimit;
-        if (endCopy > blob.length)
-          endCopy = blob.length;
-        byte[] partialBlob = Arrays.copyOfRange(blob, (int) index, (int) endCopy);
+      List<RefBlob> refBatch = new ArrayList<RefBlob>();
+      int firstUnwritten = 0;
+      for (long index = 0; index < contentLength; index = index + blobLimit) {
+        byte[] partialBlob = new byte[(int) Math.min(blobLimit, contentLength - index)];
+        try {
+          int len = 0;
+          while (len < partialBlob.length) {
+            int count = content.read(partialBlob, len, partialBlob.length - len);
+            if (count == -1) {
+              throw new IOException("Attachment content is shorter than its declared length");
+            }
+            len += count;
+          }
+        } catch (IOException e) {
+          throw new ODKDatastoreException("Unable to read attachment content", e);
+        }
         RefBlob eBlob = ds.createEntityUsingRelation(ref, user);
         eBlob.setTopLevelAuri(topLevelKey);
         eBlob.setValue(partialBlob);
-        dbRefBlobList.add(eBlob);
+        refBatch.add(eBlob);
         BinaryContentRefBlob bcb = ds.createEntityUsingRelation(bcbRef, user);
         bcb.setTopLevelAuri(topLevelKey);
         bcb.setDomAuri(uriVersionedContent);
         bcb.setSubAuri(eBlob.getUri());
         bcb.setPart(part++);
         dbBcbEntityList.add(bcb);
-        ds.putEntity(eBlob, user);
-        ds.putEntity(bcb, user);
+        if (refBatch.size() == BLOB_PARTS_PER_BATCH) {
+          ds.putEntities(refBatch, user);
+          ds.putEntities(dbBcbEntityList.subList(firstUnwritten, dbBcbEntityList.size()), user);
+          firstUnwritten = dbBcbEntityList.size();
+          refBatch.clear();
+        }
+      }
+      if (!refBatch.isEmpty()) {
+        ds.putEntities(refBatch, user);
+        ds.putEntities(dbBcbEntityList.subList(firstUnwritten, dbBcbEntityList.size()), user);
       }
     }
 
     public BlobManipulator(String uriVersionedContent, BinaryContentRefBlob bcbRef, RefBlob ref,
         CallingContext cc) throws ODKDatastoreException {
 
+      this.ref = ref;
       Datastore ds = cc.getDatastore();
       User user = cc.getCurrentUser();
       // gather the ordered list of parts...
@@ -146,15 +200,47 @@ public class BinaryContentManipulator {
         ++expectedPart;
         dbBcbEntityList.add(bcref);
       }
+      // the blob parts themselves are fetched only when needed...
+    }
 
-      // and gather the blob parts themselves...
-      for (BinaryContentRefBlob b : dbBcbEntityList) {
-        RefBlob eBlob = ds.getEntity(ref, b.getSubAuri(), user);
-        if (eBlob == null) {
-          throw new IllegalStateException("Missing blob part!");
+    /**
+     * Fetch the given blob parts, BLOB_PARTS_PER_BATCH at a time.
+     *
+     * @param bcbList
+     *          the references to the parts, in part order.
+     * @param ref
+     * @param cc
+     * @return the parts, in the same order as bcbList.
+     * @throws ODKDatastoreException
+     */
+    static List<RefBlob> fetchParts(List<BinaryContentRefBlob> bcbList, RefBlob ref,
+        CallingContext cc) throws ODKDatastoreException {
+      Datastore ds = cc.getDatastore();
+      User user = cc.getCurrentUser();
+      List<RefBlob> parts = new ArrayList<RefBlob>();
+      for (int i = 0; i < bcbList.size(); i += BLOB_PARTS_PER_BATCH) {
+        List<BinaryContentRefBlob> batch = bcbList.subList(i,
+            Math.min(bcbList.size(), i + BLOB_PARTS_PER_BATCH));
+        List<String> subAuris = new ArrayList<String>();
+        for (BinaryContentRefBlob b : batch) {
+          subAuris.add(b.getSubAuri());
+        }
+        Query q = ds.createQuery(ref, "BinaryContentManipulator.BlobManipulator.fetchParts", user);
+        q.addValueSetFilter(ref.primaryKey, subAuris);
+        Map<String, RefBlob> found = new HashMap<String, RefBlob>();
+        for (CommonFieldsBase cb : q.executeQuery()) {
+          found.put(cb.getUri(), (RefBlob) cb);
+        }
+        for (BinaryContentRefBlob b : batch) {
+          RefBlob eBlob = found.get(b.getSubAuri());
+          if (eBlob == null) {
+            throw new ODKEntityNotFoundException("Missing blob part " + b.getPart() + " of "
+                + b.getDomAuri());
+          }
+          parts.add(eBlob);
         }
-        dbRefBlobList.add(eBlob);
       }
+      return parts;
     }
 
     public String getTopLevelAuri() {
@@ -173,13 +259,29 @@ public class BinaryContentManipulator {
       return dbBcbEntityList.get(0).getDomAuri();
     }
 
-    public byte[] getBlob() {
-      ByteArrayOutputStream reconstructedBlob = new ByteArrayOutputStream();
+    public byte[] getBlob(CallingContext cc) throws ODKDatastoreException {
+      if (dbRefBlobList == null) {
+        dbRefBlobList = fetchParts(dbBcbEntityList, ref, cc);
+      }
+      int length = 0;
+      for (RefBlob partialBlob : dbRefBlobList) {
+        length += partialBlob.getValue().length;
+      }
+      byte[] reconstructedBlob = new byte[length];
+      int offset = 0;
       for (RefBlob partialBlob : dbRefBlobList) {
         byte[] part = partialBlob.getValue();
-        reconstructedBlob.write(part, 0, part.length);
+        System.arraycopy(part, 0, reconstructedBlob, offset, part.length);
+        offset += part.length;
       }
-      return reconstructedBlob.toByteArray();
+      return reconstructedBlob;
+    }
+
+    /**
+     * @return a stream over the blob that fetches its parts as they are read.
+     */
+    public InputStream getBlobInputStream(CallingContext cc) {
+      return new BlobInputStream(dbBcbEntityList, ref, cc);
     }
 
     /**
@@ -192,35 +294,296 @@ public class BinaryContentManipulator {
      * @param keyList
      */
     public void recursivelyAddEntityKeysForDeletion(List<EntityKey> keyList) {
-      HashMap<String, RefBlob> blobs = new HashMap<String, RefBlob>();
-      for ( RefBlob r : dbRefBlobList ) {
-        blobs.put(r.getUri(), r);
-      }
-      
+      // the blob parts need not be fetched; their keys are in the references.
       for ( int i = 0 ; i < dbBcbEntityList.size() ; ++i ) {
         BinaryContentRefBlob e = dbBcbEntityList.get(i);
-        String sub = e.getSubAuri();
-        RefBlob r = blobs.get(sub);
-        if ( r != null ) {
-          keyList.add(r.getEntityKey());
-          blobs.remove(sub);
-        }
+        keyList.add(new EntityKey(ref, e.getSubAuri()));
         keyList.add(e.getEntityKey());
       }
-      for (RefBlob r : blobs.values()) {
-        keyList.add(r.getEntityKey());
-      }
     }
 
     public void persist(CallingContext cc) throws ODKEntityPersistException, ODKOverQuotaException {
       List<CommonFieldsBase> rows = new ArrayList<CommonFieldsBase>();
-      rows.addAll(dbRefBlobList);
+      if (dbRefBlobList != null) {
+        rows.addAll(dbRefBlobList);
+      }
       rows.addAll(dbBcbEntityList);
       cc.getDatastore().putEntities(rows, cc.getCurrentUser());
     }
 
   }
 
+  /**
+   * Stream over the parts of a stored blob. The list of parts is captured
+   * when the stream is created; the parts themselves are fetched
+   * BLOB_PARTS_PER_BATCH at a time as the stream is read, so at most one batch
+   * of the blob is held in memory.
+   *
+   * If the blob is replaced while the stream is being read, the old parts are
+   * deleted and the read fails with an IOException rather than returning a
+   * mixture of the old and new content.
+   */
+  public static class BlobInputStream extends InputStream {
+
+    private final List<BinaryContentRefBlob> bcbList;
+    private final RefBlob ref;
+    private final CallingContext cc;
+
+    private List<RefBlob> fetched = new ArrayList<RefBlob>();
+    private int nextFetch = 0;
+    private int fetchedIdx = 0;
+    private byte[] current = null;
+    private int currentPos = 0;
+
+    BlobInputStream(List<BinaryContentRefBlob> bcbList, RefBlob ref, CallingContext cc) {
+      this.bcbList = bcbList;
+      this.ref = ref;
+      this.cc = cc;
+    }
+
+    /**
+     * Advance to the next part with unread bytes.
+     *
+     * @return false if the end of the blob has been reached.
+     * @throws IOException
+     */
+    private boolean ensureCurrent() throws IOException {
+      while (current == null || currentPos == current.length) {
+        if (fetchedIdx == fetched.size()) {
+          if (nextFetch == bcbList.size()) {
+            return false;
+          }
+          List<BinaryContentRefBlob> batch = bcbList.subList(nextFetch,
+              Math.min(bcbList.size(), nextFetch + BLOB_PARTS_PER_BATCH));
+          try {
+            fetched = BlobManipulator.fetchParts(batch, ref, cc);
+          } catch (ODKDatastoreException e) {
+            throw new IOException("Unable to retrieve blob parts", e);
+          }
+          nextFetch += batch.size();
+          fetchedIdx = 0;
+        }
+        current = fetched.get(fetchedIdx).getValue();
+        fetched.set(fetchedIdx, null);
+        ++fetchedIdx;
+        currentPos = 0;
+      }
+      return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (!ensureCurrent()) {
+        return -1;
+      }
+      return current[currentPos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (!ensureCurrent()) {
+        return -1;
+      }
+      int n = Math.min(len, current.length - currentPos);
+      System.arraycopy(current, currentPos, b, off, n);
+      currentPos += n;
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = 0;
+      while (skipped < n && ensureCurrent()) {
+        int step = (int) Math.min(n - skipped, current.length - currentPos);
+        currentPos += step;
+        skipped += step;
+      }
+      return skipped;
+    }
+
+    @Override
+    public int available() {
+      return (current == null) ? 0 : current.length - currentPos;
+    }
+  }
+
+  /**
+   * Stream that writes a blob into the datastore as it is produced. Parts of
+   * STREAMED_PART_LENGTH bytes are written BLOB_PARTS_PER_BATCH at a time, so
+   * at most one batch of the blob is held in memory.
+   *
+   * The parts are not visible as an attachment until the closed stream is
+   * passed to {@link BinaryContentManipulator#setValueFromBlobOutputStream};
+   * if the content is not wanted, call {@link #abort()} to delete the parts
+   * written so far.
+   */
+  public static class BlobOutputStream extends OutputStream {
+
+    private final String uriVersionedContent = CommonFieldsBase.newUri();
+    private final BinaryContentRefBlob bcbRef;
+    private final RefBlob ref;
+    private final String topLevelKey;
+    private final CallingContext cc;
+    private final MessageDigest md;
+
+    private final byte[] buffer;
+    private int bufferFill = 0;
+    private long contentLength = 0L;
+    private long part = 1L;
+    private final List<RefBlob> refBatch = new ArrayList<RefBlob>();
+    private final List<BinaryContentRefBlob> bcbBatch = new ArrayList<BinaryContentRefBlob>();
+    // keys of the parts already written, for abort()
+    private final List<EntityKey> writtenKeys = new ArrayList<EntityKey>();
+    private String contentHash = null;
+    private boolean closed = false;
+
+    BlobOutputStream(BinaryContentRefBlob bcbRef, RefBlob ref, String topLevelKey,
+        CallingContext cc) {
+      this.bcbRef = bcbRef;
+      this.ref = ref;
+      this.topLevelKey = topLevelKey;
+      this.cc = cc;
+      try {
+        this.md = MessageDigest.getInstance("MD5");
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException("Unexpected problem computing md5 hash", e);
+      }
+      this.buffer = new byte[(int) Math.min(ref.value.getMaxCharLen(), STREAMED_PART_LENGTH)];
+    }
+
+    String getVersionedContentKey() {
+      return uriVersionedContent;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      if (closed) {
+        throw new IOException("Stream is closed");
+      }
+      buffer[bufferFill++] = (byte) b;
+      if (bufferFill == buffer.length) {
+        completePart();
+      }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      if (closed) {
+        throw new IOException("Stream is closed");
+      }
+      while (len > 0) {
+        int n = Math.min(len, buffer.length - bufferFill);
+        System.arraycopy(b, off, buffer, bufferFill, n);
+        bufferFill += n;
+        off += n;
+        len -= n;
+        if (bufferFill == buffer.length) {
+          completePart();
+        }
+      }
+    }
+
+    private void completePart() throws IOException {
+      byte[] partialBlob = Arrays.copyOf(buffer, bufferFill);
+      md.update(partialBlob);
+      contentLength += bufferFill;
+      bufferFill = 0;
+
+      Datastore ds = cc.getDatastore();
+      User user = cc.getCurrentUser();
+      RefBlob eBlob = ds.createEntityUsingRelation(ref, user);
+      eBlob.setTopLevelAuri(topLevelKey);
+      eBlob.setValue(partialBlob);
+      refBatch.add(eBlob);
+      BinaryContentRefBlob bcb = ds.createEntityUsingRelation(bcbRef, user);
+      bcb.setTopLevelAuri(topLevelKey);
+      bcb.setDomAuri(uriVersionedContent);
+      bcb.setSubAuri(eBlob.getUri());
+      bcb.setPart(part++);
+      bcbBatch.add(bcb);
+      if (refBatch.size() == BLOB_PARTS_PER_BATCH) {
+        writeBatch();
+      }
+    }
+
+    private void writeBatch() throws IOException {
+      Datastore ds = cc.getDatastore();
+      User user = cc.getCurrentUser();
+      // record the keys first so that abort() removes a partially written batch
+      for (int i = 0; i < refBatch.size(); ++i) {
+        writtenKeys.add(refBatch.get(i).getEntityKey());
+        writtenKeys.add(bcbBatch.get(i).getEntityKey());
+      }
+      try {
+        ds.putEntities(refBatch, user);
+        ds.putEntities(bcbBatch, user);
+      } catch (ODKDatastoreException e) {
+        throw new IOException("Unable to store blob parts", e);
+      } finally {
+        refBatch.clear();
+        bcbBatch.clear();
+      }
+    }
+
+    /**
+     * Write any buffered content. The stream cannot be written after this.
+     */
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      if (bufferFill != 0) {
+        completePart();
+      }
+      if (!refBatch.isEmpty()) {
+        writeBatch();
+      }
+      closed = true;
+
+      BigInteger number = new BigInteger(1, md.digest());
+      String md5 = number.toString(16);
+      while (md5.length() < 32)
+        md5 = "0" + md5;
+      contentHash = "md5:" + md5;
+    }
+
+    /**
+     * @return the md5 hash of the content; only available once closed.
+     */
+    public String getContentHash() {
+      return contentHash;
+    }
+
+    /**
+     * @return the number of bytes written.
+     */
+    public long getContentLength() {
+      return contentLength + bufferFill;
+    }
+
+    /**
+     * Discard the content, deleting any parts already written.
+     *
+     * @throws ODKDatastoreException
+     */
+    public void abort() throws ODKDatastoreException {
+      closed = true;
+      refBatch.clear();
+      bcbBatch.clear();
+      bufferFill = 0;
+      if (!writtenKeys.isEmpty()) {
+        // DeleteHelper deletes in reverse order: references before parts
+        List<EntityKey> keys = new ArrayList<EntityKey>(writtenKeys);
+        DeleteHelper.deleteEntities(keys, cc);
+        writtenKeys.clear();
+      }
+    }
+  }
+
   public BinaryContentManipulator(String parentKey, String topLevelKey, BinaryContent ctntRelation,
       BinaryContentRefBlob vrefRelation, RefBlob blbRelation) {
     this.parentKey = parentKey;
@@ -355,7 +718,28 @@ public class BinaryContentManipulator {
       throw new IllegalStateException("missing attachment declaration");
     }
     BlobManipulator blbManipulator = new BlobManipulator(b.getUri(), vrefRelation, blbRelation, cc);
-    return blbManipulator.getBlob();
+    return blbManipulator.getBlob(cc);
+  }
+
+  /**
+   * Open a stream over the content of an attachment. Unlike
+   * {@link #getBlob(int, CallingContext)}, the content is not assembled in
+   * memory; its parts are retrieved as the stream is read.
+   *
+   * @param ordinal
+   * @param cc
+   * @return stream over the attachment content.
+   * @throws ODKDatastoreException
+   */
+  public InputStream getBlobInputStream(int ordinal, CallingContext cc) throws ODKDatastoreException {
+    updateAttachments(cc);
+    BinaryContent b = attachments.get(Long.valueOf(ordinal));
+    if (b == null) {
+      // we are somehow out of sync!
+      throw new IllegalStateException("missing attachment declaration");
+    }
+    BlobManipulator blbManipulator = new BlobManipulator(b.getUri(), vrefRelation, blbRelation, cc);
+    return blbManipulator.getBlobInputStream(cc);
   }
 
   /**
@@ -429,8 +813,100 @@ public class BinaryContentManipulator {
       String contentType, String unrootedFilePath, boolean overwriteOK, CallingContext cc)
       throws ODKDatastoreException {
 
-    @SuppressWarnings("unused")
-  Long contentLength = (byteArray == null) ? null : Long.valueOf(byteArray.length);
+    if (byteArray == null) {
+      return setValue(null, 0L, null, Long.MAX_VALUE, contentType, unrootedFilePath,
+          overwriteOK, cc);
+    }
+    return setValue(new ByteArrayInputStream(byteArray), byteArray.length,
+        CommonFieldsBase.newMD5HashUri(byteArray), Long.MAX_VALUE, contentType,
+        unrootedFilePath, overwriteOK, cc);
+  }
+
+  /**
+   * Save the attachment to the database, reading its content from a stream.
+   * The content is stored in parts of bounded size, so that an attachment of
+   * any size can be saved without holding it in memory. The caller supplies
+   * the md5 hash of the content (so that an unchanged file is not re-read)
+   * and remains responsible for closing the stream.
+   *
+   * @param content
+   * @param contentLength
+   * @param md5Hash
+   * @param contentType
+   * @param unrootedFilePath
+   * @param overwriteOK -- if the file exists and is different, must be true to overwrite existing value.
+   * @param cc
+   * @return COMPLETELY_NEW_FILE on successful save; FILE_UNCHANGED on hash
+   *         equivalence; NEW_FILE_VERSION on updating existing file (save not allowed unless overwriteOK).
+   * @throws ODKDatastoreException
+   */
+  public BinaryContentManipulator.BlobSubmissionOutcome setValueFromStream(InputStream content,
+      long contentLength, String md5Hash, String contentType, String unrootedFilePath,
+      boolean overwriteOK, CallingContext cc) throws ODKDatastoreException {
+    if (content == null || md5Hash == null) {
+      throw new IllegalArgumentException("unexpected null values passed into method");
+    }
+    return setValue(content, contentLength, md5Hash, STREAMED_PART_LENGTH, contentType,
+        unrootedFilePath, overwriteOK, cc);
+  }
+
+  /**
+   * Create a stream to write a new attachment into the datastore as it is
+   * produced. See {@link #setValueFromBlobOutputStream}.
+   *
+   * @param cc
+   * @return the stream
+   */
+  public BlobOutputStream newBlobOutputStream(CallingContext cc) {
+    return new BlobOutputStream(vrefRelation, blbRelation, topLevelKey, cc);
+  }
+
+  /**
+   * Save the content written to a (closed) BlobOutputStream as a new
+   * attachment. Its parts are already in the datastore; this creates the
+   * entry that makes them visible.
+   *
+   * @param content
+   * @param contentType
+   * @param unrootedFilePath
+   * @param cc
+   * @throws ODKDatastoreException
+   */
+  public void setValueFromBlobOutputStream(BlobOutputStream content, String contentType,
+      String unrootedFilePath, CallingContext cc) throws ODKDatastoreException {
+    if (content.getContentHash() == null) {
+      throw new IllegalStateException("BlobOutputStream must be closed before it is saved");
+    }
+    updateAttachments(cc);
+    for (BinaryContent bc : attachments.values()) {
+      String bcFilePath = bc.getUnrootedFilePath();
+      if ((bcFilePath == null) ? (unrootedFilePath == null)
+          : (unrootedFilePath != null && bcFilePath.equals(unrootedFilePath))) {
+        throw new IllegalStateException("Attachment already exists: " + unrootedFilePath);
+      }
+    }
+
+    Datastore ds = cc.getDatastore();
+    User user = cc.getCurrentUser();
+    // the entry uses the key under which the parts were written
+    BinaryContent matchedBc = (BinaryContent) ds.createEntityUsingRelation(ctntRelation, user);
+    matchedBc.setStringField(ctntRelation.primaryKey, content.getVersionedContentKey());
+    matchedBc.setTopLevelAuri(topLevelKey);
+    matchedBc.setParentAuri(parentKey);
+    matchedBc.setOrdinalNumber(internalGetAttachmentCount() + 1L);
+    matchedBc.setUnrootedFilePath(unrootedFilePath);
+    matchedBc.setContentType(contentType);
+    matchedBc.setContentLength(Long.valueOf(content.getContentLength()));
+    matchedBc.setContentHash(content.getContentHash());
+    ds.putEntity(matchedBc, user);
+    attachments.put(matchedBc.getOrdinalNumber(), matchedBc);
+  }
+
+  private BinaryContentManipulator.BlobSubmissionOutcome setValue(InputStream content,
+      long contentLength, String md5Hash, long maxPartLength, String contentType,
+      String unrootedFilePath, boolean overwriteOK, CallingContext cc)
+      throws ODKDatastoreException {
+
     // search for a matching entry for unrootedFilePath
     BinaryContent matchedBc = null;
     String currentContentHash = null;
@@ -449,7 +925,7 @@ public class BinaryContentManipulator {
     Datastore ds = cc.getDatastore();
     User user = cc.getCurrentUser();
 
-    if (byteArray == null && contentType == null) {
+    if (content == null && contentType == null) {
       // adding a file entry without any actual file...
 
       if (matchedBc == null) {
@@ -469,11 +945,9 @@ public class BinaryContentManipulator {
         // record already exists (and it might have file data, too)...
         return BinaryContentManipulator.BlobSubmissionOutcome.FILE_UNCHANGED;
       }
-    } else if (byteArray != null && contentType != null) {
+    } else if (content != null && contentType != null) {
       // adding a file entry with an actual file...
 
-      String md5Hash = CommonFieldsBase.newMD5HashUri(byteArray);
-
       if (matchedBc == null || currentContentHash == null) {
         // either
         // - create a new entry with file data
@@ -500,7 +974,7 @@ public class BinaryContentManipulator {
 
         // Step (1)
         matchedBc.setContentType(contentType);
-        matchedBc.setContentLength(Long.valueOf(byteArray.length));
+        matchedBc.setContentLength(Long.valueOf(contentLength));
         ds.putEntity(matchedBc, user);
 
         if (newBc) {
@@ -518,8 +992,8 @@ public class BinaryContentManipulator {
         // Step (3)
         // persist the binary data
         @SuppressWarnings("unused")
-        BlobManipulator subBlob = new BlobManipulator(byteArray, matchedBc.getUri(), vrefRelation,
-            blbRelation, topLevelKey, cc);
+        BlobManipulator subBlob = new BlobManipulator(content, contentLength, maxPartLength,
+            matchedBc.getUri(), vrefRelation, blbRelation, topLevelKey, cc);
 
         // Step (4)
         matchedBc.setContentHash(md5Hash);
@@ -542,7 +1016,7 @@ public class BinaryContentManipulator {
         // Step (1)
         matchedBc.setContentHash(null);
         matchedBc.setContentType(contentType);
-        matchedBc.setContentLength(Long.valueOf(byteArray.length));
+        matchedBc.setContentLength(Long.valueOf(contentLength));
         ds.putEntity(matchedBc, user);
 
         // Step (2)
@@ -554,8 +1028,8 @@ public class BinaryContentManipulator {
         // Step (3)
         // persist the binary data
         @SuppressWarnings("unused")
-        BlobManipulator subBlob = new BlobManipulator(byteArray, matchedBc.getUri(), vrefRelation,
-            blbRelation, topLevelKey, cc);
+        BlobManipulator subBlob = new BlobManipulator(content, contentLength, maxPartLength,
+            matchedBc.getUri(), vrefRelation, blbRelation, topLevelKey, cc);
 
         // Step (4)
         matchedBc.setContentHash(md5Hash);
@@ -568,20 +1042,36 @@ public class BinaryContentManipulator {
     }
   }
 
+  /**
+   * Supply the BinaryContent records for this parent, ordered by ordinal
+   * number, that were already retrieved as part of a bulk fetch. They are used
+   * in place of querying the datastore on the next refresh of the attachments.
+   *
+   * @param contentHits
+   */
+  public synchronized void setPrefetchedAttachments(List<? extends CommonFieldsBase> contentHits) {
+    if ( refreshBeforeUse ) {
+      prefetchedAttachments = contentHits;
+    }
+  }
+
   public synchronized void updateAttachments(CallingContext cc) throws ODKDatastoreException {
     if ( refreshBeforeUse ) {
       // clear our mutable state.
       attachments.clear();
 
-      Datastore ds = cc.getDatastore();
-      User user = cc.getCurrentUser();
-      Query q = ds.createQuery(ctntRelation, "BinaryContentManipulator.refreshFromDatabase", user);
-      q.addFilter(ctntRelation.parentAuri, FilterOperation.EQUAL, parentKey);
-      q.addSort(ctntRelation.parentAuri, Direction.ASCENDING); // GAE work-around
-      q.addSort(ctntRelation.ordinalNumber, Direction.ASCENDING);
-
       List<String> errors = new ArrayList<String>();
-      List<? extends CommonFieldsBase> contentHits = q.executeQuery();
+      List<? extends CommonFieldsBase> contentHits = prefetchedAttachments;
+      prefetchedAttachments = null;
+      if ( contentHits == null ) {
+        Datastore ds = cc.getDatastore();
+        User user = cc.getCurrentUser();
+        Query q = ds.createQuery(ctntRelation, "BinaryContentManipulator.refreshFromDatabase", user);
+        q.addFilter(ctntRelation.parentAuri, FilterOperation.EQUAL, parentKey);
+        q.addSort(ctntRelation.parentAuri, Direction.ASCENDING); // GAE work-around
+        q.addSort(ctntRelation.ordinalNumber, Direction.ASCENDING);
+        contentHits = q.executeQuery();
+      }
       attachments.clear();
       long expectedOrdinal = 1L;
       for (CommonFieldsBase cb : contentHits) {
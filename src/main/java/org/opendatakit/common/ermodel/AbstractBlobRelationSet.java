@@ -13,6 +13,7 @@
  */
 package org.opendatakit.common.ermodel;
 
+import java.io.InputStream;
 import java.util.Date;
 import java.util.List;
 
@@ -345,6 +346,12 @@ public class AbstractBlobRelationSet implements BlobRelationSet {
       return m.getBlob(ordinal, cc);
     }
 
+    @Override
+    public InputStream getBlobInputStream(int ordinal, CallingContext cc)
+        throws ODKDatastoreException {
+      return m.getBlobInputStream(ordinal, cc);
+    }
+
     @Override
     public String getContentHash(int ordinal, CallingContext cc) throws ODKDatastoreException {
       return m.getContentHash(ordinal, cc);
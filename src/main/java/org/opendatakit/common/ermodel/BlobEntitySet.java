@@ -13,6 +13,7 @@
  */
 package org.opendatakit.common.ermodel;
 
+import java.io.InputStream;
 import java.util.Date;
 
 import org.opendatakit.common.datamodel.BinaryContentManipulator.BlobSubmissionOutcome;
@@ -143,6 +144,18 @@ public interface BlobEntitySet {
    */
   public byte[] getBlob(int ordinal, CallingContext cc) throws ODKDatastoreException;
 
+  /**
+   * Get a stream over the contents of the "ordinal'th" blob. The content is
+   * retrieved from the datastore as the stream is read.
+   * 
+   * @param ordinal
+   *          [1..]
+   * @param cc
+   * @return
+   * @throws ODKDatastoreException
+   */
+  public InputStream getBlobInputStream(int ordinal, CallingContext cc) throws ODKDatastoreException;
+
   /**
    * Save this BlobSet. Only useful for empty blob sets, as inserting a blob
    * always causes an immediate persist of the blob set.
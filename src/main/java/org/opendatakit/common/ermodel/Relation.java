@@ -21,8 +21,10 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.opendatakit.common.persistence.CommonFieldsBase;
+import org.opendatakit.common.persistence.CompositeIndex;
 import org.opendatakit.common.persistence.DataField;
 import org.opendatakit.common.persistence.Datastore;
 import org.opendatakit.common.persistence.EntityKey;
@@ -52,6 +54,15 @@ public class Relation {
 
   private static final int MAX_DELETE_COUNT = 100;
 
+  /**
+   * Process-wide cache of the relations whose backing tables have already been
+   * asserted against the datastore. The key is the schema and table name
+   * followed by the signature of the supplied fields. The value holds copies of
+   * the relation's fields with the dimensions reported by the datastore, so
+   * that later constructions can skip the assertRelation round-trip.
+   */
+  private static final Map<String, List<DataField>> verifiedRelations = new ConcurrentHashMap<String, List<DataField>>();
+
   /** the table namespace of this relation */
   @SuppressWarnings("unused")
   private final TableNamespace namespace;
@@ -87,7 +98,7 @@ public class Relation {
       throw new IllegalArgumentException("Backing table name is too long: " + backingTableName);
     }
     this.namespace = TableNamespace.EXTENSION;
-    initialize(fields, cc);
+    initialize(fields, Collections.<CompositeIndex> emptyList(), cc);
   }
 
   /**
@@ -116,6 +127,23 @@ public class Relation {
    */
   public Relation(String namespace, String tableName, List<DataField> fields, CallingContext cc)
       throws ODKDatastoreException {
+    this(namespace, tableName, fields, Collections.<CompositeIndex> emptyList(), cc);
+  }
+
+  /**
+   * As above, but also declaring composite indexes on the relation. These may
+   * name the reserved columns (e.g., CommonFieldsBase.CREATION_DATE_COLUMN_NAME)
+   * as well as the given fields.
+   *
+   * @param namespace
+   * @param tableName
+   * @param fields
+   * @param compositeIndexes
+   * @param cc
+   * @throws ODKDatastoreException
+   */
+  protected Relation(String namespace, String tableName, List<DataField> fields,
+      List<CompositeIndex> compositeIndexes, CallingContext cc) throws ODKDatastoreException {
     if (!namespace.matches(VALID_UPPER_CASE_NAME_REGEX) || namespace.contains("__")
         || namespace.startsWith("_")) {
       throw new IllegalArgumentException(
@@ -131,7 +159,7 @@ public class Relation {
       throw new IllegalArgumentException("Backing table name is too long: " + backingTableName);
     }
     this.namespace = TableNamespace.EXTENSION;
-    initialize(fields, cc);
+    initialize(fields, compositeIndexes, cc);
   }
 
   /**
@@ -195,7 +223,7 @@ public class Relation {
     default:
       throw new IllegalStateException("Unexpected TableNamespace value");
     }
-    initialize(fields, cc);
+    initialize(fields, Collections.<CompositeIndex> emptyList(), cc);
   }
 
   /**
@@ -298,10 +326,71 @@ public class Relation {
       }
     }
     ds.deleteEntities(keys, user);
+    forgetVerifiedRelation(prototype.getSchemaName(), prototype.getTableName());
     ds.dropRelation(prototype, user);
     prototype = null;
   }
 
+  /**
+   * Remove all cached schema verifications for the given table.
+   *
+   * @param schema
+   * @param tableName
+   */
+  private static void forgetVerifiedRelation(String schema, String tableName) {
+    String prefix = schema + "." + tableName + "|";
+    for (String key : verifiedRelations.keySet()) {
+      if (key.startsWith(prefix)) {
+        verifiedRelations.remove(key);
+      }
+    }
+  }
+
+  private static String verifiedRelationKey(String schema, String tableName,
+      List<DataField> definedFields, List<CompositeIndex> compositeIndexes) {
+    StringBuilder b = new StringBuilder();
+    b.append(schema).append(".").append(tableName).append("|");
+    for (DataField f : definedFields) {
+      b.append(f.getName()).append(":").append(f.getDataType()).append(":")
+          .append(f.getNullable()).append(":").append(f.getMaxCharLen()).append(":")
+          .append(f.getNumericPrecision()).append(":").append(f.getNumericScale()).append(":")
+          .append(f.isDoublePrecision()).append(":").append(f.getIndexable()).append(";");
+    }
+    for (CompositeIndex index : compositeIndexes) {
+      b.append("|").append(index.getColumnNames());
+    }
+    return b.toString();
+  }
+
+  /**
+   * Apply the cached datastore dimensions to the fields of the candidate
+   * relation, as assertRelation would have done.
+   *
+   * @param candidate
+   * @param verified
+   * @return false if the cached entry does not correspond to this relation.
+   */
+  private static boolean applyVerifiedDimensions(RelationImpl candidate, List<DataField> verified) {
+    List<DataField> fieldList = candidate.getFieldList();
+    if (fieldList.size() != verified.size()) {
+      return false;
+    }
+    for (int i = 0; i < fieldList.size(); ++i) {
+      if (!fieldList.get(i).getName().equals(verified.get(i).getName())) {
+        return false;
+      }
+    }
+    for (int i = 0; i < fieldList.size(); ++i) {
+      DataField f = fieldList.get(i);
+      DataField v = verified.get(i);
+      f.setMaxCharLen(v.getMaxCharLen());
+      f.setNumericPrecision(v.getNumericPrecision());
+      f.setNumericScale(v.getNumericScale());
+      f.asDoublePrecision(v.isDoublePrecision());
+    }
+    return true;
+  }
+
   /**
    * Retrieve the DataField that matches the given fieldName. Useful when
    * working with a dynamically-constructed table.
@@ -348,9 +437,13 @@ public class Relation {
    */
   protected static class RelationImpl extends CommonFieldsBase {
 
-    RelationImpl(String schemaName, String tableName, List<DataField> definedFields) {
+    RelationImpl(String schemaName, String tableName, List<DataField> definedFields,
+        List<CompositeIndex> compositeIndexes) {
       super(schemaName, tableName);
       fieldList.addAll(definedFields);
+      for (CompositeIndex index : compositeIndexes) {
+        addCompositeIndex(index);
+      }
     }
 
     private RelationImpl(RelationImpl ref, User user) {
@@ -739,7 +832,8 @@ public class Relation {
    * @param cc
    * @throws ODKDatastoreException
    */
-  private void initialize(List<DataField> fields, CallingContext cc) throws ODKDatastoreException {
+  private void initialize(List<DataField> fields, List<CompositeIndex> compositeIndexes,
+      CallingContext cc) throws ODKDatastoreException {
 
     List<DataField> definedFields = new ArrayList<DataField>();
     for (DataField f : fields) {
@@ -774,9 +868,25 @@ public class Relation {
     Datastore ds = cc.getDatastore();
     User user = cc.getCurrentUser();
     String schema = ds.getDefaultSchemaName();
+    String key = verifiedRelationKey(schema, backingTableName, definedFields, compositeIndexes);
+    List<DataField> verified = verifiedRelations.get(key);
+    if (verified != null) {
+      RelationImpl candidate = new RelationImpl(schema, backingTableName, definedFields,
+          compositeIndexes);
+      if (applyVerifiedDimensions(candidate, verified)) {
+        prototype = candidate;
+        return;
+      }
+    }
     synchronized (Relation.class) {
-      RelationImpl candidate = new RelationImpl(schema, backingTableName, definedFields);
+      RelationImpl candidate = new RelationImpl(schema, backingTableName, definedFields,
+          compositeIndexes);
       ds.assertRelation(candidate, user);
+      List<DataField> dimensions = new ArrayList<DataField>();
+      for (DataField f : candidate.getFieldList()) {
+        dimensions.add(new DataField(f));
+      }
+      verifiedRelations.put(key, Collections.unmodifiableList(dimensions));
       prototype = candidate;
     }
   }
@@ -13,6 +13,8 @@
  */
 package org.opendatakit.common.persistence;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -72,6 +74,7 @@ public abstract class CommonFieldsBase {
   private boolean fromDatabase = false;
   private Object opaquePersistenceData = null;
   protected final List<DataField> fieldList = new ArrayList<DataField>();
+  protected final List<CompositeIndex> compositeIndexList = new ArrayList<CompositeIndex>();
   protected final Map<DataField, Object> fieldValueMap = new HashMap<DataField, Object>();
 
   public final DataField primaryKey;
@@ -117,6 +120,7 @@ public abstract class CommonFieldsBase {
     lastUpdateDate = ref.lastUpdateDate;
 
     fieldList.addAll(ref.fieldList);
+    compositeIndexList.addAll(ref.compositeIndexList);
 
     // populate the audit fields...
     Date now = new Date();
@@ -165,6 +169,33 @@ public abstract class CommonFieldsBase {
     return Collections.unmodifiableList(fieldList);
   }
 
+  public final List<CompositeIndex> getCompositeIndexList() {
+    return Collections.unmodifiableList(compositeIndexList);
+  }
+
+  /**
+   * Declare a composite index on this relation. Only called from the
+   * constructor of a relation prototype, after its fields have been added.
+   *
+   * @param index
+   */
+  protected final void addCompositeIndex(CompositeIndex index) {
+    for (String name : index.getColumnNames()) {
+      boolean found = false;
+      for (DataField f : fieldList) {
+        if (f.getName().equals(name)) {
+          found = true;
+          break;
+        }
+      }
+      if (!found) {
+        throw new IllegalArgumentException("Composite index column " + name
+            + " does not belong to " + schemaName + "." + tableName);
+      }
+    }
+    compositeIndexList.add(index);
+  }
+
   public final boolean hasField(DataField f) {
     if (f == null) {
       throw new IllegalArgumentException("Field value is null!");
@@ -472,6 +503,35 @@ public abstract class CommonFieldsBase {
     }
   }
 
+  /**
+   * Compute the md5 hash of the remaining content of the stream without
+   * holding it all in memory. The stream is read to its end but not closed.
+   *
+   * @param content
+   * @return md5 hash of the bytes read
+   * @throws IOException
+   */
+  public final static String newMD5HashUri(InputStream content) throws IOException {
+    try {
+      MessageDigest md = MessageDigest.getInstance("MD5");
+      byte[] buffer = new byte[8192];
+      int len;
+      while ((len = content.read(buffer)) != -1) {
+        md.update(buffer, 0, len);
+      }
+
+      byte[] messageDigest = md.digest();
+
+      BigInteger number = new BigInteger(1, messageDigest);
+      String md5 = number.toString(16);
+      while (md5.length() < 32)
+        md5 = "0" + md5;
+      return "md5:" + md5;
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("Unexpected problem computing md5 hash", e);
+    }
+  }
+
   /**********************************************************************************
    **********************************************************************************
    **********************************************************************************
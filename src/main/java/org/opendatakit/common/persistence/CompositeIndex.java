@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2018 University of Washington
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.opendatakit.common.persistence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A multi-column (ordered) index on a relation. Relations declare these via
+ * {@link CommonFieldsBase#addCompositeIndex(CompositeIndex)}; the datastore
+ * creates them in assertRelation, including on tables created before the
+ * index was declared.
+ *
+ * The columns are identified by name so that ermodel relations can also
+ * name the audit columns, whose DataFields only exist once the relation
+ * prototype has been constructed.
+ *
+ * Useful when a query filters on the leading column(s) with an equality and
+ * sorts on the remaining ones, so that paging through the results becomes a
+ * range scan of the index.
+ */
+public final class CompositeIndex {
+
+  private final List<String> columnNames;
+
+  /**
+   * @param columnNames
+   *          the names of the indexed columns, most significant first.
+   */
+  public CompositeIndex(String... columnNames) {
+    if (columnNames.length < 2) {
+      throw new IllegalArgumentException("A composite index needs at least two columns");
+    }
+    this.columnNames = Collections.unmodifiableList(new ArrayList<String>(Arrays
+        .asList(columnNames)));
+  }
+
+  public List<String> getColumnNames() {
+    return columnNames;
+  }
+
+  /**
+   * Fit an index name within the database's identifier length limit. A name
+   * that is too long is cut short and ends with a hash of the full name, so
+   * that the same relation and columns always produce the same name (the
+   * datastores look the index up by name) and distinct names stay distinct.
+   *
+   * @param name
+   *          the full index name
+   * @param maxLength
+   *          the longest identifier the database accepts
+   * @return the name to use for the index
+   */
+  public static String limitName(String name, int maxLength) {
+    if (name.length() <= maxLength) {
+      return name;
+    }
+    // newMD5HashUri returns "md5:" followed by 32 hex digits
+    String hash = CommonFieldsBase.newMD5HashUri(name).substring(4, 12);
+    return name.substring(0, maxLength - hash.length() - 1) + "_" + hash;
+  }
+}
@@ -47,6 +47,13 @@ public interface Datastore {
      * @return the maximum length of a column name in this persistence layer implementation
      */
     public int getMaxLenColumnName();
+
+    /**
+     * @return the maximum number of values to place in a single
+     *         {@link Query#addValueSetFilter} filter in this persistence layer
+     *         implementation. Callers with more values issue several queries.
+     */
+    public int getMaxValueSetFilterSize();
     
     /**
      * Asserts that the relation exists in the datastore.  The details of the 
@@ -96,7 +96,23 @@ public interface Query {
    * @throws ODKOverQuotaException if the usage quota was exceeded
    */
   public QueryResult executeQuery(QueryResumePoint startCursor, int fetchLimit) throws ODKDatastoreException, ODKOverQuotaException;
-  
+
+  /**
+   * Returns up to fetchLimit entities which are the results of executing the
+   * query. Only the given fields (and the primary key) are guaranteed to be
+   * retrieved; datastores that can do so leave the other fields of the
+   * returned entities unset. These entities are therefore for reading only and
+   * must never be persisted.
+   *
+   * @param projection -- the fields to retrieve
+   * @param fetchLimit -- number of records to fetch (0 for all records)
+   * @return
+   * @throws ODKDatastoreException
+   * @throws ODKOverQuotaException if the usage quota was exceeded
+   */
+  public List<? extends CommonFieldsBase> executeProjectionQuery(List<DataField> projection, int fetchLimit)
+      throws ODKDatastoreException, ODKOverQuotaException;
+
   /**
    * Returns a list of distinct EntityKeys of the topLevelAuri for the set of records
    * returned by the query.  This should always be an empty or singleton set.
@@ -14,10 +14,16 @@
 package org.opendatakit.common.persistence.engine;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.opendatakit.common.persistence.CommonFieldsBase;
 import org.opendatakit.common.persistence.DataField;
+import org.opendatakit.common.persistence.EntityKey;
 import org.opendatakit.common.persistence.WrappedBigDecimal;
 import org.opendatakit.common.utils.WebUtils;
 
@@ -256,4 +262,51 @@ public class EngineUtils {
         return value;
     }
 
+    /**
+     * Partition the entities into groups that can each be handed to
+     * Datastore.batchAlterData(): every group belongs to a single relation
+     * and is either entirely inserts or entirely updates. The order of first
+     * appearance is preserved both across and within groups.
+     * 
+     * @param entities
+     * @return the list of groups
+     */
+    public static final List<List<CommonFieldsBase>> partitionForBatchAlterData(
+        Collection<? extends CommonFieldsBase> entities) {
+        Map<String, List<CommonFieldsBase>> groups = new LinkedHashMap<String, List<CommonFieldsBase>>();
+        for (CommonFieldsBase entity : entities) {
+            String groupKey = entity.getSchemaName() + "." + entity.getTableName()
+                + (entity.isFromDatabase() ? "|update" : "|insert");
+            List<CommonFieldsBase> group = groups.get(groupKey);
+            if (group == null) {
+                group = new ArrayList<CommonFieldsBase>();
+                groups.put(groupKey, group);
+            }
+            group.add(entity);
+        }
+        return new ArrayList<List<CommonFieldsBase>>(groups.values());
+    }
+
+    /**
+     * Partition the keys by the relation they refer to, preserving the order
+     * of first appearance.
+     * 
+     * @param keys
+     * @return the list of per-relation key lists
+     */
+    public static final List<List<EntityKey>> partitionByRelation(Collection<EntityKey> keys) {
+        Map<String, List<EntityKey>> groups = new LinkedHashMap<String, List<EntityKey>>();
+        for (EntityKey key : keys) {
+            CommonFieldsBase relation = key.getRelation();
+            String groupKey = relation.getSchemaName() + "." + relation.getTableName();
+            List<EntityKey> group = groups.get(groupKey);
+            if (group == null) {
+                group = new ArrayList<EntityKey>();
+                groups.put(groupKey, group);
+            }
+            group.add(key);
+        }
+        return new ArrayList<List<EntityKey>>(groups.values());
+    }
+
 }
@@ -61,6 +61,9 @@ public class DatastoreImpl implements Datastore {
 
   private static final int MAX_IDENTIFIER_LEN = 64;
 
+  // the GAE datastore limits the values of an IN filter to 30
+  private static final int MAX_VALUE_SET_FILTER_SIZE = 30;
+
   private static final Long GAE_MAX_STRING_LEN = 255L;
   // these aren't actually used for filtering...
   public static final Integer DEFAULT_DBL_NUMERIC_SCALE = 10;
@@ -119,6 +122,11 @@ public class DatastoreImpl implements Datastore {
     return MAX_IDENTIFIER_LEN;
   }
 
+  @Override
+  public int getMaxValueSetFilterSize() {
+    return MAX_VALUE_SET_FILTER_SIZE;
+  }
+
   @Override
   public int getMaxLenTableName() {
     return MAX_IDENTIFIER_LEN;
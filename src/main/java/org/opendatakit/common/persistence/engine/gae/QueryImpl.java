@@ -953,6 +953,24 @@ public class QueryImpl implements org.opendatakit.common.persistence.Query {
     }
   }
 
+  /**
+   * The GAE datastore only supports projections over indexed properties, and
+   * the in-memory filtering of the query needs the other fields, so this
+   * fetches the full entities but stops after fetchLimit of them.
+   */
+  @Override
+  public List<? extends CommonFieldsBase> executeProjectionQuery(List<DataField> projection,
+      int fetchLimit) throws ODKDatastoreException, ODKOverQuotaException {
+
+    try {
+      establishDominantSort();
+      CoreResult result = coreExecuteQuery(null, fetchLimit);
+      return result.results;
+    } finally {
+      gaeCostLogger.wrapUp();
+    }
+  }
+
   @Override
   public Set<EntityKey> executeForeignKeyQuery(CommonFieldsBase topLevelTable,
       DataField topLevelAuri) throws ODKDatastoreException, ODKOverQuotaException {
@@ -18,15 +18,19 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.sql.DataSource;
 
 import org.slf4j.LoggerFactory;
 import org.opendatakit.common.persistence.CommonFieldsBase;
+import org.opendatakit.common.persistence.CompositeIndex;
 import org.opendatakit.common.persistence.DataField;
 import org.opendatakit.common.persistence.DataField.IndexType;
 import org.opendatakit.common.persistence.Datastore;
@@ -37,6 +41,7 @@ import org.opendatakit.common.persistence.Query.FilterOperation;
 import org.opendatakit.common.persistence.TaskLock;
 import org.opendatakit.common.persistence.WrappedBigDecimal;
 import org.opendatakit.common.persistence.engine.DatastoreAccessMetrics;
+import org.opendatakit.common.persistence.engine.EngineUtils;
 import org.opendatakit.common.persistence.exception.ODKDatastoreException;
 import org.opendatakit.common.persistence.exception.ODKEntityNotFoundException;
 import org.opendatakit.common.persistence.exception.ODKEntityPersistException;
@@ -64,11 +69,19 @@ public class DatastoreImpl implements Datastore, InitializingBean {
 
   private static final int MAX_COLUMN_NAME_LEN = 64;
   private static final int MAX_TABLE_NAME_LEN = 64;
+  private static final int MAX_INDEX_NAME_LEN = 64;
 
   // unknown what the limit is MySQL capacity; I suspect 64k.
   private static final int MAX_BIND_PARAMS = 65000;
 
+  // well within MAX_BIND_PARAMS; bigger lists make for unwieldy statements
+  private static final int MAX_VALUE_SET_FILTER_SIZE = 1000;
+
   private final DatastoreAccessMetrics dam = new DatastoreAccessMetrics();
+
+  // schema.indexName of the composite indexes already checked by assertRelation
+  private final Set<String> verifiedCompositeIndexes = Collections
+      .newSetFromMap(new ConcurrentHashMap<String, Boolean>());
   private DataSource dataSource = null;
   private DataSourceTransactionManager tm = null;
 
@@ -111,6 +124,8 @@ public class DatastoreImpl implements Datastore, InitializingBean {
   }
 
   public static final String K_CREATE_TABLE = "CREATE TABLE ";
+  public static final String K_CREATE_INDEX = "CREATE INDEX ";
+  public static final String K_ON = " ON ";
   public static final String K_DROP_TABLE = "DROP TABLE ";
   public static final String K_SHOW_CREATE_TABLE = "SHOW CREATE TABLE ";
 
@@ -133,6 +148,7 @@ public class DatastoreImpl implements Datastore, InitializingBean {
   public static final String K_UPDATE = "UPDATE ";
   public static final String K_SET = " SET ";
   public static final String K_DELETE_FROM = "DELETE FROM ";
+  public static final String K_IN = " IN ";
 
   public static final Integer DEFAULT_DBL_NUMERIC_SCALE = 10;
   public static final Integer DEFAULT_DBL_NUMERIC_PRECISION = 38;
@@ -476,6 +492,11 @@ public class DatastoreImpl implements Datastore, InitializingBean {
     return MAX_COLUMN_NAME_LEN;
   }
 
+  @Override
+  public int getMaxValueSetFilterSize() {
+    return MAX_VALUE_SET_FILTER_SIZE;
+  }
+
   @Override
   public int getMaxLenTableName() {
     return MAX_TABLE_NAME_LEN;
@@ -588,6 +609,7 @@ public class DatastoreImpl implements Datastore, InitializingBean {
         // it exists -- we're done!
         tm.commit(status);
         status = null;
+        assertCompositeIndexes(jc, relation);
         return;
       } else {
         tm.commit(status);
@@ -741,6 +763,8 @@ public class DatastoreImpl implements Datastore, InitializingBean {
         // and update the relation with actual dimensions...
         updateRelation(jc, relation, createTableStmt);
         tm.commit(status);
+        status = null;
+        assertCompositeIndexes(jc, relation);
       }
     } catch (Exception e) {
       if (status != null) {
@@ -752,6 +776,102 @@ public class DatastoreImpl implements Datastore, InitializingBean {
     }
   }
 
+  /**
+   * Construct a 3-character or more prefix for use in the index name.
+   *
+   * @param name
+   * @return
+   */
+  private String shortPrefix(String name) {
+    StringBuilder b = new StringBuilder();
+    String[] splits = name.split("_");
+    for (int i = 0; i < splits.length; ++i) {
+      if (splits[i].length() > 0) {
+        b.append(splits[i].charAt(0));
+      }
+    }
+    if (b.length() < 3) {
+      b.append(Integer.toString(name.length() % 10));
+    }
+    return b.toString().toLowerCase();
+  }
+
+  private static final String COMPOSITE_INDEX_EXISTS_QUERY = "SELECT COUNT(1) FROM information_schema.STATISTICS"
+      + " WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ? AND INDEX_NAME = ?";
+
+  /**
+   * Create any of the relation's composite indexes that do not yet exist.
+   * Unlike the single-column indexes, these are also added to tables created
+   * before the index was declared. Each index is checked once per server
+   * lifetime. An index only speeds up queries, so failing to create one is
+   * logged rather than failing the relation.
+   *
+   * @param jc
+   * @param relation
+   */
+  private void assertCompositeIndexes(JdbcTemplate jc, CommonFieldsBase relation) {
+    for (CompositeIndex index : relation.getCompositeIndexList()) {
+      String idxName = compositeIndexName(relation, index);
+      if (!verifiedCompositeIndexes.add(relation.getSchemaName() + "." + idxName)) {
+        continue;
+      }
+      try {
+        Integer count = jc.queryForObject(COMPOSITE_INDEX_EXISTS_QUERY, new Object[] {
+            relation.getSchemaName(), relation.getTableName(), idxName }, Integer.class);
+        if (count == null || count == 0) {
+          createCompositeIndex(jc, relation, idxName, index);
+        }
+      } catch (Exception e) {
+        LoggerFactory.getLogger(DatastoreImpl.class)
+            .warn("Unable to create index " + idxName + " exception: " + e.toString());
+      }
+    }
+  }
+
+  private String compositeIndexName(CommonFieldsBase tbl, CompositeIndex index) {
+    StringBuilder b = new StringBuilder();
+    b.append(tbl.getTableName());
+    b.append("_cx_");
+    for (String name : index.getColumnNames()) {
+      b.append(shortPrefix(name));
+    }
+    return CompositeIndex.limitName(b.toString(), MAX_INDEX_NAME_LEN);
+  }
+
+  private void createCompositeIndex(JdbcTemplate jc, CommonFieldsBase tbl, String idxName,
+      CompositeIndex index) {
+    StringBuilder b = new StringBuilder();
+
+    b.append(K_CREATE_INDEX);
+    b.append(K_BQ);
+    b.append(idxName);
+    b.append(K_BQ);
+    b.append(K_ON);
+    b.append(K_BQ);
+    b.append(tbl.getSchemaName());
+    b.append(K_BQ);
+    b.append(".");
+    b.append(K_BQ);
+    b.append(tbl.getTableName());
+    b.append(K_BQ);
+    b.append(" (");
+    boolean first = true;
+    for (String name : index.getColumnNames()) {
+      if (!first) {
+        b.append(K_CS);
+      }
+      first = false;
+      b.append(K_BQ);
+      b.append(name);
+      b.append(K_BQ);
+    }
+    b.append(" )");
+
+    String createIndexStmt = b.toString();
+    LoggerFactory.getLogger(DatastoreImpl.class).info("Attempting: " + createIndexStmt);
+    jc.execute(createIndexStmt);
+  }
+
   @Override
   public boolean hasRelation(String schema, String tableName, User user) {
     // Query for the create table string.
@@ -796,6 +916,11 @@ public class DatastoreImpl implements Datastore, InitializingBean {
       LoggerFactory.getLogger(DatastoreImpl.class)
           .info("Executing " + b.toString() + " by user " + user.getUriUser());
       getJdbcConnection().execute(b.toString());
+      // the table's indexes are gone with it
+      for (CompositeIndex index : relation.getCompositeIndexList()) {
+        verifiedCompositeIndexes.remove(relation.getSchemaName() + "."
+            + compositeIndexName(relation, index));
+      }
     } catch (Exception e) {
       LoggerFactory.getLogger(DatastoreImpl.class)
           .warn(relation.getTableName() + " exception: " + e.toString());
@@ -1037,8 +1162,14 @@ public class DatastoreImpl implements Datastore, InitializingBean {
   @Override
   public void putEntities(Collection<? extends CommonFieldsBase> entityList, User user)
       throws ODKEntityPersistException {
-    for (CommonFieldsBase d : entityList) {
-      putEntity(d, user);
+    // batchAlterData requires that all entities be of the same relation
+    // and either all inserts or all updates.
+    for (List<CommonFieldsBase> group : EngineUtils.partitionForBatchAlterData(entityList)) {
+      if (group.size() == 1) {
+        putEntity(group.get(0), user);
+      } else {
+        batchAlterData(group, user);
+      }
     }
   }
 
@@ -1259,16 +1390,66 @@ public class DatastoreImpl implements Datastore, InitializingBean {
     }
   }
 
+  private void partialDeleteEntities(List<EntityKey> relationKeys, int idxStart,
+      int idxAfterEnd, User user) throws ODKDatastoreException {
+
+    try {
+      CommonFieldsBase d = relationKeys.get(idxStart).getRelation();
+
+      StringBuilder b = new StringBuilder();
+      b.append(K_DELETE_FROM);
+      b.append(K_BQ);
+      b.append(d.getSchemaName());
+      b.append(K_BQ);
+      b.append(".");
+      b.append(K_BQ);
+      b.append(d.getTableName());
+      b.append(K_BQ);
+      b.append(K_WHERE);
+      b.append(K_BQ);
+      b.append(d.primaryKey.getName());
+      b.append(K_BQ);
+      b.append(K_IN);
+      b.append(K_OPEN_PAREN);
+
+      Object[] args = new Object[idxAfterEnd - idxStart];
+      for (int idx = idxStart; idx < idxAfterEnd; ++idx) {
+        EntityKey key = relationKeys.get(idx);
+        dam.recordDeleteUsage(key);
+        if (idx != idxStart) {
+          b.append(K_CS);
+        }
+        b.append(K_BIND_VALUE);
+        args[idx - idxStart] = key.getKey();
+      }
+      b.append(K_CLOSE_PAREN);
+
+      LoggerFactory.getLogger(DatastoreImpl.class).info("Executing " + K_DELETE_FROM
+          + d.getSchemaName() + "." + d.getTableName() + " with " + args.length
+          + " keys by user " + user.getUriUser());
+      getJdbcConnection().update(b.toString(), args);
+    } catch (Exception e) {
+      throw new ODKDatastoreException("delete failed", e);
+    }
+  }
+
   @Override
   public void deleteEntities(Collection<EntityKey> keys, User user) throws ODKDatastoreException {
     ODKDatastoreException e = null;
-    for (EntityKey k : keys) {
-      try {
-        deleteEntity(k, user);
-      } catch (ODKDatastoreException ex) {
-        ex.printStackTrace();
-        if (e == null) {
-          e = ex; // save the first exception...
+    for (List<EntityKey> relationKeys : EngineUtils.partitionByRelation(keys)) {
+      // each key is one bind parameter of the IN (...) list.
+      for (int idxStart = 0; idxStart < relationKeys.size(); idxStart += MAX_VALUE_SET_FILTER_SIZE) {
+        int idxAfterEnd = idxStart + MAX_VALUE_SET_FILTER_SIZE;
+        if (idxAfterEnd > relationKeys.size()) {
+          idxAfterEnd = relationKeys.size();
+        }
+        try {
+          partialDeleteEntities(relationKeys, idxStart, idxAfterEnd, user);
+        } catch (ODKDatastoreException ex) {
+          ex.printStackTrace();
+          if (e == null) {
+            e = ex; // save the first exception...
+          }
         }
       }
     }
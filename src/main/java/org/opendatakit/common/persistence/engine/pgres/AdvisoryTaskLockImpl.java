@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2018 University of Washington
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.opendatakit.common.persistence.engine.pgres;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.opendatakit.common.persistence.engine.DatastoreAccessMetrics;
+import org.opendatakit.common.security.User;
+
+/**
+ * Task lock implementation that serializes the manipulation of the task lock
+ * table with a PostgreSQL transaction-scoped advisory lock keyed by the
+ * (formId, taskType) of the lock, rather than an exclusive lock on the entire
+ * table. Lock requests for different resources therefore proceed in parallel.
+ * <p>
+ * The lock records themselves, and their expiration handling for crashed
+ * holders, are unchanged from {@link TaskLockImpl}. Because every writer of a
+ * given (formId, taskType) holds the advisory lock, the transaction can run at
+ * READ COMMITTED instead of SERIALIZABLE.
+ * <p>
+ * Only the expired locks of the (formId, taskType) being manipulated are
+ * deleted, since those of other resources are not covered by the advisory
+ * lock: deleting one could race with a late renewal by its holder. The
+ * expired locks of a resource are removed by its next lock request; until
+ * then they have no effect.
+ * <p>
+ * Enable with the <code>useAdvisoryTaskLocks</code> property of the
+ * <code>datastore</code> bean.
+ */
+public class AdvisoryTaskLockImpl extends TaskLockImpl {
+
+  private static final long FNV_64_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_64_PRIME = 0x100000001b3L;
+
+  AdvisoryTaskLockImpl(DatastoreImpl datastore, DatastoreAccessMetrics dam, User user) {
+    super(datastore, dam, user);
+  }
+
+  /**
+   * Compute the 64-bit advisory lock key for a task lock. The schema and table
+   * name are folded in so that distinct Aggregate instances sharing a database
+   * do not contend with each other.
+   *
+   * @param tableName
+   * @param formId
+   * @param taskType
+   * @return FNV-1a hash of the identifying strings
+   */
+  static long advisoryLockKey(String tableName, String formId, String taskType) {
+    String composite = tableName + "|" + formId + "|" + taskType;
+    long hash = FNV_64_OFFSET_BASIS;
+    for (byte b : composite.getBytes(StandardCharsets.UTF_8)) {
+      hash ^= (b & 0xff);
+      hash *= FNV_64_PRIME;
+    }
+    return hash;
+  }
+
+  @Override
+  int getLockTransactionIsolation() {
+    return Connection.TRANSACTION_READ_COMMITTED;
+  }
+
+  @Override
+  boolean serializesAllLocks() {
+    return false;
+  }
+
+  @Override
+  boolean serializeLockTransaction(Statement stmt, String tableName, String formId,
+      String taskType, boolean mustWait) throws SQLException {
+    long key = advisoryLockKey(tableName, formId, taskType);
+    if (mustWait) {
+      stmt.execute("SELECT pg_advisory_xact_lock(" + Long.toString(key) + ")");
+      return true;
+    }
+    ResultSet rs = stmt.executeQuery("SELECT pg_try_advisory_xact_lock(" + Long.toString(key)
+        + ")");
+    try {
+      return rs.next() && rs.getBoolean(1);
+    } finally {
+      rs.close();
+    }
+  }
+}
@@ -16,6 +16,7 @@ package org.opendatakit.common.persistence.engine.pgres;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Date;
+import java.util.List;
 
 import org.opendatakit.common.persistence.CommonFieldsBase;
 import org.opendatakit.common.persistence.DataField;
@@ -33,9 +34,24 @@ public class RelationRowMapper implements RowMapper<CommonFieldsBase> {
 
   private final CommonFieldsBase relation;
   private final User user;
+  private final List<DataField> fields;
 
   RelationRowMapper(CommonFieldsBase relation, User user) {
+    this(relation, relation.getFieldList(), user);
+  }
+
+  /**
+   * Maps only the given columns of the result set; the other fields of the
+   * returned rows are left unset.
+   *
+   * @param relation
+   * @param fields
+   *          - the columns present in the result set.
+   * @param user
+   */
+  RelationRowMapper(CommonFieldsBase relation, List<DataField> fields, User user) {
     this.relation = relation;
+    this.fields = fields;
     this.user = user;
   }
 
@@ -53,7 +69,7 @@ public class RelationRowMapper implements RowMapper<CommonFieldsBase> {
     /**
      * Correct for the funky handling of nulls by the various accessors...
      */
-    for (DataField f : relation.getFieldList()) {
+    for (DataField f : fields) {
       switch (f.getDataType()) {
       case BINARY:
         byte[] blobBytes = rs.getBytes(f.getName());
@@ -60,6 +60,45 @@ public class TaskLockImpl implements TaskLock {
 
   private static final String K_BQ = "\"";
 
+  /**
+   * @return the isolation level of the transaction that manipulates the task
+   *         lock table.
+   */
+  int getLockTransactionIsolation() {
+    return Connection.TRANSACTION_SERIALIZABLE;
+  }
+
+  /**
+   * Called at the start of the task lock transaction to serialize it against
+   * all other manipulations of the same lock. This implementation takes an
+   * exclusive lock on the whole task lock table.
+   * 
+   * @param stmt
+   * @param tableName
+   *          fully-qualified and quoted name of the task lock table
+   * @param formId
+   * @param taskType
+   * @param mustWait
+   *          true if this must block until the serialization is obtained
+   * @return false if the serialization could not be obtained
+   * @throws SQLException
+   */
+  boolean serializeLockTransaction(Statement stmt, String tableName, String formId,
+      String taskType, boolean mustWait) throws SQLException {
+    stmt.execute("LOCK TABLE " + tableName + " IN ACCESS EXCLUSIVE MODE");
+    return true;
+  }
+
+  /**
+   * @return true if serializeLockTransaction serializes against the
+   *         manipulation of every lock, so that the transaction may delete the
+   *         expired locks of all resources. Otherwise, only the expired locks
+   *         of the resource being manipulated are deleted.
+   */
+  boolean serializesAllLocks() {
+    return true;
+  }
+
   private TaskLockTable doTransaction(TaskLockTable entity, long l)
       throws ODKEntityNotFoundException, ODKTaskLockException {
     boolean first;
@@ -88,9 +127,12 @@ public class TaskLockImpl implements TaskLock {
     String lifetimeIntervalMilliseconds = b.toString();
     b.setLength(0);
 
-    b.append("LOCK TABLE ").append(tableName).append(" IN ACCESS EXCLUSIVE MODE");
-    stmts.add(b.toString());
-    b.setLength(0);
+    final String lockTableName = tableName;
+    final String lockFormId = entity.getFormId();
+    final String lockTaskType = entity.getTaskType();
+    // a renewal must not give up if another request is contending for the
+    // same resource; a new acquisition may.
+    final boolean mustWait = entity.isFromDatabase();
 
     dam.recordPutUsage(TaskLockTable.TABLE_NAME);
     if (!entity.isFromDatabase()) {
@@ -182,6 +224,13 @@ public class TaskLockImpl implements TaskLock {
     dam.recordDeleteUsage(TaskLockTable.TABLE_NAME);
     b.append("DELETE FROM ").append(tableName).append(" WHERE ");
     b.append(K_BQ).append(entity.expirationDateTime.getName()).append(K_BQ).append(" <= NOW()");
+    if (!serializesAllLocks()) {
+      b.append(" AND ");
+      b.append(K_BQ).append(entity.formId.getName()).append(K_BQ).append(" = ")
+          .append(formIdInline).append(" AND ");
+      b.append(K_BQ).append(entity.taskType.getName()).append(K_BQ).append(" = ")
+          .append(taskTypeInline);
+    }
     stmts.add(b.toString());
     b.setLength(0);
     // delete prospective locks which are not the oldest for that resource and
@@ -234,8 +283,16 @@ public class TaskLockImpl implements TaskLock {
           int oldTransactionValue = conn.getTransactionIsolation();
           try {
             conn.setAutoCommit(false);
-            conn.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+            conn.setTransactionIsolation(getLockTransactionIsolation());
             Statement stmt = conn.createStatement();
+            if (!serializeLockTransaction(stmt, lockTableName, lockFormId, lockTaskType,
+                mustWait)) {
+              // another request is manipulating this lock -- give up.
+              conn.rollback();
+              conn.setTransactionIsolation(oldTransactionValue);
+              conn.setAutoCommit(oldAutoCommitValue);
+              return null;
+            }
             for (String s : stmts) {
               // for debugging: LoggerFactory.getLogger(TaskLockImpl.class).info(s);
               stmt.execute(s);
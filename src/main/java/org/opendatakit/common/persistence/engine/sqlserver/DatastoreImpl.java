@@ -20,16 +20,20 @@ import java.sql.SQLException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.sql.DataSource;
 
 import org.slf4j.LoggerFactory;
 import org.opendatakit.common.persistence.CommonFieldsBase;
+import org.opendatakit.common.persistence.CompositeIndex;
 import org.opendatakit.common.persistence.DataField;
 import org.opendatakit.common.persistence.DataField.DataType;
 import org.opendatakit.common.persistence.DataField.IndexType;
@@ -41,6 +45,7 @@ import org.opendatakit.common.persistence.Query.FilterOperation;
 import org.opendatakit.common.persistence.TaskLock;
 import org.opendatakit.common.persistence.WrappedBigDecimal;
 import org.opendatakit.common.persistence.engine.DatastoreAccessMetrics;
+import org.opendatakit.common.persistence.engine.EngineUtils;
 import org.opendatakit.common.persistence.exception.ODKDatastoreException;
 import org.opendatakit.common.persistence.exception.ODKEntityNotFoundException;
 import org.opendatakit.common.persistence.exception.ODKEntityPersistException;
@@ -71,18 +76,27 @@ public class DatastoreImpl implements Datastore, InitializingBean {
   // and the same limit applies to table names.
   private static final int MAX_TABLE_NAME_LEN = 112; // reserve 4 char for idx
                                                      // name
+  // identifiers, including index names, are limited to 128 characters.
+  private static final int MAX_INDEX_NAME_LEN = 128;
 
   static final long MAX_IN_ROW_NVARCHAR = 4000L;
   
   // limit on SqlServer capacity (minus about 100 for where clause filters)
   private static final int MAX_BIND_PARAMS = 2000;
 
+  // well within MAX_BIND_PARAMS; bigger lists make for unwieldy statements
+  private static final int MAX_VALUE_SET_FILTER_SIZE = 1000;
+
   static final String PATTERN_ISO8601_NO_ZONE = "yyyy-MM-dd'T'HH:mm:ss.SSS";
 
   // limit to 256MB blob size; don't know the impact of this...
   private static final Long MAX_BLOB_SIZE = 65536 * 4096L;
 
   private final DatastoreAccessMetrics dam = new DatastoreAccessMetrics();
+
+  // schema.indexName of the composite indexes already checked by assertRelation
+  private final Set<String> verifiedCompositeIndexes = Collections
+      .newSetFromMap(new ConcurrentHashMap<String, Boolean>());
   private DataSource dataSource = null;
   private DataSourceTransactionManager tm = null;
 
@@ -139,6 +153,7 @@ public class DatastoreImpl implements Datastore, InitializingBean {
   public static final String K_UPDATE = "UPDATE ";
   public static final String K_SET = " SET ";
   public static final String K_DELETE_FROM = "DELETE FROM ";
+  public static final String K_IN = " IN ";
 
   public static final Integer DEFAULT_DBL_NUMERIC_SCALE = 10;
   public static final Integer DEFAULT_DBL_NUMERIC_PRECISION = 38;
@@ -443,6 +458,11 @@ public class DatastoreImpl implements Datastore, InitializingBean {
     return MAX_COLUMN_NAME_LEN;
   }
 
+  @Override
+  public int getMaxValueSetFilterSize() {
+    return MAX_VALUE_SET_FILTER_SIZE;
+  }
+
   @Override
   public int getMaxLenTableName() {
     return MAX_TABLE_NAME_LEN;
@@ -562,6 +582,7 @@ public class DatastoreImpl implements Datastore, InitializingBean {
         // it exists -- we're done!
         tm.commit(status);
         status = null;
+        assertCompositeIndexes(jc, relation);
         return;
       } else {
         tm.commit(status);
@@ -705,6 +726,8 @@ public class DatastoreImpl implements Datastore, InitializingBean {
         // and update the relation with actual dimensions...
         updateRelation(jc, relation, createTableStmt);
         tm.commit(status);
+        status = null;
+        assertCompositeIndexes(jc, relation);
       }
     } catch (Exception e) {
       if (status != null) {
@@ -770,6 +793,84 @@ public class DatastoreImpl implements Datastore, InitializingBean {
     return alreadyClustered;
   }
 
+  private static final String COMPOSITE_INDEX_EXISTS_QUERY = "SELECT COUNT(1) FROM sys.indexes i"
+      + " JOIN sys.tables t ON i.object_id = t.object_id"
+      + " JOIN sys.schemas s ON t.schema_id = s.schema_id"
+      + " WHERE s.name = ? AND t.name = ? AND i.name = ?";
+
+  /**
+   * Create any of the relation's composite indexes that do not yet exist.
+   * Unlike the single-column indexes, these are also added to tables created
+   * before the index was declared. Each index is checked once per server
+   * lifetime. An index only speeds up queries, so failing to create one is
+   * logged rather than failing the relation.
+   *
+   * @param jc
+   * @param relation
+   */
+  private void assertCompositeIndexes(JdbcTemplate jc, CommonFieldsBase relation) {
+    for (CompositeIndex index : relation.getCompositeIndexList()) {
+      String idxName = compositeIndexName(relation, index);
+      if (!verifiedCompositeIndexes.add(relation.getSchemaName() + "." + idxName)) {
+        continue;
+      }
+      try {
+        Integer count = jc.queryForObject(COMPOSITE_INDEX_EXISTS_QUERY, new Object[] {
+            relation.getSchemaName(), relation.getTableName(), idxName }, Integer.class);
+        if (count == null || count == 0) {
+          createCompositeIndex(jc, relation, idxName, index);
+        }
+      } catch (Exception e) {
+        LoggerFactory.getLogger(DatastoreImpl.class)
+            .warn("Unable to create index " + idxName + " exception: " + e.toString());
+      }
+    }
+  }
+
+  private String compositeIndexName(CommonFieldsBase tbl, CompositeIndex index) {
+    StringBuilder b = new StringBuilder();
+    b.append(tbl.getTableName());
+    b.append("_cx_");
+    for (String name : index.getColumnNames()) {
+      b.append(shortPrefix(name));
+    }
+    return CompositeIndex.limitName(b.toString(), MAX_INDEX_NAME_LEN);
+  }
+
+  private void createCompositeIndex(JdbcTemplate jc, CommonFieldsBase tbl, String idxName,
+      CompositeIndex index) {
+    StringBuilder b = new StringBuilder();
+
+    b.append(K_CREATE_NONCLUSTERED_INDEX);
+    b.append(K_BQ);
+    b.append(idxName);
+    b.append(K_BQ);
+    b.append(K_ON);
+    b.append(K_BQ);
+    b.append(tbl.getSchemaName());
+    b.append(K_BQ);
+    b.append(".");
+    b.append(K_BQ);
+    b.append(tbl.getTableName());
+    b.append(K_BQ);
+    b.append(" (");
+    boolean first = true;
+    for (String name : index.getColumnNames()) {
+      if (!first) {
+        b.append(K_CS);
+      }
+      first = false;
+      b.append(K_BQ);
+      b.append(name);
+      b.append(K_BQ);
+    }
+    b.append(" )");
+
+    String createIndexStmt = b.toString();
+    LoggerFactory.getLogger(DatastoreImpl.class).info("Attempting: " + createIndexStmt);
+    jc.execute(createIndexStmt);
+  }
+
   @Override
   public boolean hasRelation(String schema, String tableName, User user) {
     dam.recordQueryUsage(TableDefinition.INFORMATION_SCHEMA_COLUMNS, 1);
@@ -795,6 +896,11 @@ public class DatastoreImpl implements Datastore, InitializingBean {
       LoggerFactory.getLogger(DatastoreImpl.class)
           .info("Executing " + b.toString() + " by user " + user.getUriUser());
       getJdbcConnection().execute(b.toString());
+      // the table's indexes are gone with it
+      for (CompositeIndex index : relation.getCompositeIndexList()) {
+        verifiedCompositeIndexes.remove(relation.getSchemaName() + "."
+            + compositeIndexName(relation, index));
+      }
     } catch (Exception e) {
       LoggerFactory.getLogger(DatastoreImpl.class)
           .warn(relation.getTableName() + " exception: " + e.toString());
@@ -1052,8 +1158,14 @@ public class DatastoreImpl implements Datastore, InitializingBean {
   @Override
   public void putEntities(Collection<? extends CommonFieldsBase> entityList, User user)
       throws ODKEntityPersistException {
-    for (CommonFieldsBase d : entityList) {
-      putEntity(d, user);
+    // batchAlterData requires that all entities be of the same relation
+    // and either all inserts or all updates.
+    for (List<CommonFieldsBase> group : EngineUtils.partitionForBatchAlterData(entityList)) {
+      if (group.size() == 1) {
+        putEntity(group.get(0), user);
+      } else {
+        batchAlterData(group, user);
+      }
     }
   }
 
@@ -1274,16 +1386,66 @@ public class DatastoreImpl implements Datastore, InitializingBean {
     }
   }
 
+  private void partialDeleteEntities(List<EntityKey> relationKeys, int idxStart,
+      int idxAfterEnd, User user) throws ODKDatastoreException {
+
+    try {
+      CommonFieldsBase d = relationKeys.get(idxStart).getRelation();
+
+      StringBuilder b = new StringBuilder();
+      b.append(K_DELETE_FROM);
+      b.append(K_BQ);
+      b.append(d.getSchemaName());
+      b.append(K_BQ);
+      b.append(".");
+      b.append(K_BQ);
+      b.append(d.getTableName());
+      b.append(K_BQ);
+      b.append(K_WHERE);
+      b.append(K_BQ);
+      b.append(d.primaryKey.getName());
+      b.append(K_BQ);
+      b.append(K_IN);
+      b.append(K_OPEN_PAREN);
+
+      Object[] args = new Object[idxAfterEnd - idxStart];
+      for (int idx = idxStart; idx < idxAfterEnd; ++idx) {
+        EntityKey key = relationKeys.get(idx);
+        dam.recordDeleteUsage(key);
+        if (idx != idxStart) {
+          b.append(K_CS);
+        }
+        b.append(K_BIND_VALUE);
+        args[idx - idxStart] = key.getKey();
+      }
+      b.append(K_CLOSE_PAREN);
+
+      LoggerFactory.getLogger(DatastoreImpl.class).info("Executing " + K_DELETE_FROM
+          + d.getSchemaName() + "." + d.getTableName() + " with " + args.length
+          + " keys by user " + user.getUriUser());
+      getJdbcConnection().update(b.toString(), args);
+    } catch (Exception e) {
+      throw new ODKDatastoreException("delete failed", e);
+    }
+  }
+
   @Override
   public void deleteEntities(Collection<EntityKey> keys, User user) throws ODKDatastoreException {
     ODKDatastoreException e = null;
-    for (EntityKey k : keys) {
-      try {
-        deleteEntity(k, user);
-      } catch (ODKDatastoreException ex) {
-        ex.printStackTrace();
-        if (e == null) {
-          e = ex; // save the first exception...
+    for (List<EntityKey> relationKeys : EngineUtils.partitionByRelation(keys)) {
+      // each key is one bind parameter of the IN (...) list.
+      for (int idxStart = 0; idxStart < relationKeys.size(); idxStart += MAX_VALUE_SET_FILTER_SIZE) {
+        int idxAfterEnd = idxStart + MAX_VALUE_SET_FILTER_SIZE;
+        if (idxAfterEnd > relationKeys.size()) {
+          idxAfterEnd = relationKeys.size();
+        }
+        try {
+          partialDeleteEntities(relationKeys, idxStart, idxAfterEnd, user);
+        } catch (ODKDatastoreException ex) {
+          ex.printStackTrace();
+          if (e == null) {
+            e = ex; // save the first exception...
+          }
         }
       }
     }
@@ -49,6 +49,7 @@ public class QueryImpl implements Query {
   private static final String K_IS_NOT_NULL = " IS NOT NULL ";
   private static final String K_SELECT = "SELECT ";
   private static final String K_SELECT_DISTINCT = "SELECT DISTINCT ";
+  private static final String K_TOP_OPEN = "TOP (";
   private static final String K_BQ = "\"";
   private static final String K_CS = ", ";
   private static final String K_FROM = " FROM ";
@@ -58,6 +59,11 @@ public class QueryImpl implements Query {
   private static final String K_IN_CLOSE = ")";
   private static final String K_BIND_VALUE = " ? ";
   private static final String K_ORDER_BY = " ORDER BY ";
+  private static final String K_OPEN_PAREN = " (";
+  private static final String K_CLOSE_PAREN = ") ";
+  private static final String K_OR = " OR ";
+  private static final String K_OFFSET_FETCH_OPEN = " OFFSET 0 ROWS FETCH NEXT ";
+  private static final String K_OFFSET_FETCH_CLOSE = " ROWS ONLY";
 
   private static Map<FilterOperation, String> operationMap = new HashMap<FilterOperation, String>();
   private static Map<Direction, String> directionMap = new HashMap<Direction, String>();
@@ -81,6 +87,9 @@ public class QueryImpl implements Query {
   private DataField dominantSortAttr = null;
   private Direction dominantSortDirection = null;
   private boolean isSortedByUri = false;
+  private int sortAttrCount = 0;
+  private int uriSortPosition = 0;
+  private Direction uriSortDirection = null;
 
   private final StringBuilder queryBindBuilder = new StringBuilder();
   private final List<Object> bindValues = new ArrayList<Object>();
@@ -148,6 +157,55 @@ public class QueryImpl implements Query {
     return baseQueryBuilder.toString();
   }
 
+  private List<DataField> getProjectionFields(List<DataField> projection) {
+    List<DataField> fields = new ArrayList<DataField>();
+    fields.add(relation.primaryKey);
+    for (DataField f : projection) {
+      if (!relation.getFieldList().contains(f)) {
+        throw new IllegalStateException("Attempting to retrieve non-existent data field "
+            + f.getName() + " from " + relation.getSchemaName() + "."
+            + relation.getTableName());
+      }
+      if (!fields.contains(f)) {
+        fields.add(f);
+      }
+    }
+    return fields;
+  }
+
+  private String generateProjectionQuery(List<DataField> fields, int fetchLimit) {
+    StringBuilder baseQueryBuilder = new StringBuilder();
+    // generate the query
+    baseQueryBuilder.append(K_SELECT);
+    if (fetchLimit != 0) {
+      // OFFSET ... FETCH requires an ORDER BY clause; TOP does not.
+      baseQueryBuilder.append(K_TOP_OPEN);
+      baseQueryBuilder.append(Integer.toString(fetchLimit));
+      baseQueryBuilder.append(K_CLOSE_PAREN);
+    }
+
+    boolean first = true;
+    for (DataField f : fields) {
+      if (!first) {
+        baseQueryBuilder.append(K_CS);
+      }
+      first = false;
+      baseQueryBuilder.append(K_BQ);
+      baseQueryBuilder.append(f.getName());
+      baseQueryBuilder.append(K_BQ);
+    }
+    baseQueryBuilder.append(K_FROM);
+    baseQueryBuilder.append(K_BQ);
+    baseQueryBuilder.append(relation.getSchemaName());
+    baseQueryBuilder.append(K_BQ);
+    baseQueryBuilder.append(".");
+    baseQueryBuilder.append(K_BQ);
+    baseQueryBuilder.append(relation.getTableName());
+    baseQueryBuilder.append(K_BQ);
+
+    return baseQueryBuilder.toString();
+  }
+
   @Override
   public void addFilter(DataField attributeName, FilterOperation op, Object value) {
     if (queryBindBuilder.length() == 0) {
@@ -206,6 +264,103 @@ public class QueryImpl implements Query {
     return values;
   }
 
+  /**
+   * Keyset pagination is only possible when the sort order is fully determined
+   * by the dominant sort attribute and the PK, sorted in the same direction.
+   * Any intermediate sort column would make the (dominantAttr, PK) tuple an
+   * incorrect resume position.
+   * 
+   * @return true if the continuation can be expressed as a tuple comparison
+   */
+  private boolean isKeysetContinuationSupported() {
+    if (!isSortedByUri || dominantSortAttr == null) {
+      return false;
+    }
+    if (dominantSortAttr.equals(relation.primaryKey)) {
+      return true;
+    }
+    return uriSortPosition == 2 && dominantSortDirection.equals(uriSortDirection);
+  }
+
+  /**
+   * Constructs the keyset filter clause to append to the Query filters to
+   * resume strictly after the last-returned (dominantAttr, PK) tuple. Unlike
+   * {@link #addContinuationFilter(StringBuilder, Object)}, this does not
+   * require re-reading and discarding the earlier members of a tie group.
+   * 
+   * @param queryContinuationBindBuilder
+   * @param continuationValue
+   * @param uriLastReturnedValue
+   * @return the updated bindArgs
+   */
+  private ArrayList<Object> addKeysetContinuationFilter(
+      StringBuilder queryContinuationBindBuilder, Object continuationValue,
+      String uriLastReturnedValue) {
+    if (dominantSortAttr == null) {
+      throw new IllegalStateException("unexpected state");
+    }
+    if (continuationValue == null) {
+      throw new IllegalStateException("unexpected state");
+    }
+
+    if (queryBindBuilder.length() == 0) {
+      queryContinuationBindBuilder.append(K_WHERE);
+    } else {
+      queryContinuationBindBuilder.append(K_AND);
+    }
+
+    if (dominantSortAttr.equals(relation.primaryKey)) {
+      queryContinuationBindBuilder.append(K_BQ);
+      queryContinuationBindBuilder.append(relation.primaryKey.getName());
+      queryContinuationBindBuilder.append(K_BQ);
+      queryContinuationBindBuilder.append(operationMap.get(dominantSortDirection
+          .equals(Direction.ASCENDING) ? FilterOperation.GREATER_THAN
+          : FilterOperation.LESS_THAN));
+      queryContinuationBindBuilder.append(K_BIND_VALUE);
+
+      ArrayList<Object> values = new ArrayList<Object>();
+      values.addAll(bindValues);
+      values.add(DatastoreImpl.getBindValue(relation.primaryKey, uriLastReturnedValue));
+      return values;
+    }
+
+    // SQL Server has no row-value comparisons. The leading range predicate
+    // keeps an index seek on the dominant sort attribute; the disjunction
+    // then skips over the already-returned portion of any tie group.
+    FilterOperation strictOp = dominantSortDirection.equals(Direction.ASCENDING)
+        ? FilterOperation.GREATER_THAN : FilterOperation.LESS_THAN;
+    FilterOperation inclusiveOp = dominantSortDirection.equals(Direction.ASCENDING)
+        ? FilterOperation.GREATER_THAN_OR_EQUAL : FilterOperation.LESS_THAN_OR_EQUAL;
+    queryContinuationBindBuilder.append(K_BQ);
+    queryContinuationBindBuilder.append(dominantSortAttr.getName());
+    queryContinuationBindBuilder.append(K_BQ);
+    queryContinuationBindBuilder.append(operationMap.get(inclusiveOp));
+    queryContinuationBindBuilder.append(K_BIND_VALUE);
+    queryContinuationBindBuilder.append(K_AND);
+    queryContinuationBindBuilder.append(K_OPEN_PAREN);
+    queryContinuationBindBuilder.append(K_BQ);
+    queryContinuationBindBuilder.append(dominantSortAttr.getName());
+    queryContinuationBindBuilder.append(K_BQ);
+    queryContinuationBindBuilder.append(operationMap.get(strictOp));
+    queryContinuationBindBuilder.append(K_BIND_VALUE);
+    queryContinuationBindBuilder.append(K_OR);
+    queryContinuationBindBuilder.append(K_BQ);
+    queryContinuationBindBuilder.append(relation.primaryKey.getName());
+    queryContinuationBindBuilder.append(K_BQ);
+    queryContinuationBindBuilder.append(operationMap.get(strictOp));
+    queryContinuationBindBuilder.append(K_BIND_VALUE);
+    queryContinuationBindBuilder.append(K_CLOSE_PAREN);
+
+    ArrayList<Object> values = new ArrayList<Object>();
+    values.addAll(bindValues);
+    Object bindValue = DatastoreImpl.getBindValue(dominantSortAttr, continuationValue);
+    values.add(bindValue);
+    values.add(bindValue);
+    values.add(DatastoreImpl.getBindValue(relation.primaryKey, uriLastReturnedValue));
+
+    return values;
+  }
+
   @Override
   public void addValueSetFilter(DataField attributeName, Collection<?> valueSet) {
     if (queryBindBuilder.length() == 0) {
@@ -247,9 +402,13 @@ public class QueryImpl implements Query {
       dominantSortDirection = direction;
     }
 
+    ++sortAttrCount;
+
     // track whether or not the PK is a sort criteria
     if (attributeName.equals(relation.primaryKey)) {
       isSortedByUri = true;
+      uriSortPosition = sortAttrCount;
+      uriSortDirection = direction;
     }
   }
 
@@ -274,6 +433,31 @@ public class QueryImpl implements Query {
     }
   }
 
+  @Override
+  public List<? extends CommonFieldsBase> executeProjectionQuery(List<DataField> projection,
+      int fetchLimit) throws ODKDatastoreException {
+
+    List<DataField> fields = getProjectionFields(projection);
+    StringBuilder query = new StringBuilder();
+    query.append(generateProjectionQuery(fields, fetchLimit));
+    query.append(queryBindBuilder.toString());
+    query.append(querySortBuilder.toString());
+    query.append(";");
+    RowMapper<? extends CommonFieldsBase> rowMapper = new RelationRowMapper(relation, fields, user);
+
+    try {
+      queryStringLogger.debug(query.toString());
+      List<? extends CommonFieldsBase> l = dataStoreImpl.getJdbcConnection().query(
+          query.toString(), bindValues.toArray(), rowMapper);
+      dataStoreImpl.recordQueryUsage(relation, l.size());
+      return l;
+    } catch (Exception e) {
+      dataStoreImpl.recordQueryUsage(relation, 0);
+      e.printStackTrace();
+      throw new ODKDatastoreException(e);
+    }
+  }
+
   @Override
   public List<?> executeDistinctValueForDataField(DataField dataField) throws ODKDatastoreException {
 
@@ -325,13 +509,20 @@ public class QueryImpl implements Query {
   private class RowMapperFilteredResultSetExtractor implements ResultSetExtractor<CoreResult> {
 
     private int readCount = 0;
-    private final QueryResumePoint startCursor;
+    private final String startUri;
     private final int fetchLimit;
     private final RowMapper<? extends CommonFieldsBase> rowMapper;
 
-    RowMapperFilteredResultSetExtractor(QueryResumePoint startCursor, int fetchLimit,
+    /**
+     * @param startUri
+     *          if non-null, rows are read and discarded up to and including
+     *          the row with this PK.
+     * @param fetchLimit
+     * @param rowMapper
+     */
+    RowMapperFilteredResultSetExtractor(String startUri, int fetchLimit,
         RowMapper<? extends CommonFieldsBase> rowMapper) {
-      this.startCursor = startCursor;
+      this.startUri = startUri;
       this.fetchLimit = fetchLimit;
       this.rowMapper = rowMapper;
     }
@@ -340,7 +531,6 @@ public class QueryImpl implements Query {
     public CoreResult extractData(ResultSet rs) throws SQLException {
       boolean hasMoreResults = false;
       List<CommonFieldsBase> results = new ArrayList<CommonFieldsBase>();
-      String startUri = (startCursor == null) ? null : startCursor.getUriLastReturnedValue();
       boolean beforeUri = (startUri != null);
       while (rs.next()) {
         ++readCount;
@@ -383,6 +573,9 @@ public class QueryImpl implements Query {
     // for continuation executions of queries
     StringBuilder queryContinuationBindBuilder = new StringBuilder();
     List<Object> values;
+    // true if we must fall back to reading and discarding rows up to the
+    // uriLastReturnedValue of the start cursor.
+    boolean skipToStartUri = false;
 
     if (startCursor != null) {
       DataField matchingStartCursorAttr = null;
@@ -405,17 +598,35 @@ public class QueryImpl implements Query {
 
       Object continuationValue = EngineUtils.getDominantSortAttributeValueFromString(
           startCursor.getValue(), dominantSortAttr);
-      values = addContinuationFilter(queryContinuationBindBuilder, continuationValue);
+      String startUri = startCursor.getUriLastReturnedValue();
+      if (startUri != null && isKeysetContinuationSupported()) {
+        values = addKeysetContinuationFilter(queryContinuationBindBuilder, continuationValue,
+            startUri);
+      } else {
+        values = addContinuationFilter(queryContinuationBindBuilder, continuationValue);
+        skipToStartUri = (startUri != null);
+      }
     } else {
       values = bindValues;
     }
 
+    // fetch one more than the limit so that we can tell if there are more results.
+    // This can only be done if we do not need to skip over rows preceding the
+    // start cursor.
+    StringBuilder queryLimitBuilder = new StringBuilder();
+    if (fetchLimit != 0 && !skipToStartUri) {
+      queryLimitBuilder.append(K_OFFSET_FETCH_OPEN);
+      queryLimitBuilder.append(Integer.toString(fetchLimit + 1));
+      queryLimitBuilder.append(K_OFFSET_FETCH_CLOSE);
+    }
+
     String query = generateQuery() + queryBindBuilder.toString()
-        + queryContinuationBindBuilder.toString() + querySortBuilder.toString() + ";";
+        + queryContinuationBindBuilder.toString() + querySortBuilder.toString()
+        + queryLimitBuilder.toString() + ";";
     RowMapper<? extends CommonFieldsBase> rowMapper = null;
     rowMapper = new RelationRowMapper(relation, user);
-    RowMapperFilteredResultSetExtractor rse = new RowMapperFilteredResultSetExtractor(startCursor,
-        fetchLimit, rowMapper);
+    RowMapperFilteredResultSetExtractor rse = new RowMapperFilteredResultSetExtractor(
+        skipToStartUri ? startCursor.getUriLastReturnedValue() : null, fetchLimit, rowMapper);
 
     try {
       CoreResult r;
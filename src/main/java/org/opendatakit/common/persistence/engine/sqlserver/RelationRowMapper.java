@@ -17,6 +17,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
 import java.util.SimpleTimeZone;
 
 import org.opendatakit.common.persistence.CommonFieldsBase;
@@ -35,9 +36,24 @@ public class RelationRowMapper implements RowMapper<CommonFieldsBase> {
 
   private final CommonFieldsBase relation;
   private final User user;
+  private final List<DataField> fields;
 
   RelationRowMapper(CommonFieldsBase relation, User user) {
+    this(relation, relation.getFieldList(), user);
+  }
+
+  /**
+   * Maps only the given columns of the result set; the other fields of the
+   * returned rows are left unset.
+   *
+   * @param relation
+   * @param fields
+   *          - the columns present in the result set.
+   * @param user
+   */
+  RelationRowMapper(CommonFieldsBase relation, List<DataField> fields, User user) {
     this.relation = relation;
+    this.fields = fields;
     this.user = user;
   }
 
@@ -55,7 +71,7 @@ public class RelationRowMapper implements RowMapper<CommonFieldsBase> {
     /**
      * Correct for the funky handling of nulls by the various accessors...
      */
-    for (DataField f : relation.getFieldList()) {
+    for (DataField f : fields) {
       switch (f.getDataType()) {
       case BINARY:
         byte[] blobBytes = rs.getBytes(f.getName());
@@ -905,6 +905,13 @@ public class SecurityServiceUtil {
       e.printStackTrace();
       throw new DatastoreFailureException(e.getMessage());
     }
+    try {
+      // so that cached credentials are discarded
+      SecurityRevisionsTable.setLastRegisteredUsersRevisionDate(ds, user);
+    } catch (ODKDatastoreException e) {
+      // if it fails, cached credentials expire after their time-to-live.
+      e.printStackTrace();
+    }
   }
 
   /**
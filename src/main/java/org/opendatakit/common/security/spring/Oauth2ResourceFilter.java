@@ -48,6 +48,7 @@ import org.apache.http.config.SocketConfig;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.util.EntityUtils;
 import org.opendatakit.common.utils.HttpClientFactory;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.core.Authentication;
@@ -285,6 +286,11 @@ public class Oauth2ResourceFilter extends GenericFilterBean {
      } catch ( Exception e ) {
        logger.error(e.toString());
        return nullData;
+     } finally {
+       // return the connection to the pool even if the body was not read
+       if ( response != null ) {
+         EntityUtils.consumeQuietly(response.getEntity());
+       }
      }
  }
 
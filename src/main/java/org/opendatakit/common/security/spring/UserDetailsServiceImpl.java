@@ -15,16 +15,22 @@
  */
 package org.opendatakit.common.security.spring;
 
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.opendatakit.common.persistence.Datastore;
 import org.opendatakit.common.persistence.exception.ODKDatastoreException;
 import org.opendatakit.common.security.User;
 import org.opendatakit.common.security.UserService;
 import org.opendatakit.common.security.common.GrantedAuthorityName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.TransientDataAccessResourceException;
@@ -38,6 +44,11 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 /**
  * Implementation of a user details service that fetches data from the 
  * {@link RegisteredUsersTable} to report on registered users.
+ * <p>
+ * The credentials and granted authorities of recently authenticated users
+ * are cached for up to cacheTimeToLive milliseconds. The cache is discarded
+ * whenever the {@link SecurityRevisionsTable} records a change to the
+ * registered users or the granted authority hierarchy.
  * 
  * @author mitchellsundt@gmail.com
  *
@@ -56,11 +67,55 @@ public class UserDetailsServiceImpl implements UserDetailsService, InitializingB
         Token // Out-of-band (Oauth) or Oauth2 token
     };
     
+    /**
+     * The credentials and granted authorities of a user, as read from the
+     * datastore.
+     */
+    private static final class CachedCredentials {
+        final String uriUser;
+        final String password;
+        final String salt;
+        final Set<GrantedAuthority> grantedAuthorities;
+        final long loadTimestamp;
+        
+        CachedCredentials(String uriUser, String password, String salt,
+                Set<GrantedAuthority> grantedAuthorities) {
+            this.uriUser = uriUser;
+            this.password = password;
+            this.salt = salt;
+            this.grantedAuthorities = Collections.unmodifiableSet(grantedAuthorities);
+            this.loadTimestamp = System.currentTimeMillis();
+        }
+    }
+    
+    private static final Logger logger = LoggerFactory.getLogger(UserDetailsServiceImpl.class);
+    
+    // look for flagged changes every CHECK_INTERVAL.
+    private static final long CHECK_INTERVAL = 1000L; // 1 seconds
+    
     private Datastore datastore;
     private UserService userService;
     private PasswordType passwordType = PasswordType.Random;
     private CredentialType credentialType = CredentialType.Username;
     private Set<GrantedAuthority> authorities = new HashSet<GrantedAuthority>();
+    
+    private int cacheMaxEntries = 1000;
+    private long cacheTimeToLive = 2*60*1000L; // 2 minutes
+    
+    // guarded by synchronizing on the cache itself
+    private final Map<String, CachedCredentials> cache = new LinkedHashMap<String, CachedCredentials>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedCredentials> eldest) {
+            return size() > cacheMaxEntries;
+        }
+    };
+    private long cacheGeneration = 0L;
+    private long lastCheckTimestamp = 0L;
+    private long lastRevision = -1L;
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
 
     UserDetailsServiceImpl() {
     }
@@ -105,6 +160,17 @@ public class UserDetailsServiceImpl implements UserDetailsService, InitializingB
         }
     }
     
+    public void setCacheMaxEntries(int cacheMaxEntries) {
+        this.cacheMaxEntries = cacheMaxEntries;
+    }
+    
+    /**
+     * @param cacheTimeToLive -- milliseconds a cached user is trusted; 0 disables the cache.
+     */
+    public void setCacheTimeToLive(long cacheTimeToLive) {
+        this.cacheTimeToLive = cacheTimeToLive;
+    }
+    
     public void setAuthorities(List<SimpleGrantedAuthority> authorities) {
         this.authorities.clear();
         for ( SimpleGrantedAuthority a : authorities ) {
@@ -131,6 +197,131 @@ public class UserDetailsServiceImpl implements UserDetailsService, InitializingB
         return grantedAuthorities;
     }
         
+    /**
+     * Fetch the credentials and granted authorities of the named user from
+     * the datastore.
+     * 
+     * @param name
+     * @return the credentials to cache
+     * @throws ODKDatastoreException
+     */
+    private CachedCredentials fetchCredentials(String name) throws ODKDatastoreException {
+        User user = userService.getDaemonAccountUser();
+        
+        if ( credentialType == CredentialType.Username ) {
+            RegisteredUsersTable t;
+            // first call from digest, basic or forms-based auth
+            if ( name.startsWith(RegisteredUsersTable.UID_PREFIX) ) {
+                t = RegisteredUsersTable.getUserByUri(name, datastore, user);
+                if ( t == null ) {
+                    throw new UsernameNotFoundException("UID " + name + " is not recognized.");
+                }
+            } else {
+                t = RegisteredUsersTable.getUniqueUserByUsername(name, datastore, user);
+                if ( t == null ) {
+                    throw new UsernameNotFoundException("User " + name + 
+                                " is not registered or the registered users table is corrupt.");
+                }
+            }
+            final String password;
+            final String salt;
+            switch ( passwordType ) {
+            case BasicAuth:
+                password = t.getBasicAuthPassword();
+                salt = t.getBasicAuthSalt();
+                break;
+            case DigestAuth:
+                password = t.getDigestAuthPassword();
+                // a fresh salt is generated for every request
+                salt = null;
+                break;
+            default:
+                throw new AuthenticationCredentialsNotFoundException(
+                        "Password type " + passwordType.toString() + " cannot be interpretted");
+            }
+            
+            Set<GrantedAuthority> grantedAuthorities = getGrantedAuthorities(t.getUri());
+            if ( password == null ) {
+                throw new AuthenticationCredentialsNotFoundException(
+                        "User " + name + " does not have a password configured. You must close and re-open your browser to clear this error.");
+            }
+            return new CachedCredentials(t.getUri(), password, salt, grantedAuthorities);
+        } else {
+            // OAuth2 token...
+            // there is no password for an OAuth2 credential
+            if ( passwordType != PasswordType.Random ) {
+                throw new AuthenticationCredentialsNotFoundException(
+                        "Password type " + passwordType.toString() + " cannot be interpretted");
+            }
+            
+            // try to find user in registered users table...
+            RegisteredUsersTable eUser = RegisteredUsersTable.getUniqueUserByEmail(name, datastore, user);
+            if ( eUser != null ) {
+                // the password and salt are set to unguessable strings
+                // for every request...
+                return new CachedCredentials(eUser.getUri(), null, null,
+                        getGrantedAuthorities(eUser.getUri()));
+            } else {
+                throw new UsernameNotFoundException("User " + name + " is not registered");
+            }
+        }
+    }
+    
+    /**
+     * Discard the cached credentials if the registered users or the granted
+     * authority hierarchy have been revised since they were last checked.
+     * The revision dates are consulted at most once every CHECK_INTERVAL.
+     */
+    private void checkForRevisions() {
+        long now = System.currentTimeMillis();
+        synchronized (cache) {
+            if ( now < lastCheckTimestamp + CHECK_INTERVAL ) {
+                return;
+            }
+            lastCheckTimestamp = now;
+        }
+        try {
+            User daemon = userService.getDaemonAccountUser();
+            long lastUsersChange = SecurityRevisionsTable.getLastRegisteredUsersRevisionDate(datastore, daemon);
+            long lastGrantsChange = SecurityRevisionsTable.getLastRoleHierarchyRevisionDate(datastore, daemon);
+            long revision = Math.max(lastUsersChange, lastGrantsChange);
+            synchronized (cache) {
+                if ( revision != lastRevision ) {
+                    lastRevision = revision;
+                    clearCache();
+                }
+            }
+        } catch (ODKDatastoreException e) {
+            // log it, but keep the current entries until they expire...
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Discard all cached credentials.
+     */
+    public void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+            ++cacheGeneration;
+        }
+        logger.debug("clearCache -- hits: " + cacheHits.get() + " misses: " + cacheMisses.get());
+    }
+    
+    /**
+     * @return the number of lookups satisfied from the cache.
+     */
+    public long getCacheHitCount() {
+        return cacheHits.get();
+    }
+    
+    /**
+     * @return the number of lookups that queried the datastore.
+     */
+    public long getCacheMissCount() {
+        return cacheMisses.get();
+    }
+    
     @Override
     public UserDetails loadUserByUsername(String name)
             throws UsernameNotFoundException, DataAccessException {
@@ -138,75 +329,53 @@ public class UserDetailsServiceImpl implements UserDetailsService, InitializingB
             throw new IllegalStateException("Username cannot be null");         
         }
         
-        User user = userService.getDaemonAccountUser();
+        checkForRevisions();
+        
+        long now = System.currentTimeMillis();
+        CachedCredentials credentials;
+        long generation;
+        synchronized (cache) {
+            credentials = cache.get(name);
+            generation = cacheGeneration;
+        }
+        if ( credentials != null && now < credentials.loadTimestamp + cacheTimeToLive ) {
+            cacheHits.incrementAndGet();
+        } else {
+            cacheMisses.incrementAndGet();
+            try {
+                credentials = fetchCredentials(name);
+            } catch (ODKDatastoreException e) {
+                throw new TransientDataAccessResourceException("persistence layer problem", e);
+            }
+            synchronized (cache) {
+                // don't cache values read before the cache was cleared
+                if ( generation == cacheGeneration ) {
+                    cache.put(name, credentials);
+                }
+            }
+        }
         
-        final String uriUser;
         final String password;
         final String salt;
-        final Set<GrantedAuthority> grantedAuthorities;
         final boolean isEnabled = true;
         final boolean isCredentialNonExpired = true;
-        try {
-            if ( credentialType == CredentialType.Username ) {
-                RegisteredUsersTable t;
-                // first call from digest, basic or forms-based auth
-                if ( name.startsWith(RegisteredUsersTable.UID_PREFIX) ) {
-                    t = RegisteredUsersTable.getUserByUri(name, datastore, user);
-                    if ( t == null ) {
-                        throw new UsernameNotFoundException("UID " + name + " is not recognized.");
-                    }
-                } else {
-                    t = RegisteredUsersTable.getUniqueUserByUsername(name, datastore, user);
-                    if ( t == null ) {
-                        throw new UsernameNotFoundException("User " + name + 
-                                    " is not registered or the registered users table is corrupt.");
-                    }
-                }
-                uriUser = t.getUri();
-                switch ( passwordType ) {
-                case BasicAuth:
-                    password = t.getBasicAuthPassword();
-                    salt = t.getBasicAuthSalt();
-                    break;
-                case DigestAuth:
-                    password = t.getDigestAuthPassword();
-                    salt = UUID.randomUUID().toString();
-                    break;
-                default:
-                    throw new AuthenticationCredentialsNotFoundException(
-                            "Password type " + passwordType.toString() + " cannot be interpretted");
-                }
-                
-                grantedAuthorities = getGrantedAuthorities(t.getUri());
-                if ( password == null ) {
-                    throw new AuthenticationCredentialsNotFoundException(
-                            "User " + name + " does not have a password configured. You must close and re-open your browser to clear this error.");
-                }
-            } else {
-                // OAuth2 token...
-                // there is no password for an OAuth2 credential
-                if ( passwordType != PasswordType.Random ) {
-                    throw new AuthenticationCredentialsNotFoundException(
-                            "Password type " + passwordType.toString() + " cannot be interpretted");
-                }
-                // set password and salt to unguessable strings...
-                password = UUID.randomUUID().toString();
-                salt = UUID.randomUUID().toString();
-                
-                // try to find user in registered users table...
-                RegisteredUsersTable eUser = RegisteredUsersTable.getUniqueUserByEmail(name, datastore, user);
-                if ( eUser != null ) {
-                    uriUser = eUser.getUri();
-                    grantedAuthorities = getGrantedAuthorities(eUser.getUri());
-                } else {
-                    throw new UsernameNotFoundException("User " + name + " is not registered");
-                }
-            }
-        } catch (ODKDatastoreException e) {
-            throw new TransientDataAccessResourceException("persistence layer problem", e);
+        switch ( passwordType ) {
+        case BasicAuth:
+            password = credentials.password;
+            salt = credentials.salt;
+            break;
+        case DigestAuth:
+            password = credentials.password;
+            salt = UUID.randomUUID().toString();
+            break;
+        default:
+            // set password and salt to unguessable strings...
+            password = UUID.randomUUID().toString();
+            salt = UUID.randomUUID().toString();
+            break;
         }
             
-        return new AggregateUser(uriUser, password, salt, "-undefined-",
-                isEnabled, true, isCredentialNonExpired, true, grantedAuthorities );
+        return new AggregateUser(credentials.uriUser, password, salt, "-undefined-",
+                isEnabled, true, isCredentialNonExpired, true, credentials.grantedAuthorities );
     }
 }
@@ -17,11 +17,13 @@ package org.opendatakit.common.security.spring;
 
 import java.security.NoSuchAlgorithmException;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,9 +56,15 @@ public class UserServiceImpl implements org.opendatakit.common.security.UserServ
   Realm realm;
   String superUserEmail;
   String superUserUsername;
-  RegisteredUsersTable superUserUsernameRecord;
+  volatile RegisteredUsersTable superUserUsernameRecord;
   
-  final Map<String, User> activeUsers = new HashMap<String, User>();
+  /**
+   * The resolved users, keyed by uriUser. Each user is resolved by a task
+   * run by the first thread to request it; other requests for that user wait
+   * on the task, but requests for other users are not blocked. The map is
+   * replaced, never cleared, by {@link #reloadPermissions()}.
+   */
+  volatile ConcurrentHashMap<String, FutureTask<User>> activeUsers = new ConcurrentHashMap<String, FutureTask<User>>();
 
   public UserServiceImpl() {
   }
@@ -127,12 +135,15 @@ public class UserServiceImpl implements org.opendatakit.common.security.UserServ
       return true;
     }
 
-    if ( superUserUsernameRecord == null ) {
+    // reloadPermissions() may reset the field concurrently
+    RegisteredUsersTable record = superUserUsernameRecord;
+    if ( record == null ) {
       // retrieve the underlying record
-      superUserUsernameRecord = RegisteredUsersTable.getUserByUsername(superUserUsername, this, cc.getDatastore());
+      record = RegisteredUsersTable.getUserByUsername(superUserUsername, this, cc.getDatastore());
+      superUserUsernameRecord = record;
     }
     
-    if ( superUserUsernameRecord != null ) {
+    if ( record != null ) {
       MessageDigestPasswordEncoder mde = null;
       try {
         Object obj = cc.getBean(SecurityBeanDefs.BASIC_AUTH_PASSWORD_ENCODER);
@@ -154,7 +165,7 @@ public class UserServiceImpl implements org.opendatakit.common.security.UserServ
          e.printStackTrace();
          throw new IllegalStateException("unrecognized algorithm");
       }
-      return !credential.getDigestAuthHash().equals(superUserUsernameRecord.getDigestAuthPassword());
+      return !credential.getDigestAuthHash().equals(record.getDigestAuthPassword());
     }
     return true;
   }
@@ -196,9 +207,9 @@ public class UserServiceImpl implements org.opendatakit.common.security.UserServ
   }
 
   @Override
-  public synchronized void reloadPermissions() {
+  public void reloadPermissions() {
     logger.info("Executing: reloadPermissions");
-    activeUsers.clear();
+    activeUsers = new ConcurrentHashMap<String, FutureTask<User>>();
     superUserUsernameRecord = null;
   }
 
@@ -238,18 +249,51 @@ public class UserServiceImpl implements org.opendatakit.common.security.UserServ
     }
   }
 
-  private synchronized User internalGetUser(String uriUser,
-      Collection<? extends GrantedAuthority> authorities) {
-    User match = activeUsers.get(uriUser);
-    if (match != null) {
-      return match;
-    } else if (User.ANONYMOUS_USER.equals(uriUser)) {
+  private User internalGetUser(final String uriUser,
+      final Collection<? extends GrantedAuthority> authorities) {
+    ConcurrentHashMap<String, FutureTask<User>> users = activeUsers;
+    FutureTask<User> task = users.get(uriUser);
+    if (task == null) {
+      FutureTask<User> newTask = new FutureTask<User>(new Callable<User>() {
+        @Override
+        public User call() {
+          return resolveUser(uriUser, authorities);
+        }
+      });
+      task = users.putIfAbsent(uriUser, newTask);
+      if (task == null) {
+        // this thread resolves the user
+        task = newTask;
+        task.run();
+      }
+    }
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      // resolve it ourselves rather than fail the request
+      return resolveUser(uriUser, authorities);
+    } catch (ExecutionException e) {
+      // do not retain the failure
+      users.remove(uriUser, task);
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  private User resolveUser(String uriUser, Collection<? extends GrantedAuthority> authorities) {
+    User match;
+    if (User.ANONYMOUS_USER.equals(uriUser)) {
       // ignored passed-in authorities
       Set<GrantedAuthority> anonGroups = new HashSet<GrantedAuthority>();
       anonGroups.add(new SimpleGrantedAuthority(GrantedAuthorityName.USER_IS_ANONYMOUS.name()));
       match = new UserImpl(User.ANONYMOUS_USER, null, User.ANONYMOUS_USER_NICKNAME, anonGroups,
           datastore);
-      activeUsers.put(uriUser, match);
       return match;
     } else if (User.DAEMON_USER.equals(uriUser)) {
       // ignored passed-in authorities
@@ -258,7 +302,6 @@ public class UserServiceImpl implements org.opendatakit.common.security.UserServ
       daemonGroups.add(new SimpleGrantedAuthority(GrantedAuthorityName.USER_IS_DAEMON.name()));
       match = new UserImpl(User.DAEMON_USER, null, User.DAEMON_USER_NICKNAME, daemonGroups,
           datastore);
-      activeUsers.put(uriUser, match);
       return match;
     } else {
       try {
@@ -275,7 +318,6 @@ public class UserServiceImpl implements org.opendatakit.common.security.UserServ
         match = new UserImpl(uriUser, getEmail(uriUser, null), getNickname(uriUser), authorities,
             datastore);
       }
-      activeUsers.put(uriUser, match);
       return match;
     }
   }
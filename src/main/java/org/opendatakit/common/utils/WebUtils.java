@@ -19,6 +19,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.text.DateFormat;
 import java.text.ParseException;
@@ -418,6 +419,96 @@ public class WebUtils {
     return asGMTrfc1123.format(d);
   }
 
+  /**
+   * Returned by {@link #parseByteRange(String, long)} for a well-formed range
+   * that does not overlap the resource.
+   */
+  public static final long[] UNSATISFIABLE_BYTE_RANGE = new long[0];
+
+  /**
+   * Parse an HTTP Range header that requests a single byte range
+   * ("bytes=first-last", "bytes=first-" or "bytes=-suffixLength").
+   * 
+   * @param range
+   *          the Range header value (may be null).
+   * @param length
+   *          the length of the resource.
+   * @return the {first, last} byte positions (inclusive);
+   *         {@link #UNSATISFIABLE_BYTE_RANGE} if the range starts beyond the
+   *         end of the resource (the response should be 416, Range Not
+   *         Satisfiable); or null if there is no header or if it is
+   *         malformed or requests multiple ranges -- in which case the whole
+   *         resource should be sent.
+   */
+  public static final long[] parseByteRange(String range, long length) {
+    if (range == null || !range.startsWith("bytes=") || range.indexOf(',') != -1) {
+      return null;
+    }
+    String spec = range.substring("bytes=".length()).trim();
+    int dash = spec.indexOf('-');
+    if (dash == -1) {
+      return null;
+    }
+    long first;
+    long last;
+    try {
+      if (dash == 0) {
+        long suffix = Long.parseLong(spec.substring(1).trim());
+        if (suffix < 0) {
+          return null;
+        }
+        if (suffix == 0 || length == 0) {
+          return UNSATISFIABLE_BYTE_RANGE;
+        }
+        first = Math.max(0L, length - suffix);
+        last = length - 1;
+      } else {
+        first = Long.parseLong(spec.substring(0, dash).trim());
+        if (first < 0) {
+          return null;
+        }
+        String end = spec.substring(dash + 1).trim();
+        if (end.length() == 0) {
+          last = length - 1;
+        } else {
+          last = Long.parseLong(end);
+          if (last < first) {
+            return null;
+          }
+          last = Math.min(last, length - 1);
+        }
+        if (first >= length) {
+          return UNSATISFIABLE_BYTE_RANGE;
+        }
+      }
+    } catch (NumberFormatException e) {
+      return null;
+    }
+    return new long[] { first, last };
+  }
+
+  /**
+   * Copy count bytes from the input stream to the output stream.
+   * 
+   * @param in
+   * @param out
+   * @param count
+   * @throws IOException
+   *           if the input stream ends before count bytes are copied.
+   */
+  public static final void copyStream(InputStream in, OutputStream out, long count)
+      throws IOException {
+    byte[] buffer = new byte[8192];
+    while (count > 0) {
+      int n = in.read(buffer, 0, (int) Math.min(buffer.length, count));
+      if (n == -1) {
+        throw new IOException("Unexpected end of stream");
+      }
+      out.write(buffer, 0, n);
+      count -= n;
+    }
+  }
+
   public static final String purgeDateString(Date d) {
     if (d == null)
       return null;
@@ -17,47 +17,181 @@ package org.opendatakit.common.utils.tomcat;
 
 import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.config.ConnectionConfig;
 import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.HttpConnectionFactory;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.IdleConnectionEvictor;
+import org.apache.http.impl.conn.ManagedHttpClientConnectionFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
 import org.opendatakit.common.utils.HttpClientFactory;
+import org.springframework.beans.factory.DisposableBean;
 
 import com.google.api.client.googleapis.apache.GoogleApacheHttpTransport;
 import com.google.api.client.http.HttpTransport;
 
 /**
- * Implementation that just uses Apache's default http client.
+ * Implementation that uses Apache's http client. All the clients it creates
+ * share one pool of keep-alive connections, so that repeated requests to
+ * the same server (e.g., a streaming publisher) reuse warm connections
+ * rather than paying for a new TCP and TLS handshake each time.
  * 
  * @author mitchellsundt@gmail.com
  * 
  */
-public class TomcatHttpClientFactoryImpl implements HttpClientFactory {
+public class TomcatHttpClientFactoryImpl implements HttpClientFactory, DisposableBean {
+
+  /** maximum time to wait for a pooled connection before failing the request */
+  private static final int CONNECTION_REQUEST_TIMEOUT_MILLISECONDS = 60000;
+
+  private final AtomicLong requestCount = new AtomicLong(0L);
+  private final AtomicLong connectionCount = new AtomicLong(0L);
+
+  private final PoolingHttpClientConnectionManager connectionManager;
+
+  private long idleConnectionTimeoutSeconds = 30L;
+  private IdleConnectionEvictor evictor = null;
+
+  /**
+   * Counts each request sent through the pooled clients.
+   */
+  private final HttpRequestInterceptor requestCounter = new HttpRequestInterceptor() {
+    @Override
+    public void process(HttpRequest request, HttpContext context) throws HttpException,
+        IOException {
+      requestCount.incrementAndGet();
+    }
+  };
 
   public TomcatHttpClientFactoryImpl() {
+    // count the connections opened so that reuse can be reported.
+    HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection> connectionFactory =
+        new HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection>() {
+      @Override
+      public ManagedHttpClientConnection create(HttpRoute route, ConnectionConfig config) {
+        connectionCount.incrementAndGet();
+        return ManagedHttpClientConnectionFactory.INSTANCE.create(route, config);
+      }
+    };
+    connectionManager = new PoolingHttpClientConnectionManager(connectionFactory);
+    connectionManager.setMaxTotal(50);
+    connectionManager.setDefaultMaxPerRoute(10);
+  }
+
+  public void setMaxTotalConnections(int maxTotalConnections) {
+    connectionManager.setMaxTotal(maxTotalConnections);
+  }
+
+  public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+    connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+  }
+
+  /**
+   * @param idleConnectionTimeoutSeconds pooled connections idle for longer than this are closed.
+   */
+  public void setIdleConnectionTimeoutSeconds(long idleConnectionTimeoutSeconds) {
+    this.idleConnectionTimeoutSeconds = idleConnectionTimeoutSeconds;
+  }
+
+  private synchronized void startEvictor() {
+    if (evictor == null) {
+      evictor = new IdleConnectionEvictor(connectionManager, idleConnectionTimeoutSeconds,
+          TimeUnit.SECONDS);
+      evictor.start();
+    }
   }
 
   @Override
   public CloseableHttpClient createHttpClient(SocketConfig socketConfig,
       ConnectionConfig connectionConfig, RequestConfig requestConfig) {
     HttpClientBuilder builder = HttpClientBuilder.create();
-    if (socketConfig != null) {
-      builder.setDefaultSocketConfig(socketConfig);
-    }
     if (connectionConfig != null) {
+      // connection settings are fixed for the pooled connections;
+      // give this caller connections of its own.
+      if (socketConfig != null) {
+        builder.setDefaultSocketConfig(socketConfig);
+      }
       builder.setDefaultConnectionConfig(connectionConfig);
+      if (requestConfig != null) {
+        builder.setDefaultRequestConfig(requestConfig);
+      }
+      return builder.build();
+    }
+
+    startEvictor();
+
+    // the socket config of the pool is shared; apply the caller's
+    // socket timeout to each request instead.
+    RequestConfig.Builder requestBuilder = (requestConfig == null) ? RequestConfig.custom()
+        : RequestConfig.copy(requestConfig);
+    if (socketConfig != null && (requestConfig == null || requestConfig.getSocketTimeout() < 0)) {
+      requestBuilder.setSocketTimeout(socketConfig.getSoTimeout());
     }
-    if (requestConfig != null) {
-      builder.setDefaultRequestConfig(requestConfig);
+    if (requestConfig == null || requestConfig.getConnectionRequestTimeout() < 0) {
+      requestBuilder.setConnectionRequestTimeout(CONNECTION_REQUEST_TIMEOUT_MILLISECONDS);
     }
+
+    builder.setConnectionManager(connectionManager);
+    // closing the client must not shut down the shared pool
+    builder.setConnectionManagerShared(true);
+    builder.setDefaultRequestConfig(requestBuilder.build());
+    builder.addInterceptorLast(requestCounter);
     return builder.build();
   }
 
+  /**
+   * @return the number of requests sent through the pooled clients.
+   */
+  public long getRequestCount() {
+    return requestCount.get();
+  }
+
+  /**
+   * @return the number of connections opened by the pool.
+   */
+  public long getConnectionCount() {
+    return connectionCount.get();
+  }
+
+  /**
+   * @return the pool usage and the number of requests that reused a
+   *         connection.
+   */
+  public String getStatistics() {
+    PoolStats stats = connectionManager.getTotalStats();
+    long requests = requestCount.get();
+    long connections = connectionCount.get();
+    return "http connections: leased " + stats.getLeased() + " idle " + stats.getAvailable()
+        + " pending " + stats.getPending() + " max " + stats.getMax() + " requests " + requests
+        + " opened " + connections + " reused " + Math.max(0L, requests - connections);
+  }
+
   @Override
   public HttpTransport getGoogleOAuth2Transport() throws GeneralSecurityException, IOException {
     return GoogleApacheHttpTransport.newTrustedTransport();
   }
 
+  @Override
+  public void destroy() throws Exception {
+    synchronized (this) {
+      if (evictor != null) {
+        evictor.shutdown();
+        evictor = null;
+      }
+    }
+    connectionManager.shutdown();
+  }
+
 }
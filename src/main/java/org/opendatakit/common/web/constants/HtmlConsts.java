@@ -155,6 +155,15 @@ public final class HtmlConsts {
     public static final String PARAM_DELIMITER = "&";
     public static final String ATTACHMENT_FILENAME_TXT = "attachment; filename=\"";
     public static final String CONTENT_DISPOSITION = "Content-Disposition";
+    public static final String CONTENT_LENGTH = "Content-Length";
+    public static final String CONTENT_RANGE = "Content-Range";
+    public static final String ACCEPT_RANGES = "Accept-Ranges";
+    public static final String RANGE = "Range";
+    public static final String ETAG = "ETag";
+    public static final String IF_NONE_MATCH = "If-None-Match";
+    public static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+    public static final String LAST_MODIFIED = "Last-Modified";
+    public static final String EXPIRES = "Expires";
     
     /** for click-jacking prevention */
     public static final String X_FRAME_OPTIONS = "X-Frame-Options";
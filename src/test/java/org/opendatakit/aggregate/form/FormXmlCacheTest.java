@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2018 University of Washington
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.opendatakit.aggregate.form;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Date;
+
+import org.junit.Test;
+import org.opendatakit.aggregate.form.FormXmlCache.Rendering;
+
+/**
+ * The cache is shared by the whole server, so each test uses its own keys.
+ */
+public class FormXmlCacheTest {
+
+  private static Rendering rendering(String eTag, int size) {
+    return new Rendering(eTag, new Date(1500000000000L), new byte[size]);
+  }
+
+  private static IForm form(String uri, long created, long updated) {
+    IForm form = mock(IForm.class);
+    when(form.getUri()).thenReturn(uri);
+    when(form.getCreationDate()).thenReturn(new Date(created));
+    when(form.getLastUpdateDate()).thenReturn(new Date(updated));
+    return form;
+  }
+
+  @Test
+  public void testFormVersionChangesWithTheForm() {
+    String version = FormXmlCache.formVersion(form("uuid:form", 1000L, 2000L));
+
+    assertFalse(version.equals(FormXmlCache.formVersion(form("uuid:form", 1000L, 3000L))));
+    // a form deleted and uploaded again has a new creation date
+    assertFalse(version.equals(FormXmlCache.formVersion(form("uuid:form", 1500L, 2000L))));
+    assertFalse(version.equals(FormXmlCache.formVersion(form("uuid:other", 1000L, 2000L))));
+  }
+
+  @Test
+  public void testRenderingOfCurrentVersionIsReturned() {
+    String version = FormXmlCache.formVersion(form("uuid:current", 1000L, 2000L));
+    Rendering r = rendering("etag", 10);
+    FormXmlCache.put("current", version, r);
+
+    assertSame(r, FormXmlCache.get("current", version));
+    assertNull(FormXmlCache.get("current-missing", version));
+  }
+
+  @Test
+  public void testUpdatedFormInvalidatesRendering() {
+    String before = FormXmlCache.formVersion(form("uuid:updated", 1000L, 2000L));
+    FormXmlCache.put("updated", before, rendering("before", 10));
+
+    // saving the form moves its last-update date
+    String after = FormXmlCache.formVersion(form("uuid:updated", 1000L, 5000L));
+    assertNull(FormXmlCache.get("updated", after));
+
+    Rendering r = rendering("after", 10);
+    FormXmlCache.put("updated", after, r);
+    assertSame(r, FormXmlCache.get("updated", after));
+    assertNull(FormXmlCache.get("updated", before));
+  }
+
+  @Test
+  public void testLeastRecentlyUsedIsEvicted() {
+    int quarter = (int) (FormXmlCache.MAX_BYTES / 4);
+    FormXmlCache.put("lru-a", "v", rendering("a", quarter));
+    FormXmlCache.put("lru-b", "v", rendering("b", quarter));
+    FormXmlCache.put("lru-c", "v", rendering("c", quarter));
+    FormXmlCache.put("lru-d", "v", rendering("d", quarter));
+    // touch a so that b becomes the least recently used
+    assertNotNull(FormXmlCache.get("lru-a", "v"));
+
+    FormXmlCache.put("lru-e", "v", rendering("e", 1));
+
+    assertNull(FormXmlCache.get("lru-b", "v"));
+    assertNotNull(FormXmlCache.get("lru-a", "v"));
+    assertNotNull(FormXmlCache.get("lru-c", "v"));
+    assertNotNull(FormXmlCache.get("lru-d", "v"));
+    assertNotNull(FormXmlCache.get("lru-e", "v"));
+  }
+
+  @Test
+  public void testOversizedRenderingIsNotCached() {
+    FormXmlCache.put("oversized", "v1", rendering("small", 10));
+
+    FormXmlCache.put("oversized", "v2", rendering("huge", (int) FormXmlCache.MAX_BYTES + 1));
+
+    assertNull(FormXmlCache.get("oversized", "v2"));
+    // and the rendering it would have replaced is gone too
+    assertNull(FormXmlCache.get("oversized", "v1"));
+  }
+}
@@ -29,14 +29,23 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
+import org.opendatakit.aggregate.odktables.DataManager.TableRead;
+import org.opendatakit.aggregate.odktables.DataManager.TableReadResult;
 import org.opendatakit.aggregate.odktables.DataManager.WebsafeRows;
+import org.opendatakit.aggregate.odktables.TableSchemaCache.TableSchema;
 import org.opendatakit.aggregate.odktables.exception.BadColumnNameException;
 import org.opendatakit.aggregate.odktables.exception.ETagMismatchException;
 import org.opendatakit.aggregate.odktables.exception.InconsistentStateException;
 import org.opendatakit.aggregate.odktables.exception.PermissionDeniedException;
+import org.opendatakit.aggregate.odktables.exception.TableDataETagMismatchException;
+import org.opendatakit.aggregate.odktables.relation.DbTableEntry.DbTableEntryEntity;
 import org.opendatakit.aggregate.odktables.rest.SavepointTypeManipulator;
 import org.opendatakit.aggregate.odktables.rest.entity.DataKeyValue;
 import org.opendatakit.aggregate.odktables.rest.entity.Row;
+import org.opendatakit.aggregate.odktables.rest.entity.RowList;
+import org.opendatakit.aggregate.odktables.rest.entity.RowOutcome;
+import org.opendatakit.aggregate.odktables.rest.entity.RowOutcome.OutcomeType;
+import org.opendatakit.aggregate.odktables.rest.entity.RowOutcomeList;
 import org.opendatakit.aggregate.odktables.rest.entity.RowFilterScope;
 import org.opendatakit.aggregate.odktables.rest.entity.Scope;
 import org.opendatakit.aggregate.odktables.rest.entity.TableEntry;
@@ -398,6 +407,126 @@ public class DataManagerTest {
     Util.assertCollectionSameElements(expected.values(), actual);
   }
 
+  private static Row newBulkRow(int i) {
+    ArrayList<DataKeyValue> values = new ArrayList<DataKeyValue>();
+    values.add(new DataKeyValue(T.Columns.column_name.getElementKey(), "name" + i));
+    values.add(new DataKeyValue(T.Columns.column_age.getElementKey(), Integer.toString(i)));
+    values.add(new DataKeyValue(T.Columns.column_weight.getElementKey(), "100"));
+    return Row.forInsert("bulk" + i, T.form_id_1, T.locale_1, SavepointTypeManipulator.complete(),
+        T.savepoint_timestamp_1, T.savepoint_creator_1, RowFilterScope.EMPTY_ROW_FILTER, values);
+  }
+
+  /**
+   * The existing rows are looked up in several queries when there are more of
+   * them than fit in one IN (...) filter on GAE.
+   */
+  @Test
+  public void testInsertOrUpdateRowsMoreThanOneLookup() throws ODKDatastoreException,
+      ODKTaskLockException, BadColumnNameException, PermissionDeniedException,
+      InconsistentStateException, TableDataETagMismatchException {
+    final int existing = 65;
+    final int added = 5;
+
+    ArrayList<Row> inserts = new ArrayList<Row>();
+    for (int i = 0; i < existing; ++i) {
+      inserts.add(newBulkRow(i));
+    }
+    String dataETag = tm.getTableNullSafe(T.tableId).getDataETag();
+    RowOutcomeList inserted = dm.insertOrUpdateRows(new RowList(inserts, dataETag));
+    assertEquals(existing, inserted.getRows().size());
+    for (int i = 0; i < existing; ++i) {
+      RowOutcome outcome = inserted.getRows().get(i);
+      assertEquals(OutcomeType.SUCCESS, outcome.getOutcome());
+      assertEquals("bulk" + i, outcome.getRowId());
+    }
+
+    // update every existing row and insert a few new ones in the same call
+    ArrayList<Row> changes = new ArrayList<Row>();
+    for (RowOutcome outcome : inserted.getRows()) {
+      Map<String, String> values = Row.convertToMap(outcome.getValues());
+      values.put(T.Columns.column_weight.getElementKey(), "200");
+      changes.add(Row.forUpdate(outcome.getRowId(), outcome.getRowETag(), T.form_id_1,
+          T.locale_1, SavepointTypeManipulator.complete(), T.savepoint_timestamp_1,
+          T.savepoint_creator_1, RowFilterScope.EMPTY_ROW_FILTER, Row.convertFromMap(values)));
+    }
+    for (int i = existing; i < existing + added; ++i) {
+      changes.add(newBulkRow(i));
+    }
+    RowOutcomeList updated = dm.insertOrUpdateRows(new RowList(changes,
+        inserted.getDataETag()));
+    assertEquals(existing + added, updated.getRows().size());
+    for (int i = 0; i < existing + added; ++i) {
+      RowOutcome outcome = updated.getRows().get(i);
+      assertEquals(OutcomeType.SUCCESS, outcome.getOutcome());
+      assertEquals("bulk" + i, outcome.getRowId());
+      if (i < existing) {
+        assertFalse(inserted.getRows().get(i).getRowETag().equals(outcome.getRowETag()));
+      }
+    }
+
+    WebsafeRows websafeResult = dm.getRows(null, 2000);
+    assertEquals(existing + added, websafeResult.rows.size());
+    for (Row row : websafeResult.rows) {
+      int i = Integer.parseInt(row.getRowId().substring("bulk".length()));
+      Map<String, String> values = Row.convertToMap(row.getValues());
+      assertEquals((i < existing) ? "200" : "100",
+          values.get(T.Columns.column_weight.getElementKey()));
+      assertEquals(Integer.toString(i), values.get(T.Columns.column_age.getElementKey()));
+    }
+  }
+
+  @Test
+  public void testReadIsNotRepeatedWithoutAWrite() throws ODKDatastoreException,
+      ODKTaskLockException, InconsistentStateException, BadColumnNameException,
+      PermissionDeniedException {
+    final int[] reads = new int[1];
+    TableReadResult<String> read = dm.readTable(new TableRead<String>() {
+      @Override
+      public String read(DbTableEntryEntity entry, TableSchema schema) {
+        ++reads[0];
+        return entry.getDataETag();
+      }
+    });
+
+    assertEquals(1, reads[0]);
+    assertFalse(read.locked);
+    assertEquals(tm.getTableNullSafe(T.tableId).getDataETag(), read.value);
+  }
+
+  /**
+   * A write that lands between the lock-free read and the snapshot check must
+   * make the read be repeated while holding the table lock.
+   */
+  @Test
+  public void testReadOverlappingAWriteIsRepeatedHoldingTheLock() throws ODKDatastoreException,
+      ODKTaskLockException, InconsistentStateException, BadColumnNameException,
+      PermissionDeniedException {
+    final String dataETagBefore = tm.getTableNullSafe(T.tableId).getDataETag();
+    final int[] reads = new int[1];
+    TableReadResult<String> read = dm.readTable(new TableRead<String>() {
+      @Override
+      public String read(DbTableEntryEntity entry, TableSchema schema) {
+        ++reads[0];
+        if (reads[0] == 1) {
+          try {
+            dm.insertOrUpdateRow(newBulkRow(0));
+          } catch (Exception e) {
+            throw new IllegalStateException(e);
+          }
+        }
+        return entry.getDataETag();
+      }
+    });
+
+    assertEquals(2, reads[0]);
+    assertTrue(read.locked);
+    String dataETagAfter = tm.getTableNullSafe(T.tableId).getDataETag();
+    assertFalse(dataETagAfter.equals(dataETagBefore));
+    // the value kept is the one read after the write
+    assertEquals(dataETagAfter, read.value);
+    assertEquals(dataETagAfter, read.entry.getDataETag());
+  }
+
 //  @Test
 //  public void testGetRowsSinceByScope() throws ODKEntityPersistException, ETagMismatchException,
 //      BadColumnNameException, ODKDatastoreException, ODKTaskLockException, PermissionDeniedException {
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2018 University of Washington
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.opendatakit.aggregate.odktables;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opendatakit.aggregate.odktables.TableSchemaCache.TableSchema;
+import org.opendatakit.aggregate.odktables.exception.PermissionDeniedException;
+import org.opendatakit.aggregate.odktables.relation.DbColumnDefinitions.DbColumnDefinitionsEntity;
+import org.opendatakit.aggregate.odktables.relation.DbTableDefinitions.DbTableDefinitionsEntity;
+import org.opendatakit.aggregate.odktables.relation.EntityCreator;
+import org.opendatakit.aggregate.odktables.rest.entity.Column;
+import org.opendatakit.aggregate.odktables.rest.entity.Scope;
+import org.opendatakit.aggregate.odktables.rest.entity.TableRole.TablePermission;
+import org.opendatakit.aggregate.odktables.security.TablesUserPermissions;
+import org.opendatakit.common.persistence.PersistenceUtils;
+import org.opendatakit.common.persistence.exception.ODKDatastoreException;
+import org.opendatakit.common.persistence.exception.ODKEntityNotFoundException;
+import org.opendatakit.common.web.CallingContext;
+import org.opendatakit.common.web.TestContextFactory;
+
+public class TableSchemaCacheTest {
+
+  private class MockCurrentUserPermissions implements TablesUserPermissions {
+
+    @Override
+    public String getOdkTablesUserId() {
+      return "myid";
+    }
+
+    @Override
+    public void checkPermission(String appId, String tableId, TablePermission permission)
+        throws ODKDatastoreException, PermissionDeniedException {
+      return;
+    }
+
+    @Override
+    public boolean hasPermission(String appId, String tableId, TablePermission permission)
+        throws ODKDatastoreException {
+      return true;
+    }
+
+    @Override
+    public boolean hasFilterScope(String appId, String tableId, TablePermission permission, String rowId, Scope filterScope) {
+      return true;
+    }
+
+  }
+
+  private CallingContext cc;
+  private TableManager tm;
+  private String schemaETag;
+
+  @Before
+  public void setUp() throws Exception {
+    this.cc = TestContextFactory.getCallingContext();
+
+    this.tm = new TableManager(T.appId, new MockCurrentUserPermissions(), cc);
+
+    this.schemaETag = tm.createTable(T.tableId, T.columns).getSchemaETag();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    try {
+      tm.deleteTable(T.tableId);
+    } catch (ODKEntityNotFoundException e) {
+      // ignore
+    }
+  }
+
+  @Test
+  public void testUnchangedSchemaETagIsACacheHit() throws ODKDatastoreException {
+    TableSchema schema = TableSchemaCache.getSchema(T.tableId, schemaETag, cc);
+    assertEquals(schemaETag, schema.schemaETag);
+    assertEquals(T.columns.size(), schema.columns.size());
+
+    assertSame(schema, TableSchemaCache.getSchema(T.tableId, schemaETag, cc));
+  }
+
+  @Test
+  public void testChangedSchemaETagIsReloaded() throws ODKDatastoreException {
+    TableSchema schema = TableSchemaCache.getSchema(T.tableId, schemaETag, cc);
+
+    // write a second schema of the table without going through the
+    // TableManager, so that nothing invalidates the cached one
+    String newSchemaETag = PersistenceUtils.newUri();
+    EntityCreator creator = new EntityCreator();
+    DbTableDefinitionsEntity definition = creator.newTableDefinitionEntity(T.tableId,
+        newSchemaETag, schema.definition.getDbTableName(), cc);
+    List<DbColumnDefinitionsEntity> columns = new ArrayList<DbColumnDefinitionsEntity>();
+    for (Column column : T.columns) {
+      columns.add(creator.newColumnEntity(T.tableId, newSchemaETag, column, cc));
+    }
+    try {
+      definition.put(cc);
+      for (DbColumnDefinitionsEntity column : columns) {
+        column.put(cc);
+      }
+
+      TableSchema reloaded = TableSchemaCache.getSchema(T.tableId, newSchemaETag, cc);
+      assertNotSame(schema, reloaded);
+      assertEquals(newSchemaETag, reloaded.schemaETag);
+      assertEquals(newSchemaETag, reloaded.definition.getSchemaETag());
+      assertSame(reloaded, TableSchemaCache.getSchema(T.tableId, newSchemaETag, cc));
+    } finally {
+      for (DbColumnDefinitionsEntity column : columns) {
+        column.delete(cc);
+      }
+      definition.delete(cc);
+      TableSchemaCache.invalidate(T.tableId);
+    }
+  }
+
+  @Test
+  public void testInvalidateForcesAReload() throws ODKDatastoreException {
+    TableSchema schema = TableSchemaCache.getSchema(T.tableId, schemaETag, cc);
+
+    TableSchemaCache.invalidate(T.tableId);
+
+    TableSchema reloaded = TableSchemaCache.getSchema(T.tableId, schemaETag, cc);
+    assertNotSame(schema, reloaded);
+    assertEquals(schemaETag, reloaded.schemaETag);
+    assertSame(reloaded, TableSchemaCache.getSchema(T.tableId, schemaETag, cc));
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2018 University of Washington
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.opendatakit.aggregate.servlet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Date;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opendatakit.common.web.constants.HtmlConsts;
+
+/**
+ * Conditional GET of attachment previews.
+ */
+public class BinaryDataServletTest {
+
+  private static final String CONTENT_HASH = "md5:0123456789abcdef";
+  private static final Date LAST_UPDATE = new Date(1500000000000L);
+
+  private BinaryDataServlet servlet;
+  private HttpServletRequest req;
+  private HttpServletResponse resp;
+
+  @Before
+  public void setUp() {
+    servlet = new BinaryDataServlet();
+    req = mock(HttpServletRequest.class);
+    when(req.getDateHeader(anyString())).thenReturn(-1L);
+    resp = mock(HttpServletResponse.class);
+  }
+
+  private boolean previewNotModified(String contentHash) {
+    return servlet.isNotModified(req, resp, BinaryDataServlet.previewETag(contentHash),
+        LAST_UPDATE);
+  }
+
+  @Test
+  public void testPreviewETagDiffersFromAttachmentETag() {
+    assertEquals(CONTENT_HASH + "-preview", BinaryDataServlet.previewETag(CONTENT_HASH));
+    assertNull(BinaryDataServlet.previewETag(null));
+  }
+
+  @Test
+  public void testMatchingPreviewETagIsNotModified() {
+    when(req.getHeader(HtmlConsts.IF_NONE_MATCH))
+        .thenReturn("\"other\", W/\"" + CONTENT_HASH + "-preview\"");
+
+    assertTrue(previewNotModified(CONTENT_HASH));
+    verify(resp).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    verify(resp).setHeader(HtmlConsts.ETAG, "\"" + CONTENT_HASH + "-preview\"");
+  }
+
+  @Test
+  public void testPreviewValidatorHeadersAreQuoted() {
+    servlet.setValidatorHeaders(resp, BinaryDataServlet.previewETag(CONTENT_HASH), LAST_UPDATE);
+
+    verify(resp).setHeader(HtmlConsts.ETAG, "\"" + CONTENT_HASH + "-preview\"");
+    verify(resp).setDateHeader(HtmlConsts.LAST_MODIFIED, LAST_UPDATE.getTime());
+  }
+
+  @Test
+  public void testAttachmentETagDoesNotValidatePreview() {
+    when(req.getHeader(HtmlConsts.IF_NONE_MATCH)).thenReturn("\"" + CONTENT_HASH + "\"");
+
+    assertFalse(previewNotModified(CONTENT_HASH));
+    verify(resp, never()).setStatus(anyInt());
+  }
+
+  @Test
+  public void testIfModifiedSinceWithoutContentHash() {
+    when(req.getDateHeader(HtmlConsts.IF_MODIFIED_SINCE))
+        .thenReturn(LAST_UPDATE.getTime() + 500L);
+
+    assertTrue(previewNotModified(null));
+    verify(resp).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    verify(resp, never()).setHeader(eq(HtmlConsts.ETAG), anyString());
+  }
+
+  @Test
+  public void testStalePreviewIsSent() {
+    when(req.getDateHeader(HtmlConsts.IF_MODIFIED_SINCE))
+        .thenReturn(LAST_UPDATE.getTime() - 1000L);
+
+    assertFalse(previewNotModified(CONTENT_HASH));
+    verify(resp, never()).setStatus(anyInt());
+  }
+}
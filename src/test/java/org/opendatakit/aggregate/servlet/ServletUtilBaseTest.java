@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2018 University of Washington
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.opendatakit.aggregate.servlet;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Date;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opendatakit.common.web.constants.HtmlConsts;
+
+/**
+ * Conditional GET handling shared by the servlets.
+ */
+public class ServletUtilBaseTest {
+
+  private static final String ETAG = "md5:0123456789abcdef";
+  private static final Date LAST_MODIFIED = new Date(1500000000250L);
+
+  private ServletUtilBase servlet;
+  private HttpServletRequest req;
+  private HttpServletResponse resp;
+
+  @Before
+  public void setUp() {
+    servlet = new ServletUtilBase();
+    req = mock(HttpServletRequest.class);
+    when(req.getDateHeader(anyString())).thenReturn(-1L);
+    resp = mock(HttpServletResponse.class);
+  }
+
+  private boolean notModified() {
+    return servlet.isNotModified(req, resp, ETAG, LAST_MODIFIED);
+  }
+
+  private void verifyNotModifiedResponse() {
+    verify(resp).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    verify(resp).setHeader(HtmlConsts.ETAG, "\"" + ETAG + "\"");
+    verify(resp).setDateHeader(HtmlConsts.LAST_MODIFIED, LAST_MODIFIED.getTime());
+  }
+
+  private void verifyUntouchedResponse() {
+    verify(resp, never()).setStatus(anyInt());
+    verify(resp, never()).setHeader(anyString(), anyString());
+    verify(resp, never()).setDateHeader(anyString(), anyLong());
+  }
+
+  @Test
+  public void testNoValidatorsIsModified() {
+    assertFalse(notModified());
+    verifyUntouchedResponse();
+  }
+
+  @Test
+  public void testMatchInIfNoneMatchList() {
+    when(req.getHeader(HtmlConsts.IF_NONE_MATCH)).thenReturn("\"a\" , \"" + ETAG + "\",\"b\"");
+
+    assertTrue(notModified());
+    verifyNotModifiedResponse();
+  }
+
+  @Test
+  public void testWeakAndUnquotedTagsMatch() {
+    when(req.getHeader(HtmlConsts.IF_NONE_MATCH)).thenReturn("W/\"" + ETAG + "\"");
+    assertTrue(notModified());
+
+    when(req.getHeader(HtmlConsts.IF_NONE_MATCH)).thenReturn(ETAG);
+    assertTrue(servlet.isNotModified(req, mock(HttpServletResponse.class), ETAG, LAST_MODIFIED));
+  }
+
+  @Test
+  public void testWildcardMatches() {
+    when(req.getHeader(HtmlConsts.IF_NONE_MATCH)).thenReturn("*");
+
+    assertTrue(notModified());
+    verifyNotModifiedResponse();
+  }
+
+  @Test
+  public void testNoMatchInIfNoneMatchList() {
+    when(req.getHeader(HtmlConsts.IF_NONE_MATCH)).thenReturn("\"a\", W/\"b\", \"\"");
+
+    assertFalse(notModified());
+    verifyUntouchedResponse();
+  }
+
+  @Test
+  public void testIfNoneMatchTakesPrecedenceOverIfModifiedSince() {
+    when(req.getHeader(HtmlConsts.IF_NONE_MATCH)).thenReturn("\"stale\"");
+    when(req.getDateHeader(HtmlConsts.IF_MODIFIED_SINCE))
+        .thenReturn(LAST_MODIFIED.getTime() + 60000L);
+
+    assertFalse(notModified());
+    verifyUntouchedResponse();
+  }
+
+  @Test
+  public void testIfModifiedSinceInTheSameSecond() {
+    // HTTP dates drop the milliseconds of the Last-Modified date we sent
+    when(req.getDateHeader(HtmlConsts.IF_MODIFIED_SINCE))
+        .thenReturn(LAST_MODIFIED.getTime() / 1000L * 1000L);
+
+    assertTrue(notModified());
+    verifyNotModifiedResponse();
+  }
+
+  @Test
+  public void testIfModifiedSinceBeforeLastModified() {
+    when(req.getDateHeader(HtmlConsts.IF_MODIFIED_SINCE))
+        .thenReturn(LAST_MODIFIED.getTime() - 1000L);
+
+    assertFalse(notModified());
+    verifyUntouchedResponse();
+  }
+
+  @Test
+  public void testUnparseableIfModifiedSinceIsIgnored() {
+    when(req.getDateHeader(HtmlConsts.IF_MODIFIED_SINCE))
+        .thenThrow(new IllegalArgumentException("bad date"));
+
+    assertFalse(notModified());
+    verifyUntouchedResponse();
+  }
+
+  @Test
+  public void testIfModifiedSinceWithoutLastModifiedIsModified() {
+    when(req.getDateHeader(HtmlConsts.IF_MODIFIED_SINCE))
+        .thenReturn(LAST_MODIFIED.getTime() + 60000L);
+
+    assertFalse(servlet.isNotModified(req, resp, ETAG, null));
+    verifyUntouchedResponse();
+  }
+}
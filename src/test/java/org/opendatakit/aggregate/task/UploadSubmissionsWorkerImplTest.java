@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2018 University of Washington
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.opendatakit.aggregate.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opendatakit.aggregate.constants.common.ExternalServicePublicationOption;
+import org.opendatakit.aggregate.constants.common.ExternalServiceType;
+import org.opendatakit.aggregate.exception.ODKExternalServiceException;
+import org.opendatakit.aggregate.externalservice.AbstractExternalService;
+import org.opendatakit.aggregate.externalservice.FormServiceCursor;
+import org.opendatakit.aggregate.form.IForm;
+import org.opendatakit.aggregate.server.ServerPreferencesProperties;
+import org.opendatakit.aggregate.submission.Submission;
+import org.opendatakit.common.persistence.CommonFieldsBase;
+import org.opendatakit.common.persistence.Datastore;
+import org.opendatakit.common.persistence.EntityKey;
+import org.opendatakit.common.persistence.ITaskLockType;
+import org.opendatakit.common.persistence.TaskLock;
+import org.opendatakit.common.security.User;
+import org.opendatakit.common.web.CallingContext;
+import org.opendatakit.common.web.TestContextFactory;
+
+public class UploadSubmissionsWorkerImplTest {
+
+  private static final int BATCH_SIZE = 25;
+
+  /**
+   * Publisher that accepts every batch without sending it anywhere.
+   */
+  private static class BatchingService extends AbstractExternalService {
+    final List<Integer> batchSizes = new ArrayList<Integer>();
+
+    BatchingService(IForm form, FormServiceCursor fsc, CallingContext cc) {
+      super(form, fsc, null, null, cc);
+    }
+
+    @Override
+    public boolean canBatchSubmissions() {
+      return true;
+    }
+
+    @Override
+    public void sendSubmissions(List<Submission> submissions, boolean streaming,
+        BatchSentHandler handler, CallingContext cc) throws ODKExternalServiceException {
+      sendSubmissionsInBatches(submissions, BATCH_SIZE, streaming, handler, cc);
+    }
+
+    @Override
+    protected void insertBatch(List<Submission> batch, CallingContext cc)
+        throws ODKExternalServiceException {
+      batchSizes.add(batch.size());
+    }
+
+    @Override
+    protected void insertData(Submission submission, CallingContext cc)
+        throws ODKExternalServiceException {
+      fail("batching publisher should not send single submissions");
+    }
+
+    @Override
+    protected String getOwnership() {
+      return null;
+    }
+
+    @Override
+    protected CommonFieldsBase retrieveObjectEntity() {
+      return null;
+    }
+
+    @Override
+    protected List<? extends CommonFieldsBase> retrieveRepeatElementEntities() {
+      return null;
+    }
+
+    @Override
+    public void initiate(CallingContext cc) {
+    }
+
+    @Override
+    public String getDescriptiveTargetString() {
+      return "test";
+    }
+  }
+
+  private FormServiceCursor fsc;
+  private IForm form;
+  private User user;
+
+  private CallingContext workerCc;
+  private Datastore workerDs;
+  private TaskLock taskLock;
+
+  @Before
+  public void setUp() throws Exception {
+    CallingContext cc = TestContextFactory.getCallingContext();
+    user = cc.getCurrentUser();
+
+    // any persisted entity will do as the service record of the cursor
+    CommonFieldsBase service = cc.getDatastore()
+        .createEntityUsingRelation(ServerPreferencesProperties.assertRelation(cc), user);
+    form = mock(IForm.class);
+    when(form.getEntityKey()).thenReturn(new EntityKey(service, "uuid:batch-renewal-test"));
+    when(form.getFormId()).thenReturn("batchRenewalTest");
+    fsc = FormServiceCursor.createFormServiceCursor(form, ExternalServiceType.JSON_SERVER, service,
+        cc);
+    fsc.setExternalServiceOption(ExternalServicePublicationOption.UPLOAD_ONLY);
+
+    // the worker sees a datastore that records the cursor updates and lock
+    // renewals instead of performing them.
+    workerDs = mock(Datastore.class);
+    taskLock = mock(TaskLock.class);
+    when(taskLock.renewLock(anyString(), anyString(), any(ITaskLockType.class))).thenReturn(true);
+    when(workerDs.createTaskLock(user)).thenReturn(taskLock);
+    workerCc = mock(CallingContext.class);
+    when(workerCc.getDatastore()).thenReturn(workerDs);
+    when(workerCc.getCurrentUser()).thenReturn(user);
+  }
+
+  private List<Submission> submissions(int count) {
+    List<Submission> submissions = new ArrayList<Submission>();
+    for (int i = 0; i < count; ++i) {
+      Submission submission = mock(Submission.class);
+      when(submission.getMarkedAsCompleteDate()).thenReturn(new Date(1000L * i));
+      when(submission.getKey()).thenReturn(new EntityKey(fsc, "uuid:submission-" + i));
+      submissions.add(submission);
+    }
+    return submissions;
+  }
+
+  @Test
+  public void testLockRenewedAfterEveryBatch() throws Exception {
+    UploadSubmissionsWorkerImpl worker = new UploadSubmissionsWorkerImpl(fsc, false, workerCc);
+    BatchingService service = new BatchingService(form, fsc, workerCc);
+
+    service.sendSubmissions(submissions(2 * BATCH_SIZE + 10), false,
+        worker.lockRenewingHandler(), workerCc);
+
+    assertEquals(3, service.batchSizes.size());
+    assertEquals(Integer.valueOf(BATCH_SIZE), service.batchSizes.get(0));
+    assertEquals(Integer.valueOf(BATCH_SIZE), service.batchSizes.get(1));
+    assertEquals(Integer.valueOf(10), service.batchSizes.get(2));
+    // one cursor checkpoint and one lock renewal per batch
+    verify(workerDs, times(3)).putEntity(fsc, user);
+    verify(taskLock, times(3)).renewLock(anyString(), eq(fsc.getUri()),
+        any(ITaskLockType.class));
+    assertEquals("uuid:submission-" + (2 * BATCH_SIZE + 9), fsc.getLastUploadKey());
+  }
+
+  @Test
+  public void testFailedRenewalStopsTheUpload() throws Exception {
+    when(taskLock.renewLock(anyString(), anyString(), any(ITaskLockType.class))).thenReturn(false);
+    UploadSubmissionsWorkerImpl worker = new UploadSubmissionsWorkerImpl(fsc, false, workerCc);
+    BatchingService service = new BatchingService(form, fsc, workerCc);
+
+    try {
+      service.sendSubmissions(submissions(2 * BATCH_SIZE), false, worker.lockRenewingHandler(),
+          workerCc);
+      fail("expected the failed lock renewal to abort the upload");
+    } catch (ODKExternalServiceException e) {
+      // expected
+    }
+    // the first batch was checkpointed before the renewal failed
+    assertEquals(1, service.batchSizes.size());
+    verify(workerDs, times(1)).putEntity(fsc, user);
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2018 University of Washington
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.opendatakit.aggregate.task.tomcat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class FairTaskPoolTest {
+
+  private static final long TIMEOUT_SECONDS = 10L;
+
+  private FairTaskPool pool;
+
+  @After
+  public void tearDown() {
+    if (pool != null) {
+      pool.shutdown();
+    }
+  }
+
+  private static Runnable awaiting(final CountDownLatch latch) {
+    return new Runnable() {
+      @Override
+      public void run() {
+        try {
+          latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+  }
+
+  private static Runnable recording(final List<String> order, final String name,
+      final CountDownLatch done) {
+    return new Runnable() {
+      @Override
+      public void run() {
+        order.add(name);
+        done.countDown();
+      }
+    };
+  }
+
+  @Test
+  public void testRoundRobinAcrossKeys() throws Exception {
+    pool = new FairTaskPool("test", 1);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(6);
+    List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+    // occupy the only thread so that everything below is queued first.
+    pool.execute("blocker", awaiting(release));
+    pool.execute("A", recording(order, "a1", done));
+    pool.execute("A", recording(order, "a2", done));
+    pool.execute("A", recording(order, "a3", done));
+    pool.execute("B", recording(order, "b1", done));
+    pool.execute("B", recording(order, "b2", done));
+    pool.execute("C", recording(order, "c1", done));
+    release.countDown();
+
+    assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    assertEquals(Arrays.asList("a1", "b1", "c1", "a2", "b2", "a3"), order);
+    assertEquals(0, pool.getQueueDepth());
+    assertEquals(7L, pool.getStartedCount());
+  }
+
+  @Test
+  public void testSameKeyRunsOneAtATime() throws Exception {
+    pool = new FairTaskPool("test", 4);
+    final int tasks = 12;
+    final AtomicInteger running = new AtomicInteger(0);
+    final AtomicInteger maxRunning = new AtomicInteger(0);
+    final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+    final CountDownLatch done = new CountDownLatch(tasks);
+
+    for (int i = 0; i < tasks; ++i) {
+      final int index = i;
+      pool.execute("A", new Runnable() {
+        @Override
+        public void run() {
+          int now = running.incrementAndGet();
+          if (now > maxRunning.get()) {
+            maxRunning.set(now);
+          }
+          try {
+            Thread.sleep(5L);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          order.add(index);
+          running.decrementAndGet();
+          done.countDown();
+        }
+      });
+    }
+
+    assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    assertEquals(1, maxRunning.get());
+    List<Integer> expected = new ArrayList<Integer>();
+    for (int i = 0; i < tasks; ++i) {
+      expected.add(i);
+    }
+    assertEquals(expected, order);
+    assertEquals(0, pool.getQueueDepth());
+  }
+
+  @Test
+  public void testDifferentKeysRunConcurrently() throws Exception {
+    pool = new FairTaskPool("test", 2);
+    final CountDownLatch bothStarted = new CountDownLatch(2);
+    final CountDownLatch done = new CountDownLatch(2);
+    final AtomicInteger overlapped = new AtomicInteger(0);
+
+    for (String key : new String[] { "A", "B" }) {
+      pool.execute(key, new Runnable() {
+        @Override
+        public void run() {
+          bothStarted.countDown();
+          try {
+            if (bothStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+              overlapped.incrementAndGet();
+            }
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          done.countDown();
+        }
+      });
+    }
+
+    assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    assertEquals(2, overlapped.get());
+  }
+
+  @Test
+  public void testDeferredTurnRunsQueuedTaskOfBusyKey() throws Exception {
+    // with a second thread idle, the second task of A must wait for the
+    // first and still be run once it finishes.
+    pool = new FairTaskPool("test", 2);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(1);
+    List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+    pool.execute("A", awaiting(release));
+    pool.execute("A", recording(order, "a2", done));
+    Thread.sleep(50L);
+    assertTrue(order.isEmpty());
+    release.countDown();
+
+    assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    assertEquals(Arrays.asList("a2"), order);
+  }
+
+  @Test(expected = RejectedExecutionException.class)
+  public void testShutdownRejectsNewTasks() {
+    pool = new FairTaskPool("test", 1);
+    pool.shutdown();
+    pool.execute("A", new Runnable() {
+      @Override
+      public void run() {
+      }
+    });
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2018 University of Washington
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.opendatakit.aggregate.util;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class ThumbnailCacheTest {
+
+  private static final int WIDTH = 64;
+  private static final int HEIGHT = 48;
+
+  @Test
+  public void testEntriesAreKeyedBySize() {
+    ThumbnailCache cache = new ThumbnailCache(1000L);
+    byte[] small = new byte[10];
+    byte[] large = new byte[20];
+    cache.put("hash", WIDTH, HEIGHT, small);
+    cache.put("hash", 2 * WIDTH, 2 * HEIGHT, large);
+
+    assertSame(small, cache.get("hash", WIDTH, HEIGHT));
+    assertSame(large, cache.get("hash", 2 * WIDTH, 2 * HEIGHT));
+    assertNull(cache.get("other", WIDTH, HEIGHT));
+  }
+
+  @Test
+  public void testFillingToTheLimitEvictsNothing() {
+    ThumbnailCache cache = new ThumbnailCache(300L);
+    cache.put("a", WIDTH, HEIGHT, new byte[100]);
+    cache.put("b", WIDTH, HEIGHT, new byte[100]);
+    cache.put("c", WIDTH, HEIGHT, new byte[100]);
+
+    assertNotNull(cache.get("a", WIDTH, HEIGHT));
+    assertNotNull(cache.get("b", WIDTH, HEIGHT));
+    assertNotNull(cache.get("c", WIDTH, HEIGHT));
+  }
+
+  @Test
+  public void testExceedingTheLimitEvictsLeastRecentlyUsed() {
+    ThumbnailCache cache = new ThumbnailCache(300L);
+    cache.put("a", WIDTH, HEIGHT, new byte[100]);
+    cache.put("b", WIDTH, HEIGHT, new byte[100]);
+    cache.put("c", WIDTH, HEIGHT, new byte[100]);
+    // touch a so that b becomes the least recently used
+    assertNotNull(cache.get("a", WIDTH, HEIGHT));
+
+    cache.put("d", WIDTH, HEIGHT, new byte[1]);
+
+    assertNull(cache.get("b", WIDTH, HEIGHT));
+    assertNotNull(cache.get("a", WIDTH, HEIGHT));
+    assertNotNull(cache.get("c", WIDTH, HEIGHT));
+    assertNotNull(cache.get("d", WIDTH, HEIGHT));
+  }
+
+  @Test
+  public void testLargeEntryEvictsAsManyAsNeeded() {
+    ThumbnailCache cache = new ThumbnailCache(300L);
+    cache.put("a", WIDTH, HEIGHT, new byte[100]);
+    cache.put("b", WIDTH, HEIGHT, new byte[100]);
+    cache.put("c", WIDTH, HEIGHT, new byte[100]);
+
+    cache.put("d", WIDTH, HEIGHT, new byte[250]);
+
+    assertNull(cache.get("a", WIDTH, HEIGHT));
+    assertNull(cache.get("b", WIDTH, HEIGHT));
+    assertNull(cache.get("c", WIDTH, HEIGHT));
+    assertNotNull(cache.get("d", WIDTH, HEIGHT));
+  }
+
+  @Test
+  public void testReplacingAnEntryReleasesItsSize() {
+    ThumbnailCache cache = new ThumbnailCache(300L);
+    cache.put("a", WIDTH, HEIGHT, new byte[200]);
+    cache.put("a", WIDTH, HEIGHT, new byte[100]);
+    cache.put("b", WIDTH, HEIGHT, new byte[200]);
+
+    // 100 + 200 fits; the replaced 200 bytes must no longer be counted
+    assertNotNull(cache.get("a", WIDTH, HEIGHT));
+    assertNotNull(cache.get("b", WIDTH, HEIGHT));
+  }
+
+  @Test
+  public void testEntryLargerThanTheLimitIsNotCached() {
+    ThumbnailCache cache = new ThumbnailCache(300L);
+    cache.put("a", WIDTH, HEIGHT, new byte[100]);
+
+    cache.put("huge", WIDTH, HEIGHT, new byte[301]);
+
+    assertNull(cache.get("huge", WIDTH, HEIGHT));
+    assertNotNull(cache.get("a", WIDTH, HEIGHT));
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2018 University of Washington
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.opendatakit.common.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CompositeIndexTest {
+
+  private static final String LONG_TABLE = "MY_VERY_LONG_FORM_ID_WITH_A_LONG_GROUP_NAME_REPEAT";
+
+  @Test
+  public void testShortNameIsUnchanged() {
+    assertEquals("TBL_cx_isccomuri", CompositeIndex.limitName("TBL_cx_isccomuri", 63));
+    String exact = LONG_TABLE + "_cx_abcdefghi";
+    assertEquals(63, exact.length());
+    assertEquals(exact, CompositeIndex.limitName(exact, 63));
+  }
+
+  @Test
+  public void testLongNameFitsAndIsStable() {
+    String name = LONG_TABLE + "_cx_isccommardatpk";
+    assertTrue(name.length() > 63);
+
+    String limited = CompositeIndex.limitName(name, 63);
+    assertEquals(63, limited.length());
+    assertTrue(limited.startsWith(LONG_TABLE));
+    assertEquals(limited, CompositeIndex.limitName(name, 63));
+  }
+
+  @Test
+  public void testLongNamesSharingAPrefixStayDistinct() {
+    String first = LONG_TABLE + "_cx_delcredatid";
+    String second = LONG_TABLE + "_cx_datrowetag";
+    assertTrue(first.length() > 63 && second.length() > 63);
+
+    assertFalse(CompositeIndex.limitName(first, 63).equals(
+        CompositeIndex.limitName(second, 63)));
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2018 University of Washington
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.opendatakit.common.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opendatakit.common.persistence.exception.ODKDatastoreException;
+import org.opendatakit.common.persistence.exception.ODKEntityNotFoundException;
+import org.opendatakit.common.security.User;
+import org.opendatakit.common.web.CallingContext;
+import org.opendatakit.common.web.TestContextFactory;
+
+public class DeleteEntitiesTest {
+
+  // more keys than pgjdbc can bind in a single statement (32767)
+  private static final int KEY_COUNT = 33000;
+  private static final int ROW_COUNT = 5;
+
+  private Datastore ds;
+  private User user;
+  private TestTable table;
+
+  @Before
+  public void setUp() throws ODKDatastoreException {
+    CallingContext cc = TestContextFactory.getCallingContext();
+    ds = cc.getDatastore();
+    user = cc.getCurrentUser();
+    table = new TestTable(ds.getDefaultSchemaName());
+    ds.assertRelation(table, user);
+  }
+
+  @Test
+  public void testDeleteMoreKeysThanOneStatementCanBind() throws ODKDatastoreException {
+    List<TestTable> rows = new ArrayList<TestTable>();
+    for (int i = 0; i < ROW_COUNT; ++i) {
+      TestTable row = ds.createEntityUsingRelation(table, user);
+      row.setStringField(TestTable.stringField, "delete-" + i);
+      rows.add(row);
+    }
+    ds.putEntities(rows, user);
+
+    // the stored rows are spread among keys that match nothing
+    int stride = KEY_COUNT / ROW_COUNT;
+    List<EntityKey> keys = new ArrayList<EntityKey>();
+    for (int i = 0; i < KEY_COUNT; ++i) {
+      if (i % stride == 0) {
+        keys.add(new EntityKey(table, rows.get(i / stride).getUri()));
+      } else {
+        keys.add(new EntityKey(table, CommonFieldsBase.newUri()));
+      }
+    }
+    assertEquals(KEY_COUNT, keys.size());
+
+    ds.deleteEntities(keys, user);
+
+    for (TestTable row : rows) {
+      try {
+        ds.getEntity(table, row.getUri(), user);
+        fail("row " + row.getUri() + " was not deleted");
+      } catch (ODKEntityNotFoundException e) {
+        // expected
+      }
+    }
+  }
+}
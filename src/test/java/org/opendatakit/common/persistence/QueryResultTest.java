@@ -17,6 +17,7 @@ package org.opendatakit.common.persistence;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.opendatakit.common.persistence.Query.Direction.ASCENDING;
 import static org.opendatakit.common.persistence.TestTable.booleanField;
 import static org.opendatakit.common.persistence.TestTable.dateField;
@@ -188,6 +189,26 @@ public class QueryResultTest {
     assertFalse(lastPage.hasMoreResults());
   }
 
+  @Test
+  public void query_executeQuery_forward_cursor_pages_through_ties() throws ODKDatastoreException {
+    // Every string value is shared by many rows. Paging with a single sort
+    // column must still return each row exactly once.
+    int pageSize = 10;
+    Set<String> pks = new HashSet<>();
+    QueryResumePoint startCursor = null;
+    QueryResult page;
+    do {
+      Query query = ds.createQuery(table, "query_executeQuery_forward_cursor_pages_through_ties", user);
+      query.addSort(stringField, ASCENDING);
+      page = query.executeQuery(startCursor, pageSize);
+      for (CommonFieldsBase cb : page.getResultList())
+        assertTrue(pks.add(cb.getUri()));
+      startCursor = page.getResumeCursor();
+    } while (page.hasMoreResults());
+
+    assertEquals(TEST_ROWS.length, pks.size());
+  }
+
   private static synchronized TestTable createTestTable() throws ODKDatastoreException {
     System.out.println("Creating the test table");
     TestTable tablePrototype = new TestTable(ds.getDefaultSchemaName());
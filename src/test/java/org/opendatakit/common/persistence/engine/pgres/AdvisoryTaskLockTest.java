@@ -0,0 +1,281 @@
+/*
+ * Copyright (C) 2018 University of Washington
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.opendatakit.common.persistence.engine.pgres;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opendatakit.common.persistence.Datastore;
+import org.opendatakit.common.persistence.ITaskLockType;
+import org.opendatakit.common.persistence.TaskLock;
+import org.opendatakit.common.security.User;
+import org.opendatakit.common.web.CallingContext;
+import org.opendatakit.common.web.TestContextFactory;
+
+/**
+ * Tests the advisory-lock task lock against a PostgreSQL datastore. Skipped
+ * when the test datastore is not PostgreSQL.
+ */
+public class AdvisoryTaskLockTest {
+
+  private static final int THREADS = 8;
+
+  private static final ITaskLockType LONG_LOCK = new TestLockType("ADVISORY_TEST", 60000L);
+  private static final ITaskLockType SHORT_LOCK = new TestLockType("ADVISORY_TEST_SHORT", 1L);
+
+  private static final class TestLockType implements ITaskLockType {
+    private final String name;
+    private final long timeout;
+
+    TestLockType(String name, long timeout) {
+      this.name = name;
+      this.timeout = timeout;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public long getLockExpirationTimeout() {
+      return timeout;
+    }
+
+    @Override
+    public long getMinSettleTime() {
+      return 0L;
+    }
+  }
+
+  private CallingContext cc;
+  private DatastoreImpl ds;
+  private User user;
+
+  @Before
+  public void setUp() {
+    cc = TestContextFactory.getCallingContext();
+    Datastore datastore = cc.getDatastore();
+    assumeTrue(datastore instanceof DatastoreImpl);
+    ds = (DatastoreImpl) datastore;
+    ds.setUseAdvisoryTaskLocks(true);
+    user = cc.getCurrentUser();
+  }
+
+  @After
+  public void tearDown() {
+    if (ds != null) {
+      ds.setUseAdvisoryTaskLocks(false);
+    }
+  }
+
+  private static String newResource() {
+    return "ADVISORY_" + UUID.randomUUID().toString();
+  }
+
+  private static String newLockId() {
+    return UUID.randomUUID().toString();
+  }
+
+  @Test
+  public void testSameKeyIsExclusive() throws Exception {
+    String formId = newResource();
+    String first = newLockId();
+    String second = newLockId();
+
+    TaskLock lock = ds.createTaskLock(user);
+    assertTrue(lock instanceof AdvisoryTaskLockImpl);
+    assertTrue(lock.obtainLock(first, formId, LONG_LOCK));
+    assertFalse(ds.createTaskLock(user).obtainLock(second, formId, LONG_LOCK));
+    assertTrue(ds.createTaskLock(user).renewLock(first, formId, LONG_LOCK));
+    assertFalse(ds.createTaskLock(user).obtainLock(second, formId, LONG_LOCK));
+    assertTrue(ds.createTaskLock(user).releaseLock(first, formId, LONG_LOCK));
+    assertTrue(ds.createTaskLock(user).obtainLock(second, formId, LONG_LOCK));
+    assertTrue(ds.createTaskLock(user).releaseLock(second, formId, LONG_LOCK));
+  }
+
+  @Test
+  public void testDifferentKeysDoNotContend() throws Exception {
+    String formId = newResource();
+    String otherFormId = newResource();
+    String first = newLockId();
+    String second = newLockId();
+    String third = newLockId();
+
+    assertTrue(ds.createTaskLock(user).obtainLock(first, formId, LONG_LOCK));
+    assertTrue(ds.createTaskLock(user).obtainLock(second, otherFormId, LONG_LOCK));
+    // same form, different task type
+    assertTrue(ds.createTaskLock(user).obtainLock(third, formId, SHORT_LOCK));
+
+    assertTrue(ds.createTaskLock(user).renewLock(first, formId, LONG_LOCK));
+    assertTrue(ds.createTaskLock(user).renewLock(second, otherFormId, LONG_LOCK));
+
+    assertTrue(ds.createTaskLock(user).releaseLock(first, formId, LONG_LOCK));
+    assertTrue(ds.createTaskLock(user).releaseLock(second, otherFormId, LONG_LOCK));
+    ds.createTaskLock(user).releaseLock(third, formId, SHORT_LOCK);
+  }
+
+  @Test
+  public void testExpiredLockOfAnotherKeyIsNotDeleted() throws Exception {
+    String formId = newResource();
+    String otherFormId = newResource();
+    String expired = newLockId();
+    String other = newLockId();
+
+    assertTrue(ds.createTaskLock(user).obtainLock(expired, formId, SHORT_LOCK));
+    Thread.sleep(50L);
+    // manipulating another key must leave the expired lock alone, so that its
+    // holder can still renew it.
+    assertTrue(ds.createTaskLock(user).obtainLock(other, otherFormId, SHORT_LOCK));
+    assertTrue(ds.createTaskLock(user).renewLock(expired, formId, SHORT_LOCK));
+
+    ds.createTaskLock(user).releaseLock(expired, formId, SHORT_LOCK);
+    ds.createTaskLock(user).releaseLock(other, otherFormId, SHORT_LOCK);
+  }
+
+  private interface LockAction {
+    boolean run(int threadIndex) throws Exception;
+  }
+
+  /**
+   * Run the action on THREADS threads released at the same moment.
+   *
+   * @return the number of threads for which the action returned true.
+   */
+  private static int runConcurrently(final LockAction action) throws Exception {
+    final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+    final AtomicInteger successes = new AtomicInteger(0);
+    final AtomicInteger failures = new AtomicInteger(0);
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int i = 0; i < THREADS; ++i) {
+      final int threadIndex = i;
+      Thread t = new Thread() {
+        @Override
+        public void run() {
+          try {
+            barrier.await();
+            if (action.run(threadIndex)) {
+              successes.incrementAndGet();
+            }
+          } catch (Exception e) {
+            e.printStackTrace();
+            failures.incrementAndGet();
+          }
+        }
+      };
+      t.start();
+      threads.add(t);
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    assertEquals(0, failures.get());
+    return successes.get();
+  }
+
+  @Test
+  public void testConcurrentObtainOnSameKey() throws Exception {
+    final String formId = newResource();
+    final String[] lockIds = new String[THREADS];
+    for (int i = 0; i < THREADS; ++i) {
+      lockIds[i] = newLockId();
+    }
+
+    int obtained = runConcurrently(new LockAction() {
+      @Override
+      public boolean run(int threadIndex) throws Exception {
+        return ds.createTaskLock(user).obtainLock(lockIds[threadIndex], formId, LONG_LOCK);
+      }
+    });
+    assertEquals(1, obtained);
+
+    for (String lockId : lockIds) {
+      ds.createTaskLock(user).releaseLock(lockId, formId, LONG_LOCK);
+    }
+  }
+
+  @Test
+  public void testConcurrentObtainRenewReleaseOnDifferentKeys() throws Exception {
+    final String[] formIds = new String[THREADS];
+    final String[] lockIds = new String[THREADS];
+    for (int i = 0; i < THREADS; ++i) {
+      formIds[i] = newResource();
+      lockIds[i] = newLockId();
+    }
+
+    assertEquals(THREADS, runConcurrently(new LockAction() {
+      @Override
+      public boolean run(int threadIndex) throws Exception {
+        return ds.createTaskLock(user).obtainLock(lockIds[threadIndex], formIds[threadIndex],
+            LONG_LOCK);
+      }
+    }));
+    assertEquals(THREADS, runConcurrently(new LockAction() {
+      @Override
+      public boolean run(int threadIndex) throws Exception {
+        return ds.createTaskLock(user).renewLock(lockIds[threadIndex], formIds[threadIndex],
+            LONG_LOCK);
+      }
+    }));
+    assertEquals(THREADS, runConcurrently(new LockAction() {
+      @Override
+      public boolean run(int threadIndex) throws Exception {
+        return ds.createTaskLock(user).releaseLock(lockIds[threadIndex], formIds[threadIndex],
+            LONG_LOCK);
+      }
+    }));
+  }
+
+  @Test
+  public void testConcurrentRenewAndObtainOnSameKey() throws Exception {
+    final String formId = newResource();
+    final String holder = newLockId();
+    assertTrue(ds.createTaskLock(user).obtainLock(holder, formId, LONG_LOCK));
+
+    final String[] contenders = new String[THREADS];
+    for (int i = 0; i < THREADS; ++i) {
+      contenders[i] = newLockId();
+    }
+    // thread 0 renews the held lock while the others try to take it.
+    int succeeded = runConcurrently(new LockAction() {
+      @Override
+      public boolean run(int threadIndex) throws Exception {
+        if (threadIndex == 0) {
+          return ds.createTaskLock(user).renewLock(holder, formId, LONG_LOCK);
+        }
+        return ds.createTaskLock(user).obtainLock(contenders[threadIndex], formId, LONG_LOCK);
+      }
+    });
+    assertEquals(1, succeeded);
+    assertTrue(ds.createTaskLock(user).renewLock(holder, formId, LONG_LOCK));
+
+    assertTrue(ds.createTaskLock(user).releaseLock(holder, formId, LONG_LOCK));
+    for (String lockId : contenders) {
+      ds.createTaskLock(user).releaseLock(lockId, formId, LONG_LOCK);
+    }
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2018 University of Washington
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.opendatakit.common.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class WebUtilsTest {
+
+  private static final long LENGTH = 1000L;
+
+  @Test
+  public void testClosedRange() {
+    assertArrayEquals(new long[] { 0L, 499L }, WebUtils.parseByteRange("bytes=0-499", LENGTH));
+    assertArrayEquals(new long[] { 500L, 999L },
+        WebUtils.parseByteRange("bytes=500-999", LENGTH));
+    assertArrayEquals(new long[] { 7L, 7L }, WebUtils.parseByteRange("bytes= 7 - 7 ", LENGTH));
+    // the last position is clipped to the end of the resource
+    assertArrayEquals(new long[] { 900L, 999L },
+        WebUtils.parseByteRange("bytes=900-5000", LENGTH));
+  }
+
+  @Test
+  public void testOpenEndedRange() {
+    assertArrayEquals(new long[] { 0L, 999L }, WebUtils.parseByteRange("bytes=0-", LENGTH));
+    assertArrayEquals(new long[] { 999L, 999L }, WebUtils.parseByteRange("bytes=999-", LENGTH));
+  }
+
+  @Test
+  public void testSuffixRange() {
+    assertArrayEquals(new long[] { 900L, 999L }, WebUtils.parseByteRange("bytes=-100", LENGTH));
+    assertArrayEquals(new long[] { 999L, 999L }, WebUtils.parseByteRange("bytes=-1", LENGTH));
+    // a suffix longer than the resource is the whole resource
+    assertArrayEquals(new long[] { 0L, 999L }, WebUtils.parseByteRange("bytes=-5000", LENGTH));
+  }
+
+  @Test
+  public void testRangePastEndIsUnsatisfiable() {
+    assertSame(WebUtils.UNSATISFIABLE_BYTE_RANGE,
+        WebUtils.parseByteRange("bytes=1000-", LENGTH));
+    assertSame(WebUtils.UNSATISFIABLE_BYTE_RANGE,
+        WebUtils.parseByteRange("bytes=1000-1999", LENGTH));
+    assertSame(WebUtils.UNSATISFIABLE_BYTE_RANGE,
+        WebUtils.parseByteRange("bytes=5000-6000", LENGTH));
+    assertSame(WebUtils.UNSATISFIABLE_BYTE_RANGE, WebUtils.parseByteRange("bytes=-0", LENGTH));
+    assertSame(WebUtils.UNSATISFIABLE_BYTE_RANGE, WebUtils.parseByteRange("bytes=0-", 0L));
+    assertSame(WebUtils.UNSATISFIABLE_BYTE_RANGE, WebUtils.parseByteRange("bytes=-10", 0L));
+  }
+
+  @Test
+  public void testMultipleRangesAreIgnored() {
+    assertNull(WebUtils.parseByteRange("bytes=0-99,200-299", LENGTH));
+    assertNull(WebUtils.parseByteRange("bytes=0-99, -100", LENGTH));
+  }
+
+  @Test
+  public void testMalformedRangesAreIgnored() {
+    assertNull(WebUtils.parseByteRange(null, LENGTH));
+    assertNull(WebUtils.parseByteRange("", LENGTH));
+    assertNull(WebUtils.parseByteRange("items=0-99", LENGTH));
+    assertNull(WebUtils.parseByteRange("bytes=", LENGTH));
+    assertNull(WebUtils.parseByteRange("bytes=100", LENGTH));
+    assertNull(WebUtils.parseByteRange("bytes=abc-def", LENGTH));
+    assertNull(WebUtils.parseByteRange("bytes=-", LENGTH));
+    // last before first is invalid, not unsatisfiable
+    assertNull(WebUtils.parseByteRange("bytes=500-100", LENGTH));
+    assertNull(WebUtils.parseByteRange("bytes=5--6", LENGTH));
+  }
+}